@@ -0,0 +1,285 @@
+package io.pjseebald.travel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * <h1>AggregateFile</h1>
+ * Totals of each driver over a period of days, with the sketches of their speeds and trip durations, that can be
+ * saved after a run (the -saveaggregates option) and merged with the files of other runs without their trips (the
+ * -rollup option). Totals are sums of longs and sketches merge exactly, so merging the files of 30 days gives the
+ * same totals and percentiles as one run over the 30 days, at the cost of reading 30 small files.
+ * <p>
+ * The period of a run is the days its trips started on, so every trip has to have a date: totals and sketches cannot
+ * be split without the trips, and the miles of a trip without a date would be counted in whatever period the file is
+ * rolled up into. Files are rolled up into days, weeks (ISO, from
+ * Monday) or months; a file has to fit in one period of the rollup, so daily files can be rolled up into weeks and
+ * months, and weekly files into months only when the week is within the month.
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class AggregateFile {
+
+	private static final int magic = 0x54414747;
+	private static final int version = 1;
+
+	// First and last day of the period (inclusive), or null if there were no trips.
+	private LocalDate from;
+	private LocalDate to;
+	private final Map<String, DriverAggregate> aggregates = new HashMap<>();
+	private final TripDistributions distributions = new TripDistributions();
+
+	/**
+	 * Constructor for an empty file of a period.
+	 * @param from		First day of the period, or null if there is no period.
+	 * @param to		Last day of the period (inclusive), or null if there is no period.
+	 */
+	public AggregateFile(LocalDate from, LocalDate to) {
+		this.from = from;
+		this.to = to;
+	}
+
+	/**
+	 * Totals and sketches of the drivers of a run, over the days their trips started on.
+	 * @param drivers				Drivers by name.
+	 * @param tripDistributions		Sketches of the drivers' trips, or null to save the totals only.
+	 * @return AggregateFile		File of the run, to be written.
+	 * @throws IllegalArgumentException		If a driver has a trip without a date, which is in no period.
+	 */
+	public static AggregateFile of(Map<String, Driver> drivers, TripDistributions tripDistributions) {
+		long[] seconds = {Long.MAX_VALUE, Long.MIN_VALUE};
+		for (Driver driver : drivers.values()) {
+			driver.scanTrips((dated, startSecond, endSecond, scaledDistance) -> {
+				if (!dated) {
+					throw new IllegalArgumentException("Cannot save the aggregates of driver " + driver.getName()
+							+ ", it has trips without dates.");
+				}
+				seconds[0] = Math.min(seconds[0], startSecond);
+				seconds[1] = Math.max(seconds[1], startSecond);
+			});
+		}
+		AggregateFile file = seconds[0] > seconds[1] ? new AggregateFile(null, null)
+				: new AggregateFile(toDate(seconds[0]), toDate(seconds[1]));
+		for (Driver driver : drivers.values()) {
+			file.aggregates.put(driver.getName(), driver.getAggregate().copy());
+			QuantileSketch[] sketches = tripDistributions == null ? null : tripDistributions.getSketches(driver.getName());
+			if (sketches != null) {
+				file.distributions.merge(driver.getName(), sketches[0], sketches[1]);
+			}
+		}
+		return file;
+	}
+
+	/**
+	 * Add the totals and sketches of another file to this one, and widen the period to cover both.
+	 * @param other		File to merge into this one.
+	 */
+	public void merge(AggregateFile other) {
+		if (other.from != null) {
+			from = from == null || other.from.isBefore(from) ? other.from : from;
+			to = to == null || other.to.isAfter(to) ? other.to : to;
+		}
+		for (Map.Entry<String, DriverAggregate> entry : other.aggregates.entrySet()) {
+			DriverAggregate aggregate = aggregates.get(entry.getKey());
+			if (aggregate == null) {
+				aggregates.put(entry.getKey(), entry.getValue().copy());
+			} else {
+				aggregate.merge(entry.getValue());
+			}
+			QuantileSketch[] sketches = other.distributions.getSketches(entry.getKey());
+			if (sketches != null) {
+				distributions.merge(entry.getKey(), sketches[0], sketches[1]);
+			}
+		}
+	}
+
+	/**
+	 * Merge files into one file per period they are in, e.g. daily files into months.
+	 * @param files						Files to roll up, each with a period within one period of the rollup.
+	 * @param period					Period of the rollup.
+	 * @return List<AggregateFile>		One file per period, in order of the periods.
+	 * @throws IllegalArgumentException		If a file has no period or its period is in more than one period of the rollup.
+	 */
+	public static List<AggregateFile> rollup(List<AggregateFile> files, Period period) {
+		TreeMap<LocalDate, AggregateFile> periods = new TreeMap<>();
+		for (AggregateFile file : files) {
+			if (file.from == null) {
+				throw new IllegalArgumentException("Cannot roll up a file without trips.");
+			}
+			LocalDate start = period.getStart(file.from);
+			if (!start.equals(period.getStart(file.to))) {
+				throw new IllegalArgumentException("File from " + file.from + " to " + file.to + " is in more than one "
+						+ period.name().toLowerCase() + ", roll up shorter periods instead.");
+			}
+			AggregateFile rolled = periods.get(start);
+			if (rolled == null) {
+				rolled = new AggregateFile(null, null);
+				periods.put(start, rolled);
+			}
+			rolled.merge(file);
+		}
+		return new ArrayList<>(periods.values());
+	}
+
+	/**
+	 * Write the file so it can be read back with read().
+	 * @param location			File to write.
+	 * @throws IOException		If the file cannot be written.
+	 */
+	public void write(Path location) throws IOException {
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(location)))) {
+			output.writeInt(magic);
+			output.writeInt(version);
+			output.writeInt(FixedPoint.getPrecision());
+			output.writeBoolean(from != null);
+			if (from != null) {
+				output.writeLong(from.toEpochDay());
+				output.writeLong(to.toEpochDay());
+			}
+			output.writeInt(aggregates.size());
+			for (Map.Entry<String, DriverAggregate> entry : aggregates.entrySet()) {
+				DriverAggregate aggregate = entry.getValue();
+				output.writeUTF(entry.getKey());
+				output.writeLong(aggregate.getScaledDistance());
+				output.writeLong(aggregate.getSecondsTraveled());
+				output.writeLong(aggregate.getTrips());
+				QuantileSketch[] sketches = distributions.getSketches(entry.getKey());
+				output.writeBoolean(sketches != null);
+				if (sketches != null) {
+					sketches[0].writeTo(output);
+					sketches[1].writeTo(output);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Read a file written with write().
+	 * @param location			File to read.
+	 * @return AggregateFile	File with the same period, totals and sketches.
+	 * @throws IOException		If the file cannot be read or is not an aggregate file of the same precision.
+	 */
+	public static AggregateFile read(Path location) throws IOException {
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(location)))) {
+			if (input.readInt() != magic || input.readInt() != version) {
+				throw new IOException("Not an aggregate file: " + location);
+			}
+			int precision = input.readInt();
+			if (precision != FixedPoint.getPrecision()) {
+				throw new IOException("Aggregate file was written with a precision of " + precision + " digits, not "
+						+ FixedPoint.getPrecision() + ": " + location);
+			}
+			AggregateFile file = input.readBoolean()
+					? new AggregateFile(LocalDate.ofEpochDay(input.readLong()), LocalDate.ofEpochDay(input.readLong()))
+					: new AggregateFile(null, null);
+			int drivers = input.readInt();
+			for (int i = 0; i < drivers; i++) {
+				String name = input.readUTF();
+				file.aggregates.put(name, new DriverAggregate(input.readLong(), input.readLong(), input.readLong()));
+				if (input.readBoolean()) {
+					file.distributions.merge(name, QuantileSketch.readFrom(input), QuantileSketch.readFrom(input));
+				}
+			}
+			return file;
+		}
+	}
+
+	/**
+	 * Getter for the first day of the period.
+	 * @return LocalDate		First day, or null if there were no trips with dates.
+	 */
+	public LocalDate getFrom() {
+		return from;
+	}
+
+	/**
+	 * Getter for the last day of the period.
+	 * @return LocalDate		Last day (inclusive), or null if there were no trips with dates.
+	 */
+	public LocalDate getTo() {
+		return to;
+	}
+
+	/**
+	 * Getter for the totals of the drivers.
+	 * @return Map<String, DriverAggregate>		Totals by driver name.
+	 */
+	public Map<String, DriverAggregate> getAggregates() {
+		return aggregates;
+	}
+
+	/**
+	 * Getter for the sketches of the drivers' speeds and trip durations.
+	 * @return TripDistributions		Sketches, for the drivers whose runs kept them.
+	 */
+	public TripDistributions getDistributions() {
+		return distributions;
+	}
+
+	private static LocalDate toDate(long second) {
+		return LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC).toLocalDate();
+	}
+
+	/**
+	 * <h1>Period</h1>
+	 * Periods that files can be rolled up into.
+	 *
+	 * @author PaulSEEBALD
+	 * @version 1.0
+	 * @since 2026-10-19
+	 */
+	public enum Period {
+		DAY, WEEK, MONTH;
+
+		/**
+		 * First day of the period a day is in.
+		 * @param date				Day.
+		 * @return LocalDate		The day, the Monday before it, or the first of its month.
+		 */
+		public LocalDate getStart(LocalDate date) {
+			switch(this) {
+				case WEEK:
+					return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+				case MONTH:
+					return date.withDayOfMonth(1);
+				default:
+					return date;
+			}
+		}
+
+		/**
+		 * Name of the period a day is in, e.g. 2018-11-02, 2018-W44 or 2018-11.
+		 * @param date			Day.
+		 * @return String		Name of the period, also used to name its file.
+		 */
+		public String getName(LocalDate date) {
+			switch(this) {
+				case WEEK:
+					return String.format("%d-W%02d", date.get(IsoFields.WEEK_BASED_YEAR), date.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR));
+				case MONTH:
+					return YearMonth.from(date).toString();
+				default:
+					return date.toString();
+			}
+		}
+	}
+}
@@ -0,0 +1,215 @@
+package io.pjseebald.travel;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <h1>AnomalyDetector</h1>
+ * Finds unusual trips as they are added (the -anomalies option) and writes a line for each to an output of its own,
+ * instead of a second pass over the drivers after the run. Trip.checkTrip() only drops trips outside fixed limits
+ * that are the same for every driver; this compares each trip with the driver's own recent trips.
+ * <p>
+ * Each driver has a fixed amount of state, however many trips it has: an exponentially weighted moving average
+ * (EWMA) and variance of the speed and of the minutes of its trips, and the times of its last trip. A trip is an
+ * anomaly when:
+ * <ul>
+ * <li>SPEED_SPIKE: its speed is more deviations above the driver's average speed than the threshold.</li>
+ * <li>DURATION_SPIKE: its minutes are more deviations above the driver's average minutes than the threshold.</li>
+ * <li>DUPLICATE_WINDOW: it starts and ends at the same times as the driver's last trip.</li>
+ * <li>OUT_OF_ORDER: it starts before the driver's last trip ended (trips with dates only).</li>
+ * <li>LONG_GAP: it starts longer after the driver's last trip ended than the longest gap (trips with dates only).</li>
+ * </ul>
+ * Spikes are only checked after a few trips of the driver, so the averages have settled. The deviation is at least
+ * a tenth of the average, so drivers whose trips are all alike are not flagged for small changes. Anomalies are
+ * still added and counted in the report; removed trips are not taken back out of the averages.
+ * <p>
+ * The methods are synchronized, so the detector can be added as a listener of drivers that are changed by
+ * several threads (e.g. the appliers of an IngestPipeline) without being wrapped.
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class AnomalyDetector implements DriverListener {
+
+	/**
+	 * Kinds of anomalies, in the order they are checked.
+	 */
+	public enum Kind {
+		DUPLICATE_WINDOW, OUT_OF_ORDER, LONG_GAP, SPEED_SPIKE, DURATION_SPIKE
+	}
+
+	// State of a driver's trips, a few numbers each.
+	private static final class DriverStats {
+		long trips;
+		double speed;
+		double speedVariance;
+		double minutes;
+		double minutesVariance;
+		boolean dated;
+		long lastStart;
+		long lastEnd;
+	}
+
+	private final Writer output;
+	private final double weight;
+	private final double deviations;
+	private final int warmup;
+	private final long longestGapSeconds;
+	private final Map<String, DriverStats> stats = new HashMap<>();
+	private final Map<Kind, Long> counts = new EnumMap<>(Kind.class);
+
+	/**
+	 * Constructor for a detector with a weight of 0.1 for each new trip, a threshold of 4 deviations after 5 trips,
+	 * and a longest gap of 30 days.
+	 * @param output		Written a line for each anomaly.
+	 */
+	public AnomalyDetector(Writer output) {
+		this(output, 0.1, 4., 5, 30L * 24 * 3600);
+	}
+
+	/**
+	 * Constructor for a detector with its thresholds.
+	 * @param output				Written a line for each anomaly.
+	 * @param weight				Weight of a new trip in the averages, between 0 and 1. Higher follows changes faster.
+	 * @param deviations			Deviations above the average for a spike.
+	 * @param warmup				Trips of a driver before its spikes are checked.
+	 * @param longestGapSeconds		Longest gap between trips with dates that is not an anomaly.
+	 */
+	public AnomalyDetector(Writer output, double weight, double deviations, int warmup, long longestGapSeconds) {
+		if (!(weight > 0 && weight <= 1)) {
+			throw new IllegalArgumentException("Weight of a new trip must be between 0 and 1: " + weight);
+		}
+		this.output = output;
+		this.weight = weight;
+		this.deviations = deviations;
+		this.warmup = warmup;
+		this.longestGapSeconds = longestGapSeconds;
+	}
+
+	/**
+	 * Checks a Trip against the Driver's recent trips as it is added, then adds it to them.
+	 */
+	@Override
+	public synchronized void tripAdded(Driver driver, Trip trip) {
+		DriverStats driverStats = stats.computeIfAbsent(driver.getName(), name -> new DriverStats());
+		boolean dated = trip.getStartDate() != null;
+		long start = trip.getStartSecond();
+		long end = trip.getEndSecond();
+		long seconds = end - start;
+		double speed = seconds > 0 ? trip.getDistanceTraveled() * 3600 / seconds : Double.NaN;
+		double minutes = seconds / 60.;
+
+		if (driverStats.trips > 0 && driverStats.dated == dated) {
+			if (start == driverStats.lastStart && end == driverStats.lastEnd) {
+				report(Kind.DUPLICATE_WINDOW, driver, trip, "same times as the last trip");
+			} else if (dated && start < driverStats.lastEnd) {
+				report(Kind.OUT_OF_ORDER, driver, trip, "starts " + (driverStats.lastEnd - start) / 60
+						+ " minutes before the last trip ended");
+			} else if (dated && start - driverStats.lastEnd > longestGapSeconds) {
+				report(Kind.LONG_GAP, driver, trip, (start - driverStats.lastEnd) / 3600 + " hours after the last trip");
+			}
+		}
+		if (driverStats.trips >= warmup) {
+			if (!Double.isNaN(speed) && isSpike(speed, driverStats.speed, driverStats.speedVariance)) {
+				report(Kind.SPEED_SPIKE, driver, trip, String.format("%.1f mph, average %.1f mph", speed, driverStats.speed));
+			}
+			if (isSpike(minutes, driverStats.minutes, driverStats.minutesVariance)) {
+				report(Kind.DURATION_SPIKE, driver, trip, String.format("%.0f minutes, average %.0f minutes", minutes,
+						driverStats.minutes));
+			}
+		}
+
+		if (driverStats.trips == 0) {
+			driverStats.speed = Double.isNaN(speed) ? 0 : speed;
+			driverStats.minutes = minutes;
+		} else {
+			if (!Double.isNaN(speed)) {
+				double difference = speed - driverStats.speed;
+				driverStats.speed += weight * difference;
+				driverStats.speedVariance = (1 - weight) * (driverStats.speedVariance + weight * difference * difference);
+			}
+			double difference = minutes - driverStats.minutes;
+			driverStats.minutes += weight * difference;
+			driverStats.minutesVariance = (1 - weight) * (driverStats.minutesVariance + weight * difference * difference);
+		}
+		driverStats.trips++;
+		driverStats.dated = dated;
+		driverStats.lastStart = start;
+		driverStats.lastEnd = end;
+	}
+
+	/**
+	 * Forgets the recent trips of a removed Driver.
+	 */
+	@Override
+	public synchronized void driverRemoved(Driver driver) {
+		stats.remove(driver.getName());
+	}
+
+	/**
+	 * Moves the recent trips of a renamed Driver to its new name.
+	 */
+	@Override
+	public synchronized void driverRenamed(Driver driver, String oldName) {
+		DriverStats driverStats = stats.remove(oldName);
+		if (driverStats != null) {
+			stats.put(driver.getName(), driverStats);
+		}
+	}
+
+	/**
+	 * Getter for the number of anomalies of a kind found so far.
+	 * @param kind			Kind of anomaly.
+	 * @return long			Number of anomalies.
+	 */
+	public synchronized long count(Kind kind) {
+		return counts.getOrDefault(kind, 0L);
+	}
+
+	/**
+	 * Short summary of the anomalies, with a count for each kind that occurred.
+	 * @return String		Summary of anomalies.
+	 */
+	public synchronized String getSummary() {
+		long total = 0;
+		String lines = "";
+		for (Kind kind : Kind.values()) {
+			long count = count(kind);
+			if (count > 0) {
+				total += count;
+				lines += System.lineSeparator() + "  " + kind + ": " + count;
+			}
+		}
+		return "Anomalies: " + total + lines;
+	}
+
+	// A value above the average by more deviations than the threshold. The deviation is at least a tenth of the average.
+	private boolean isSpike(double value, double average, double variance) {
+		double deviation = Math.max(Math.sqrt(variance), Math.abs(average) / 10);
+		return deviation > 0 && value - average > deviations * deviation;
+	}
+
+	private void report(Kind kind, Driver driver, Trip trip, String detail) {
+		counts.merge(kind, 1L, Long::sum);
+		try {
+			output.write(kind + "\t" + driver.getName() + "\t" + format(trip.getStartDate(), trip.getStartTime()) + "\t"
+					+ format(trip.getEndDate(), trip.getEndTime()) + "\t"
+					+ trip.getDistanceTraveled() + "\t" + detail + System.lineSeparator());
+		} catch (IOException e) {
+			throw new UncheckedIOException("Error writing anomaly of driver " + driver.getName(), e);
+		}
+	}
+
+	// Date and time of a trip with dates, or the time only of one without.
+	private static String format(LocalDate date, LocalTime time) {
+		return date != null ? LocalDateTime.of(date, time).toString() : time.toString();
+	}
+}
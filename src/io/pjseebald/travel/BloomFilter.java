@@ -0,0 +1,147 @@
+package io.pjseebald.travel;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * <h1>BloomFilter</h1>
+ * Set of strings in a fixed number of bits that can tell for sure that a string was never added, e.g. that a
+ * segment of trips has no trips of a driver, so the segment does not need to be read. A string that was added is
+ * always found, and one that was not is found with a small, chosen probability (a false positive).
+ * <p>
+ * Each string sets k bits, picked by double hashing a 64-bit hash of its characters.
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class BloomFilter {
+
+	private final long[] words;
+	private final int bits;
+	private final int hashes;
+
+	/**
+	 * Constructor for a filter sized for a number of strings and a false positive rate.
+	 * @param expected				Number of strings that will be added.
+	 * @param falsePositiveRate		Chance that a string that was not added is found, between 0 and 1.
+	 */
+	public BloomFilter(long expected, double falsePositiveRate) {
+		if (!(falsePositiveRate > 0) || !(falsePositiveRate < 1)) {
+			throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + falsePositiveRate);
+		}
+		long n = Math.max(1, expected);
+		long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		if (m > Integer.MAX_VALUE - 63) {
+			throw new IllegalArgumentException("Bloom filter would be too large: " + m + " bits");
+		}
+		this.bits = (int) Math.max(64, m);
+		this.hashes = (int) Math.max(1, Math.round((double) bits / n * Math.log(2)));
+		this.words = new long[(bits + 63) >>> 6];
+	}
+
+	private BloomFilter(int bits, int hashes, long[] words) {
+		this.bits = bits;
+		this.hashes = hashes;
+		this.words = words;
+	}
+
+	/**
+	 * Add a string to the filter.
+	 * @param value		String to add.
+	 */
+	public void add(String value) {
+		add(hash(value));
+	}
+
+	/**
+	 * Add a value to the filter by its 64-bit hash, e.g. a fingerprint of a trip, so no String is built for it.
+	 * @param hash		Well mixed 64-bit hash of the value, both halves are used.
+	 */
+	public void add(long hash) {
+		int h1 = (int) hash;
+		// An odd step visits different bits for every i.
+		int h2 = (int) (hash >>> 32) | 1;
+		for (int i = 0; i < hashes; i++) {
+			int bit = Math.floorMod(h1 + i * h2, bits);
+			words[bit >>> 6] |= 1L << bit;
+		}
+	}
+
+	/**
+	 * Checks if a string might have been added.
+	 * @param value			String to look for.
+	 * @return boolean		false if the string was surely never added, true if it probably was.
+	 */
+	public boolean mightContain(String value) {
+		return mightContain(hash(value));
+	}
+
+	/**
+	 * Checks if a value might have been added by its 64-bit hash (see add(long)).
+	 * @param hash			Well mixed 64-bit hash of the value.
+	 * @return boolean		false if the value was surely never added, true if it probably was.
+	 */
+	public boolean mightContain(long hash) {
+		int h1 = (int) hash;
+		int h2 = (int) (hash >>> 32) | 1;
+		for (int i = 0; i < hashes; i++) {
+			int bit = Math.floorMod(h1 + i * h2, bits);
+			if ((words[bit >>> 6] & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Getter for the number of bits of the filter.
+	 * @return int		Number of bits.
+	 */
+	public int getBits() {
+		return bits;
+	}
+
+	/**
+	 * Write the filter so it can be read back with readFrom().
+	 * @param output		Output to write to.
+	 * @throws IOException	If the output cannot be written.
+	 */
+	public void writeTo(DataOutput output) throws IOException {
+		output.writeInt(bits);
+		output.writeInt(hashes);
+		for (long word : words) {
+			output.writeLong(word);
+		}
+	}
+
+	/**
+	 * Read a filter written with writeTo().
+	 * @param input				Input to read from.
+	 * @return BloomFilter		Filter with the same strings.
+	 * @throws IOException		If the input cannot be read.
+	 */
+	public static BloomFilter readFrom(DataInput input) throws IOException {
+		int bits = input.readInt();
+		int hashes = input.readInt();
+		long[] words = new long[(bits + 63) >>> 6];
+		for (int i = 0; i < words.length; i++) {
+			words[i] = input.readLong();
+		}
+		return new BloomFilter(bits, hashes, words);
+	}
+
+	// FNV-1a over the characters, then mixed so both halves are usable as hashes.
+	private static long hash(String value) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			hash ^= value.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
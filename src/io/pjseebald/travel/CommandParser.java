@@ -1,110 +1,735 @@
-package io.pjseebald.travel;
-
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
-import java.util.List;
-import java.util.Map;
-
-/**
- * <h1>CommandParser</h1>
- * Parses commands that are input as lists of string arrays. The string arrays separates the parameters
- * of the command, with the command name as the first element in the array. Executes the commands.
- * 
- * @author PaulSEEBALD
- * @version 1.0
- * @since 2018-11-02
- */
-public class CommandParser {
-	
-	// Formatting time stamp
-	private final static String timeFormatPattern = "HH:mm";
-	private final static DateTimeFormatter formatter = DateTimeFormatter.ofPattern(timeFormatPattern);
-	
-	/**
-	 * Takes a list of commands that are represented by String arrays.
-	 * Parses each command individually in order.
-	 * @param commandInputs		All input commands to execute, in order.
-	 */
-	public static void parseCommands(List<String[]> commandInputs) {
-		for (String[] commandInput : commandInputs) {
-			parseCommand(commandInput);
-		}
-	}
-	
-	/**
-	 * Input is a string array of a command, with the command name as the first element in the array.
-	 * Proceeding array elements are the parameters of the command.
-	 * @param commandInputs		Command represented by String array.
-	 */
-	public static void parseCommand(String[] commandInputs) {
-		
-		String command = commandInputs[0];
-		
-		Map<String, Driver> drivers = MainApp.getDrivers();
-		
-		CommandType inputCommand = CommandType.valueOf(command.toUpperCase());
-		
-		String nameMatch = "^[a-zA-Z\\s]+";
-		
-		String name;
-		switch(inputCommand) {
-			case DRIVER:
-				// Accounting for names that could have a space in them.
-				name = "";
-				for (int j = 1; j < commandInputs.length; j++) {
-					String curInput = commandInputs[j];
-					// Check that the current input matches an expected English name format
-					if (curInput.matches(nameMatch)) {
-						name += (j == 1 ? "" : " ") + commandInputs[j];
-					} else {
-						throw new IllegalStateException("Unexpected characters in name: " + curInput);
-					}
-				}
-				drivers.put(name, new Driver(name));
-				break;
-			case TRIP:
-				// Accounting for names that could have a space in them.
-				name = "";
-				int i = 1;		// Want i to be accessible after the loop to get the times and miles
-				for ( ; i < commandInputs.length; i++) {
-					String curWord = commandInputs[i];
-					if (curWord.contains(":")) {
-						// Recognize this as a time
-						break;
-					}
-					
-					if (name.length() > 0) {
-						name += " ";
-					}
-					
-					name += curWord;
-				}
-				
-				// Now get times
-				LocalTime startTime = LocalTime.parse(commandInputs[i], formatter);
-				LocalTime endTime = LocalTime.parse(commandInputs[i+1], formatter);
-				Double milesTraveled = Double.parseDouble(commandInputs[i+2]);
-				
-				drivers.get(name).addTrip(new Trip(startTime, endTime, milesTraveled));
-				
-				break;
-			default:
-				break;
-		}
-	}
-	
-	/**
-	 * <h1>CommandType</h1>
-	 * Enum with types of commands that can be input to this app.
-	 * 
-	 * DRIVER, TRIP
-	 * 
-	 * @author PaulSEEBALD
-	 * @version 1.0
-	 * @since 2018-11-02
-	 */
-	private enum CommandType {
-		DRIVER, TRIP;
-	}
-
-}
+package io.pjseebald.travel;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * <h1>CommandParser</h1>
+ * Parses commands that are input as lists of string arrays. The string arrays separates the parameters
+ * of the command, with the command name as the first element in the array. Executes the commands.
+ * 
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2018-11-02
+ */
+public class CommandParser {
+	
+	// Formatting time stamp
+	private final static String timeFormatPattern = "HH:mm";
+	private final static DateTimeFormatter formatter = DateTimeFormatter.ofPattern(timeFormatPattern);
+	private final static String dateTimeFormatPattern = "uuuu-MM-dd'T'HH:mm";
+	private final static DateTimeFormatter dateTimeFormatter = DateTimeFormatter.ofPattern(dateTimeFormatPattern);
+	
+	// Compiled once, String.matches() would compile the expression again for every word.
+	private final static Pattern nameMatch = Pattern.compile("^[a-zA-Z\\s]+");
+	
+	// Separates the old and new name of a Rename command.
+	private final static String renameSeparator = "->";
+	
+	// Skips Trip commands that were already applied, or null to apply every Trip command.
+	private static TripDeduplicator deduplicator = null;
+
+	/**
+	 * Takes a list of commands that are represented by String arrays.
+	 * Parses each command individually in order.
+	 * @param commandInputs		All input commands to execute, in order.
+	 */
+	public static void parseCommands(List<String[]> commandInputs) {
+		StageEvents.CommandBatch event = StageEvents.CommandBatch.start("run", 1);
+		for (String[] commandInput : commandInputs) {
+			parseCommand(commandInput);
+			event = event.countLine(false);
+		}
+		event.finish();
+	}
+
+	/**
+	 * Lenient version of parseCommands(). Commands that cannot be executed are recorded in the
+	 * errors buffer with their line number (first command is line 1) and parsing carries on.
+	 * Blank lines are skipped without being recorded.
+	 * @param commandInputs		All input commands to execute, in order.
+	 * @param errors			Buffer that rejected lines are recorded in.
+	 */
+	public static void parseCommands(List<String[]> commandInputs, IngestErrors errors) {
+		StageEvents.CommandBatch event = StageEvents.CommandBatch.start("run", 1);
+		int lineNumber = 0;
+		for (String[] commandInput : commandInputs) {
+			lineNumber++;
+			RejectReason reason = parseCommandLenient(commandInput);
+			if (reason != null) {
+				errors.add(lineNumber, reason);
+			}
+			event = event.countLine(reason != null);
+		}
+		event.finish();
+	}
+
+	/**
+	 * Same as parseCommands(), telling a history the line number of each command before it runs (first command is
+	 * line 1), so the history can give the drivers as of any line (see DriverHistory). The history must be one of
+	 * the driver listeners.
+	 * @param commandInputs		All input commands to execute, in order.
+	 * @param errors			Buffer that rejected lines are recorded in, or null to stop at the first bad line.
+	 * @param history			History of the drivers.
+	 */
+	public static void parseCommands(List<String[]> commandInputs, IngestErrors errors, DriverHistory history) {
+		StageEvents.CommandBatch event = StageEvents.CommandBatch.start("run", 1);
+		int lineNumber = 0;
+		for (String[] commandInput : commandInputs) {
+			history.setLine(++lineNumber);
+			if (errors == null) {
+				parseCommand(commandInput);
+				event = event.countLine(false);
+				continue;
+			}
+			RejectReason reason = parseCommandLenient(commandInput);
+			if (reason != null) {
+				errors.add(lineNumber, reason);
+			}
+			event = event.countLine(reason != null);
+		}
+		event.finish();
+	}
+	
+	/**
+	 * Input is a string array of a command, with the command name as the first element in the array.
+	 * Proceeding array elements are the parameters of the command.
+	 * @param commandInputs		Command represented by String array.
+	 */
+	public static void parseCommand(String[] commandInputs) {
+		
+		String command = commandInputs[0];
+		
+		Map<String, Driver> drivers = MainApp.getDrivers();
+		
+		CommandType inputCommand = CommandType.valueOf(command.toUpperCase());
+		
+		String name;
+		switch(inputCommand) {
+			case DRIVER:
+				// Accounting for names that could have a space in them.
+				name = "";
+				for (int j = 1; j < commandInputs.length; j++) {
+					String curInput = commandInputs[j];
+					// Check that the current input matches an expected English name format
+					if (nameMatch.matcher(curInput).matches()) {
+						name += (j == 1 ? "" : " ") + commandInputs[j];
+					} else {
+						throw new IllegalStateException("Unexpected characters in name: " + curInput);
+					}
+				}
+				MainApp.addDriver(name);
+				break;
+			case TRIP:
+				// Accounting for names that could have a space in them.
+				int i = getTripTimesIndex(commandInputs);
+				name = joinName(commandInputs, i);
+				
+				// Now get times. Times with dates can go past midnight.
+				Trip trip;
+				if (isDateTime(commandInputs[i])) {
+					LocalDateTime start = LocalDateTime.parse(commandInputs[i], dateTimeFormatter);
+					LocalDateTime end = isDateTime(commandInputs[i+1]) ? LocalDateTime.parse(commandInputs[i+1], dateTimeFormatter)
+							: resolveEnd(start, LocalTime.parse(commandInputs[i+1], formatter));
+					trip = Trip.fromScaled(start, end, FixedPoint.parse(commandInputs[i+2]));
+				} else {
+					LocalTime startTime = LocalTime.parse(commandInputs[i], formatter);
+					LocalTime endTime = LocalTime.parse(commandInputs[i+1], formatter);
+					trip = Trip.fromScaled(startTime, endTime, FixedPoint.parse(commandInputs[i+2]));
+				}
+				
+				addTrip(drivers.get(name), trip);
+				
+				break;
+			case REMOVE:
+			case RENAME:
+			case CANCEL:
+			case CORRECT:
+				// Validated the lenient way, a rejected correction stops the app like bad input does.
+				RejectReason reason = parseCommandLenient(commandInputs);
+				if (reason != null) {
+					throw new IllegalStateException("Error: " + command + " command was rejected: " + reason);
+				}
+				break;
+			default:
+				break;
+		}
+	}
+	
+	/**
+	 * Lenient version of parseCommand(). Validates the command before executing it, so that bad input
+	 * is reported as a reason instead of an exception.
+	 * @param commandInputs		Command represented by String array.
+	 * @return RejectReason		Reason the command was rejected, or null if it was executed (or blank).
+	 */
+	public static RejectReason parseCommandLenient(String[] commandInputs) {
+		ParsedCommand command = parseOnly(commandInputs);
+		return command == null ? null : apply(command);
+	}
+
+	/**
+	 * First half of parseCommandLenient(): validates a command and parses its parameters, without reading or
+	 * changing the drivers. Safe to call from any thread, e.g. by the parser workers of an IngestPipeline.
+	 * @param commandInputs			Command represented by String array.
+	 * @return ParsedCommand		Parsed command, with the reason if it is already rejected, or null if the line is blank.
+	 */
+	static ParsedCommand parseOnly(String[] commandInputs) {
+
+		if (commandInputs.length == 0 || (commandInputs.length == 1 && commandInputs[0].isEmpty())) {
+			return null;
+		}
+
+		CommandType inputCommand = CommandType.lookup(commandInputs[0]);
+		if (inputCommand == null) {
+			return new ParsedCommand(RejectReason.UNKNOWN_COMMAND);
+		}
+
+		switch(inputCommand) {
+			case DRIVER:
+			case REMOVE:
+				if (commandInputs.length < 2) {
+					return new ParsedCommand(RejectReason.MISSING_PARAMETERS);
+				}
+				if (!isName(commandInputs, 1, commandInputs.length)) {
+					return new ParsedCommand(RejectReason.INVALID_NAME);
+				}
+				return new ParsedCommand(inputCommand, joinName(commandInputs, commandInputs.length), null);
+			case RENAME:
+				// Rename <old name> -> <new name>, names can have spaces.
+				int arrow = 1;
+				while (arrow < commandInputs.length && !commandInputs[arrow].equals(renameSeparator)) {
+					arrow++;
+				}
+				if (arrow == 1 || arrow >= commandInputs.length - 1) {
+					return new ParsedCommand(RejectReason.MISSING_PARAMETERS);
+				}
+				if (!isName(commandInputs, 1, arrow) || !isName(commandInputs, arrow + 1, commandInputs.length)) {
+					return new ParsedCommand(RejectReason.INVALID_NAME);
+				}
+				return new ParsedCommand(CommandType.RENAME, joinName(commandInputs, 1, arrow), null, 
+						joinName(commandInputs, arrow + 1, commandInputs.length), null);
+			case TRIP:
+			case CANCEL:
+			case CORRECT:
+				int i = getTripTimesIndex(commandInputs);
+				if (i == 1) {
+					return new ParsedCommand(RejectReason.INVALID_NAME);
+				}
+				// A correction has the times and miles of the trip to correct, then the corrected ones.
+				int parameters = inputCommand == CommandType.CORRECT ? 6 : 3;
+				if (i + parameters > commandInputs.length) {
+					return new ParsedCommand(RejectReason.MISSING_PARAMETERS);
+				}
+				String name = joinName(commandInputs, i);
+
+				ParsedCommand trip = parseTrip(commandInputs, i);
+				if (trip.reason != null || inputCommand != CommandType.CORRECT) {
+					return trip.reason != null ? trip : new ParsedCommand(inputCommand, name, trip.trip);
+				}
+				ParsedCommand correction = parseTrip(commandInputs, i + 3);
+				if (correction.reason != null) {
+					return correction;
+				}
+				return new ParsedCommand(CommandType.CORRECT, name, trip.trip, null, correction.trip);
+			default:
+				return new ParsedCommand(RejectReason.UNKNOWN_COMMAND);
+		}
+	}
+
+	/**
+	 * Adds a Trip to a Driver, skipping it if it was already applied (when there is a deduplicator).
+	 * @param driver		Driver of the trip.
+	 * @param trip			Trip to add.
+	 */
+	private static void addTrip(Driver driver, Trip trip) {
+		TripDeduplicator deduplicator = getDeduplicator();
+		if (deduplicator == null) {
+			driver.addTrip(trip);
+		} else if (!deduplicator.isDuplicate(driver, trip) && driver.addTrip(trip)) {
+			deduplicator.add(driver.getName(), trip);
+		}
+	}
+
+	/**
+	 * Getter for the deduplicator of Trip commands, of the Fleet the current thread runs for if there is one.
+	 * @return TripDeduplicator		Deduplicator, or null if every Trip command is applied.
+	 */
+	public static TripDeduplicator getDeduplicator() {
+		Fleet fleet = Fleet.current();
+		return fleet != null ? fleet.getDeduplicator() : deduplicator;
+	}
+
+	/**
+	 * Set the deduplicator of Trip commands, so trips that were already applied are skipped (see TripDeduplicator).
+	 * @param tripDeduplicator		Deduplicator, or null to apply every Trip command.
+	 */
+	public static void setDeduplicator(TripDeduplicator tripDeduplicator) {
+		Fleet fleet = Fleet.current();
+		if (fleet != null) {
+			fleet.setDeduplicator(tripDeduplicator);
+		} else {
+			deduplicator = tripDeduplicator;
+		}
+	}
+
+	/**
+	 * Parses the start, end and miles of a trip, starting at the start time.
+	 * @param commandInputs			Command represented by String array, with at least three words from the start time.
+	 * @param i						Index of the start time.
+	 * @return ParsedCommand		Trip command with the trip but no name, or the reason the trip is rejected.
+	 */
+	private static ParsedCommand parseTrip(String[] commandInputs, int i) {
+		LocalTime startTime = null;
+		LocalTime endTime = null;
+		LocalDateTime start = null;
+		LocalDateTime end = null;
+		if (isDateTime(commandInputs[i])) {
+			start = parseDateTime(commandInputs[i]);
+			end = isDateTime(commandInputs[i+1]) ? parseDateTime(commandInputs[i+1]) 
+					: resolveEnd(start, parseTime(commandInputs[i+1]));
+			if (start == null || end == null) {
+				return new ParsedCommand(RejectReason.INVALID_TIME);
+			}
+		} else {
+			startTime = parseTime(commandInputs[i]);
+			endTime = parseTime(commandInputs[i+1]);
+			if (startTime == null || endTime == null) {
+				return new ParsedCommand(RejectReason.INVALID_TIME);
+			}
+		}
+
+		String miles = commandInputs[i+2];
+		if (!isDecimal(miles)) {
+			return new ParsedCommand(RejectReason.INVALID_DISTANCE);
+		}
+		long milesTraveled;
+		try {
+			milesTraveled = FixedPoint.parse(miles);
+		} catch (NumberFormatException e) {
+			// Only reached for numbers too large for the fixed-point precision.
+			return new ParsedCommand(RejectReason.INVALID_DISTANCE);
+		}
+
+		boolean possible = start != null ? Trip.isPossible(start, end, milesTraveled) 
+				: Trip.isPossible(startTime, endTime, milesTraveled);
+		if (!possible) {
+			return new ParsedCommand(RejectReason.IMPOSSIBLE_TRIP);
+		}
+
+		Trip trip = start != null ? Trip.fromScaled(start, end, milesTraveled) 
+				: Trip.fromScaled(startTime, endTime, milesTraveled);
+		return new ParsedCommand(CommandType.TRIP, null, trip);
+	}
+
+	/**
+	 * Second half of parseCommandLenient(): executes a parsed command against the drivers.
+	 * @param command			Command from parseOnly().
+	 * @return RejectReason		Reason the command was rejected, or null if it was executed.
+	 */
+	static RejectReason apply(ParsedCommand command) {
+		return apply(command, true);
+	}
+
+	/**
+	 * Executes a parsed command against the drivers, the lenient way or the way parseCommand() does. The only
+	 * difference is a Trip that overlaps one of its driver's trips: parseCommand() drops it silently like a trip
+	 * that does not meet the requirements, and the lenient way rejects it.
+	 * @param command			Command from parseOnly().
+	 * @param lenient			true to reject overlapping trips, false to drop them.
+	 * @return RejectReason		Reason the command was rejected, or null if it was executed.
+	 */
+	static RejectReason apply(ParsedCommand command, boolean lenient) {
+		if (command.reason != null) {
+			return command.reason;
+		}
+
+		switch(command.type) {
+			case DRIVER:
+				MainApp.addDriver(command.name);
+				return null;
+			case REMOVE:
+				Driver removed = MainApp.removeDriver(command.name);
+				if (removed == null) {
+					return RejectReason.UNKNOWN_DRIVER;
+				}
+				if (getDeduplicator() != null) {
+					getDeduplicator().addRemoved(removed);
+				}
+				return null;
+			case RENAME:
+				if (!MainApp.getDrivers().containsKey(command.name)) {
+					return RejectReason.UNKNOWN_DRIVER;
+				}
+				return MainApp.renameDriver(command.name, command.newName) == null ? RejectReason.DUPLICATE_DRIVER : null;
+			default:
+				break;
+		}
+		
+		Driver driver = MainApp.getDrivers().get(command.name);
+		if (driver == null) {
+			return RejectReason.UNKNOWN_DRIVER;
+		}
+		TripDeduplicator deduplicator = getDeduplicator();
+		switch(command.type) {
+			case TRIP:
+				if (deduplicator != null && deduplicator.isDuplicate(driver, command.trip)) {
+					// Already applied, e.g. from input that was sent again.
+					return null;
+				}
+				if (lenient && driver.overlaps(command.trip)) {
+					return RejectReason.OVERLAPPING_TRIP;
+				}
+				
+				// Trips that don't meet requirements are still dropped silently, as they are in strict mode.
+				if (driver.addTrip(command.trip) && deduplicator != null) {
+					deduplicator.add(driver.getName(), command.trip);
+				}
+				return null;
+			case CANCEL:
+				Trip cancelled = driver.removeTrip(command.trip);
+				if (cancelled == null) {
+					// Already applied, e.g. from input that was sent again.
+					return deduplicator != null && deduplicator.isDuplicate(driver, command.trip) ? null : RejectReason.UNKNOWN_TRIP;
+				}
+				// Kept so the cancelled trip is skipped if it is sent again.
+				if (deduplicator != null) {
+					deduplicator.addRemoved(driver.getName(), cancelled);
+				}
+				return null;
+			case CORRECT:
+				// Everything is checked before the trip is taken out, so a rejected correction keeps the trip.
+				boolean applied = deduplicator != null && deduplicator.isDuplicate(driver, command.correction);
+				if (!driver.hasTrip(command.trip)) {
+					// Already applied, e.g. from input that was sent again.
+					return applied ? null : RejectReason.UNKNOWN_TRIP;
+				}
+				if (!Trip.checkTrip(command.correction)) {
+					return RejectReason.OUT_OF_RANGE_TRIP;
+				}
+				if (applied) {
+					return RejectReason.DUPLICATE_TRIP;
+				}
+				if (!driver.correctTrip(command.trip, command.correction)) {
+					return RejectReason.OVERLAPPING_TRIP;
+				}
+				// Kept so a resent Trip of the corrected trip or of the correction is skipped.
+				if (deduplicator != null) {
+					deduplicator.addRemoved(driver.getName(), command.trip);
+					deduplicator.add(driver.getName(), command.correction);
+				}
+				return null;
+			default:
+				return RejectReason.UNKNOWN_COMMAND;
+		}
+	}
+
+	/**
+	 * Name of the driver a command is about, found without validating or parsing the rest of the command, e.g. to
+	 * route the command to the worker that has the driver (see IngestCoordinator).
+	 * @param commandInputs		Command represented by String array.
+	 * @return String			Driver name (the old name of a Rename), or null if the command has no name.
+	 */
+	static String getDriverName(String[] commandInputs) {
+		if (commandInputs.length < 2) {
+			return null;
+		}
+		CommandType inputCommand = CommandType.lookup(commandInputs[0]);
+		if (inputCommand == null) {
+			return null;
+		}
+		int end;
+		switch(inputCommand) {
+			case DRIVER:
+			case REMOVE:
+				end = commandInputs.length;
+				break;
+			case RENAME:
+				end = 1;
+				while (end < commandInputs.length && !commandInputs[end].equals(renameSeparator)) {
+					end++;
+				}
+				break;
+			default:
+				end = getTripTimesIndex(commandInputs);
+				break;
+		}
+		return end > 1 ? joinName(commandInputs, end) : null;
+	}
+
+	/**
+	 * Finds the index of the first time parameter of a Trip command, which is the first word containing ":".
+	 * Every word before it (after the command name) is part of the driver's name.
+	 * @param commandInputs		Trip command represented by String array.
+	 * @return int				Index of the start time, or the length of the array if there is no time.
+	 */
+	private static int getTripTimesIndex(String[] commandInputs) {
+		int i = 1;
+		for ( ; i < commandInputs.length; i++) {
+			if (commandInputs[i].indexOf(':') >= 0) {
+				// Recognize this as a time
+				break;
+			}
+		}
+		return i;
+	}
+
+	/**
+	 * Joins the words of a name, from the first parameter up to (not including) the end index.
+	 * @param commandInputs		Command represented by String array.
+	 * @param end				Index after the last word of the name.
+	 * @return String			Name with its words separated by a space.
+	 */
+	private static String joinName(String[] commandInputs, int end) {
+		return joinName(commandInputs, 1, end);
+	}
+
+	/**
+	 * Joins the words of a name from the start index up to (not including) the end index.
+	 * @param commandInputs		Command represented by String array.
+	 * @param start				Index of the first word of the name.
+	 * @param end				Index after the last word of the name.
+	 * @return String			Name with its words separated by a space.
+	 */
+	private static String joinName(String[] commandInputs, int start, int end) {
+		if (end == start + 1) {
+			return commandInputs[start];
+		}
+		StringBuilder name = new StringBuilder();
+		for (int j = start; j < end; j++) {
+			if (name.length() > 0) {
+				name.append(' ');
+			}
+			name.append(commandInputs[j]);
+		}
+		return name.toString();
+	}
+
+	/**
+	 * Checks that every word of a name matches an expected English name format.
+	 * @param commandInputs		Command represented by String array.
+	 * @param start				Index of the first word of the name.
+	 * @param end				Index after the last word of the name.
+	 * @return boolean			true if all words are valid.
+	 */
+	private static boolean isName(String[] commandInputs, int start, int end) {
+		for (int j = start; j < end; j++) {
+			if (!nameMatch.matcher(commandInputs[j]).matches()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Parses a time in HH:mm format without throwing. Same format accepted by the strict formatter.
+	 * @param time				Time as a String.
+	 * @return LocalTime		Parsed time, or null if the text is not a valid time.
+	 */
+	static LocalTime parseTime(String time) {
+		if (time.length() != 5 || time.charAt(2) != ':') {
+			return null;
+		}
+		int hour = twoDigits(time, 0);
+		int minute = twoDigits(time, 3);
+		if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+			return null;
+		}
+		return LocalTime.of(hour, minute);
+	}
+
+	/**
+	 * Checks if a time parameter includes a date (yyyy-MM-ddTHH:mm) rather than only a time.
+	 * @param time			Time parameter as a String.
+	 * @return boolean		true if the parameter includes a date.
+	 */
+	private static boolean isDateTime(String time) {
+		return time.indexOf('T') >= 0;
+	}
+	
+	/**
+	 * Parses a date and time in yyyy-MM-ddTHH:mm format without throwing. Same format accepted by the strict formatter.
+	 * @param dateTime			Date and time as a String.
+	 * @return LocalDateTime	Parsed date and time, or null if the text is not valid.
+	 */
+	static LocalDateTime parseDateTime(String dateTime) {
+		if (dateTime.length() != 16 || dateTime.charAt(4) != '-' || dateTime.charAt(7) != '-' || dateTime.charAt(10) != 'T') {
+			return null;
+		}
+		int century = twoDigits(dateTime, 0);
+		int yearOfCentury = twoDigits(dateTime, 2);
+		int month = twoDigits(dateTime, 5);
+		int day = twoDigits(dateTime, 8);
+		LocalTime time = parseTime(dateTime.substring(11));
+		if (century < 0 || yearOfCentury < 0 || month < 1 || month > 12 || day < 1 || time == null) {
+			return null;
+		}
+		int year = century * 100 + yearOfCentury;
+		if (day > Month.of(month).length(Year.isLeap(year))) {
+			return null;
+		}
+		return LocalDateTime.of(year, month, day, time.getHour(), time.getMinute());
+	}
+	
+	/**
+	 * Gives an end time without a date the date of its start, or the next day if the time is not after the start
+	 * (the trip went past midnight).
+	 * @param start				Date and time the trip started.
+	 * @param endTime			Time the trip ended, or null if it could not be parsed.
+	 * @return LocalDateTime	Date and time the trip ended, or null if the end time was null.
+	 */
+	private static LocalDateTime resolveEnd(LocalDateTime start, LocalTime endTime) {
+		if (start == null || endTime == null) {
+			return null;
+		}
+		LocalDateTime end = start.toLocalDate().atTime(endTime);
+		return end.isAfter(start) ? end : end.plusDays(1);
+	}
+
+	private static int twoDigits(String text, int start) {
+		char tens = text.charAt(start);
+		char ones = text.charAt(start + 1);
+		if (tens < '0' || tens > '9' || ones < '0' || ones > '9') {
+			return -1;
+		}
+		return (tens - '0') * 10 + (ones - '0');
+	}
+
+	/**
+	 * Checks that a word is a plain decimal number (optional sign, digits, optional fraction),
+	 * which is the format FixedPoint.parse() accepts.
+	 * @param text			Word to check.
+	 * @return boolean		true if the word is a decimal number.
+	 */
+	static boolean isDecimal(String text) {
+		int i = 0;
+		int length = text.length();
+		if (i < length && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+			i++;
+		}
+		int digits = 0;
+		boolean point = false;
+		for ( ; i < length; i++) {
+			char c = text.charAt(i);
+			if (c >= '0' && c <= '9') {
+				digits++;
+			} else if (c == '.' && !point) {
+				point = true;
+			} else {
+				return false;
+			}
+		}
+		return digits > 0;
+	}
+
+	/**
+	 * <h1>ParsedCommand</h1>
+	 * A command that was validated and parsed but not executed yet, or the reason it was rejected.
+	 * 
+	 * @author PaulSEEBALD
+	 * @version 1.0
+	 * @since 2026-10-19
+	 */
+	static class ParsedCommand {
+		
+		private final CommandType type;
+		private final String name;
+		private final Trip trip;
+		private final String newName;
+		private final Trip correction;
+		private final RejectReason reason;
+		
+		private ParsedCommand(CommandType type, String name, Trip trip) {
+			this(type, name, trip, null, null);
+		}
+		
+		private ParsedCommand(CommandType type, String name, Trip trip, String newName, Trip correction) {
+			this.type = type;
+			this.name = name;
+			this.trip = trip;
+			this.newName = newName;
+			this.correction = correction;
+			this.reason = null;
+		}
+		
+		private ParsedCommand(RejectReason reason) {
+			this.type = null;
+			this.name = null;
+			this.trip = null;
+			this.newName = null;
+			this.correction = null;
+			this.reason = reason;
+		}
+		
+		/**
+		 * Getter for the type of the command.
+		 * @return CommandType		Type, or null if the command was rejected while parsing.
+		 */
+		CommandType getType() {
+			return type;
+		}
+		
+		/**
+		 * Getter for the name of the driver the command is about.
+		 * @return String		Driver name, or null if the command was rejected while parsing.
+		 */
+		String getName() {
+			return name;
+		}
+		
+		/**
+		 * Getter for the new name of a Rename command, the only command about two drivers.
+		 * @return String		New driver name, or null if the command is not a Rename.
+		 */
+		String getNewName() {
+			return newName;
+		}
+		
+		/**
+		 * Getter for the reason the command was rejected while parsing.
+		 * @return RejectReason		Reason, or null if the command can be executed.
+		 */
+		RejectReason getReason() {
+			return reason;
+		}
+	}
+
+	/**
+	 * <h1>CommandType</h1>
+	 * Enum with types of commands that can be input to this app.
+	 * 
+	 * DRIVER, TRIP, and the commands that take them back: REMOVE (a driver), RENAME (a driver), 
+	 * CANCEL (a trip), CORRECT (a trip)
+	 * 
+	 * @author PaulSEEBALD
+	 * @version 1.0
+	 * @since 2018-11-02
+	 */
+	enum CommandType {
+		DRIVER, TRIP, REMOVE, RENAME, CANCEL, CORRECT;
+
+		// Lookup without the IllegalArgumentException that valueOf() throws for unknown names.
+		private static final Map<String, CommandType> byName = new HashMap<>();
+		static {
+			for (CommandType type : values()) {
+				byName.put(type.name(), type);
+			}
+		}
+
+		/**
+		 * Finds the command type for a command name, ignoring case.
+		 * @param command			Command name as input.
+		 * @return CommandType		Matching type, or null if there is none.
+		 */
+		static CommandType lookup(String command) {
+			return byName.get(command.toUpperCase());
+		}
+	}
+
+}
@@ -0,0 +1,389 @@
+package io.pjseebald.travel;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * <h1>CompressedTrips</h1>
+ * A Driver's trips in the order they were added, kept as varints in one byte array instead of as Trip objects.
+ * Each trip is its duration and flags, the change of its start from the trip before, and its scaled miles (see
+ * VarInts). Times are kept in minutes when the trip starts and ends on a minute, which is always the case for trips
+ * from the input, so a trip usually takes 5 to 8 bytes instead of a Trip with its dates and times (over 100 bytes).
+ * <p>
+ * Trips are decoded as they are read: scan() goes through them in order without making any objects, and the List
+ * methods make a new Trip for each trip read. Every 32nd trip is a checkpoint, so get() only decodes the trips
+ * from the checkpoint before it.
+ * <p>
+ * A removed trip is only marked as removed, and its bytes are skipped when trips are read, so a Cancel or Correct
+ * does not re-encode the trips after it, and the last removal can be undone until the next change. The trips are
+ * compacted before a removal that would leave more than half of them removed. Each block of
+ * trips between checkpoints counts its removed trips, so an index is found by block instead of trip by trip, from
+ * the end for recent trips.
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class CompressedTrips extends AbstractList<Trip> {
+
+	private static final int checkpointInterval = 32;
+
+	private byte[] bytes = new byte[16];
+	private int length = 0;
+	// Trips not removed, and all encoded trips including the removed ones.
+	private int size = 0;
+	private int slots = 0;
+	// Start second of the last trip, the trip before the next one added.
+	private long lastStart = 0;
+
+	// Offset of every 32nd trip and the start second of the trip before it.
+	private int[] checkpointOffsets = new int[1];
+	private long[] checkpointStarts = new long[1];
+	// Removed trips by slot, or null if none were removed since the last compaction, and their number per block.
+	private BitSet removed = null;
+	private int[] blockRemoved = new int[1];
+	// Slot of the last removed trip while its removal can still be undone, or -1.
+	private int lastRemoved = -1;
+
+	/**
+	 * Add a trip at the end.
+	 * @param trip			Trip to add.
+	 * @return boolean		Always true.
+	 */
+	@Override
+	public boolean add(Trip trip) {
+		append(trip.getStartDate() != null, trip.getStartSecond(), trip.getEndSecond(), trip.getScaledDistance());
+		lastRemoved = -1;
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Decodes a trip. Trips are read from the checkpoint before them, so reading them all should use iterator().
+	 * @param index		Index of the trip in the order trips were added.
+	 * @return Trip		New Trip with the times and distance of the trip.
+	 */
+	@Override
+	public Trip get(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return decode(getSlot(index)).toTrip();
+	}
+
+	/**
+	 * Removes a trip by marking it as removed, compacting the trips first if more than half would be removed.
+	 * @param index		Index of the trip in the order trips were added.
+	 * @return Trip		Trip that was removed.
+	 */
+	@Override
+	public Trip remove(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		if (slots - size + 1 > Math.max(size - 1, checkpointInterval)) {
+			compact();
+		}
+		int slot = getSlot(index);
+		Trip removedTrip = decode(slot).toTrip();
+		if (removed == null) {
+			removed = new BitSet(slots);
+		}
+		removed.set(slot);
+		blockRemoved[slot / checkpointInterval]++;
+		lastRemoved = slot;
+		size--;
+		modCount++;
+		return removedTrip;
+	}
+
+	/**
+	 * Puts back the trip of the last remove() at the index it had, e.g. when a correction is rejected after its
+	 * trip was taken out. Only possible before any other trip is added or removed.
+	 * @throws IllegalStateException		If there is no removal to undo.
+	 */
+	void undoRemove() {
+		if (lastRemoved < 0) {
+			throw new IllegalStateException("No removed trip to put back.");
+		}
+		removed.clear(lastRemoved);
+		blockRemoved[lastRemoved / checkpointInterval]--;
+		lastRemoved = -1;
+		size++;
+		modCount++;
+	}
+
+	/**
+	 * Index of the last trip with the same times and distance as a trip, found without decoding Trip objects.
+	 * Blocks are searched from the last one, so a recent trip is found without decoding the trips before it.
+	 * @param trip		Trip to look for (see Trip.isSameTrip()).
+	 * @return int		Index of the last such trip, or -1 if there is none.
+	 */
+	public int lastIndexOfSame(Trip trip) {
+		boolean dated = trip.getStartDate() != null;
+		long start = trip.getStartSecond();
+		long end = trip.getEndSecond();
+		long scaledDistance = trip.getScaledDistance();
+		// Trips in the blocks after the one searched.
+		int after = 0;
+		for (int block = (slots - 1) / checkpointInterval; block >= 0; block--) {
+			int first = block * checkpointInterval;
+			int last = Math.min(slots, first + checkpointInterval);
+			int live = last - first - blockRemoved[block];
+			Decoder decoder = new Decoder(block);
+			int found = -1;
+			int seen = 0;
+			for (int slot = first; slot < last; slot++) {
+				decoder.next();
+				if (isRemoved(slot)) {
+					continue;
+				}
+				if (decoder.dated == dated && decoder.start == start && decoder.end == end && decoder.scaledDistance == scaledDistance) {
+					found = seen;
+				}
+				seen++;
+			}
+			if (found >= 0) {
+				return size - after - live + found;
+			}
+			after += live;
+		}
+		return -1;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		length = 0;
+		size = 0;
+		slots = 0;
+		lastStart = 0;
+		removed = null;
+		Arrays.fill(blockRemoved, 0);
+		lastRemoved = -1;
+		modCount++;
+	}
+
+	/**
+	 * Decodes the trips in order, making a new Trip for each.
+	 */
+	@Override
+	public Iterator<Trip> iterator() {
+		return new Iterator<Trip>() {
+			private final Decoder decoder = new Decoder(0);
+			private final int expectedModCount = modCount;
+			private int next = 0;
+			private int slot = 0;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public Trip next() {
+				if (modCount != expectedModCount) {
+					throw new ConcurrentModificationException();
+				}
+				if (next >= size) {
+					throw new NoSuchElementException();
+				}
+				next++;
+				decoder.next();
+				while (isRemoved(slot++)) {
+					decoder.next();
+				}
+				return decoder.toTrip();
+			}
+		};
+	}
+
+	/**
+	 * Passes every trip to a visitor in the order they were added, without making any objects.
+	 * @param visitor		Called with the columns of each trip.
+	 */
+	public void scan(TripVisitor visitor) {
+		Decoder decoder = new Decoder(0);
+		for (int slot = 0; slot < slots; slot++) {
+			decoder.next();
+			if (!isRemoved(slot)) {
+				visitor.visit(decoder.dated, decoder.start, decoder.end, decoder.scaledDistance);
+			}
+		}
+	}
+
+	/**
+	 * Getter for the number of bytes the trips take, not counting the spare room of the array. Removed trips that
+	 * were not compacted yet are counted.
+	 * @return int		Bytes of encoded trips.
+	 */
+	public int getEncodedLength() {
+		return length;
+	}
+
+	/**
+	 * Columns of a trip, as from Trip.getStartDate() != null, getStartSecond(), getEndSecond() and getScaledDistance().
+	 */
+	public interface TripVisitor {
+		void visit(boolean dated, long startSecond, long endSecond, long scaledDistance);
+	}
+
+	private boolean isRemoved(int slot) {
+		return removed != null && removed.get(slot);
+	}
+
+	// Slot of the trip at an index, found by the removed trips of each block, from the end for the later half.
+	private int getSlot(int index) {
+		if (removed == null) {
+			return index;
+		}
+		int block;
+		int skip;
+		if (index < size / 2) {
+			block = 0;
+			skip = index;
+			while (skip >= checkpointInterval - blockRemoved[block]) {
+				skip -= checkpointInterval - blockRemoved[block];
+				block++;
+			}
+		} else {
+			block = (slots - 1) / checkpointInterval;
+			int first = block * checkpointInterval;
+			// Trips from the start of the block to the end of the list.
+			int from = size - (Math.min(slots, first + checkpointInterval) - first - blockRemoved[block]);
+			while (index < from) {
+				block--;
+				from -= checkpointInterval - blockRemoved[block];
+			}
+			skip = index - from;
+		}
+		int slot = block * checkpointInterval;
+		while (true) {
+			if (!removed.get(slot)) {
+				if (skip == 0) {
+					return slot;
+				}
+				skip--;
+			}
+			slot++;
+		}
+	}
+
+	// Decoder that has just read the trip of a slot.
+	private Decoder decode(int slot) {
+		Decoder decoder = new Decoder(slot / checkpointInterval);
+		for (int i = slot / checkpointInterval * checkpointInterval; i <= slot; i++) {
+			decoder.next();
+		}
+		return decoder;
+	}
+
+	// Encodes the trips that are not removed again, without the removed ones.
+	private void compact() {
+		Decoder decoder = new Decoder(0);
+		int oldSlots = slots;
+		BitSet oldRemoved = removed;
+		bytes = new byte[Math.max(16, length)];
+		length = 0;
+		size = 0;
+		slots = 0;
+		lastStart = 0;
+		removed = null;
+		Arrays.fill(blockRemoved, 0);
+		lastRemoved = -1;
+		for (int slot = 0; slot < oldSlots; slot++) {
+			decoder.next();
+			if (!oldRemoved.get(slot)) {
+				append(decoder.dated, decoder.start, decoder.end, decoder.scaledDistance);
+			}
+		}
+	}
+
+	// Header is the duration and two flags: whether the times are in seconds instead of minutes, and whether the trip has dates.
+	private void append(boolean dated, long start, long end, long scaledDistance) {
+		if (slots % checkpointInterval == 0) {
+			int checkpoint = slots / checkpointInterval;
+			if (checkpoint == checkpointOffsets.length) {
+				checkpointOffsets = Arrays.copyOf(checkpointOffsets, checkpoint * 2);
+				checkpointStarts = Arrays.copyOf(checkpointStarts, checkpoint * 2);
+				blockRemoved = Arrays.copyOf(blockRemoved, checkpoint * 2);
+			}
+			checkpointOffsets[checkpoint] = length;
+			checkpointStarts[checkpoint] = lastStart;
+		}
+		if (length + 30 > bytes.length) {
+			bytes = Arrays.copyOf(bytes, Math.max(bytes.length + (bytes.length >> 1), length + 30));
+		}
+		boolean minutes = start % 60 == 0 && end % 60 == 0;
+		long duration = end - start;
+		long startDelta = start - lastStart;
+		if (minutes) {
+			duration /= 60;
+			startDelta = start / 60 - Math.floorDiv(lastStart, 60);
+		}
+		write((duration << 2) | (minutes ? 0 : 2) | (dated ? 1 : 0));
+		write(VarInts.zigZag(startDelta));
+		write(VarInts.zigZag(scaledDistance));
+		lastStart = start;
+		size++;
+		slots++;
+	}
+
+	private void write(long value) {
+		while ((value & ~0x7FL) != 0) {
+			bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		bytes[length++] = (byte) value;
+	}
+
+	/**
+	 * Reads trips one after another from a checkpoint.
+	 */
+	private class Decoder {
+		private final VarInts.Reader reader;
+		boolean dated;
+		long start;
+		long end;
+		long scaledDistance;
+
+		Decoder(int checkpoint) {
+			reader = new VarInts.Reader(bytes, checkpointOffsets[checkpoint]);
+			start = checkpointStarts[checkpoint];
+		}
+
+		void next() {
+			long header = reader.read();
+			long startDelta = reader.readSigned();
+			scaledDistance = reader.readSigned();
+			dated = (header & 1) != 0;
+			long duration = header >>> 2;
+			if ((header & 2) == 0) {
+				start = (Math.floorDiv(start, 60) + startDelta) * 60;
+				duration *= 60;
+			} else {
+				start += startDelta;
+			}
+			end = start + duration;
+		}
+
+		Trip toTrip() {
+			if (dated) {
+				return Trip.fromScaled(LocalDateTime.ofEpochSecond(start, 0, ZoneOffset.UTC),
+						LocalDateTime.ofEpochSecond(end, 0, ZoneOffset.UTC), scaledDistance);
+			}
+			return Trip.fromScaled(LocalTime.ofSecondOfDay(start), LocalTime.ofSecondOfDay(end), scaledDistance);
+		}
+	}
+}
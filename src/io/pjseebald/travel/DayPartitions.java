@@ -0,0 +1,136 @@
+package io.pjseebald.travel;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * <h1>DayPartitions</h1>
+ * Totals of the trips with dates, partitioned by day. Each day keeps a DriverAggregate for every driver
+ * who started a trip on that day, updated as trips are added. A report over a range of dates then only
+ * merges the totals of the days in the range, and never looks at the trips or at days outside it.
+ * A trip that goes past midnight is counted on the day it started, like a shift.
+ * Trips without dates are not in any partition.
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class DayPartitions implements DriverListener {
+
+	private TreeMap<LocalDate, Map<String, DriverAggregate>> days = new TreeMap<>();
+
+	/**
+	 * Adds a Trip with dates to its day as it is added to a Driver.
+	 */
+	@Override
+	public void tripAdded(Driver driver, Trip trip) {
+		add(driver.getName(), trip);
+	}
+
+	/**
+	 * Takes a removed Trip out of its day.
+	 */
+	@Override
+	public void tripRemoved(Driver driver, Trip trip) {
+		remove(driver.getName(), trip);
+	}
+
+	/**
+	 * Takes the Trips of a removed Driver out of their days.
+	 */
+	@Override
+	public void driverRemoved(Driver driver) {
+		for (Trip trip : driver.getTrips()) {
+			remove(driver.getName(), trip);
+		}
+	}
+
+	/**
+	 * Moves the Trips of a renamed Driver to its new name in their days.
+	 */
+	@Override
+	public void driverRenamed(Driver driver, String oldName) {
+		for (Trip trip : driver.getTrips()) {
+			remove(oldName, trip);
+			add(driver.getName(), trip);
+		}
+	}
+
+	/**
+	 * Add a driver's Trip to the partition of the day it started. Trips without dates are ignored.
+	 * @param name		Name of the driver who took the trip.
+	 * @param trip		Trip to add.
+	 */
+	public void add(String name, Trip trip) {
+		LocalDate date = trip.getStartDate();
+		if (date == null) {
+			return;
+		}
+		Map<String, DriverAggregate> day = days.get(date);
+		if (day == null) {
+			day = new HashMap<>();
+			days.put(date, day);
+		}
+		DriverAggregate aggregate = day.get(name);
+		if (aggregate == null) {
+			aggregate = new DriverAggregate();
+			day.put(name, aggregate);
+		}
+		aggregate.add(trip);
+	}
+
+	/**
+	 * Take a driver's Trip out of the partition of the day it started, dropping the driver's totals (and the day)
+	 * when no trips are left in them. Trips without dates are ignored.
+	 * @param name		Name of the driver who took the trip.
+	 * @param trip		Trip that was added.
+	 */
+	public void remove(String name, Trip trip) {
+		LocalDate date = trip.getStartDate();
+		Map<String, DriverAggregate> day = date == null ? null : days.get(date);
+		DriverAggregate aggregate = day == null ? null : day.get(name);
+		if (aggregate == null) {
+			return;
+		}
+		aggregate.remove(trip);
+		if (aggregate.getTrips() == 0) {
+			day.remove(name);
+			if (day.isEmpty()) {
+				days.remove(date);
+			}
+		}
+	}
+
+	/**
+	 * Totals of each driver's trips that started in a range of dates. Only the partitions in the range are read.
+	 * @param from								First date of the range (inclusive).
+	 * @param to								Last date of the range (inclusive).
+	 * @return Map<String, DriverAggregate>		Totals by driver name, for drivers with trips in the range.
+	 */
+	public Map<String, DriverAggregate> getAggregates(LocalDate from, LocalDate to) {
+		Map<String, DriverAggregate> totals = new HashMap<>();
+		for (Map<String, DriverAggregate> day : days.subMap(from, true, to, true).values()) {
+			for (Map.Entry<String, DriverAggregate> entry : day.entrySet()) {
+				DriverAggregate total = totals.get(entry.getKey());
+				if (total == null) {
+					totals.put(entry.getKey(), entry.getValue().copy());
+				} else {
+					total.merge(entry.getValue());
+				}
+			}
+		}
+		return totals;
+	}
+
+	/**
+	 * Days that have trips, with the totals of each driver on that day.
+	 * @return NavigableMap<LocalDate, Map<String, DriverAggregate>>		Unmodifiable view of the partitions by date.
+	 */
+	public NavigableMap<LocalDate, Map<String, DriverAggregate>> getDays() {
+		return Collections.unmodifiableNavigableMap(days);
+	}
+}
@@ -1,13 +1,13 @@
-package io.pjseebald.travel;
-
-/**
- * <h1>DistanceUnit</h1>
- * DistanceUnit used as reference if needed to convert distance or speed (distance/time).
- * 
- * @author PaulSEEBALD
- * @version 1.0
- * @since 2018-11-01
- */
-public enum DistanceUnit {
-	MILES, KILOMETERS;
-}
+package io.pjseebald.travel;
+
+/**
+ * <h1>DistanceUnit</h1>
+ * DistanceUnit used as reference if needed to convert distance or speed (distance/time).
+ * 
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2018-11-01
+ */
+public enum DistanceUnit {
+	MILES, KILOMETERS;
+}
@@ -1,96 +1,346 @@
-package io.pjseebald.travel;
-
-import java.util.ArrayList;
-import java.util.List;
-
-
-/**
- * <h1>Driver</h1>
- * A Driver is a person with a name who is able to go on trips.
- * It is possible to query how much time a Driver has spent traveling and how far they have traveled. 
- * 
- * @author PaulSEEBALD
- * @version 1.0
- * @since 2018-11-02
- *
- */
-public class Driver {
-	
-	private String name;
-
-	// Using list instead of array because the initial number of trips is unknown
-	// With more app complexity, this would more likely be a result of a query to a database.
-	private List<Trip> trips = new ArrayList<>();
-	
-	/**
-	 * Constructor that requires a name for the Driver.
-	 * @param name		String that can contain spaces.
-	 */
-	public Driver(String name) {
-		this.name = name;
-	}
-	
-	/**
-	 * Getter for the Driver's name.
-	 * @return	String		Driver's name
-	 */
-	public String getName() {
-		return name;
-	}
-	
-	/**
-	 * Getter for the Driver's list of Trips
-	 * @return List<Trip>	Trips the Driver has gone on.
-	 */
-	public List<Trip> getTrips() {
-		return this.trips;
-	}
-
-	/**
-	 * Add a Trip to the Driver's list of Trips.
-	 * @param trip		Trip the Driver has gone on.
-	 */
-	public boolean addTrip(Trip trip) {
-		// Ensure trip meets the requirements to be added
-		if (!Trip.checkTrip(trip)) {
-			return false;
-		}
-		trips.add(trip);
-		return true;
-	}
-	
-	/**
-	 * Get the total distance traveled by the Driver across all Trips.
-	 * @return double		Returned in same units returned by Trip.getDistanceTraveled().
-	 */
-	public double getDistanceTraveled() {
-		double distanceTraveled = 0;
-		for (Trip trip : trips) {
-			distanceTraveled += trip.getDistanceTraveled();
-		}
-		
-		return distanceTraveled;
-	}
-
-	/**
-	 * Get the total time traveled by the Driver across all Trips.
-	 * @return double		Returned in same units returned by Trip.getTimeTraveled().
-	 */
-	public double getTimeTraveled() {
-		double timeTraveled = 0;
-		for (Trip trip: trips) {
-			timeTraveled += trip.getTimeTraveled();
-		}
-		
-		return timeTraveled;
-	}
-	
-	/*
-	 * Comment: In the current implementation, the report requires both distance and speed.
-	 * If speed is queried often and list of trips is lengthy, would be appropriate to create a separate function for speed.
-	 * This is because getting distance and time traveled for each driver will loop through the trips list twice.
-	 * Speed could be obtained by looping only once and summing both distance and time within one loop.
-	 */
-
-
-}
+package io.pjseebald.travel;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+
+/**
+ * <h1>Driver</h1>
+ * A Driver is a person with a name who is able to go on trips.
+ * It is possible to query how much time a Driver has spent traveling and how far they have traveled. 
+ * 
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2018-11-02
+ *
+ */
+public class Driver {
+	
+	private String name;
+
+	// Using list instead of array because the initial number of trips is unknown
+	// With more app complexity, this would more likely be a result of a query to a database.
+	// Kept encoded as bytes instead of Trip objects, so many more trips fit in memory (see CompressedTrips).
+	private CompressedTrips trips = new CompressedTrips();
+	
+	// Running totals of the trips, kept in long arithmetic so they are exact (see DriverAggregate).
+	private DriverAggregate aggregate = new DriverAggregate();
+	
+	// Notified of added trips. Shared by all drivers of the app (see MainApp.getDriverListeners()).
+	private List<DriverListener> listeners;
+	
+	// Start and end of the trips ordered by start time, only kept when overlapping trips are rejected. Holds the
+	// times only, so the trips stay encoded.
+	private TripTimeline timeline = null;
+	
+	// Whether a Trip that overlaps one of the Driver's trips is rejected. Same for all drivers, like the Trip requirements.
+	private static boolean rejectOverlaps = false;
+	
+	/**
+	 * Constructor that requires a name for the Driver.
+	 * @param name		String that can contain spaces.
+	 */
+	public Driver(String name) {
+		this(name, Collections.<DriverListener>emptyList());
+	}
+	
+	/**
+	 * Constructor for a Driver whose added Trips are passed on to listeners.
+	 * @param name			String that can contain spaces.
+	 * @param listeners		Listeners notified of each Trip added to the Driver.
+	 */
+	public Driver(String name, List<DriverListener> listeners) {
+		this.name = name;
+		this.listeners = listeners;
+	}
+	
+	/**
+	 * Getter for the Driver's name.
+	 * @return	String		Driver's name
+	 */
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * Getter for the Driver's list of Trips. Trips are decoded as they are read, so each read makes a new Trip.
+	 * @return List<Trip>	Trips the Driver has gone on, in the order they were added. Cannot be changed.
+	 */
+	public List<Trip> getTrips() {
+		return Collections.unmodifiableList(this.trips);
+	}
+
+	/**
+	 * Getter for the number of the Driver's Trips, without decoding them.
+	 * @return int		Number of trips.
+	 */
+	public int getTripCount() {
+		return trips.size();
+	}
+
+	/**
+	 * Passes each of the Driver's Trips to a visitor without decoding Trip objects, e.g. for totals over some of the trips.
+	 * @param visitor		Called with the start, end and distance of each trip, in the order they were added.
+	 */
+	public void scanTrips(CompressedTrips.TripVisitor visitor) {
+		trips.scan(visitor);
+	}
+
+	/**
+	 * Totals of the Driver's Trips with dates that started in a range of time.
+	 * @param from					Start of the range (inclusive).
+	 * @param to					End of the range (exclusive).
+	 * @return DriverAggregate		Totals of the trips that started in the range.
+	 */
+	public DriverAggregate getAggregate(LocalDateTime from, LocalDateTime to) {
+		long fromSecond = from.toEpochSecond(ZoneOffset.UTC);
+		long toSecond = to.toEpochSecond(ZoneOffset.UTC);
+		long[] totals = new long[3];
+		trips.scan((dated, startSecond, endSecond, scaledDistance) -> {
+			if (dated && startSecond >= fromSecond && startSecond < toSecond) {
+				totals[0] += scaledDistance;
+				totals[1] += endSecond - startSecond;
+				totals[2]++;
+			}
+		});
+		return new DriverAggregate(totals[0], totals[1], totals[2]);
+	}
+
+	/**
+	 * Add a Trip to the Driver's list of Trips.
+	 * @param trip			Trip the Driver has gone on.
+	 * @return boolean		true if added, false if the trip doesn't meet the requirements or overlaps (when rejected).
+	 */
+	public boolean addTrip(Trip trip) {
+		// Ensure trip meets the requirements to be added
+		if (!Trip.checkTrip(trip)) {
+			return false;
+		}
+		if (isRejectingOverlaps() && !getTimeline().add(trip)) {
+			return false;
+		}
+		this.addAccepted(trip);
+		return true;
+	}
+	
+	/**
+	 * Add Trips that are sorted by start time, e.g. from an input file that is in time order.
+	 * Trips that don't meet the requirements are skipped. When overlapping trips are rejected, each trip
+	 * is only checked against the one before it instead of against the whole timeline.
+	 * @param sortedTrips		Trips the Driver has gone on, sorted by start time.
+	 * @return int				Number of trips added.
+	 * @throws IllegalArgumentException		If overlapping trips are rejected and the trips are not sorted or overlap.
+	 */
+	public int addTrips(List<Trip> sortedTrips) {
+		List<Trip> accepted = new ArrayList<>(sortedTrips.size());
+		for (Trip trip : sortedTrips) {
+			if (Trip.checkTrip(trip)) {
+				accepted.add(trip);
+			}
+		}
+		if (isRejectingOverlaps()) {
+			getTimeline().addAllSorted(accepted);
+		}
+		for (Trip trip : accepted) {
+			this.addAccepted(trip);
+		}
+		return accepted.size();
+	}
+	
+	/**
+	 * Checks if a Trip overlaps one of the Driver's trips. Only known when overlapping trips are rejected.
+	 * @param trip			Trip to check.
+	 * @return boolean		true if overlapping trips are rejected and the trip overlaps one of the Driver's trips.
+	 */
+	public boolean overlaps(Trip trip) {
+		return isRejectingOverlaps() && getTimeline().overlaps(trip);
+	}
+	
+	/**
+	 * Checks if the Driver has a Trip with the same times and distance.
+	 * @param trip			Trip to look for (see Trip.isSameTrip()).
+	 * @return boolean		true if the Driver has such a trip.
+	 */
+	public boolean hasTrip(Trip trip) {
+		return trips.lastIndexOfSame(trip) >= 0;
+	}
+
+	/**
+	 * Remove one of the Driver's Trips, taking it out of the totals and passing it on to the listeners.
+	 * The most recent matching trip is removed, since corrections are usually of recent trips.
+	 * @param trip			Trip with the same times and distance as the trip to remove (see Trip.isSameTrip()).
+	 * @return Trip			Trip that was removed, or null if the Driver has no such trip.
+	 */
+	public Trip removeTrip(Trip trip) {
+		int index = trips.lastIndexOfSame(trip);
+		if (index < 0) {
+			return null;
+		}
+		Trip removed = trips.remove(index);
+		aggregate.remove(removed);
+		if (timeline != null) {
+			timeline.remove(removed);
+		}
+		for (DriverListener listener : listeners) {
+			listener.tripRemoved(this, removed);
+		}
+		return removed;
+	}
+	
+	/**
+	 * Replace one of the Driver's Trips with a correction as one change: the trip is only taken out if the correction
+	 * is added, and listeners are only told of the change then (tripRemoved() and then tripAdded()). The correction
+	 * must already meet the requirements (see Trip.checkTrip()).
+	 * @param trip			Trip with the same times and distance as the trip to correct (see Trip.isSameTrip()).
+	 * @param correction	Trip to add in its place.
+	 * @return boolean		true if corrected, false if the Driver has no such trip or the correction overlaps another
+	 * 						of the Driver's trips (when rejected). Nothing is changed then.
+	 */
+	boolean correctTrip(Trip trip, Trip correction) {
+		int index = trips.lastIndexOfSame(trip);
+		if (index < 0) {
+			return false;
+		}
+		// Built before the trip is taken out, so the trip is in it like the others.
+		TripTimeline checked = isRejectingOverlaps() ? getTimeline() : timeline;
+		Trip removed = trips.remove(index);
+		aggregate.remove(removed);
+		if (checked != null) {
+			checked.remove(removed);
+		}
+		if (isRejectingOverlaps() && !checked.add(correction)) {
+			putBackTrip(removed);
+			return false;
+		}
+		for (DriverListener listener : listeners) {
+			listener.tripRemoved(this, removed);
+		}
+		this.addAccepted(correction);
+		return true;
+	}
+	
+	/**
+	 * Puts back the Trip taken out last, at the index it had, into the totals and the timeline it was in. It is not
+	 * checked again and listeners are not notified, since they were not told it was taken out.
+	 * @param trip		Trip that was taken out last, with nothing added or removed since.
+	 */
+	void putBackTrip(Trip trip) {
+		trips.undoRemove();
+		aggregate.add(trip);
+		// A trip that overlapped another was not in the timeline, and still overlaps it.
+		if (timeline != null) {
+			timeline.add(trip);
+		}
+	}
+	
+	/**
+	 * Changes the Driver's name. Only MainApp.renameDriver() should call this, since the map of drivers is keyed by name.
+	 * @param name		New name of the Driver.
+	 */
+	void rename(String name) {
+		this.name = name;
+	}
+	
+	/**
+	 * Adds a Trip that was already accepted before, e.g. when a Driver is read back from a DriverRegistry's store.
+	 * The Trip is not checked again and listeners are not notified, since they already saw it.
+	 * @param trip		Trip the Driver has gone on.
+	 */
+	void restoreTrip(Trip trip) {
+		trips.add(trip);
+		aggregate.add(trip);
+	}
+	
+	// Adds a Trip that has passed all checks.
+	private void addAccepted(Trip trip) {
+		trips.add(trip);
+		aggregate.add(trip);
+		for (DriverListener listener : listeners) {
+			listener.tripAdded(this, trip);
+		}
+	}
+	
+	private TripTimeline getTimeline() {
+		if (timeline == null) {
+			timeline = new TripTimeline();
+			// Trips added before overlaps were rejected may overlap each other. Those are kept but not in the timeline.
+			for (Trip trip : getTripsByStartTime(trips)) {
+				timeline.add(trip);
+			}
+		}
+		return timeline;
+	}
+	
+	/**
+	 * Getter for the Driver's Trips in order of start time. The trips are decoded and sorted on each call.
+	 * @return List<Trip>	Trips the Driver has gone on, sorted by start time.
+	 */
+	public List<Trip> getTripsByStartTime() {
+		return getTripsByStartTime(trips);
+	}
+	
+	private static List<Trip> getTripsByStartTime(List<Trip> trips) {
+		List<Trip> sorted = new ArrayList<>(trips);
+		sorted.sort(Comparator.comparingLong(Trip::getStartSecond));
+		return sorted;
+	}
+	
+	/**
+	 * Sets whether Trips that overlap one of a Driver's trips are rejected by addTrip(), e.g. 07:15-07:45 and 07:30-08:00.
+	 * Overlapping trips are accepted by default. Set for the Fleet the current thread runs for if there is one.
+	 * @param reject		true to reject overlapping trips.
+	 */
+	public static void setRejectOverlaps(boolean reject) {
+		Fleet fleet = Fleet.current();
+		if (fleet != null) {
+			fleet.setRejectOverlaps(reject);
+		} else {
+			rejectOverlaps = reject;
+		}
+	}
+	
+	/**
+	 * Returns whether Trips that overlap one of a Driver's trips are rejected.
+	 * @return boolean		true if overlapping trips are rejected.
+	 */
+	public static boolean isRejectingOverlaps() {
+		Fleet fleet = Fleet.current();
+		return fleet != null ? fleet.isRejectingOverlaps() : rejectOverlaps;
+	}
+	
+	/**
+	 * Get the total distance traveled by the Driver across all Trips.
+	 * @return double		Returned in same units returned by Trip.getDistanceTraveled().
+	 */
+	public double getDistanceTraveled() {
+		return aggregate.getDistanceTraveled();
+	}
+
+	/**
+	 * Get the total time traveled by the Driver across all Trips.
+	 * @return double		Returned in same units returned by Trip.getTimeTraveled().
+	 */
+	public double getTimeTraveled() {
+		return aggregate.getTimeTraveled();
+	}
+		
+	/**
+	 * Getter for the running totals of the Driver's Trips.
+	 * @return DriverAggregate		Totals of all Trips added to the Driver. Changes as Trips are added.
+	 */
+	public DriverAggregate getAggregate() {
+		return aggregate;
+	}
+	
+	/*
+	 * Comment: Distance and time are kept as running totals that are updated when a trip is added,
+	 * so the report does not loop through the trips list at all. The totals are sums of longs, so
+	 * they are exact no matter how many trips are added or in which order.
+	 */
+
+
+}
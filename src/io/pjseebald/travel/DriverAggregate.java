@@ -0,0 +1,115 @@
+package io.pjseebald.travel;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>DriverAggregate</h1>
+ * Running totals over a set of trips: distance in fixed-point units (see FixedPoint), time in seconds and number of trips.
+ * All totals are longs, so adding and merging aggregates is exact and gives the same result in any order.
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class DriverAggregate {
+
+	private long scaledDistance = 0;
+	private long secondsTraveled = 0;
+	private long trips = 0;
+
+	/**
+	 * Creates an empty aggregate.
+	 */
+	public DriverAggregate() {
+	}
+
+	/**
+	 * Creates an aggregate with the given totals.
+	 * @param scaledDistance		Total distance in fixed-point units.
+	 * @param secondsTraveled		Total time traveled in seconds.
+	 * @param trips					Number of trips.
+	 */
+	public DriverAggregate(long scaledDistance, long secondsTraveled, long trips) {
+		this.scaledDistance = scaledDistance;
+		this.secondsTraveled = secondsTraveled;
+		this.trips = trips;
+	}
+
+	/**
+	 * Add a Trip to the totals.
+	 * @param trip		Trip to add.
+	 */
+	public void add(Trip trip) {
+		scaledDistance += trip.getScaledDistance();
+		secondsTraveled += trip.getSecondsTraveled();
+		trips++;
+	}
+
+	/**
+	 * Take a Trip out of the totals. The exact opposite of add(), since the totals are sums of longs.
+	 * @param trip		Trip that was added before.
+	 */
+	public void remove(Trip trip) {
+		scaledDistance -= trip.getScaledDistance();
+		secondsTraveled -= trip.getSecondsTraveled();
+		trips--;
+	}
+
+	/**
+	 * Add the totals of another aggregate to this one.
+	 * @param other		Aggregate to merge into this one.
+	 */
+	public void merge(DriverAggregate other) {
+		scaledDistance += other.scaledDistance;
+		secondsTraveled += other.secondsTraveled;
+		trips += other.trips;
+	}
+
+	/**
+	 * Copy of this aggregate, which will not change when this one does.
+	 * @return DriverAggregate		Copy of the totals.
+	 */
+	public DriverAggregate copy() {
+		return new DriverAggregate(scaledDistance, secondsTraveled, trips);
+	}
+
+	/**
+	 * Getter for the total distance in fixed-point units.
+	 * @return long		Total distance in units of FixedPoint.getScale().
+	 */
+	public long getScaledDistance() {
+		return scaledDistance;
+	}
+
+	/**
+	 * Getter for the total time traveled in seconds.
+	 * @return long		Total seconds traveled.
+	 */
+	public long getSecondsTraveled() {
+		return secondsTraveled;
+	}
+
+	/**
+	 * Getter for the number of trips.
+	 * @return long		Number of trips in the totals.
+	 */
+	public long getTrips() {
+		return trips;
+	}
+
+	/**
+	 * Getter for the total distance.
+	 * @return double		Total distance in default distance units.
+	 */
+	public double getDistanceTraveled() {
+		return FixedPoint.toDouble(scaledDistance);
+	}
+
+	/**
+	 * Getter for the total time traveled.
+	 * @return double		Total time in default time units.
+	 */
+	public double getTimeTraveled() {
+		return UnitConversion.convert(secondsTraveled, TimeUnit.SECONDS, UnitConversion.getDefaultTimeUnit());
+	}
+}
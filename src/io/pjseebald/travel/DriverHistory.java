@@ -0,0 +1,215 @@
+package io.pjseebald.travel;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <h1>DriverHistory</h1>
+ * Every version of every driver's totals, by the line of the input that changed them, so the report can be given
+ * as it was after any line (or any time) without running the input again. Each driver keeps its versions in
+ * primitive arrays in line order, and a report as of a line finds each driver's last version at or before the line
+ * with a binary search: O(drivers * log(versions)), however long the input is.
+ * <p>
+ * The line of each change is set with setLine() before the line runs (see CommandParser.parseCommands()).
+ * As of a time, the report is the one after the last line before a trip that ended after the time was seen, so the
+ * input is taken as a log written as trips end. Only trips with dates have a time.
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class DriverHistory implements DriverListener {
+
+	private Map<String, Versions> drivers = new HashMap<>();
+	private int line = 0;
+
+	// Lines at which the latest trip end seen so far moved on, and the latest end from that line (epoch seconds).
+	private int[] timeLines = new int[16];
+	private long[] timeEnds = new long[16];
+	private int times = 0;
+
+	/**
+	 * Set the line the next changes are made by. Lines must not go back.
+	 * @param lineNumber		Line of the input (first line is line 1).
+	 */
+	public void setLine(int lineNumber) {
+		if (lineNumber < line) {
+			throw new IllegalArgumentException("History lines cannot go back: " + lineNumber + " after " + line);
+		}
+		line = lineNumber;
+	}
+
+	/**
+	 * Records the empty totals of a Driver as it is added.
+	 */
+	@Override
+	public void driverAdded(Driver driver) {
+		record(driver.getName(), driver.getAggregate());
+	}
+
+	/**
+	 * Records the new totals of a Driver as a Trip is added, and moves the time of the input on.
+	 */
+	@Override
+	public void tripAdded(Driver driver, Trip trip) {
+		record(driver.getName(), driver.getAggregate());
+		if (trip.getEndDate() != null) {
+			long end = trip.getEndSecond();
+			if (times == 0 || end > timeEnds[times - 1]) {
+				if (times > 0 && timeLines[times - 1] == line) {
+					timeEnds[times - 1] = end;
+				} else {
+					if (times == timeLines.length) {
+						timeLines = Arrays.copyOf(timeLines, times * 2);
+						timeEnds = Arrays.copyOf(timeEnds, times * 2);
+					}
+					timeLines[times] = line;
+					timeEnds[times] = end;
+					times++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Records the new totals of a Driver as a Trip is removed.
+	 */
+	@Override
+	public void tripRemoved(Driver driver, Trip trip) {
+		record(driver.getName(), driver.getAggregate());
+	}
+
+	/**
+	 * Records that a Driver was removed.
+	 */
+	@Override
+	public void driverRemoved(Driver driver) {
+		record(driver.getName(), null);
+	}
+
+	/**
+	 * Records that the old name of a renamed Driver was removed and the new name has its totals.
+	 */
+	@Override
+	public void driverRenamed(Driver driver, String oldName) {
+		record(oldName, null);
+		record(driver.getName(), driver.getAggregate());
+	}
+
+	/**
+	 * Totals of every driver as they were after a line of the input.
+	 * @param lineNumber						Line of the input (first line is line 1, 0 for before any line).
+	 * @return Map<String, DriverAggregate>		Totals by driver name, of the drivers that existed after the line.
+	 */
+	public Map<String, DriverAggregate> getAggregatesAsOf(int lineNumber) {
+		Map<String, DriverAggregate> aggregates = new HashMap<>();
+		for (Map.Entry<String, Versions> entry : drivers.entrySet()) {
+			DriverAggregate aggregate = entry.getValue().asOf(lineNumber);
+			if (aggregate != null) {
+				aggregates.put(entry.getKey(), aggregate);
+			}
+		}
+		return aggregates;
+	}
+
+	/**
+	 * Totals of every driver as they were at a time (see getLineAsOf()).
+	 * @param time								Date and time.
+	 * @return Map<String, DriverAggregate>		Totals by driver name, of the drivers that existed at the time.
+	 */
+	public Map<String, DriverAggregate> getAggregatesAsOf(LocalDateTime time) {
+		return getAggregatesAsOf(getLineAsOf(time));
+	}
+
+	/**
+	 * Last line of the input before a trip that ended after a time was seen.
+	 * @param time			Date and time.
+	 * @return int			Line number, or the last line recorded if no trip ended after the time.
+	 */
+	public int getLineAsOf(LocalDateTime time) {
+		long second = time.toEpochSecond(ZoneOffset.UTC);
+		// First line the latest trip end went past the time.
+		int lo = 0;
+		int hi = times;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (timeEnds[mid] <= second) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo == times ? line : timeLines[lo] - 1;
+	}
+
+	/**
+	 * Getter for the number of versions kept over all drivers.
+	 * @return long		Number of versions.
+	 */
+	public long getVersionCount() {
+		long count = 0;
+		for (Versions versions : drivers.values()) {
+			count += versions.size;
+		}
+		return count;
+	}
+
+	// Adds a version of a driver for the current line, or replaces the one of the line (e.g. the two halves of a correction).
+	private void record(String name, DriverAggregate aggregate) {
+		Versions versions = drivers.get(name);
+		if (versions == null) {
+			versions = new Versions();
+			drivers.put(name, versions);
+		}
+		versions.add(line, aggregate);
+	}
+
+	/**
+	 * Versions of one driver's totals in line order, in parallel primitive arrays. A driver that was removed has
+	 * a version with trips of -1.
+	 */
+	private static class Versions {
+		int[] lines = new int[2];
+		long[] distances = new long[2];
+		long[] seconds = new long[2];
+		long[] trips = new long[2];
+		int size = 0;
+
+		void add(int line, DriverAggregate aggregate) {
+			int i = size > 0 && lines[size - 1] == line ? size - 1 : size;
+			if (i == lines.length) {
+				int capacity = lines.length * 2;
+				lines = Arrays.copyOf(lines, capacity);
+				distances = Arrays.copyOf(distances, capacity);
+				seconds = Arrays.copyOf(seconds, capacity);
+				trips = Arrays.copyOf(trips, capacity);
+			}
+			lines[i] = line;
+			distances[i] = aggregate == null ? 0 : aggregate.getScaledDistance();
+			seconds[i] = aggregate == null ? 0 : aggregate.getSecondsTraveled();
+			trips[i] = aggregate == null ? -1 : aggregate.getTrips();
+			size = Math.max(size, i + 1);
+		}
+
+		DriverAggregate asOf(int line) {
+			// Last version at or before the line.
+			int lo = 0;
+			int hi = size;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (lines[mid] <= line) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+			if (lo == 0 || trips[lo - 1] < 0) {
+				return null;
+			}
+			return new DriverAggregate(distances[lo - 1], seconds[lo - 1], trips[lo - 1]);
+		}
+	}
+}
@@ -0,0 +1,54 @@
+package io.pjseebald.travel;
+
+/**
+ * <h1>DriverListener</h1>
+ * Notified when drivers are added to the app and when Trips are added to a Driver, so that
+ * indexes and other structures built over the drivers can be kept up to date as commands run.
+ * Trips and drivers can also be taken back (removed, corrected or renamed), which listeners apply as the
+ * opposite of the change they made when the trip or driver was added, instead of rebuilding.
+ * Methods do nothing by default, so a listener only implements the changes it cares about.
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public interface DriverListener {
+
+	/**
+	 * Called after a Driver is added to the app's drivers.
+	 * @param driver		Driver that was added.
+	 */
+	default void driverAdded(Driver driver) {
+	}
+
+	/**
+	 * Called after a Trip is accepted and added to a Driver. Trips that don't meet the requirements are not passed on.
+	 * @param driver		Driver the Trip was added to.
+	 * @param trip			Trip that was added.
+	 */
+	default void tripAdded(Driver driver, Trip trip) {
+	}
+
+	/**
+	 * Called after a Trip is removed from a Driver, e.g. when it is cancelled or corrected.
+	 * @param driver		Driver the Trip was removed from.
+	 * @param trip			Trip that was removed, the same one that was passed to tripAdded().
+	 */
+	default void tripRemoved(Driver driver, Trip trip) {
+	}
+
+	/**
+	 * Called after a Driver is removed from the app's drivers. The Driver still has its Trips.
+	 * @param driver		Driver that was removed.
+	 */
+	default void driverRemoved(Driver driver) {
+	}
+
+	/**
+	 * Called after a Driver is renamed. The Driver keeps its Trips and already has its new name.
+	 * @param driver		Driver that was renamed.
+	 * @param oldName		Name of the Driver before.
+	 */
+	default void driverRenamed(Driver driver, String oldName) {
+	}
+}
@@ -0,0 +1,309 @@
+package io.pjseebald.travel;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * <h1>DriverRegistry</h1>
+ * Map of drivers by name that keeps at most a fixed number of drivers in memory. When there are more, the driver
+ * that was used least recently is evicted: its trips are written to a store file on disk and only its name and
+ * place in the file are kept. A driver that was evicted is read back in when it is asked for with get(), e.g. when
+ * CommandParser sees a trip for it, so the registry can be used anywhere the map of drivers is used.
+ * <p>
+ * Going over the entries or values streams over the drivers in memory and then the evicted drivers, which are
+ * read one at a time and not put back in memory. Changes to an evicted Driver read this way are not kept.
+ * Evicting a driver again appends it to the store, and the space it used before is not reused.
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class DriverRegistry extends AbstractMap<String, Driver> implements Closeable {
+
+	private final int budget;
+	private final List<DriverListener> listeners;
+	private final File storeFile;
+	private final RandomAccessFile store;
+
+	// Drivers in memory, least recently used first.
+	private LinkedHashMap<String, Driver> resident;
+	// Place of each evicted driver in the store file.
+	private Map<String, Long> evicted = new HashMap<>();
+	private long evictions = 0;
+
+	/**
+	 * Constructor for a registry with its store in the default temporary directory.
+	 * @param budget		Most drivers kept in memory.
+	 * @param listeners		Listeners of the drivers read back from the store (see MainApp.getDriverListeners()).
+	 */
+	public DriverRegistry(int budget, List<DriverListener> listeners) {
+		this(budget, listeners, null);
+	}
+
+	/**
+	 * Constructor for a registry.
+	 * @param budget		Most drivers kept in memory.
+	 * @param listeners		Listeners of the drivers read back from the store (see MainApp.getDriverListeners()).
+	 * @param directory		Directory of the store file, or null for the default temporary directory.
+	 */
+	public DriverRegistry(int budget, List<DriverListener> listeners, File directory) {
+		if (budget < 1) {
+			throw new IllegalArgumentException("At least one driver must be kept in memory: " + budget);
+		}
+		this.budget = budget;
+		this.listeners = listeners;
+		this.resident = new LinkedHashMap<String, Driver>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Driver> eldest) {
+				if (size() > DriverRegistry.this.budget) {
+					evict(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+		try {
+			this.storeFile = File.createTempFile("travel-drivers", ".bin", directory);
+			this.storeFile.deleteOnExit();
+			this.store = new RandomAccessFile(storeFile, "rw");
+		} catch (IOException e) {
+			throw new UncheckedIOException("Error creating driver store", e);
+		}
+	}
+
+	@Override
+	public Driver get(Object name) {
+		Driver driver = resident.get(name);
+		if (driver == null) {
+			Long position = evicted.remove(name);
+			if (position != null) {
+				driver = read(position);
+				resident.put(driver.getName(), driver);
+			}
+		}
+		return driver;
+	}
+
+	@Override
+	public Driver put(String name, Driver driver) {
+		Long position = evicted.remove(name);
+		Driver previous = resident.put(name, driver);
+		if (previous == null && position != null) {
+			previous = read(position);
+		}
+		return previous;
+	}
+
+	@Override
+	public Driver remove(Object name) {
+		Driver driver = resident.remove(name);
+		Long position = evicted.remove(name);
+		if (driver == null && position != null) {
+			driver = read(position);
+		}
+		return driver;
+	}
+
+	@Override
+	public boolean containsKey(Object name) {
+		return resident.containsKey(name) || evicted.containsKey(name);
+	}
+
+	@Override
+	public int size() {
+		return resident.size() + evicted.size();
+	}
+
+	@Override
+	public void clear() {
+		resident.clear();
+		evicted.clear();
+		try {
+			store.setLength(0);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Error clearing driver store", e);
+		}
+	}
+
+	/**
+	 * Names of all drivers, in memory or evicted. Evicted drivers are not read to list their names.
+	 */
+	@Override
+	public Set<String> keySet() {
+		return new AbstractSet<String>() {
+			@Override
+			public Iterator<String> iterator() {
+				return new Iterator<String>() {
+					private Iterator<String> names = resident.keySet().iterator();
+					private boolean inMemory = true;
+
+					@Override
+					public boolean hasNext() {
+						if (inMemory && !names.hasNext()) {
+							names = evicted.keySet().iterator();
+							inMemory = false;
+						}
+						return names.hasNext();
+					}
+
+					@Override
+					public String next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException();
+						}
+						return names.next();
+					}
+				};
+			}
+
+			@Override
+			public boolean contains(Object name) {
+				return containsKey(name);
+			}
+
+			@Override
+			public int size() {
+				return DriverRegistry.this.size();
+			}
+		};
+	}
+
+	/**
+	 * Entries of all drivers: the drivers in memory, then the evicted drivers read one at a time.
+	 */
+	@Override
+	public Set<Map.Entry<String, Driver>> entrySet() {
+		return new AbstractSet<Map.Entry<String, Driver>>() {
+			@Override
+			public Iterator<Map.Entry<String, Driver>> iterator() {
+				final Iterator<Driver> inMemory = resident.values().iterator();
+				final Iterator<Long> positions = evicted.values().iterator();
+				return new Iterator<Map.Entry<String, Driver>>() {
+					@Override
+					public boolean hasNext() {
+						return inMemory.hasNext() || positions.hasNext();
+					}
+
+					@Override
+					public Map.Entry<String, Driver> next() {
+						Driver driver = inMemory.hasNext() ? inMemory.next() : read(positions.next());
+						return new AbstractMap.SimpleImmutableEntry<>(driver.getName(), driver);
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return DriverRegistry.this.size();
+			}
+		};
+	}
+
+	/**
+	 * Getter for the number of drivers kept in memory.
+	 * @return int		Number of drivers in memory.
+	 */
+	public int getResidentCount() {
+		return resident.size();
+	}
+
+	/**
+	 * Getter for the number of times a driver was written to the store.
+	 * @return long		Number of evictions.
+	 */
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Closes and deletes the store file. Evicted drivers are lost.
+	 */
+	@Override
+	public void close() {
+		try {
+			store.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Error closing driver store", e);
+		} finally {
+			storeFile.delete();
+		}
+	}
+
+	/*
+	 * *******************************************
+	 * Store
+	 */
+
+	// Appends a driver's trips to the store. Each record is its length, the name, the number of trips and the trips.
+	private void evict(Driver driver) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream output = new DataOutputStream(bytes)) {
+			output.writeUTF(driver.getName());
+			List<Trip> trips = driver.getTrips();
+			output.writeInt(trips.size());
+			for (Trip trip : trips) {
+				output.writeBoolean(trip.getStartDate() != null);
+				output.writeLong(trip.getStartSecond());
+				output.writeLong(trip.getEndSecond());
+				output.writeLong(trip.getScaledDistance());
+			}
+
+			long position = store.length();
+			store.seek(position);
+			store.writeInt(bytes.size());
+			store.write(bytes.toByteArray());
+			evicted.put(driver.getName(), position);
+			evictions++;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Error writing driver to store: " + driver.getName(), e);
+		}
+	}
+
+	private Driver read(long position) {
+		try {
+			store.seek(position);
+			byte[] record = new byte[store.readInt()];
+			store.readFully(record);
+			DataInputStream input = new DataInputStream(new ByteArrayInputStream(record));
+
+			Driver driver = new Driver(input.readUTF(), listeners);
+			int trips = input.readInt();
+			for (int i = 0; i < trips; i++) {
+				boolean dated = input.readBoolean();
+				long start = input.readLong();
+				long end = input.readLong();
+				long scaledDistance = input.readLong();
+				if (dated) {
+					driver.restoreTrip(Trip.fromScaled(LocalDateTime.ofEpochSecond(start, 0, ZoneOffset.UTC),
+							LocalDateTime.ofEpochSecond(end, 0, ZoneOffset.UTC), scaledDistance));
+				} else {
+					driver.restoreTrip(Trip.fromScaled(LocalTime.ofSecondOfDay(start), LocalTime.ofSecondOfDay(end), scaledDistance));
+				}
+			}
+			return driver;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Error reading driver from store", e);
+		}
+	}
+}
@@ -1,158 +1,376 @@
-package io.pjseebald.travel;
-
-import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.concurrent.TimeUnit;
-
-/**
- * <h1>Driver Report</h1>
- * Collects report information, organizes it as needed and combines it together to one report string.
- * 
- * @author PaulSEEBALD
- * @version 1.0
- * @since 2018-11-01
- */
-public class DriverReport {
-
-	/**
-	 * This function collects all the report information objects about each driver
-	 * and sorts them by whichever measurement is desired to sort on (largest to smallest). 
-	 * Returns report with all drivers included.
-	 * @return String report	Full report as a String.
-	 */
-	public String getReport() {
-		
-		Map<String, Driver> drivers = MainApp.getDrivers();
-		
-		// Collect information needed for report. Use queue to sort by desired measure (see ReportInformation.getComparingValue())
-		PriorityQueue<ReportInformation> queue = new PriorityQueue<ReportInformation>(drivers.keySet().size());
-		for (String name : drivers.keySet()) {
-			Driver driver = drivers.get(name);
-			queue.add(getInformation(driver));
-		}
-		
-		String report = "";
-		while (!queue.isEmpty()) {
-			report += queue.poll().toString() + System.lineSeparator();
-		}
-		
-		return report;
-	}
-	
-	/**
-	 * Collects information and passes it to an object that stores the relevant info
-	 * for a report. A report is a string containing desired measurements (distance, speed, etc.).
-	 * @param driver	Driver to get information on
-	 * @return ReportInformation reportInfo		Information on the input driver. Stored as object.
-	 */
-	public ReportInformation getInformation(Driver driver) {
-		
-		double distanceTraveled = driver.getDistanceTraveled();
-		double hoursTraveled = driver.getTimeTraveled();
-		
-		double avgSpeed = 0.;
-		double hoursTraveledCheck = UnitConversion.convert(1, TimeUnit.MINUTES, TimeUnit.HOURS);
-		// Check if driver has actually traveled anywhere. Smallest time traveled is a minute, so check if 
-		// hours traveled is less than one minute. Checking hours because it is the denominator (avoid calc error).
-		if (hoursTraveled > hoursTraveledCheck) {
-			avgSpeed = distanceTraveled / hoursTraveled;
-		}
-		
-		ReportInformation reportInfo = this.new ReportInformation(driver.getName(), 
-				distanceTraveled, hoursTraveled, avgSpeed);
-
-		return reportInfo;
-	}
-	
-	/**
-	 * <h1>Report Information</h1>
-	 * Report Information contains any relevant measurements that might be used in a report for a single driver.
-	 * It formats standardized report strings and inserts the relevant data.
-	 * Finally, it contains a comparison between objects that allows app to sort reports by measurements.
-	 * 
-	 * @author PaulSEEBALD
-	 * @version 1.0
-	 * @since 2018-11-01
-	 */
-	private class ReportInformation implements Comparable<ReportInformation> {
-		
-		String name;
-		double speed;
-		double distance;
-		double time;
-		
-		double noTripsDistance = 0.0001;	// Need at least this distance to say Driver took 1+ trip(s)
-		boolean noTrips;
-		
-		// Define report phrase constants
-		final static String namePhrase = "%s:";
-		final static String unitValuePhrase = "%s %s";
-		final static String distancePrePhrase = "";
-		final static String speedPrePhrase = "@ ";
-		final static String sep = " ";
-		
-		/**
-		 * Constructor for ReportInformation.
-		 * Requires driver name, plus distance and time traveled over all trips. Speed is average speed
-		 * (i.e. = total distance / total time (assuming total time is not zero).
-		 * @param name				Driver name
-		 * @param distance			Total distance traveled by Driver
-		 * @param time				Total time traveled by Driver
-		 * @param speed				Average speed over Driver's trips.
-		 */
-		ReportInformation(String name, double distance, double time, double speed) {
-			this.name = name;
-			this.distance = distance;
-			this.time = time;
-			this.speed = speed;
-			this.noTrips = this.distance < noTripsDistance;
-		}
-		
-		/**
-		 * toString method, making it easy to get a report string out of this object.
-		 * Formatted in a specific way for specific report requirements.
-		 */
-		@Override
-		public String toString() {
-			String endString = this.noTrips ? "" : String.format(sep + speedPrePhrase + unitValuePhrase, 
-					this.getRoundedInt(speed), UnitConversion.getDefaultSpeedUnit().getAsString());
-			return String.format(namePhrase + sep + distancePrePhrase + unitValuePhrase + endString, 
-					this.name, this.getRoundedInt(this.distance), 
-					UnitConversion.getDefaultDistanceUnit().toString().toLowerCase());
-		}
-		
-		/**
-		 * Rounds doubles and casts to integer.
-		 * @param value		Input value as a double to be rounded.
-		 * @return int		Rounded input value as integer
-		 */
-		int getRoundedInt(double value) {
-			return (int) Math.round(value);
-		}
-		
-		/**
-		 * Measurement used to sort drivers, can change return value if different measurement is desired.
-		 * @return double		Value to sort these objects by.
-		 */
-		double getComparingValue() {
-			return this.distance;
-		}
-
-		/**
-		 * Used for sorting objects by the comparing value.
-		 * @return int		Comparison of objects.
-		 */
-		@Override
-		public int compareTo(ReportInformation o) {
-			if (this.getComparingValue() < o.getComparingValue()) {
-				return 1;
-			} else if (this.getComparingValue() > o.getComparingValue()) {
-				return -1;
-			} else {
-				return 0;
-			}
-		}
-		
-	}
-	
-}
+package io.pjseebald.travel;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>Driver Report</h1>
+ * Collects report information, organizes it as needed and combines it together to one report string.
+ * 
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2018-11-01
+ */
+public class DriverReport {
+
+	/**
+	 * This function collects all the report information objects about each driver
+	 * and sorts them by whichever measurement is desired to sort on (largest to smallest). 
+	 * Returns report with all drivers included.
+	 * @return String report	Full report as a String.
+	 */
+	public String getReport() {
+		
+		StageEvents.Report event = new StageEvents.Report();
+		event.begin();
+		Map<String, Driver> drivers = MainApp.getDrivers();
+		
+		// Collect information needed for report. Use queue to sort by desired measure (see ReportInformation.getComparingValue())
+		PriorityQueue<ReportInformation> queue = new PriorityQueue<ReportInformation>(drivers.keySet().size());
+		for (Driver driver : drivers.values()) {
+			queue.add(getInformation(driver));
+		}
+		
+		String report = "";
+		while (!queue.isEmpty()) {
+			report += queue.poll().toString() + System.lineSeparator();
+		}
+		
+		commit(event, "drivers", drivers.size(), report.length());
+		return report;
+	}
+	
+	/**
+	 * Report over totals that were already collected for each driver, e.g. the totals of a range of
+	 * dates from DayPartitions. Sorted the same way as the full report.
+	 * @param aggregates		Totals by driver name.
+	 * @return String report	Report as a String.
+	 */
+	public String getReport(Map<String, DriverAggregate> aggregates) {
+		
+		StageEvents.Report event = new StageEvents.Report();
+		event.begin();
+		PriorityQueue<ReportInformation> queue = new PriorityQueue<ReportInformation>(Math.max(1, aggregates.size()));
+		for (Map.Entry<String, DriverAggregate> entry : aggregates.entrySet()) {
+			queue.add(getInformation(entry.getKey(), entry.getValue()));
+		}
+		
+		StringBuilder report = new StringBuilder();
+		while (!queue.isEmpty()) {
+			report.append(queue.poll().toString()).append(System.lineSeparator());
+		}
+		
+		commit(event, "aggregates", aggregates.size(), report.length());
+		return report.toString();
+	}
+	
+	/**
+	 * Same report as getReport(), with the work split over the available cores. The information and report line
+	 * of each driver are collected in a ForkJoin task split over the drivers, and the drivers are sorted with
+	 * Arrays.parallelSort() on primitive keys. The report is exactly the same as the one from getReport().
+	 * @return String report	Full report as a String.
+	 */
+	public String getParallelReport() {
+		return getParallelReport(MainApp.getDrivers());
+	}
+	
+	/**
+	 * Parallel report over a map of drivers (see getParallelReport()).
+	 * @param drivers			Drivers by name.
+	 * @return String report	Report as a String.
+	 */
+	String getParallelReport(Map<String, Driver> drivers) {
+		
+		StageEvents.Report event = new StageEvents.Report();
+		event.begin();
+		// Drivers are read from the values directly, no lookup by name.
+		Driver[] all = drivers.values().toArray(new Driver[0]);
+		ReportInformation[] information = new ReportInformation[all.length];
+		String[] lines = new String[all.length];
+		ForkJoinPool.commonPool().invoke(new InformationTask(all, information, lines, 0, all.length, Fleet.current()));
+		
+		int length = 0;
+		for (String line : lines) {
+			length += line.length() + System.lineSeparator().length();
+		}
+		StringBuilder report = new StringBuilder(length);
+		for (int index : getSortedOrder(information)) {
+			report.append(lines[index]).append(System.lineSeparator());
+		}
+		
+		commit(event, "parallel", all.length, report.length());
+		return report.toString();
+	}
+	
+	// Fills in and commits the event of a report if it is being recorded.
+	private static void commit(StageEvents.Report event, String kind, int drivers, long characters) {
+		if (event.shouldCommit()) {
+			event.kind = kind;
+			event.drivers = drivers;
+			event.characters = characters;
+			event.commit();
+		}
+	}
+	
+	/**
+	 * Indexes of the information in report order (see ReportInformation.compareTo()).
+	 * Distance and index are packed in one long key when they fit (largest distance first), so the sort is a
+	 * parallel sort of primitives. Drivers with the same distance are then put in order by name.
+	 * @param information		Information of each driver.
+	 * @return int[]			Indexes of the information in report order.
+	 */
+	static int[] getSortedOrder(ReportInformation[] information) {
+		int n = information.length;
+		int[] order = new int[n];
+		if (n == 0) {
+			return order;
+		}
+		
+		long min = Long.MAX_VALUE;
+		long max = Long.MIN_VALUE;
+		for (ReportInformation info : information) {
+			min = Math.min(min, info.getComparingValue());
+			max = Math.max(max, info.getComparingValue());
+		}
+		int indexBits = Math.max(1, 32 - Integer.numberOfLeadingZeros(n - 1));
+		long range = max - min;
+		
+		if (range < 0 || 64 - Long.numberOfLeadingZeros(range) > 63 - indexBits) {
+			// Distances too far apart to pack with the index, sort the objects instead.
+			Integer[] boxed = new Integer[n];
+			for (int i = 0; i < n; i++) {
+				boxed[i] = i;
+			}
+			Arrays.parallelSort(boxed, (a, b) -> information[a].compareTo(information[b]));
+			for (int i = 0; i < n; i++) {
+				order[i] = boxed[i];
+			}
+			return order;
+		}
+		
+		long[] keys = new long[n];
+		for (int i = 0; i < n; i++) {
+			keys[i] = ((max - information[i].getComparingValue()) << indexBits) | i;
+		}
+		Arrays.parallelSort(keys);
+		long indexMask = (1L << indexBits) - 1;
+		for (int i = 0; i < n; i++) {
+			order[i] = (int) (keys[i] & indexMask);
+		}
+		
+		// Keys only order by distance, ties are put in order by name.
+		int start = 0;
+		while (start < n) {
+			int end = start + 1;
+			long value = information[order[start]].getComparingValue();
+			while (end < n && information[order[end]].getComparingValue() == value) {
+				end++;
+			}
+			if (end - start > 1) {
+				Integer[] tied = new Integer[end - start];
+				for (int i = start; i < end; i++) {
+					tied[i - start] = order[i];
+				}
+				Arrays.parallelSort(tied, (a, b) -> information[a].getName().compareTo(information[b].getName()));
+				for (int i = start; i < end; i++) {
+					order[i] = tied[i - start];
+				}
+			}
+			start = end;
+		}
+		return order;
+	}
+	
+	/**
+	 * Collects the information and report line of a range of drivers, splitting the range in half
+	 * until it is small enough to collect in one thread.
+	 */
+	private class InformationTask extends RecursiveAction {
+		
+		private static final long serialVersionUID = 1L;
+		
+		// Number of drivers worth collecting in one task.
+		private static final int threshold = 4096;
+		
+		private final Driver[] drivers;
+		private final ReportInformation[] information;
+		private final String[] lines;
+		private final int start;
+		private final int end;
+		// Fleet of the report, whose units the lines are in on the threads of the pool.
+		private final Fleet fleet;
+		
+		InformationTask(Driver[] drivers, ReportInformation[] information, String[] lines, int start, int end, Fleet fleet) {
+			this.drivers = drivers;
+			this.information = information;
+			this.lines = lines;
+			this.start = start;
+			this.end = end;
+			this.fleet = fleet;
+		}
+		
+		@Override
+		protected void compute() {
+			if (end - start <= threshold) {
+				Fleet.runAs(fleet, () -> {
+					for (int i = start; i < end; i++) {
+						information[i] = getInformation(drivers[i]);
+						lines[i] = information[i].toString();
+					}
+				});
+			} else {
+				int middle = (start + end) >>> 1;
+				invokeAll(new InformationTask(drivers, information, lines, start, middle, fleet), 
+						new InformationTask(drivers, information, lines, middle, end, fleet));
+			}
+		}
+	}
+	
+	/**
+	 * Collects information and passes it to an object that stores the relevant info
+	 * for a report. A report is a string containing desired measurements (distance, speed, etc.).
+	 * @param driver	Driver to get information on
+	 * @return ReportInformation reportInfo		Information on the input driver. Stored as object.
+	 */
+	public ReportInformation getInformation(Driver driver) {
+		return getInformation(driver.getName(), driver.getAggregate());
+	}
+		
+	/**
+	 * Collects information from the totals of a driver's trips.
+	 * @param name					Name of the driver.
+	 * @param aggregate				Totals of the driver's trips.
+	 * @return ReportInformation	Information on the driver. Stored as object.
+	 */
+	ReportInformation getInformation(String name, DriverAggregate aggregate) {
+		
+		double distanceTraveled = aggregate.getDistanceTraveled();
+		double hoursTraveled = aggregate.getTimeTraveled();
+		
+		double avgSpeed = 0.;
+		double hoursTraveledCheck = UnitConversion.convert(1, TimeUnit.MINUTES, TimeUnit.HOURS);
+		// Check if driver has actually traveled anywhere. Smallest time traveled is a minute, so check if 
+		// hours traveled is less than one minute. Checking hours because it is the denominator (avoid calc error).
+		if (hoursTraveled > hoursTraveledCheck) {
+			avgSpeed = distanceTraveled / hoursTraveled;
+		}
+		
+		ReportInformation reportInfo = new ReportInformation(name, aggregate.getScaledDistance(), 
+				distanceTraveled, hoursTraveled, avgSpeed);
+
+		return reportInfo;
+	}
+	
+	/**
+	 * <h1>Report Information</h1>
+	 * Report Information contains any relevant measurements that might be used in a report for a single driver.
+	 * It formats standardized report strings and inserts the relevant data.
+	 * Finally, it contains a comparison between objects that allows app to sort reports by measurements.
+	 * 
+	 * @author PaulSEEBALD
+	 * @version 1.0
+	 * @since 2018-11-01
+	 */
+	static class ReportInformation implements Comparable<ReportInformation> {
+		
+		String name;
+		long scaledDistance;	// Exact distance, used for sorting
+		double speed;
+		double distance;
+		double time;
+		
+		double noTripsDistance = 0.0001;	// Need at least this distance to say Driver took 1+ trip(s)
+		boolean noTrips;
+		
+		// Define report phrase constants
+		final static String namePhrase = "%s:";
+		final static String unitValuePhrase = "%s %s";
+		final static String distancePrePhrase = "";
+		final static String speedPrePhrase = "@ ";
+		final static String sep = " ";
+		
+		/**
+		 * Constructor for ReportInformation.
+		 * Requires driver name, plus distance and time traveled over all trips. Speed is average speed
+		 * (i.e. = total distance / total time (assuming total time is not zero).
+		 * @param name				Driver name
+		 * @param scaledDistance	Total distance traveled by Driver in fixed-point units
+		 * @param distance			Total distance traveled by Driver
+		 * @param time				Total time traveled by Driver
+		 * @param speed				Average speed over Driver's trips.
+		 */
+		ReportInformation(String name, long scaledDistance, double distance, double time, double speed) {
+			this.name = name;
+			this.scaledDistance = scaledDistance;
+			this.distance = distance;
+			this.time = time;
+			this.speed = speed;
+			this.noTrips = this.distance < noTripsDistance;
+		}
+		
+		/**
+		 * toString method, making it easy to get a report string out of this object.
+		 * Formatted in a specific way for specific report requirements.
+		 */
+		@Override
+		public String toString() {
+			// Units of the fleet the report is for, if any.
+			SpeedUnit unit = Fleet.getCurrentReportUnit();
+			String endString = this.noTrips ? "" : String.format(sep + speedPrePhrase + unitValuePhrase, 
+					this.getRoundedInt(UnitConversion.convert(speed, UnitConversion.getDefaultSpeedUnit(), unit)), 
+					unit.getAsString());
+			return String.format(namePhrase + sep + distancePrePhrase + unitValuePhrase + endString, 
+					this.name, this.getRoundedInt(UnitConversion.convert(this.distance, 
+							UnitConversion.getDefaultDistanceUnit(), unit.getDistanceUnit())), 
+					unit.getDistanceUnit().toString().toLowerCase());
+		}
+		
+		/**
+		 * Rounds doubles and casts to integer.
+		 * @param value		Input value as a double to be rounded.
+		 * @return int		Rounded input value as integer
+		 */
+		int getRoundedInt(double value) {
+			return (int) Math.round(value);
+		}
+		
+		/**
+		 * Measurement used to sort drivers, can change return value if different measurement is desired.
+		 * @return long		Value to sort these objects by.
+		 */
+		long getComparingValue() {
+			return this.scaledDistance;
+		}
+
+		/**
+		 * Getter for the driver name this information is about.
+		 * @return String		Driver name.
+		 */
+		String getName() {
+			return this.name;
+		}
+		
+		/**
+		 * Used for sorting objects by the comparing value.
+		 * Drivers with the same value are sorted by name, so the order of a report never depends on
+		 * the order drivers were collected in, and sorted sets can tell any two drivers apart.
+		 * @return int		Comparison of objects.
+		 */
+		@Override
+		public int compareTo(ReportInformation o) {
+			if (this.getComparingValue() < o.getComparingValue()) {
+				return 1;
+			} else if (this.getComparingValue() > o.getComparingValue()) {
+				return -1;
+			} else {
+				return this.name.compareTo(o.name);
+			}
+		}
+		
+	}
+	
+}
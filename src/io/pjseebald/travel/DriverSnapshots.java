@@ -0,0 +1,194 @@
+package io.pjseebald.travel;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <h1>DriverSnapshots</h1>
+ * Point-in-time totals of every driver while commands are still running on other threads (e.g. an IngestPipeline),
+ * so a report can be taken at any time without stopping the writers or seeing half of a change.
+ * <p>
+ * Each change to a driver's totals is published as a new immutable version tagged with the current epoch. A
+ * snapshot moves the epoch on, waits for the few changes already under way in the old epoch to be published, then
+ * takes the latest version of each driver from the old epoch or before. Writers never wait for a snapshot: changes
+ * made while it is taken are tagged with the new epoch and left out. A driver keeps at most two versions, since
+ * only the snapshot of the previous epoch can still be reading. A removed driver is forgotten by the first snapshot
+ * taken after its removal, since no later snapshot can read it.
+ * <p>
+ * Each driver must only be changed by one thread at a time, as in IngestPipeline. Do not wrap this listener with
+ * IngestPipeline.synchronizedListener(), it is thread safe and the lock would make the writers wait on each other.
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class DriverSnapshots implements DriverListener {
+
+	// Yields while waiting for the writers of an epoch, then parks for this long at a time.
+	private static final int spins = 100;
+	private static final long parkNanos = 10_000;
+
+	private final AtomicLong epoch = new AtomicLong();
+	// Changes under way in the even and odd epochs.
+	private final AtomicLongArray writing = new AtomicLongArray(2);
+	private final ConcurrentHashMap<String, Version> versions = new ConcurrentHashMap<>();
+
+	/**
+	 * Publishes the empty totals of a Driver as it is added.
+	 */
+	@Override
+	public void driverAdded(Driver driver) {
+		publish(driver.getName(), new DriverAggregate());
+	}
+
+	/**
+	 * Publishes the new totals of a Driver as a Trip is added.
+	 */
+	@Override
+	public void tripAdded(Driver driver, Trip trip) {
+		publish(driver.getName(), driver.getAggregate().copy());
+	}
+
+	/**
+	 * Publishes the new totals of a Driver as a Trip is removed.
+	 */
+	@Override
+	public void tripRemoved(Driver driver, Trip trip) {
+		publish(driver.getName(), driver.getAggregate().copy());
+	}
+
+	/**
+	 * Publishes that a Driver was removed, so snapshots from now on leave it out.
+	 */
+	@Override
+	public void driverRemoved(Driver driver) {
+		publish(driver.getName(), null);
+	}
+
+	/**
+	 * Publishes the removal of the old name and the totals under the new name as one change, so a snapshot
+	 * has the driver under exactly one of its names.
+	 */
+	@Override
+	public void driverRenamed(Driver driver, String oldName) {
+		long current = enter();
+		try {
+			put(current, oldName, null);
+			put(current, driver.getName(), driver.getAggregate().copy());
+		} finally {
+			writing.decrementAndGet((int) (current & 1));
+		}
+	}
+
+	/**
+	 * Publish new totals of a driver. Only one thread at a time may publish the totals of the same driver.
+	 * @param name			Name of the driver.
+	 * @param aggregate		Totals of the driver, which must not change after they are published, or null if the
+	 * 						driver was removed.
+	 */
+	public void publish(String name, DriverAggregate aggregate) {
+		long current = enter();
+		try {
+			put(current, name, aggregate);
+		} finally {
+			writing.decrementAndGet((int) (current & 1));
+		}
+	}
+
+	/**
+	 * Totals of every driver at one point in time. Only changes published before the snapshot started are in it,
+	 * and every one of them is, across all drivers.
+	 * @return Map<String, DriverAggregate>		Totals by driver name, which do not change.
+	 */
+	public synchronized Map<String, DriverAggregate> getSnapshot() {
+		long taken = epoch.getAndIncrement();
+		// Only changes already under way in the old epoch are waited for. New changes go to the new epoch.
+		// They are a few map updates, so the wait yields first and only parks if a writer was descheduled.
+		int idle = 0;
+		while (writing.get((int) (taken & 1)) > 0) {
+			if (idle++ < spins) {
+				Thread.yield();
+			} else {
+				LockSupport.parkNanos(parkNanos);
+			}
+		}
+
+		Map<String, DriverAggregate> snapshot = new HashMap<>(versions.size() * 2);
+		for (Version latest : versions.values()) {
+			Version version = latest;
+			while (version != null && version.epoch > taken) {
+				version = version.older;
+			}
+			if (version != null && version.aggregate != null) {
+				snapshot.put(version.name, version.aggregate);
+			}
+			if (latest.aggregate == null && latest.epoch <= taken) {
+				// Removed before this snapshot, so no later snapshot can read the driver. Unless it was published again.
+				versions.remove(latest.name, latest);
+			}
+		}
+		return Collections.unmodifiableMap(snapshot);
+	}
+
+	/**
+	 * Getter for the number of drivers with versions kept, including removed drivers not yet forgotten by a snapshot.
+	 * @return int		Number of drivers.
+	 */
+	public int getVersionCount() {
+		return versions.size();
+	}
+
+	/**
+	 * Getter for the number of snapshots taken so far.
+	 * @return long		Current epoch.
+	 */
+	public long getEpoch() {
+		return epoch.get();
+	}
+
+	// Joins the current epoch. Checks the epoch did not move on while joining, or a snapshot could miss the change.
+	private long enter() {
+		while (true) {
+			long current = epoch.get();
+			writing.incrementAndGet((int) (current & 1));
+			if (epoch.get() == current) {
+				return current;
+			}
+			writing.decrementAndGet((int) (current & 1));
+		}
+	}
+
+	// Puts a new version of a driver in the current epoch.
+	private void put(long current, String name, DriverAggregate aggregate) {
+		Version latest = versions.get(name);
+		// Versions of this epoch are replaced. Of the older ones, only the latest can still be read.
+		Version older = latest == null ? null : latest.epoch == current ? latest.older : latest.withoutOlder();
+		versions.put(name, new Version(current, name, aggregate, older));
+	}
+
+	/**
+	 * Totals of a driver as of an epoch, with the latest version of an older epoch if there is one.
+	 */
+	private static class Version {
+		final long epoch;
+		final String name;
+		final DriverAggregate aggregate;
+		final Version older;
+
+		Version(long epoch, String name, DriverAggregate aggregate, Version older) {
+			this.epoch = epoch;
+			this.name = name;
+			this.aggregate = aggregate;
+			this.older = older;
+		}
+
+		Version withoutOlder() {
+			return older == null ? this : new Version(epoch, name, aggregate, null);
+		}
+	}
+}
@@ -0,0 +1,307 @@
+package io.pjseebald.travel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * <h1>ExternalReport</h1>
+ * Driver report for more drivers than fit in memory. The totals of the drivers are read in runs of a fixed
+ * number of drivers, each run is sorted in memory and written to a temporary file, and the sorted runs are then
+ * merged k ways while the report lines are written out. Only one run, or one record per merged file, is in memory
+ * at a time, and the report itself is streamed to a Writer instead of being built as a String.
+ * <p>
+ * If there are more runs than can be merged at once, runs are merged into longer runs first.
+ * The report is the same as DriverReport.getReport().
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class ExternalReport {
+
+	// Report order: larger distance first, then by name (see DriverReport.ReportInformation.compareTo()).
+	private static final Comparator<Record> reportOrder = (a, b) -> {
+		if (a.scaledDistance != b.scaledDistance) {
+			return a.scaledDistance > b.scaledDistance ? -1 : 1;
+		}
+		return a.name.compareTo(b.name);
+	};
+
+	private final int runSize;
+	private final int fanIn;
+	private final Path directory;
+	private final DriverReport driverReport = new DriverReport();
+	private int runsWritten = 0;
+
+	/**
+	 * Constructor for an external report with temporary files in the default temporary directory.
+	 * @param runSize		Most drivers held in memory at once.
+	 */
+	public ExternalReport(int runSize) {
+		this(runSize, 64, null);
+	}
+
+	/**
+	 * Constructor for an external report.
+	 * @param runSize		Most drivers held in memory at once.
+	 * @param fanIn			Most runs merged at once (at least 2). Each open run has a read buffer.
+	 * @param directory		Directory of the temporary files, or null for the default temporary directory.
+	 */
+	public ExternalReport(int runSize, int fanIn, Path directory) {
+		if (runSize < 1) {
+			throw new IllegalArgumentException("Run size must be at least one driver: " + runSize);
+		}
+		if (fanIn < 2) {
+			throw new IllegalArgumentException("At least two runs must be merged at once: " + fanIn);
+		}
+		this.runSize = runSize;
+		this.fanIn = fanIn;
+		this.directory = directory;
+	}
+
+	/**
+	 * Writes the report of a map of drivers.
+	 * @param drivers		Drivers by name.
+	 * @param out			Writer of the report.
+	 */
+	public void writeReport(Map<String, Driver> drivers, Writer out) {
+		writeReport(() -> new Iterator<Map.Entry<String, DriverAggregate>>() {
+			private final Iterator<Driver> iterator = drivers.values().iterator();
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public Map.Entry<String, DriverAggregate> next() {
+				Driver driver = iterator.next();
+				return new AbstractMap.SimpleImmutableEntry<>(driver.getName(), driver.getAggregate());
+			}
+		}, out);
+	}
+
+	/**
+	 * Writes the report of the totals of each driver. The totals are read once, in any order.
+	 * @param totals		Totals by driver name.
+	 * @param out			Writer of the report.
+	 */
+	public void writeReport(Iterable<Map.Entry<String, DriverAggregate>> totals, Writer out) {
+		List<Path> runs = new ArrayList<>();
+		try {
+			Record[] buffer = new Record[runSize];
+			int size = 0;
+			for (Map.Entry<String, DriverAggregate> entry : totals) {
+				buffer[size++] = new Record(entry.getKey(), entry.getValue());
+				if (size == runSize) {
+					runs.add(writeRun(buffer, size));
+					size = 0;
+				}
+			}
+
+			if (runs.isEmpty()) {
+				// Everything fit in memory, no need for temporary files.
+				Arrays.sort(buffer, 0, size, reportOrder);
+				for (int i = 0; i < size; i++) {
+					writeLine(buffer[i], out);
+				}
+				return;
+			}
+			if (size > 0) {
+				runs.add(writeRun(buffer, size));
+			}
+			buffer = null;
+
+			while (runs.size() > fanIn) {
+				runs = mergeRuns(runs);
+			}
+			merge(runs, null, out);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Error writing external report", e);
+		} finally {
+			for (Path run : runs) {
+				deleteRun(run);
+			}
+		}
+	}
+
+	/**
+	 * Getter for the number of sorted runs written to temporary files by this report so far,
+	 * including runs written while merging.
+	 * @return int		Number of runs written.
+	 */
+	public int getRunsWritten() {
+		return runsWritten;
+	}
+
+	private Path writeRun(Record[] buffer, int size) throws IOException {
+		Arrays.sort(buffer, 0, size, reportOrder);
+		Path run = createRun();
+		try (DataOutputStream output = openOutput(run)) {
+			for (int i = 0; i < size; i++) {
+				buffer[i].write(output);
+				buffer[i] = null;
+			}
+		}
+		return run;
+	}
+
+	// Merges runs in groups of fanIn into fewer, longer runs.
+	private List<Path> mergeRuns(List<Path> runs) throws IOException {
+		List<Path> merged = new ArrayList<>();
+		try {
+			for (int i = 0; i < runs.size(); i += fanIn) {
+				List<Path> group = runs.subList(i, Math.min(i + fanIn, runs.size()));
+				Path run = createRun();
+				merged.add(run);
+				try (DataOutputStream output = openOutput(run)) {
+					merge(group, output, null);
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			for (Path run : merged) {
+				deleteRun(run);
+			}
+			throw e;
+		}
+		for (Path run : runs) {
+			deleteRun(run);
+		}
+		return merged;
+	}
+
+	// K-way merge of sorted runs, written to another run or as report lines.
+	private void merge(List<Path> runs, DataOutputStream output, Writer out) throws IOException {
+		PriorityQueue<RunReader> queue = new PriorityQueue<>(runs.size(), (a, b) -> reportOrder.compare(a.current, b.current));
+		List<RunReader> readers = new ArrayList<>(runs.size());
+		try {
+			for (Path run : runs) {
+				RunReader reader = new RunReader(run);
+				readers.add(reader);
+				if (reader.next()) {
+					queue.add(reader);
+				}
+			}
+			while (!queue.isEmpty()) {
+				RunReader reader = queue.poll();
+				if (output != null) {
+					reader.current.write(output);
+				} else {
+					writeLine(reader.current, out);
+				}
+				if (reader.next()) {
+					queue.add(reader);
+				}
+			}
+		} finally {
+			for (RunReader reader : readers) {
+				reader.close();
+			}
+		}
+	}
+
+	private void writeLine(Record record, Writer out) throws IOException {
+		out.write(driverReport.getInformation(record.name, record.getAggregate()).toString());
+		out.write(System.lineSeparator());
+	}
+
+	private Path createRun() throws IOException {
+		runsWritten++;
+		return directory == null ? Files.createTempFile("travel-run", ".bin") : Files.createTempFile(directory, "travel-run", ".bin");
+	}
+
+	private static DataOutputStream openOutput(Path run) throws IOException {
+		return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)));
+	}
+
+	private static void deleteRun(Path run) {
+		try {
+			Files.deleteIfExists(run);
+		} catch (IOException e) {
+			// Left in the temporary directory, the report itself is not affected.
+		}
+	}
+
+	/**
+	 * A driver's name and totals, as written in the runs.
+	 */
+	private static class Record {
+		final String name;
+		final long scaledDistance;
+		final long secondsTraveled;
+		final long trips;
+
+		Record(String name, DriverAggregate aggregate) {
+			this(name, aggregate.getScaledDistance(), aggregate.getSecondsTraveled(), aggregate.getTrips());
+		}
+
+		Record(String name, long scaledDistance, long secondsTraveled, long trips) {
+			this.name = name;
+			this.scaledDistance = scaledDistance;
+			this.secondsTraveled = secondsTraveled;
+			this.trips = trips;
+		}
+
+		DriverAggregate getAggregate() {
+			return new DriverAggregate(scaledDistance, secondsTraveled, trips);
+		}
+
+		void write(DataOutputStream output) throws IOException {
+			output.writeLong(scaledDistance);
+			output.writeLong(secondsTraveled);
+			output.writeLong(trips);
+			output.writeUTF(name);
+		}
+
+		static Record read(DataInputStream input) throws IOException {
+			long scaledDistance;
+			try {
+				scaledDistance = input.readLong();
+			} catch (EOFException e) {
+				return null;
+			}
+			long secondsTraveled = input.readLong();
+			long trips = input.readLong();
+			return new Record(input.readUTF(), scaledDistance, secondsTraveled, trips);
+		}
+	}
+
+	/**
+	 * Reads the records of a run one at a time.
+	 */
+	private static class RunReader implements Closeable {
+		private final DataInputStream input;
+		Record current;
+
+		RunReader(Path run) throws IOException {
+			this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(run)));
+		}
+
+		boolean next() throws IOException {
+			current = Record.read(input);
+			return current != null;
+		}
+
+		@Override
+		public void close() throws IOException {
+			input.close();
+		}
+	}
+}
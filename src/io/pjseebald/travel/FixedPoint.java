@@ -0,0 +1,128 @@
+package io.pjseebald.travel;
+
+/**
+ * <h1>FixedPoint</h1>
+ * Helper class for distances stored as scaled long values instead of doubles.
+ * A value is stored as a whole number of units of 10^-precision of the default distance unit,
+ * e.g. with a precision of 3, 85.6 miles is stored as 85600.
+ * Sums of scaled values are exact, so totals do not drift and do not depend on the order they were added in.
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class FixedPoint {
+
+	// Largest precision where the scale itself fits comfortably in a long with room for large totals.
+	private static final int maxPrecision = 9;
+
+	private static int precision = 3;
+	private static long scale = 1000;
+
+	/**
+	 * Parses a decimal number (e.g. "85.6") directly into scaled units, without going through a double.
+	 * Digits past the precision are rounded half up (away from zero).
+	 * @param text		Decimal number: optional sign, digits, optional fraction.
+	 * @return long		Value in scaled units.
+	 */
+	public static long parse(String text) {
+		int length = text.length();
+		int i = 0;
+		boolean negative = false;
+		if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+			negative = text.charAt(0) == '-';
+			i++;
+		}
+
+		long whole = 0;
+		long fraction = 0;
+		int fractionDigits = 0;
+		boolean roundUp = false;
+		boolean point = false;
+		int digits = 0;
+		for ( ; i < length; i++) {
+			char c = text.charAt(i);
+			if (c >= '0' && c <= '9') {
+				digits++;
+				if (!point) {
+					whole = whole * 10 + (c - '0');
+					if (whole > Long.MAX_VALUE / scale) {
+						throw new NumberFormatException("Distance is too large for fixed-point precision " + precision + ": " + text);
+					}
+				} else if (fractionDigits < precision) {
+					fraction = fraction * 10 + (c - '0');
+					fractionDigits++;
+				} else if (fractionDigits == precision) {
+					// First digit past the precision decides the rounding, the rest are dropped.
+					roundUp = c >= '5';
+					fractionDigits++;
+				}
+			} else if (c == '.' && !point) {
+				point = true;
+			} else {
+				throw new NumberFormatException("Invalid distance: " + text);
+			}
+		}
+		if (digits == 0) {
+			throw new NumberFormatException("Invalid distance: " + text);
+		}
+
+		for (int d = Math.min(fractionDigits, precision); d < precision; d++) {
+			fraction *= 10;
+		}
+
+		long value = whole * scale + fraction + (roundUp ? 1 : 0);
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Converts a double value to scaled units, rounding to the nearest unit.
+	 * @param value		Value in the default distance unit.
+	 * @return long		Value in scaled units.
+	 */
+	public static long toScaled(double value) {
+		return Math.round(value * scale);
+	}
+
+	/**
+	 * Converts scaled units back to a double value.
+	 * @param scaled		Value in scaled units.
+	 * @return double		Value in the default distance unit.
+	 */
+	public static double toDouble(long scaled) {
+		return scaled / (double) scale;
+	}
+
+	/**
+	 * Getter for the number of decimal digits kept by scaled values.
+	 * @return int		Precision in decimal digits.
+	 */
+	public static int getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * Getter for the number of scaled units in one default distance unit (10^precision).
+	 * @return long		Scale of the scaled units.
+	 */
+	public static long getScale() {
+		return scale;
+	}
+
+	/**
+	 * Set the number of decimal digits kept by scaled values.
+	 * Scaled values created before the change are not converted, so this needs to be set before any trips are created.
+	 * @param digits		Precision in decimal digits (0 to 9).
+	 */
+	public static void setPrecision(int digits) {
+		if (digits < 0 || digits > maxPrecision) {
+			throw new IllegalArgumentException("Fixed-point precision must be between 0 and " + maxPrecision + " digits: " + digits);
+		}
+		long newScale = 1;
+		for (int d = 0; d < digits; d++) {
+			newScale *= 10;
+		}
+		precision = digits;
+		scale = newScale;
+	}
+}
@@ -0,0 +1,429 @@
+package io.pjseebald.travel;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>Fleet</h1>
+ * Drivers of one customer with their own requirements for trips, report units and quotas, so the commands of many
+ * fleets can run at the same time in one JVM (the -fleets option). The drivers, driver listeners and settings that
+ * are static (MainApp.getDrivers(), Trip.setSpeedRange(), Driver.setRejectOverlaps(), CommandParser.setDeduplicator())
+ * belong to the fleet a thread runs for (see run()), and are the static ones on threads that run for no fleet. The
+ * rest of the app does not need to know about fleets. The precision of the miles (FixedPoint) is the same for all.
+ * <p>
+ * Two quotas keep a large fleet from starving the others:
+ * <ul>
+ * <li>Memory: at most a number of drivers are kept in memory, the rest are moved to disk (see DriverRegistry).</li>
+ * <li>Throughput: at most a number of lines a second are run. When a fleet is run on a ScheduledExecutorService
+ * (see ingest(BufferedReader, ScheduledExecutorService)), a fleet over its quota does not hold a thread: its next
+ * batch of lines is scheduled for when its quota allows it, and the thread goes back to the pool for the other
+ * fleets. ingest(BufferedReader) runs on the caller's thread and sleeps instead.</li>
+ * </ul>
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class Fleet implements Closeable {
+
+	// Fleet the current thread runs for, or null for the static settings.
+	private static final ThreadLocal<Fleet> current = new ThreadLocal<>();
+	// Lines run between checks of the throughput quota.
+	private static final int batchLines = 256;
+
+	private final String name;
+	private Map<String, Driver> drivers = new HashMap<>();
+	private final List<DriverListener> listeners = new CopyOnWriteArrayList<>();
+
+	// Requirements for trips, in the same form as Trip's.
+	private Double[] timeRange = {0., 24.};
+	private Double[] distanceRange = {0., null};
+	private Double[] speedRange = {5., 100.};
+	private boolean rejectOverlaps = false;
+	private TripDeduplicator deduplicator = null;
+	private SpeedUnit reportUnit = UnitConversion.getDefaultSpeedUnit();
+
+	// Throughput quota in lines a second (0 for none), and when the lines run so far are paid for.
+	private long linesPerSecond = 0;
+	private long paidUntil = Long.MIN_VALUE;
+	private long throttledNanos = 0;
+
+	/**
+	 * Constructor for a fleet with no drivers, the standard requirements and no quotas.
+	 * @param name		Name of the fleet.
+	 */
+	public Fleet(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Fleet with the settings of a properties file, e.g. a fleet's <name>.properties file of -fleets. Settings that
+	 * are not given keep their standard value: minHours, maxHours, minMiles, maxMiles, minSpeed and maxSpeed (a value
+	 * of none for no limit), rejectOverlaps (true or false), units (miles or kilometers), memory (most drivers in
+	 * memory) and rate (most lines a second).
+	 * @param name				Name of the fleet.
+	 * @param properties		Settings of the fleet.
+	 * @return Fleet			Fleet with the settings.
+	 * @throws IllegalArgumentException		If a setting has a bad value.
+	 */
+	public static Fleet fromProperties(String name, Properties properties) {
+		Fleet fleet = new Fleet(name);
+		fleet.setTimeRange(getLimit(properties, "minHours", fleet.timeRange[0]), getLimit(properties, "maxHours", fleet.timeRange[1]));
+		fleet.setDistanceRange(getLimit(properties, "minMiles", fleet.distanceRange[0]), getLimit(properties, "maxMiles", fleet.distanceRange[1]));
+		fleet.setSpeedRange(getLimit(properties, "minSpeed", fleet.speedRange[0]), getLimit(properties, "maxSpeed", fleet.speedRange[1]));
+		fleet.setRejectOverlaps(Boolean.parseBoolean(properties.getProperty("rejectOverlaps", "false").trim()));
+		String units = properties.getProperty("units", "miles").trim();
+		if (units.equalsIgnoreCase("miles")) {
+			fleet.setReportUnit(SpeedUnit.MILES_PER_HOUR);
+		} else if (units.equalsIgnoreCase("kilometers")) {
+			fleet.setReportUnit(SpeedUnit.KILOMETERS_PER_HOUR);
+		} else {
+			throw new IllegalArgumentException("Error: units of fleet " + name + " must be miles or kilometers: " + units);
+		}
+		if (properties.getProperty("memory") != null) {
+			fleet.setMemoryQuota((int) getCount(properties, "memory", name));
+		}
+		if (properties.getProperty("rate") != null) {
+			fleet.setThroughputQuota(getCount(properties, "rate", name));
+		}
+		return fleet;
+	}
+
+	/**
+	 * Getter for the fleet the current thread runs for.
+	 * @return Fleet		Fleet, or null if the thread runs for no fleet.
+	 */
+	public static Fleet current() {
+		return current.get();
+	}
+
+	/**
+	 * Runs a task for a fleet: the drivers and settings it reads and changes are those of the fleet.
+	 * @param fleet			Fleet to run for, or null to run with the static settings.
+	 * @param task			Task to run.
+	 */
+	public static void runAs(Fleet fleet, Runnable task) {
+		Fleet previous = current.get();
+		current.set(fleet);
+		try {
+			task.run();
+		} finally {
+			current.set(previous);
+		}
+	}
+
+	/**
+	 * Runs a task for this fleet (see runAs()).
+	 * @param task		Task to run.
+	 */
+	public void run(Runnable task) {
+		runAs(this, task);
+	}
+
+	/**
+	 * Runs the commands of an input for this fleet the lenient way on the caller's thread, sleeping between batches
+	 * of lines when the fleet is over its throughput quota.
+	 * @param input					Reader of the commands.
+	 * @return IngestErrors			Rejected lines, in order of line number (first line is line 1).
+	 * @throws IOException			If the input cannot be read.
+	 * @throws InterruptedException	If the thread is interrupted while waiting for its quota.
+	 */
+	public IngestErrors ingest(BufferedReader input) throws IOException, InterruptedException {
+		Batches batches = new Batches(input);
+		do {
+			long wait = reserve(batchLines);
+			if (wait > 0) {
+				TimeUnit.NANOSECONDS.sleep(wait);
+			}
+		} while (runBatch(batches));
+		return batches.errors;
+	}
+
+	/**
+	 * Runs the commands of an input for this fleet the lenient way on a pool of threads, one batch of lines after
+	 * another. Each batch is a task of its own, so fleets take turns on the pool whether or not they have a quota,
+	 * and more fleets than threads all make progress. When the fleet is over its throughput quota, its next batch is
+	 * scheduled for when the quota allows it, so no thread of the pool waits for it.
+	 * @param input								Reader of the commands. Not closed.
+	 * @param executor							Pool the batches run on.
+	 * @return CompletableFuture<IngestErrors>	Rejected lines, in order of line number (first line is line 1), or
+	 * 											the IOException if the input cannot be read.
+	 */
+	public CompletableFuture<IngestErrors> ingest(BufferedReader input, ScheduledExecutorService executor) {
+		CompletableFuture<IngestErrors> result = new CompletableFuture<>();
+		Batches batches = new Batches(input);
+		executor.execute(() -> runBatches(batches, executor, result, false));
+		return result;
+	}
+
+	// Runs one batch and queues the next behind the other fleets' tasks, or schedules it for when the fleet is back
+	// under its quota. A batch that was waited for is paid.
+	private void runBatches(Batches batches, ScheduledExecutorService executor, CompletableFuture<IngestErrors> result,
+			boolean paid) {
+		try {
+			if (!paid) {
+				long wait = reserve(batchLines);
+				if (wait > 0) {
+					executor.schedule(() -> runBatches(batches, executor, result, true), wait, TimeUnit.NANOSECONDS);
+					return;
+				}
+			}
+			if (runBatch(batches)) {
+				executor.execute(() -> runBatches(batches, executor, result, false));
+			} else {
+				result.complete(batches.errors);
+			}
+		} catch (IOException | RuntimeException e) {
+			result.completeExceptionally(e);
+		}
+	}
+
+	// Runs the next batch of lines for this fleet. Returns false at the end of the input.
+	private boolean runBatch(Batches batches) throws IOException {
+		Fleet previous = current.get();
+		current.set(this);
+		try {
+			for (int i = 0; i < batchLines; i++) {
+				String line = batches.input.readLine();
+				if (line == null) {
+					return false;
+				}
+				batches.lineNumber++;
+				RejectReason reason = CommandParser.parseCommandLenient(line.split("\\s+"));
+				if (reason != null) {
+					batches.errors.add(batches.lineNumber, reason);
+				}
+			}
+			return true;
+		} finally {
+			current.set(previous);
+		}
+	}
+
+	/**
+	 * Takes a number of lines from the fleet's throughput quota. A fleet that was idle can use up to a second of its
+	 * quota at once.
+	 * @param lines			Lines about to run.
+	 * @return long			Nanoseconds to wait before running them, 0 or less to run them now.
+	 */
+	long reserve(int lines) {
+		if (linesPerSecond <= 0) {
+			return 0;
+		}
+		long now = System.nanoTime();
+		synchronized (this) {
+			paidUntil = Math.max(paidUntil, now - TimeUnit.SECONDS.toNanos(1));
+			paidUntil += TimeUnit.SECONDS.toNanos(lines) / linesPerSecond;
+			long wait = paidUntil - now;
+			if (wait > 0) {
+				throttledNanos += wait;
+			}
+			return wait;
+		}
+	}
+
+	/**
+	 * Speed units of the report of the fleet the current thread runs for.
+	 * @return SpeedUnit		Units of the fleet, or the default units if the thread runs for no fleet.
+	 */
+	static SpeedUnit getCurrentReportUnit() {
+		Fleet fleet = current.get();
+		return fleet != null ? fleet.reportUnit : UnitConversion.getDefaultSpeedUnit();
+	}
+
+	/**
+	 * Getter for the name of the fleet.
+	 * @return String		Name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Getter for the drivers of the fleet.
+	 * @return Map<String, Driver>		Drivers by name.
+	 */
+	public Map<String, Driver> getDrivers() {
+		return drivers;
+	}
+
+	/**
+	 * Replaces the map of drivers of the fleet (see MainApp.setDrivers()).
+	 * @param driverMap		Drivers by name.
+	 */
+	void setDrivers(Map<String, Driver> driverMap) {
+		drivers = driverMap;
+	}
+
+	/**
+	 * Getter for the listeners of the fleet's drivers (see MainApp.getDriverListeners()).
+	 * @return List<DriverListener>		Listeners.
+	 */
+	public List<DriverListener> getListeners() {
+		return listeners;
+	}
+
+	Double[] getTimeRange() {
+		return timeRange;
+	}
+
+	Double[] getDistanceRange() {
+		return distanceRange;
+	}
+
+	Double[] getSpeedRange() {
+		return speedRange;
+	}
+
+	/**
+	 * Set the range of hours a trip of the fleet can take (see Trip.setTimeRange()).
+	 * @param min		Fewest hours, or null for no limit.
+	 * @param max		Most hours, or null for no limit.
+	 */
+	public void setTimeRange(Double min, Double max) {
+		timeRange = new Double[] {min, max};
+	}
+
+	/**
+	 * Set the range of miles of a trip of the fleet (see Trip.setDistanceRange()).
+	 * @param min		Fewest miles, or null for no limit.
+	 * @param max		Most miles, or null for no limit.
+	 */
+	public void setDistanceRange(Double min, Double max) {
+		distanceRange = new Double[] {min, max};
+	}
+
+	/**
+	 * Set the range of speeds of a trip of the fleet (see Trip.setSpeedRange()).
+	 * @param min		Lowest speed in mph, or null for no limit.
+	 * @param max		Highest speed in mph, or null for no limit.
+	 */
+	public void setSpeedRange(Double min, Double max) {
+		speedRange = new Double[] {min, max};
+	}
+
+	boolean isRejectingOverlaps() {
+		return rejectOverlaps;
+	}
+
+	/**
+	 * Set whether a trip that overlaps another trip of the same driver of the fleet is rejected.
+	 * @param reject		true to reject overlapping trips.
+	 */
+	public void setRejectOverlaps(boolean reject) {
+		rejectOverlaps = reject;
+	}
+
+	TripDeduplicator getDeduplicator() {
+		return deduplicator;
+	}
+
+	/**
+	 * Set the deduplicator of the fleet's Trip commands (see CommandParser.setDeduplicator()).
+	 * @param tripDeduplicator		Deduplicator, or null to apply every Trip command.
+	 */
+	public void setDeduplicator(TripDeduplicator tripDeduplicator) {
+		deduplicator = tripDeduplicator;
+	}
+
+	/**
+	 * Set the units of the fleet's report. Miles are still read in miles.
+	 * @param unit		Units of speed, and of distance by its distance unit.
+	 */
+	public void setReportUnit(SpeedUnit unit) {
+		reportUnit = unit;
+	}
+
+	/**
+	 * Set the memory quota: at most this many drivers of the fleet are kept in memory, the rest are moved to a
+	 * store file on disk. Needs to be set before the fleet has drivers.
+	 * @param drivers		Most drivers in memory.
+	 */
+	public void setMemoryQuota(int drivers) {
+		if (!this.drivers.isEmpty()) {
+			throw new IllegalStateException("Memory quota of fleet " + name + " must be set before it has drivers.");
+		}
+		this.drivers = new DriverRegistry(drivers, listeners);
+	}
+
+	/**
+	 * Set the throughput quota: at most this many lines of the fleet run a second.
+	 * @param lines		Most lines a second, or 0 for no quota.
+	 */
+	public synchronized void setThroughputQuota(long lines) {
+		if (lines < 0) {
+			throw new IllegalArgumentException("Throughput quota cannot be negative: " + lines);
+		}
+		linesPerSecond = lines;
+	}
+
+	/**
+	 * Getter for the time the fleet waited for its throughput quota.
+	 * @return long		Nanoseconds waited.
+	 */
+	public synchronized long getThrottledNanos() {
+		return throttledNanos;
+	}
+
+	/**
+	 * Closes the store file of the fleet's drivers if it has a memory quota.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (drivers instanceof DriverRegistry) {
+			((DriverRegistry) drivers).close();
+		}
+	}
+
+	private static Double getLimit(Properties properties, String key, Double standard) {
+		String value = properties.getProperty(key);
+		if (value == null) {
+			return standard;
+		}
+		value = value.trim();
+		if (value.equalsIgnoreCase("none")) {
+			return null;
+		}
+		try {
+			return Double.valueOf(value);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Error: " + key + " must be a number or none: " + value);
+		}
+	}
+
+	/**
+	 * Input of a fleet being run in batches.
+	 */
+	private static class Batches {
+		final BufferedReader input;
+		final IngestErrors errors = new IngestErrors();
+		int lineNumber = 0;
+
+		Batches(BufferedReader input) {
+			this.input = input;
+		}
+	}
+
+	private static long getCount(Properties properties, String key, String name) {
+		String value = properties.getProperty(key).trim();
+		long count;
+		try {
+			count = Long.parseLong(value);
+		} catch (NumberFormatException e) {
+			count = -1;
+		}
+		if (count < 1 || count > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Error: " + key + " of fleet " + name + " must be a whole number: " + value);
+		}
+		return count;
+	}
+}
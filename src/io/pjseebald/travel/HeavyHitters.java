@@ -0,0 +1,127 @@
+package io.pjseebald.travel;
+
+import java.util.List;
+
+/**
+ * <h1>HeavyHitters</h1>
+ * Live leaderboards of the drivers with the most miles and the most trips, kept in SpaceSaving sketches as Trips
+ * are added. Memory is fixed by the number of counters, however many drivers there are, and the leaderboards
+ * don't need the drivers' totals or a sort of all drivers. Totals are estimates with an error bound.
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class HeavyHitters implements DriverListener {
+
+	private final SpaceSaving distance;
+	private final SpaceSaving trips;
+
+	/**
+	 * Constructor for leaderboards with a fixed number of counters each.
+	 * @param capacity		Number of counters of each leaderboard. Should be a few times the number of drivers shown.
+	 */
+	public HeavyHitters(int capacity) {
+		this.distance = new SpaceSaving(capacity);
+		this.trips = new SpaceSaving(capacity);
+	}
+
+	/**
+	 * Counts the distance and the Trip of a Driver as it is added.
+	 */
+	@Override
+	public void tripAdded(Driver driver, Trip trip) {
+		add(driver.getName(), trip);
+	}
+
+	/**
+	 * Takes the distance and the Trip of a removed Trip back from the leaderboards.
+	 */
+	@Override
+	public void tripRemoved(Driver driver, Trip trip) {
+		distance.subtract(driver.getName(), trip.getScaledDistance());
+		trips.subtract(driver.getName(), 1);
+	}
+
+	/**
+	 * Takes all the distance and Trips of a removed Driver back from the leaderboards.
+	 */
+	@Override
+	public void driverRemoved(Driver driver) {
+		subtract(driver.getName(), driver.getAggregate());
+	}
+
+	/**
+	 * Moves the distance and Trips of a renamed Driver to its new name.
+	 */
+	@Override
+	public void driverRenamed(Driver driver, String oldName) {
+		DriverAggregate aggregate = driver.getAggregate();
+		subtract(oldName, aggregate);
+		distance.add(driver.getName(), aggregate.getScaledDistance());
+		trips.add(driver.getName(), aggregate.getTrips());
+	}
+
+	private void subtract(String name, DriverAggregate aggregate) {
+		distance.subtract(name, aggregate.getScaledDistance());
+		trips.subtract(name, aggregate.getTrips());
+	}
+
+	/**
+	 * Count a driver's Trip in the leaderboards.
+	 * @param name		Name of the driver who took the trip.
+	 * @param trip		Trip to count.
+	 */
+	public void add(String name, Trip trip) {
+		distance.add(name, trip.getScaledDistance());
+		trips.add(name, 1);
+	}
+
+	/**
+	 * Getter for the leaderboard by distance, in fixed-point units (see FixedPoint).
+	 * @return SpaceSaving		Sketch of the distance by driver name.
+	 */
+	public SpaceSaving getDistance() {
+		return distance;
+	}
+
+	/**
+	 * Getter for the leaderboard by number of trips.
+	 * @return SpaceSaving		Sketch of the number of trips by driver name.
+	 */
+	public SpaceSaving getTrips() {
+		return trips;
+	}
+
+	/**
+	 * Report of the top drivers by distance and by number of trips. A driver's real total is in the range shown when
+	 * the estimate has an error, and any driver not shown has at most the total given in the heading.
+	 * @param k				Number of drivers on each leaderboard.
+	 * @return String		Report as a String.
+	 */
+	public String getReport(int k) {
+		String ls = System.lineSeparator();
+		String unit = UnitConversion.getDefaultDistanceUnit().toString().toLowerCase();
+		StringBuilder report = new StringBuilder();
+
+		report.append(String.format("Top %d by %s (drivers not shown have at most %d %s):", k, unit, 
+				Math.round(FixedPoint.toDouble(distance.getMinCount())), unit)).append(ls);
+		for (SpaceSaving.Estimate estimate : distance.getTop(k)) {
+			long high = Math.round(FixedPoint.toDouble(estimate.getCount()));
+			long low = Math.round(FixedPoint.toDouble(estimate.getCount() - estimate.getError()));
+			report.append(formatEstimate(estimate.getKey(), low, high, unit)).append(ls);
+		}
+
+		report.append(String.format("Top %d by trips (drivers not shown have at most %d trips):", k, trips.getMinCount())).append(ls);
+		for (SpaceSaving.Estimate estimate : trips.getTop(k)) {
+			report.append(formatEstimate(estimate.getKey(), estimate.getCount() - estimate.getError(), estimate.getCount(), "trips"))
+					.append(ls);
+		}
+		return report.toString();
+	}
+
+	// "Name: 148 miles" for exact totals, "Name: 120-148 miles" for estimates with an error.
+	private static String formatEstimate(String name, long low, long high, String unit) {
+		return low == high ? String.format("%s: %d %s", name, high, unit) : String.format("%s: %d-%d %s", name, low, high, unit);
+	}
+}
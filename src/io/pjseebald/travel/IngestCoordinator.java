@@ -0,0 +1,241 @@
+package io.pjseebald.travel;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import io.pjseebald.travel.CommandParser.CommandType;
+import io.pjseebald.travel.CommandParser.ParsedCommand;
+
+/**
+ * <h1>IngestCoordinator</h1>
+ * Runs the commands of an input file on several worker JVMs (the -workers option), so the drivers and their trips
+ * are split over several heaps. Each line is sent to the worker of its driver, picked by the hash of the driver's
+ * name, and each worker runs its lines with CommandParser on its own drivers (see IngestWorker). When the input
+ * ends, the coordinator merges the totals of the workers' drivers and their rejected lines.
+ * <p>
+ * A renamed driver stays on the worker it was on: the coordinator keeps the name the worker was picked by for each
+ * renamed driver. The coordinator also keeps the names of all drivers, since a Rename to a name on another worker
+ * has to be rejected like it is in one JVM. Only the lines that add, remove or rename drivers are parsed by the
+ * coordinator, trips are only parsed by the workers.
+ * <p>
+ * Workers are started with the same Java and class path as this JVM, and the same -precision and -rejectoverlaps,
+ * and talk to the coordinator over their standard input and output, so a worker on another machine only needs
+ * another way to start it.
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class IngestCoordinator {
+
+	private final int workers;
+	private final Map<String, DriverAggregate> aggregates = new HashMap<>();
+
+	// Names of all drivers, and the name the worker was picked by for drivers that were renamed.
+	private final Set<String> names = new HashSet<>();
+	private final Map<String, String> routes = new HashMap<>();
+
+	/**
+	 * Constructor for a coordinator of a number of workers.
+	 * @param workers		Number of worker JVMs.
+	 */
+	public IngestCoordinator(int workers) {
+		if (workers < 1) {
+			throw new IllegalArgumentException("Coordinator needs at least one worker: " + workers);
+		}
+		this.workers = workers;
+	}
+
+	/**
+	 * Starts the workers, sends them the lines of the input and merges what they send back.
+	 * @param input				Lines of the input file.
+	 * @return IngestErrors		Rejected lines of all workers, in line order.
+	 * @throws IllegalStateException		If a worker fails.
+	 */
+	public IngestErrors run(BufferedReader input) {
+		List<Process> processes = new ArrayList<>(workers);
+		List<Writer> inputs = new ArrayList<>(workers);
+		List<int[]> errors = new ArrayList<>();
+		List<RejectReason> reasons = new ArrayList<>();
+		try {
+			for (int i = 0; i < workers; i++) {
+				Process process = startWorker();
+				processes.add(process);
+				inputs.add(new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8), 1 << 16));
+			}
+
+			IngestErrors local = new IngestErrors();
+			int lineNumber = 0;
+			String line = input.readLine();
+			while (line != null) {
+				lineNumber++;
+				String key = route(line.split("\\s+"), lineNumber, local);
+				if (key != null) {
+					Writer worker = inputs.get(Math.floorMod(key.hashCode(), workers));
+					worker.write(Integer.toString(lineNumber));
+					worker.write(' ');
+					worker.write(line);
+					worker.write('\n');
+				}
+				line = input.readLine();
+			}
+			for (Writer worker : inputs) {
+				worker.close();
+			}
+			for (int i = 0; i < local.size(); i++) {
+				errors.add(new int[] {local.getLineNumber(i), reasons.size()});
+				reasons.add(local.getReason(i));
+			}
+
+			for (int i = 0; i < workers; i++) {
+				readResults(processes.get(i), i, errors, reasons);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("Error talking to workers", e);
+		} finally {
+			for (Process process : processes) {
+				process.destroy();
+			}
+		}
+
+		// Rejected lines of each worker are in line order, but not across workers.
+		errors.sort((a, b) -> Integer.compare(a[0], b[0]));
+		IngestErrors merged = new IngestErrors();
+		for (int[] error : errors) {
+			merged.add(error[0], reasons.get(error[1]));
+		}
+		return merged;
+	}
+
+	/**
+	 * Getter for the totals of every driver, merged from the workers after run().
+	 * @return Map<String, DriverAggregate>		Totals by driver name.
+	 */
+	public Map<String, DriverAggregate> getAggregates() {
+		return aggregates;
+	}
+
+	/**
+	 * Starts a worker JVM with the same Java, class path and fixed-point precision as this one.
+	 * @return Process			Worker process, with the error stream going to this JVM's.
+	 * @throws IOException		If the worker cannot be started.
+	 */
+	protected Process startWorker() throws IOException {
+		List<String> command = new ArrayList<>();
+		command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+		command.add("-cp");
+		command.add(System.getProperty("java.class.path"));
+		command.add(MainApp.class.getName());
+		command.add("-precision");
+		command.add(Integer.toString(FixedPoint.getPrecision()));
+		if (Driver.isRejectingOverlaps()) {
+			command.add("-rejectoverlaps");
+		}
+		command.add("-worker");
+		return new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+	}
+
+	/**
+	 * Picks the name whose hash picks the worker of a line, keeping track of the drivers for lines that add, remove
+	 * or rename them. Such lines that are rejected are recorded here instead of being sent to a worker.
+	 * @param commandInputs		Line represented by String array.
+	 * @param lineNumber		Line number of the line.
+	 * @param errors			Buffer for lines rejected by the coordinator.
+	 * @return String			Name that picks the worker, or null if the line is not sent to any worker.
+	 */
+	private String route(String[] commandInputs, int lineNumber, IngestErrors errors) {
+		CommandType type = commandInputs.length == 0 ? null : CommandType.lookup(commandInputs[0]);
+		if (type != CommandType.DRIVER && type != CommandType.REMOVE && type != CommandType.RENAME) {
+			// Blank and unknown lines are rejected (or skipped) by any worker, the first one will do.
+			String name = CommandParser.getDriverName(commandInputs);
+			return name == null ? "" : getRoute(name);
+		}
+
+		ParsedCommand command = CommandParser.parseOnly(commandInputs);
+		if (command.getReason() != null) {
+			errors.add(lineNumber, command.getReason());
+			return null;
+		}
+		String name = command.getName();
+		String route = getRoute(name);
+		switch(type) {
+			case DRIVER:
+				names.add(name);
+				return route;
+			case REMOVE:
+				if (!names.remove(name)) {
+					errors.add(lineNumber, RejectReason.UNKNOWN_DRIVER);
+					return null;
+				}
+				routes.remove(name);
+				return route;
+			default:
+				if (!names.contains(name)) {
+					errors.add(lineNumber, RejectReason.UNKNOWN_DRIVER);
+					return null;
+				}
+				if (names.contains(command.getNewName())) {
+					errors.add(lineNumber, RejectReason.DUPLICATE_DRIVER);
+					return null;
+				}
+				names.remove(name);
+				names.add(command.getNewName());
+				routes.remove(name);
+				if (!route.equals(command.getNewName())) {
+					routes.put(command.getNewName(), route);
+				}
+				return route;
+		}
+	}
+
+	private String getRoute(String name) {
+		String route = routes.get(name);
+		return route != null ? route : name;
+	}
+
+	// Reads the records of a worker until it ends, then checks it ended well.
+	private void readResults(Process process, int worker, List<int[]> errors, List<RejectReason> reasons) throws IOException {
+		try (BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+			String line = output.readLine();
+			while (line != null) {
+				String[] fields = line.split("\t", 5);
+				if (fields[0].equals("E")) {
+					errors.add(new int[] {Integer.parseInt(fields[1]), reasons.size()});
+					reasons.add(RejectReason.valueOf(fields[2]));
+				} else if (fields[0].equals("D")) {
+					DriverAggregate aggregate = new DriverAggregate(Long.parseLong(fields[1]), Long.parseLong(fields[2]),
+							Long.parseLong(fields[3]));
+					DriverAggregate existing = aggregates.putIfAbsent(fields[4], aggregate);
+					if (existing != null) {
+						existing.merge(aggregate);
+					}
+				} else {
+					throw new IllegalStateException("Error: worker " + worker + " sent an unknown record: " + line);
+				}
+				line = output.readLine();
+			}
+		}
+		try {
+			int exit = process.waitFor();
+			if (exit != 0) {
+				throw new IllegalStateException("Error: worker " + worker + " failed with exit code " + exit + ".");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Error: interrupted waiting for worker " + worker + ".", e);
+		}
+	}
+}
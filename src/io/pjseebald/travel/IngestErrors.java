@@ -0,0 +1,117 @@
+package io.pjseebald.travel;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * <h1>IngestErrors</h1>
+ * Compact buffer of the input lines rejected while parsing commands in lenient mode.
+ * Each reject is stored as a line number and a reason code in two growing primitive arrays,
+ * so recording a bad line costs no exception, stack trace or per-reject object.
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class IngestErrors {
+
+	private static final int initialCapacity = 16;
+
+	private int[] lineNumbers = new int[initialCapacity];
+	private byte[] reasons = new byte[initialCapacity];
+	private int size = 0;
+
+	/**
+	 * Record a rejected line.
+	 * @param lineNumber	Line number of the rejected command (first line is 1).
+	 * @param reason		Reason the line was rejected.
+	 */
+	public void add(int lineNumber, RejectReason reason) {
+		if (size == lineNumbers.length) {
+			lineNumbers = Arrays.copyOf(lineNumbers, size * 2);
+			reasons = Arrays.copyOf(reasons, size * 2);
+		}
+		lineNumbers[size] = lineNumber;
+		reasons[size] = reason.getCode();
+		size++;
+	}
+
+	/**
+	 * Getter for the number of rejected lines.
+	 * @return int		Number of rejected lines recorded.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Getter for the line number of a recorded reject.
+	 * @param index		Index of the reject, in the order it was recorded.
+	 * @return int		Line number of the rejected command.
+	 */
+	public int getLineNumber(int index) {
+		checkIndex(index);
+		return lineNumbers[index];
+	}
+
+	/**
+	 * Getter for the reason of a recorded reject.
+	 * @param index				Index of the reject, in the order it was recorded.
+	 * @return RejectReason		Reason the line was rejected.
+	 */
+	public RejectReason getReason(int index) {
+		checkIndex(index);
+		return RejectReason.fromCode(reasons[index]);
+	}
+
+	/**
+	 * Counts the rejects recorded for a given reason.
+	 * @param reason	Reason to count.
+	 * @return int		Number of lines rejected for that reason.
+	 */
+	public int count(RejectReason reason) {
+		byte code = reason.getCode();
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			if (reasons[i] == code) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Writes every reject as "<line number> <reason>", one per line. Used for the quarantine file.
+	 * @param writer		Destination of the rejects.
+	 * @throws IOException	If the writer fails.
+	 */
+	public void writeTo(Writer writer) throws IOException {
+		String ls = System.lineSeparator();
+		for (int i = 0; i < size; i++) {
+			writer.write(lineNumbers[i] + " " + RejectReason.fromCode(reasons[i]) + ls);
+		}
+		writer.flush();
+	}
+
+	/**
+	 * Short summary of the rejects, with a count for each reason that occurred.
+	 * @return String		Summary of rejected lines.
+	 */
+	public String getSummary() {
+		String summary = "Rejected lines: " + size;
+		for (RejectReason reason : RejectReason.values()) {
+			int count = count(reason);
+			if (count > 0) {
+				summary += System.lineSeparator() + "  " + reason + ": " + count;
+			}
+		}
+		return summary;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Reject index " + index + " is out of range for size " + size);
+		}
+	}
+}
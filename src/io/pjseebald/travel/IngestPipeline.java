@@ -0,0 +1,444 @@
+package io.pjseebald.travel;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <h1>IngestPipeline</h1>
+ * Runs the commands of a stream (e.g. stdin or a socket) on several threads, for input that cannot be split
+ * into chunks up front. There are three stages:
+ * <ol>
+ * <li>The reader (the calling thread) reads batches of lines and hands them to the parsers in turn.</li>
+ * <li>Each parser splits its lines into words and validates and parses the commands (CommandParser.parseOnly()),
+ * then splits the batch by driver: commands for a driver always go to the same applier, chosen by the hash of
+ * the driver's name.</li>
+ * <li>Each applier executes its commands (CommandParser.apply()). Since a driver only has one applier,
+ * drivers are only ever changed by one thread and need no locks.</li>
+ * </ol>
+ * Stages are connected by RingBuffers, one per pair of threads, so a slow stage holds back the ones before it.
+ * Each parser hands the batches of lines it has parsed back to the reader, and each applier the batches of commands
+ * it has run back to their parser, on a second ring, so after the first few batches the reader and the parsers
+ * reuse them instead of allocating new ones.
+ * Appliers take the batches from the parsers in the same turn the reader handed them out, so every applier
+ * executes its commands in the order of the input, and each driver's commands run in order.
+ * <p>
+ * A Rename command is about two drivers that can belong to different appliers, so it is sent to every applier
+ * as a barrier: all appliers finish the lines before it, the applier of the old name renames the driver, and
+ * then all carry on. Commands for the new name after it then find the driver, whichever applier they are on.
+ * <p>
+ * Commands are run the lenient way by default, and rejected lines are returned with their line number. Outside
+ * lenient mode the pipeline runs like CommandParser.parseCommands() on one thread: it stops at the first rejected
+ * line, with lines after it not read or not applied, and trips that overlap are dropped silently instead of
+ * rejected. Appliers may be ahead of the first rejected line when it is found, so a few lines after it can still
+ * have been applied; the run is an error then anyway. The map of drivers
+ * is made a ConcurrentHashMap if it is not a concurrent map already. Driver listeners are called from the
+ * applier threads, so they need to be thread safe (see synchronizedListener()).
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class IngestPipeline {
+
+	// Marks the end of the input in the ring buffers.
+	private static final Object end = new Object();
+
+	private final int parsers;
+	private final int appliers;
+	private final int batchSize;
+	private final int ringCapacity;
+	private boolean lenient = true;
+
+	/**
+	 * Constructor for a pipeline with batches of 256 lines and rings of 64 batches.
+	 * @param parsers		Number of parser threads.
+	 * @param appliers		Number of applier threads.
+	 */
+	public IngestPipeline(int parsers, int appliers) {
+		this(parsers, appliers, 256, 64);
+	}
+
+	/**
+	 * Constructor for a pipeline.
+	 * @param parsers			Number of parser threads.
+	 * @param appliers			Number of applier threads.
+	 * @param batchSize			Number of lines handed from the reader to a parser at once.
+	 * @param ringCapacity		Number of batches each ring buffer holds.
+	 */
+	public IngestPipeline(int parsers, int appliers, int batchSize, int ringCapacity) {
+		if (parsers < 1 || appliers < 1 || batchSize < 1 || ringCapacity < 1) {
+			throw new IllegalArgumentException("Pipeline needs at least one parser and applier, and batches and rings of at least one.");
+		}
+		this.parsers = parsers;
+		this.appliers = appliers;
+		this.batchSize = batchSize;
+		this.ringCapacity = ringCapacity;
+	}
+
+	/**
+	 * Sets whether commands run the lenient way (the default), or stop at the first rejected line like
+	 * CommandParser.parseCommands() does outside lenient mode.
+	 * @param lenient		true to run every line, false to stop at the first rejected one.
+	 */
+	public void setLenient(boolean lenient) {
+		this.lenient = lenient;
+	}
+
+	/**
+	 * Reads and executes all commands of the input.
+	 * @param input				Input with one command per line.
+	 * @return IngestErrors		Rejected lines, in order of line number (first line is line 1). Outside lenient mode,
+	 * 							the first rejected line comes first.
+	 */
+	public IngestErrors run(BufferedReader input) {
+		if (!(MainApp.getDrivers() instanceof ConcurrentMap)) {
+			MainApp.setDrivers(new ConcurrentHashMap<>(MainApp.getDrivers()));
+		}
+
+		List<RingBuffer<Object>> lineRings = new ArrayList<>(parsers);
+		List<RingBuffer<LineBatch>> freeLines = new ArrayList<>(parsers);
+		for (int p = 0; p < parsers; p++) {
+			lineRings.add(new RingBuffer<>(ringCapacity));
+			// Room for the batches in the lines ring and the one each side holds.
+			freeLines.add(new RingBuffer<>(lineRings.get(p).getCapacity() + 2));
+		}
+		// channels[p][a] connects parser p to applier a.
+		Channel[][] channels = new Channel[parsers][appliers];
+		for (int p = 0; p < parsers; p++) {
+			for (int a = 0; a < appliers; a++) {
+				channels[p][a] = new Channel(ringCapacity);
+			}
+		}
+
+		// Stages change the drivers of the fleet the pipeline runs for, if any.
+		Fleet fleet = Fleet.current();
+		Phaser renames = new Phaser(appliers);
+		// Lowest rejected line so far outside lenient mode, where the stages stop.
+		AtomicInteger firstError = new AtomicInteger(Integer.MAX_VALUE);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		List<Thread> threads = new ArrayList<>(parsers + appliers);
+		IngestErrors[] errors = new IngestErrors[appliers];
+		for (int a = 0; a < appliers; a++) {
+			errors[a] = new IngestErrors();
+			final int applier = a;
+			threads.add(new Thread(() -> Fleet.runAs(fleet, () -> apply(channels, applier, renames, firstError, errors[applier])),
+					"ingest-applier-" + a));
+		}
+		for (int p = 0; p < parsers; p++) {
+			final int parser = p;
+			threads.add(new Thread(() -> Fleet.runAs(fleet, () -> parse(lineRings.get(parser), freeLines.get(parser), channels[parser])),
+					"ingest-parser-" + p));
+		}
+		Thread reader = Thread.currentThread();
+		for (Thread thread : threads) {
+			thread.setDaemon(true);
+			thread.setUncaughtExceptionHandler((t, e) -> {
+				// Stops every stage, since the others would wait for this one forever.
+				failure.compareAndSet(null, e);
+				for (Thread other : threads) {
+					other.interrupt();
+				}
+				reader.interrupt();
+			});
+			thread.start();
+		}
+
+		try {
+			read(input, lineRings, freeLines, firstError);
+			for (Thread thread : threads) {
+				thread.join();
+			}
+		} catch (InterruptedException | IOException | RuntimeException e) {
+			failure.compareAndSet(null, e);
+			for (Thread thread : threads) {
+				thread.interrupt();
+			}
+		}
+		if (failure.get() != null) {
+			// The flag may still be set by a failing stage.
+			Thread.interrupted();
+			throw new RuntimeException("Error in ingest pipeline", failure.get());
+		}
+
+		return mergeErrors(errors);
+	}
+
+	/**
+	 * Wraps a listener so that it is called by one thread at a time, for listeners that are not thread safe
+	 * (e.g. TripIntervalIndex) when drivers are changed by the appliers of a pipeline.
+	 * @param listener				Listener to wrap.
+	 * @return DriverListener		Listener that calls the wrapped listener under a lock.
+	 */
+	public static DriverListener synchronizedListener(DriverListener listener) {
+		return new DriverListener() {
+			@Override
+			public synchronized void driverAdded(Driver driver) {
+				listener.driverAdded(driver);
+			}
+
+			@Override
+			public synchronized void tripAdded(Driver driver, Trip trip) {
+				listener.tripAdded(driver, trip);
+			}
+
+			@Override
+			public synchronized void tripRemoved(Driver driver, Trip trip) {
+				listener.tripRemoved(driver, trip);
+			}
+
+			@Override
+			public synchronized void driverRemoved(Driver driver) {
+				listener.driverRemoved(driver);
+			}
+
+			@Override
+			public synchronized void driverRenamed(Driver driver, String oldName) {
+				listener.driverRenamed(driver, oldName);
+			}
+		};
+	}
+
+	/*
+	 * *******************************************
+	 * Stages
+	 */
+
+	// Reader stage: hands batches of lines to the parsers in turn, then the end of the input to each parser.
+	// Outside lenient mode, stops reading once a line is rejected.
+	private void read(BufferedReader input, List<RingBuffer<Object>> lineRings, List<RingBuffer<LineBatch>> freeLines,
+			AtomicInteger firstError) throws IOException, InterruptedException {
+		int lineNumber = 1;
+		long batch = 0;
+		LineBatch lines = takeLineBatch(freeLines.get(0), lineNumber);
+		String line;
+		while ((lenient || firstError.get() == Integer.MAX_VALUE) && (line = input.readLine()) != null) {
+			lines.lines[lines.count++] = line;
+			if (lines.count == batchSize) {
+				lineRings.get((int) (batch++ % parsers)).put(lines);
+				lineNumber += lines.count;
+				lines = takeLineBatch(freeLines.get((int) (batch % parsers)), lineNumber);
+			}
+		}
+		if (lines.count > 0) {
+			lineRings.get((int) (batch++ % parsers)).put(lines);
+		}
+		// Ends go out in the same turn as the batches, so each applier reads the end of the parser it expects next.
+		for (int p = 0; p < parsers; p++) {
+			lineRings.get((int) (batch++ % parsers)).put(end);
+		}
+	}
+
+	// Batch of lines the parser has handed back, or a new one until enough are going round.
+	private LineBatch takeLineBatch(RingBuffer<LineBatch> free, int firstLineNumber) {
+		LineBatch lines = free.poll();
+		if (lines == null) {
+			lines = new LineBatch(batchSize);
+		}
+		lines.firstLineNumber = firstLineNumber;
+		return lines;
+	}
+
+	// Parser stage: parses each batch of lines and hands every applier its part of the batch, even if it is empty.
+	private void parse(RingBuffer<Object> lineRing, RingBuffer<LineBatch> freeLines, Channel[] channels) {
+		CommandBatch[] parts = new CommandBatch[appliers];
+		try {
+			while (true) {
+				Object item = lineRing.take();
+				if (item == end) {
+					for (Channel channel : channels) {
+						channel.commands.put(end);
+					}
+					return;
+				}
+				LineBatch batch = (LineBatch) item;
+				StageEvents.CommandBatch event = StageEvents.CommandBatch.start("parse", batch.firstLineNumber);
+
+				for (int a = 0; a < appliers; a++) {
+					// Batches the applier has finished, or a new one until enough are going round.
+					parts[a] = channels[a].free.poll();
+					if (parts[a] == null) {
+						parts[a] = new CommandBatch(batchSize);
+					}
+				}
+				for (int i = 0; i < batch.count; i++) {
+					int lineNumber = batch.firstLineNumber + i;
+					CommandParser.ParsedCommand command = CommandParser.parseOnly(batch.lines[i].split("\\s+"));
+					event.lines++;
+					if (command == null) {
+						continue;
+					}
+					if (command.getReason() != null) {
+						event.rejected++;
+					}
+					if (command.getNewName() != null) {
+						// Renames are barriers for every applier.
+						for (CommandBatch part : parts) {
+							part.add(lineNumber, command);
+						}
+						continue;
+					}
+					// Rejected lines without a driver can go to any applier.
+					int hash = command.getName() != null ? command.getName().hashCode() : lineNumber;
+					parts[Math.floorMod(hash, appliers)].add(lineNumber, command);
+				}
+				event.finish();
+				// Back to the reader to be filled again.
+				batch.clear();
+				freeLines.offer(batch);
+				for (int a = 0; a < appliers; a++) {
+					channels[a].commands.put(parts[a]);
+				}
+			}
+		} catch (InterruptedException e) {
+			// Another stage failed.
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// Applier stage: executes the commands of its drivers, reading the parsers' rings in the order the batches were read.
+	// Outside lenient mode, lines after the first rejected one are not applied, but still go through the rename barriers.
+	private void apply(Channel[][] channels, int applier, Phaser renames, AtomicInteger firstError, IngestErrors errors) {
+		try {
+			long batch = 0;
+			while (true) {
+				Channel channel = channels[(int) (batch++ % parsers)][applier];
+				Object item = channel.commands.take();
+				if (item == end) {
+					return;
+				}
+				CommandBatch commands = (CommandBatch) item;
+				StageEvents.CommandBatch event = StageEvents.CommandBatch.start("apply",
+						commands.count > 0 ? commands.lineNumbers[0] : 0);
+				for (int i = 0; i < commands.count; i++) {
+					CommandParser.ParsedCommand command = commands.commands[i];
+					boolean rename = command.getNewName() != null;
+					if (rename) {
+						// Every applier has finished the lines before the rename.
+						renames.awaitAdvanceInterruptibly(renames.arrive());
+						if (Math.floorMod(command.getName().hashCode(), appliers) != applier) {
+							// Waits for the rename to be done.
+							renames.awaitAdvanceInterruptibly(renames.arrive());
+							continue;
+						}
+					}
+					int lineNumber = commands.lineNumbers[i];
+					if (!lenient && lineNumber > firstError.get()) {
+						if (rename) {
+							renames.awaitAdvanceInterruptibly(renames.arrive());
+						}
+						continue;
+					}
+					RejectReason reason = CommandParser.apply(command, lenient);
+					if (reason != null) {
+						errors.add(lineNumber, reason);
+						if (!lenient) {
+							firstError.accumulateAndGet(lineNumber, Math::min);
+						}
+					}
+					event.lines++;
+					if (reason != null) {
+						event.rejected++;
+					}
+					if (rename) {
+						renames.awaitAdvanceInterruptibly(renames.arrive());
+					}
+				}
+				// Back to the parser to be filled again. The free ring holds every batch of the channel.
+				commands.clear();
+				channel.free.offer(commands);
+			}
+		} catch (InterruptedException e) {
+			// Another stage failed.
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// Each applier's rejects are in line order, so they only need to be put together and sorted once.
+	private static IngestErrors mergeErrors(IngestErrors[] errors) {
+		int total = 0;
+		for (IngestErrors applierErrors : errors) {
+			total += applierErrors.size();
+		}
+		long[] rejects = new long[total];
+		int i = 0;
+		for (IngestErrors applierErrors : errors) {
+			for (int e = 0; e < applierErrors.size(); e++) {
+				rejects[i++] = ((long) applierErrors.getLineNumber(e) << 8) | applierErrors.getReason(e).getCode();
+			}
+		}
+		Arrays.sort(rejects);
+
+		IngestErrors merged = new IngestErrors();
+		for (long reject : rejects) {
+			merged.add((int) (reject >>> 8), RejectReason.fromCode((byte) (reject & 0xFF)));
+		}
+		return merged;
+	}
+
+	/**
+	 * Lines read together, handed from the reader to a parser and back to be reused.
+	 */
+	private static class LineBatch {
+		int firstLineNumber;
+		final String[] lines;
+		int count = 0;
+
+		LineBatch(int capacity) {
+			this.lines = new String[capacity];
+		}
+
+		// Empties the batch, letting go of its lines.
+		void clear() {
+			Arrays.fill(lines, 0, count, null);
+			count = 0;
+		}
+	}
+
+	/**
+	 * Rings between a parser and an applier: batches of commands one way, and emptied batches back.
+	 */
+	private static class Channel {
+		final RingBuffer<Object> commands;
+		final RingBuffer<CommandBatch> free;
+
+		Channel(int ringCapacity) {
+			this.commands = new RingBuffer<>(ringCapacity);
+			// Room for the batches in the commands ring and the one each side holds.
+			this.free = new RingBuffer<>(commands.getCapacity() + 2);
+		}
+	}
+
+	/**
+	 * Parsed commands of one applier's drivers, handed from a parser to the applier and back to be reused.
+	 */
+	private static class CommandBatch {
+		final int[] lineNumbers;
+		final CommandParser.ParsedCommand[] commands;
+		int count = 0;
+
+		CommandBatch(int capacity) {
+			this.lineNumbers = new int[capacity];
+			this.commands = new CommandParser.ParsedCommand[capacity];
+		}
+
+		void add(int lineNumber, CommandParser.ParsedCommand command) {
+			lineNumbers[count] = lineNumber;
+			commands[count] = command;
+			count++;
+		}
+
+		// Empties the batch, letting go of its commands.
+		void clear() {
+			Arrays.fill(commands, 0, count, null);
+			count = 0;
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package io.pjseebald.travel;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * <h1>IngestWorker</h1>
+ * Runs the commands of one partition of the drivers in its own JVM (the -worker option), for an IngestCoordinator.
+ * The commands come in on standard input, one per line, as the line number of the input file, a space and the
+ * line. They run the lenient way with CommandParser on the worker's own drivers, and when the input ends the worker
+ * writes what it found to standard output, one record per line with tab separated fields:
+ * <ul>
+ * <li>E, line number, reject reason: for each rejected line.</li>
+ * <li>D, scaled distance, seconds traveled, trips, name: for each driver, with the name last since it can have spaces.</li>
+ * </ul>
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class IngestWorker {
+
+	/**
+	 * Runs numbered commands until the input ends, then writes the rejected lines and the totals of the drivers.
+	 * @param input				Numbered commands.
+	 * @param output			Where the records are written. Flushed but not closed.
+	 * @throws IOException		If the input cannot be read or the output written.
+	 */
+	public static void run(BufferedReader input, Writer output) throws IOException {
+		IngestErrors errors = new IngestErrors();
+		String line = input.readLine();
+		while (line != null) {
+			int space = line.indexOf(' ');
+			int lineNumber = Integer.parseInt(space < 0 ? line : line.substring(0, space));
+			// Split the same way FileParser splits the lines of the input file.
+			String[] commandInputs = (space < 0 ? "" : line.substring(space + 1)).split("\\s+");
+			RejectReason reason = CommandParser.parseCommandLenient(commandInputs);
+			if (reason != null) {
+				errors.add(lineNumber, reason);
+			}
+			line = input.readLine();
+		}
+
+		for (int i = 0; i < errors.size(); i++) {
+			output.write("E\t" + errors.getLineNumber(i) + "\t" + errors.getReason(i).name() + "\n");
+		}
+		for (Map.Entry<String, Driver> entry : MainApp.getDrivers().entrySet()) {
+			DriverAggregate aggregate = entry.getValue().getAggregate();
+			output.write("D\t" + aggregate.getScaledDistance() + "\t" + aggregate.getSecondsTraveled() + "\t"
+					+ aggregate.getTrips() + "\t" + entry.getKey() + "\n");
+		}
+		output.flush();
+	}
+}
@@ -1,82 +1,978 @@
-package io.pjseebald.travel;
-
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
-/**
- * <h1>MainApp</h1>
- * Provides primary flow to app. Contains centralized managed list of drivers.
- * Also provides help and error strings for running the app.
- * 
- * @author PaulSEEBALD
- * @version 1.0
- * @since 2018-10-30
- */
-public class MainApp {
-	
-	// Be able to retrieve driver by their name.
-	private static Map<String, Driver> drivers = new HashMap<>();
-
-	public static void main(String[] args) {
-		
-		if (args.length == 0) {
-			String errorMessage = "Error: must include argument when calling this app with input file location. " 
-					+ System.lineSeparator() + "Example: java -jar travel.jar input.txt" 
-					+ System.lineSeparator() + "Can also get help using the -h option. Example: java -jar travel.jar -h";
-			throw new IllegalArgumentException(errorMessage);
-		} else if (args.length > 1) {
-			String errorMessage = "Error: too many arguments. Only include location of the input file. " 
-					+ System.lineSeparator() + "Example: java -jar travel.jar input.txt"
-					+ System.lineSeparator() + "Can also get help using the -h option. Example: java -jar travel.jar -h";
-			throw new IllegalArgumentException(errorMessage);
-		} else if (args[0].equals("-h")) {
-			// Output help for app
-			String ls = System.lineSeparator();
-			String helpMessage = "***** Welcome to the Travel App *****" 
-					+ ls + ls + "This app is designed to input drivers and the trips they take."
-					+ ls + "An input text file is required and the text file should have the following format:"
-					+ ls + ls + "Driver <name>"
-					+ ls + "Trip <name> <start-time> <end-time> <miles-traveled>"
-					+ ls + ls + "Example:"
-					+ ls + "Driver Maggie"
-					+ ls + "Trip Maggie 11:40 13:10 85.6"
-					+ ls + ls + "Note that any number of drivers can be included, and drivers can take any number of trips."
-					+ ls + "The requirements are: "
-					+ ls + "1. Drivers must be added with \"Driver <name>\" before their trips are listed."
-					+ ls + "2. Trip start and end times must be in HH:MM format (e.g. 01:20)"
-					+ ls + "3. Trips have to be within the same day (i.e. cannot pass midnight)."
-					+ ls + "4. Trip numbers have to make logical sense. Miles and time traveled cannot be negative."
-					+ ls + ls + "The app can be run using the command:"
-					+ ls + "java -jar travel.jar <input-file-path>"
-					+ ls + ls + "Example:"
-					+ ls + "java -jar travel.jar sample-travel-input.txt"
-					+ ls + ls + "To run the unit tests, run the command:"
-					+ ls + "java -cp travel.jar io.pjseebald.travel.AllTests"
-					+ ls + ls + "Note: unit tests require both junit.jar and hamcrest-core-1.3.jar (v. 1.3) in the .\\lib folder"
-					;
-			System.out.println(helpMessage);
-			return;
-		}
-		
-		String inputFileLocation = args[0];
-		
-		// Parse the input file
-		List<String[]> allInputs = FileParser.parseInputFile(inputFileLocation);
-		
-		// Execute the commands
-		CommandParser.parseCommands(allInputs);
-		
-		// Retrieve report
-		String report = new DriverReport().getReport();
-		
-		// Print the report.
-		System.out.println(report);
-		
-	}
-	
-	public static Map<String, Driver> getDrivers() {
-		return drivers;
-	}
-
-}
+package io.pjseebald.travel;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>MainApp</h1>
+ * Provides primary flow to app. Contains centralized managed list of drivers.
+ * Also provides help and error strings for running the app.
+ * 
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2018-10-30
+ */
+public class MainApp {
+	
+	// Be able to retrieve driver by their name.
+	private static Map<String, Driver> drivers = new HashMap<>();
+
+	// Notified of drivers and trips as they are added. Read far more often than changed, so copy-on-write.
+	private static List<DriverListener> driverListeners = new CopyOnWriteArrayList<>();
+
+	// Options set from the command line arguments.
+	private static boolean lenient = false;
+	private static String quarantineFileLocation = null;
+	private static LocalTime[] window = null;
+	private static LocalDate fromDate = null;
+	private static LocalDate toDate = null;
+	private static boolean parallel = false;
+	private static int externalRunSize = 0;
+	private static boolean percentiles = false;
+	private static int top = 0;
+	private static int threads = 0;
+	private static int progressSeconds = 0;
+	private static int asOfLine = -1;
+	private static LocalDateTime asOfTime = null;
+	private static boolean segmentInput = false;
+	private static String segmentFileLocation = null;
+	private static int servePort = -1;
+	private static int workers = 0;
+	private static boolean worker = false;
+	private static String aggregatesLocation = null;
+	private static AggregateFile.Period rollupPeriod = null;
+	private static String dedupLocation = null;
+	private static int fleetThreads = 0;
+	private static String anomaliesLocation = null;
+
+	public static void main(String[] args) {
+		
+		String inputFileLocation = parseArguments(args);
+		if (inputFileLocation == null) {
+			// Help was requested and printed.
+			return;
+		}
+		
+		if (worker) {
+			runWorker();
+			return;
+		}
+		if (workers > 0) {
+			runCoordinator(inputFileLocation);
+			return;
+		}
+		if (rollupPeriod != null) {
+			runRollup(inputFileLocation);
+			return;
+		}
+		if (fleetThreads > 0) {
+			runFleets(inputFileLocation);
+			return;
+		}
+		
+		TripIntervalIndex tripIndex = null;
+		if (window != null) {
+			tripIndex = new TripIntervalIndex();
+			addListener(tripIndex);
+		}
+		
+		TripDistributions distributions = null;
+		if (percentiles || aggregatesLocation != null) {
+			distributions = new TripDistributions();
+			addListener(distributions);
+		}
+		
+		HeavyHitters heavyHitters = null;
+		if (top > 0) {
+			// A few counters per driver shown keeps the estimates of the top drivers close.
+			heavyHitters = new HeavyHitters(top * 10);
+			addListener(heavyHitters);
+		}
+		
+		DriverHistory history = null;
+		if (asOfLine >= 0 || asOfTime != null) {
+			history = new DriverHistory();
+			addListener(history);
+		}
+		
+		DayPartitions dayPartitions = null;
+		if (fromDate != null || toDate != null) {
+			dayPartitions = new DayPartitions();
+			addListener(dayPartitions);
+		}
+		
+		TripDeduplicator deduplicator = null;
+		if (dedupLocation != null) {
+			deduplicator = loadDeduplicator(Paths.get(dedupLocation));
+			CommandParser.setDeduplicator(deduplicator);
+		}
+		
+		AnomalyDetector anomalies = null;
+		Writer anomalyOutput = null;
+		if (anomaliesLocation != null) {
+			try {
+				anomalyOutput = new BufferedWriter(new FileWriter(anomaliesLocation));
+			} catch (IOException e) {
+				throw new RuntimeException("Error opening anomaly file: " + anomaliesLocation, e);
+			}
+			anomalies = new AnomalyDetector(anomalyOutput);
+			addListener(anomalies);
+		}
+		
+		ScheduledExecutorService progress = null;
+		if (progressSeconds > 0) {
+			// Thread safe without a lock, so not wrapped like the other listeners.
+			DriverSnapshots snapshots = new DriverSnapshots();
+			driverListeners.add(snapshots);
+			progress = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "progress-report");
+				thread.setDaemon(true);
+				return thread;
+			});
+			progress.scheduleAtFixedRate(() -> System.err.println(getProgressReport(snapshots)),
+					progressSeconds, progressSeconds, TimeUnit.SECONDS);
+		}
+		
+		// Parse and execute the commands
+		IngestErrors errors = null;
+		if (segmentInput) {
+			loadSegment(inputFileLocation);
+		} else if (threads > 0) {
+			errors = runPipeline(inputFileLocation);
+		} else {
+			List<String[]> allInputs = FileParser.parseInputFile(inputFileLocation);
+			if (history != null) {
+				errors = lenient ? new IngestErrors() : null;
+				CommandParser.parseCommands(allInputs, errors, history);
+			} else if (lenient) {
+				errors = new IngestErrors();
+				CommandParser.parseCommands(allInputs, errors);
+			} else {
+				CommandParser.parseCommands(allInputs);
+			}
+		}
+		if (progress != null) {
+			progress.shutdownNow();
+		}
+		if (anomalyOutput != null) {
+			try {
+				anomalyOutput.close();
+			} catch (IOException e) {
+				throw new RuntimeException("Error writing anomaly file: " + anomaliesLocation, e);
+			}
+			System.err.println(anomalies.getSummary());
+		}
+		if (segmentFileLocation != null) {
+			try {
+				TripSegment.write(drivers, Paths.get(segmentFileLocation));
+			} catch (IOException e) {
+				throw new RuntimeException("Error writing trip segment", e);
+			}
+		}
+		if (deduplicator != null) {
+			try {
+				deduplicator.write(drivers, Paths.get(dedupLocation));
+			} catch (IOException e) {
+				throw new RuntimeException("Error writing deduplication file", e);
+			}
+			if (deduplicator.getDuplicates() > 0) {
+				System.err.println("Skipped " + deduplicator.getDuplicates() + " trips that were already applied.");
+			}
+		}
+		if (aggregatesLocation != null) {
+			try {
+				AggregateFile.of(drivers, distributions).write(Paths.get(aggregatesLocation));
+			} catch (IOException e) {
+				throw new RuntimeException("Error writing aggregate file", e);
+			}
+		}
+		
+		// Retrieve report, only over the trips in the range of dates if one was given
+		String report;
+		if (history != null) {
+			int line = asOfTime != null ? history.getLineAsOf(asOfTime) : asOfLine;
+			report = "Report as of line " + line + ":" + System.lineSeparator() 
+					+ new DriverReport().getReport(history.getAggregatesAsOf(line));
+		} else if (dayPartitions != null) {
+			LocalDate from = fromDate != null ? fromDate : LocalDate.MIN;
+			LocalDate to = toDate != null ? toDate : LocalDate.MAX;
+			report = new DriverReport().getReport(dayPartitions.getAggregates(from, to));
+		} else if (externalRunSize > 0) {
+			// Written out as it is merged, instead of being built as a String.
+			writeExternalReport(externalRunSize);
+			report = "";
+		} else if (parallel) {
+			report = new DriverReport().getParallelReport();
+		} else {
+			report = new DriverReport().getReport();
+		}
+		
+		// Print the report.
+		System.out.println(report);
+		
+		if (tripIndex != null) {
+			System.out.println(getWindowReport(tripIndex, window[0], window[1]));
+		}
+		
+		if (percentiles) {
+			System.out.println(getPercentileReport(distributions, drivers.keySet()));
+		}
+		
+		if (heavyHitters != null) {
+			System.out.println(heavyHitters.getReport(top));
+		}
+		
+		if (errors != null) {
+			reportErrors(errors);
+		}
+
+		if (servePort >= 0) {
+			// The server's threads keep the app running after main() returns.
+			try {
+				ReportServer server = new ReportServer(servePort);
+				// Changes to the drivers after this point, if any, move the server's version on.
+				driverListeners.add(server);
+				server.start();
+				System.err.println("Serving the report on http://localhost:" + server.getPort() + "/report");
+			} catch (IOException e) {
+				throw new RuntimeException("Error starting report server", e);
+			}
+		}
+
+	}
+
+	/**
+	 * Reads the command line arguments. Options start with "-" and come before the input file location.
+	 * Prints the help if it is requested.
+	 * @param args			Command line arguments.
+	 * @return String		Location of the input file, or null if the help was printed instead.
+	 */
+	static String parseArguments(String[] args) {
+		String example = System.lineSeparator() + "Example: java -jar travel.jar input.txt"
+				+ System.lineSeparator() + "Can also get help using the -h option. Example: java -jar travel.jar -h";
+
+		String inputFileLocation = null;
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("-h")) {
+				System.out.println(getHelpMessage());
+				return null;
+			} else if (arg.equals("-lenient")) {
+				lenient = true;
+			} else if (arg.equals("-quarantine")) {
+				quarantineFileLocation = getOptionValue(args, ++i, arg);
+				lenient = true;
+			} else if (arg.equals("-precision")) {
+				String digits = getOptionValue(args, ++i, arg);
+				try {
+					FixedPoint.setPrecision(Integer.parseInt(digits));
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Error: precision must be a whole number of digits: " + digits);
+				}
+			} else if (arg.equals("-rejectoverlaps")) {
+				Driver.setRejectOverlaps(true);
+			} else if (arg.equals("-from")) {
+				fromDate = parseDate(getOptionValue(args, ++i, arg));
+			} else if (arg.equals("-to")) {
+				toDate = parseDate(getOptionValue(args, ++i, arg));
+			} else if (arg.equals("-asof")) {
+				String point = getOptionValue(args, ++i, arg);
+				try {
+					asOfLine = Integer.parseInt(point);
+				} catch (NumberFormatException e) {
+					asOfTime = CommandParser.parseDateTime(point);
+				}
+				if (asOfLine < 0 && asOfTime == null) {
+					throw new IllegalArgumentException("Error: asof needs a line number or a date and time as YYYY-MM-DDTHH:MM: " + point);
+				}
+			} else if (arg.equals("-segment")) {
+				segmentInput = true;
+			} else if (arg.equals("-savesegment")) {
+				segmentFileLocation = getOptionValue(args, ++i, arg);
+			} else if (arg.equals("-window")) {
+				window = parseWindow(getOptionValue(args, ++i, arg));
+			} else if (arg.equals("-top")) {
+				String count = getOptionValue(args, ++i, arg);
+				try {
+					top = Integer.parseInt(count);
+				} catch (NumberFormatException e) {
+					top = -1;
+				}
+				if (top < 1) {
+					throw new IllegalArgumentException("Error: top needs a whole number of drivers: " + count);
+				}
+			} else if (arg.equals("-threads")) {
+				String count = getOptionValue(args, ++i, arg);
+				try {
+					threads = Integer.parseInt(count);
+				} catch (NumberFormatException e) {
+					threads = -1;
+				}
+				if (threads < 1) {
+					throw new IllegalArgumentException("Error: threads needs a whole number of threads: " + count);
+				}
+			} else if (arg.equals("-serve")) {
+				String port = getOptionValue(args, ++i, arg);
+				try {
+					servePort = Integer.parseInt(port);
+				} catch (NumberFormatException e) {
+					servePort = -1;
+				}
+				if (servePort < 0 || servePort > 65535) {
+					throw new IllegalArgumentException("Error: serve needs a port number from 0 to 65535: " + port);
+				}
+			} else if (arg.equals("-workers")) {
+				String count = getOptionValue(args, ++i, arg);
+				try {
+					workers = Integer.parseInt(count);
+				} catch (NumberFormatException e) {
+					workers = -1;
+				}
+				if (workers < 1) {
+					throw new IllegalArgumentException("Error: workers needs a whole number of worker processes: " + count);
+				}
+			} else if (arg.equals("-saveaggregates")) {
+				aggregatesLocation = getOptionValue(args, ++i, arg);
+			} else if (arg.equals("-rollup")) {
+				String period = getOptionValue(args, ++i, arg);
+				try {
+					rollupPeriod = AggregateFile.Period.valueOf(period.toUpperCase());
+				} catch (IllegalArgumentException e) {
+					throw new IllegalArgumentException("Error: rollup needs a period of day, week or month: " + period);
+				}
+			} else if (arg.equals("-fleets")) {
+				String count = getOptionValue(args, ++i, arg);
+				try {
+					fleetThreads = Integer.parseInt(count);
+				} catch (NumberFormatException e) {
+					fleetThreads = -1;
+				}
+				if (fleetThreads < 1) {
+					throw new IllegalArgumentException("Error: fleets needs a whole number of threads: " + count);
+				}
+			} else if (arg.equals("-anomalies")) {
+				anomaliesLocation = getOptionValue(args, ++i, arg);
+			} else if (arg.equals("-dedup")) {
+				dedupLocation = getOptionValue(args, ++i, arg);
+			} else if (arg.equals("-worker")) {
+				worker = true;
+			} else if (arg.equals("-progress")) {
+				String seconds = getOptionValue(args, ++i, arg);
+				try {
+					progressSeconds = Integer.parseInt(seconds);
+				} catch (NumberFormatException e) {
+					progressSeconds = -1;
+				}
+				if (progressSeconds < 1) {
+					throw new IllegalArgumentException("Error: progress needs a whole number of seconds: " + seconds);
+				}
+			} else if (arg.equals("-percentiles")) {
+				percentiles = true;
+			} else if (arg.equals("-parallel")) {
+				parallel = true;
+			} else if (arg.equals("-memory")) {
+				String budget = getOptionValue(args, ++i, arg);
+				try {
+					setDrivers(new DriverRegistry(Integer.parseInt(budget), driverListeners));
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Error: memory budget must be a whole number of drivers: " + budget);
+				}
+			} else if (arg.equals("-external")) {
+				String runSize = getOptionValue(args, ++i, arg);
+				try {
+					externalRunSize = Integer.parseInt(runSize);
+				} catch (NumberFormatException e) {
+					externalRunSize = -1;
+				}
+				if (externalRunSize < 1) {
+					throw new IllegalArgumentException("Error: external report needs a whole number of drivers per run: " + runSize);
+				}
+			} else if (arg.startsWith("-")) {
+				throw new IllegalArgumentException("Error: unknown option " + arg + "." + example);
+			} else if (inputFileLocation != null) {
+				throw new IllegalArgumentException("Error: too many arguments. Only include location of the input file after any options. "
+						+ example);
+			} else {
+				inputFileLocation = arg;
+			}
+		}
+
+		if (threads > 0 && (asOfLine >= 0 || asOfTime != null)) {
+			throw new IllegalArgumentException("Error: -threads cannot be used with -asof, the lines run out of order.");
+		}
+		if (segmentInput && (threads > 0 || asOfLine >= 0 || asOfTime != null)) {
+			throw new IllegalArgumentException("Error: -segment cannot be used with -threads or -asof, a segment has no lines.");
+		}
+		if (segmentInput && dedupLocation != null) {
+			throw new IllegalArgumentException("Error: -dedup cannot be used with -segment, a segment has no Trip commands.");
+		}
+		if (segmentInput && anomaliesLocation != null) {
+			throw new IllegalArgumentException("Error: -anomalies cannot be used with -segment, a segment has no Trip commands.");
+		}
+		if (workers > 0 && (threads > 0 || asOfLine >= 0 || asOfTime != null || segmentInput || segmentFileLocation != null
+				|| servePort >= 0 || window != null || percentiles || top > 0 || fromDate != null || toDate != null
+				|| progressSeconds > 0 || drivers instanceof DriverRegistry || dedupLocation != null
+				|| anomaliesLocation != null)) {
+			throw new IllegalArgumentException("Error: -workers only gives the report and rejected lines, the drivers are in the workers.");
+		}
+		if (rollupPeriod != null && (workers > 0 || threads > 0 || asOfLine >= 0 || asOfTime != null || segmentInput
+				|| segmentFileLocation != null || servePort >= 0 || window != null || top > 0 || fromDate != null
+				|| toDate != null || progressSeconds > 0 || dedupLocation != null || anomaliesLocation != null)) {
+			throw new IllegalArgumentException("Error: -rollup only merges aggregate files, it cannot be used with options for commands.");
+		}
+		if (fleetThreads > 0 && (workers > 0 || threads > 0 || asOfLine >= 0 || asOfTime != null || segmentInput
+				|| segmentFileLocation != null || servePort >= 0 || window != null || percentiles || top > 0
+				|| fromDate != null || toDate != null || progressSeconds > 0 || drivers instanceof DriverRegistry
+				|| externalRunSize > 0 || parallel || rollupPeriod != null || aggregatesLocation != null
+				|| dedupLocation != null || anomaliesLocation != null || quarantineFileLocation != null)) {
+			throw new IllegalArgumentException("Error: -fleets only gives a report per fleet, the settings of a fleet are in its properties file.");
+		}
+		if (worker) {
+			// The commands come from the coordinator on standard input.
+			return "";
+		}
+		if (threads > 0 && drivers instanceof DriverRegistry) {
+			throw new IllegalArgumentException("Error: -threads cannot be used with -memory, the registry is not thread safe.");
+		}
+
+		if (inputFileLocation == null) {
+			throw new IllegalArgumentException("Error: must include argument when calling this app with input file location. "
+					+ example);
+		}
+
+		return inputFileLocation;
+	}
+
+	/**
+	 * Adds a listener for this run. When commands run on several threads, the listener is called by one thread at a time.
+	 * @param listener		Listener to add.
+	 */
+	private static void addListener(DriverListener listener) {
+		driverListeners.add(threads > 0 ? IngestPipeline.synchronizedListener(listener) : listener);
+	}
+
+	/**
+	 * Loads the state of the deduplicator of earlier runs, or starts a new one if there is no state yet.
+	 * @param location					State file.
+	 * @return TripDeduplicator			Deduplicator of Trip commands.
+	 */
+	private static TripDeduplicator loadDeduplicator(Path location) {
+		if (!Files.exists(location)) {
+			return new TripDeduplicator();
+		}
+		try {
+			return TripDeduplicator.read(location);
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading deduplication file", e);
+		}
+	}
+
+	/**
+	 * Runs the commands of the input file through an IngestPipeline with a parser and an applier per thread.
+	 * Outside lenient mode, the first rejected line stops the app like it does when commands run on one thread.
+	 * @param inputFileLocation		Location of the input file.
+	 * @return IngestErrors			Rejected lines in lenient mode, or null.
+	 */
+	private static IngestErrors runPipeline(String inputFileLocation) {
+		IngestErrors errors;
+		try (BufferedReader input = FileParser.openInputFile(inputFileLocation)) {
+			IngestPipeline pipeline = new IngestPipeline(threads, threads);
+			pipeline.setLenient(lenient);
+			errors = pipeline.run(input);
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading from file", e);
+		}
+		if (lenient) {
+			return errors;
+		}
+		if (errors.size() > 0) {
+			throw new IllegalStateException("Error: line " + errors.getLineNumber(0) + " was rejected: " + errors.getReason(0));
+		}
+		return null;
+	}
+
+	/**
+	 * Runs the commands of the input file on worker JVMs and prints the report of the drivers they send back.
+	 * Outside lenient mode, the first rejected line stops the app after the run.
+	 * @param inputFileLocation		Location of the input file.
+	 */
+	private static void runCoordinator(String inputFileLocation) {
+		IngestCoordinator coordinator = new IngestCoordinator(workers);
+		IngestErrors errors;
+		try (BufferedReader input = FileParser.openInputFile(inputFileLocation)) {
+			errors = coordinator.run(input);
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading from file", e);
+		}
+		if (!lenient && errors.size() > 0) {
+			throw new IllegalStateException("Error: line " + errors.getLineNumber(0) + " was rejected: " + errors.getReason(0));
+		}
+		System.out.println(new DriverReport().getReport(coordinator.getAggregates()));
+		if (lenient) {
+			reportErrors(errors);
+		}
+	}
+
+	/**
+	 * Merges the aggregate files of a directory (or a single file) into one per period, and prints the report of
+	 * each period in order. With -saveaggregates, the file of each period is also written to that directory, named
+	 * after the period, so it can be rolled up again into longer periods.
+	 * @param inputLocation		Directory of aggregate files, or an aggregate file.
+	 */
+	private static void runRollup(String inputLocation) {
+		List<AggregateFile> rolled;
+		try {
+			List<AggregateFile> files = new ArrayList<>();
+			Path input = Paths.get(inputLocation);
+			if (Files.isDirectory(input)) {
+				try (DirectoryStream<Path> paths = Files.newDirectoryStream(input, "*.agg")) {
+					for (Path path : paths) {
+						files.add(AggregateFile.read(path));
+					}
+				}
+			} else {
+				files.add(AggregateFile.read(input));
+			}
+			rolled = AggregateFile.rollup(files, rollupPeriod);
+			if (aggregatesLocation != null) {
+				Path output = Files.createDirectories(Paths.get(aggregatesLocation));
+				for (AggregateFile file : rolled) {
+					file.write(output.resolve(rollupPeriod.getName(file.getFrom()) + ".agg"));
+				}
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error rolling up aggregate files", e);
+		}
+
+		for (AggregateFile file : rolled) {
+			System.out.println("Report for " + rollupPeriod.getName(file.getFrom()) + " (" + file.getFrom() + " to "
+					+ file.getTo() + "):");
+			System.out.println(new DriverReport().getReport(file.getAggregates()));
+			if (percentiles) {
+				System.out.println(getPercentileReport(file.getDistributions(), file.getAggregates().keySet()));
+			}
+		}
+	}
+
+	/**
+	 * Runs the commands of many fleets at the same time, each with its own drivers, settings and quotas (see Fleet).
+	 * Each *.txt file of the input directory is the input of a fleet named after the file, with the settings of the
+	 * fleet's <name>.properties file if there is one. Fleets are run the lenient way on a pool of threads, and their
+	 * reports are printed in order of name. Outside lenient mode, the first rejected line of a fleet stops the app
+	 * after the run.
+	 * @param inputLocation		Directory of the inputs of the fleets.
+	 */
+	private static void runFleets(String inputLocation) {
+		Map<String, Fleet> fleets = new TreeMap<>();
+		Map<String, Path> inputs = new HashMap<>();
+		try (DirectoryStream<Path> paths = Files.newDirectoryStream(Paths.get(inputLocation), "*.txt")) {
+			for (Path path : paths) {
+				String name = path.getFileName().toString().replaceFirst("\\.txt$", "");
+				Path settings = path.resolveSibling(name + ".properties");
+				Properties properties = new Properties();
+				if (Files.exists(settings)) {
+					try (BufferedReader reader = Files.newBufferedReader(settings)) {
+						properties.load(reader);
+					}
+				}
+				fleets.put(name, Fleet.fromProperties(name, properties));
+				inputs.put(name, path);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading fleets from directory: " + inputLocation, e);
+		}
+
+		// A fleet over its throughput quota schedules its next batch instead of holding a thread of the pool.
+		ScheduledExecutorService pool = Executors.newScheduledThreadPool(Math.min(fleetThreads, Math.max(1, fleets.size())));
+		Map<String, IngestErrors> errorsByFleet = new HashMap<>();
+		try {
+			Map<String, Future<IngestErrors>> results = new HashMap<>();
+			for (Fleet fleet : fleets.values()) {
+				BufferedReader input;
+				try {
+					input = Files.newBufferedReader(inputs.get(fleet.getName()));
+				} catch (IOException e) {
+					throw new RuntimeException("Error reading input of fleet " + fleet.getName(), e);
+				}
+				results.put(fleet.getName(), fleet.ingest(input, pool).whenComplete((errors, error) -> {
+					try {
+						input.close();
+					} catch (IOException e) {
+						// Already read to the end or failed, nothing more to read.
+					}
+				}));
+			}
+			for (Fleet fleet : fleets.values()) {
+				try {
+					errorsByFleet.put(fleet.getName(), results.get(fleet.getName()).get());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException("Interrupted while running fleet " + fleet.getName(), e);
+				} catch (ExecutionException e) {
+					throw new RuntimeException("Error running fleet " + fleet.getName(), e.getCause());
+				}
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		try {
+			for (Fleet fleet : fleets.values()) {
+				IngestErrors errors = errorsByFleet.get(fleet.getName());
+				if (!lenient && errors.size() > 0) {
+					throw new IllegalStateException("Error: line " + errors.getLineNumber(0) + " of fleet " + fleet.getName()
+							+ " was rejected: " + errors.getReason(0));
+				}
+			}
+			for (Fleet fleet : fleets.values()) {
+				IngestErrors errors = errorsByFleet.get(fleet.getName());
+				String[] report = new String[1];
+				fleet.run(() -> report[0] = new DriverReport().getReport());
+				System.out.println("Report for fleet " + fleet.getName() + ":");
+				System.out.println(report[0]);
+				if (errors.size() > 0) {
+					System.err.println("Fleet " + fleet.getName() + ": " + errors.getSummary());
+				}
+			}
+		} finally {
+			for (Fleet fleet : fleets.values()) {
+				try {
+					fleet.close();
+				} catch (IOException e) {
+					System.err.println("Error closing fleet " + fleet.getName() + ": " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs as a worker of a coordinator (see IngestWorker), with the commands on standard input and the results on
+	 * standard output.
+	 */
+	private static void runWorker() {
+		try {
+			Writer output = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16);
+			IngestWorker.run(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16), output);
+		} catch (IOException e) {
+			throw new RuntimeException("Error talking to the coordinator", e);
+		}
+	}
+
+	/**
+	 * Adds the drivers and trips of a trip segment file, as if their commands had run. With -from or -to, only the
+	 * trips that started in the range of dates are read, and blocks of the segment outside the range are skipped.
+	 * @param segmentLocation		Location of the segment file.
+	 */
+	private static void loadSegment(String segmentLocation) {
+		long fromMinute = fromDate != null ? TripSegment.getMinute(fromDate.atStartOfDay()) : Long.MIN_VALUE;
+		long toMinute = toDate != null ? TripSegment.getMinute(toDate.plusDays(1).atStartOfDay()) : Long.MAX_VALUE;
+		try (TripSegment segment = TripSegment.open(Paths.get(segmentLocation))) {
+			for (String name : segment.getDrivers()) {
+				addDriver(name);
+			}
+			segment.scan(null, fromMinute, toMinute, (name, trip) -> drivers.get(name).addTrip(trip));
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading trip segment", e);
+		}
+	}
+
+	/**
+	 * Gets the value that follows an option on the command line.
+	 * @param args			Command line arguments.
+	 * @param index			Index of the value.
+	 * @param option		Option the value belongs to, for the error message.
+	 * @return String		Value of the option.
+	 */
+	private static String getOptionValue(String[] args, int index, String option) {
+		if (index >= args.length) {
+			throw new IllegalArgumentException("Error: option " + option + " requires a value.");
+		}
+		return args[index];
+	}
+
+	/**
+	 * Parses a date given as "YYYY-MM-DD".
+	 * @param text				Date as text.
+	 * @return LocalDate		Parsed date.
+	 */
+	private static LocalDate parseDate(String text) {
+		try {
+			return LocalDate.parse(text);
+		} catch (DateTimeParseException e) {
+			throw new IllegalArgumentException("Error: date must be given as YYYY-MM-DD: " + text);
+		}
+	}
+
+	/**
+	 * Parses a time window given as "HH:MM-HH:MM".
+	 * @param text				Window as text.
+	 * @return LocalTime[]		Start and end of the window.
+	 */
+	private static LocalTime[] parseWindow(String text) {
+		String[] times = text.split("-");
+		LocalTime from = times.length == 2 ? CommandParser.parseTime(times[0]) : null;
+		LocalTime to = times.length == 2 ? CommandParser.parseTime(times[1]) : null;
+		if (from == null || to == null || !to.isAfter(from)) {
+			throw new IllegalArgumentException("Error: window must be given as HH:MM-HH:MM with the end after the start: " + text);
+		}
+		return new LocalTime[] {from, to};
+	}
+	
+	/**
+	 * Report of the drivers on the road during a time window, with the trips and distance in the window.
+	 * @param tripIndex		Index of the trips.
+	 * @param from			Start of the window.
+	 * @param to			End of the window.
+	 * @return String		Report as a String.
+	 */
+	private static String getWindowReport(TripIntervalIndex tripIndex, LocalTime from, LocalTime to) {
+		List<String> names = new ArrayList<>(tripIndex.getDrivers(from, to));
+		Collections.sort(names);
+		return String.format("%s-%s: %d trips, %d %s, drivers: %s", from, to, tripIndex.getTripCount(from, to), 
+				Math.round(tripIndex.getDistanceTraveled(from, to)), 
+				UnitConversion.getDefaultDistanceUnit().toString().toLowerCase(), String.join(", ", names));
+	}
+
+	/**
+	 * Report of the speed and trip duration percentiles of each driver, in order of name.
+	 * @param distributions		Distributions of the drivers' trips.
+	 * @param driverNames		Names of the drivers.
+	 * @return String			Report as a String.
+	 */
+	private static String getPercentileReport(TripDistributions distributions, Collection<String> driverNames) {
+		List<String> names = new ArrayList<>(driverNames);
+		Collections.sort(names);
+		StringBuilder report = new StringBuilder();
+		for (String name : names) {
+			report.append(distributions.getReport(name)).append(System.lineSeparator());
+		}
+		return report.toString();
+	}
+
+	/**
+	 * Writes the report to System.out with ExternalReport, sorting runs of drivers on disk.
+	 * @param runSize		Most drivers sorted in memory at once.
+	 */
+	private static void writeExternalReport(int runSize) {
+		Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+		new ExternalReport(runSize).writeReport(drivers, out);
+		try {
+			out.flush();
+		} catch (IOException e) {
+			throw new RuntimeException("Error writing report", e);
+		}
+	}
+
+	/**
+	 * Report of the drivers at one point in time while the commands are still running.
+	 * @param snapshots		Snapshots of the drivers' totals.
+	 * @return String		Header with the time and number of drivers, followed by the report.
+	 */
+	static String getProgressReport(DriverSnapshots snapshots) {
+		Map<String, DriverAggregate> snapshot = snapshots.getSnapshot();
+		return "Report at " + LocalTime.now().withNano(0) + " (" + snapshot.size() + " drivers so far):"
+				+ System.lineSeparator() + new DriverReport().getReport(snapshot);
+	}
+
+	/**
+	 * Prints a summary of the lines rejected in lenient mode to System.err, and writes
+	 * every reject to the quarantine file if one was given.
+	 * @param errors		Rejected lines.
+	 */
+	private static void reportErrors(IngestErrors errors) {
+		if (errors.size() > 0) {
+			System.err.println(errors.getSummary());
+		}
+
+		if (quarantineFileLocation != null) {
+			try (Writer writer = new FileWriter(quarantineFileLocation)) {
+				errors.writeTo(writer);
+			} catch (IOException e) {
+				throw new RuntimeException("Error writing quarantine file: " + quarantineFileLocation, e);
+			}
+		}
+	}
+
+	private static String getHelpMessage() {
+		String ls = System.lineSeparator();
+		String helpMessage = "***** Welcome to the Travel App *****"
+				+ ls + ls + "This app is designed to input drivers and the trips they take."
+				+ ls + "An input text file is required and the text file should have the following format:"
+				+ ls + ls + "Driver <name>"
+				+ ls + "Trip <name> <start-time> <end-time> <miles-traveled>"
+				+ ls + "Trip <name> <start-date>T<start-time> <end-date>T<end-time> <miles-traveled>"
+				+ ls + ls + "Earlier commands can be taken back with:"
+				+ ls + "Cancel <name> <start-time> <end-time> <miles-traveled>"
+				+ ls + "Correct <name> <start-time> <end-time> <miles-traveled> <new-start-time> <new-end-time> <new-miles-traveled>"
+				+ ls + "Remove <name>"
+				+ ls + "Rename <old-name> -> <new-name>"
+				+ ls + ls + "Example:"
+				+ ls + "Driver Maggie"
+				+ ls + "Trip Maggie 11:40 13:10 85.6"
+				+ ls + ls + "Note that any number of drivers can be included, and drivers can take any number of trips."
+				+ ls + "The requirements are: "
+				+ ls + "1. Drivers must be added with \"Driver <name>\" before their trips are listed."
+				+ ls + "2. Trip start and end times must be in HH:MM format (e.g. 01:20), or YYYY-MM-DDTHH:MM with a date (e.g. 2018-11-02T01:20)"
+				+ ls + "3. Trips without dates have to be within the same day (i.e. cannot pass midnight)."
+				+ ls + "   Trips with dates can pass midnight. If only the start has a date, an end time before the start is on the next day."
+				+ ls + "4. Trip numbers have to make logical sense. Miles and time traveled cannot be negative."
+				+ ls + ls + "The app can be run using the command:"
+				+ ls + "java -jar travel.jar [options] <input-file-path>"
+				+ ls + ls + "Example:"
+				+ ls + "java -jar travel.jar sample-travel-input.txt"
+				+ ls + ls + "Options:"
+				+ ls + "-lenient                 Skip lines that break the requirements instead of stopping."
+				+ ls + "                         A count of rejected lines per reason is printed to the error stream."
+				+ ls + "-quarantine <file>       Lenient, and write the line number and reason of each rejected line to the file."
+				+ ls + "-precision <digits>      Decimal digits of miles kept by the exact distance totals (0-9, default 3)."
+				+ ls + "-rejectoverlaps          Reject a trip that overlaps another trip of the same driver."
+				+ ls + "-from <YYYY-MM-DD>       Only report trips with dates that started on or after the date."
+				+ ls + "-to <YYYY-MM-DD>         Only report trips with dates that started on or before the date."
+				+ ls + "-asof <line or time>     Report the drivers as they were after a line of the input, or at a date and time"
+				+ ls + "                         given as YYYY-MM-DDTHH:MM (the last line before a trip that ended later)."
+				+ ls + "-segment                 The input file is a trip segment written by -savesegment instead of commands."
+				+ ls + "-savesegment <file>      Also write the trips of all drivers to a columnar trip segment file after the commands run."
+				+ ls + "-window <HH:MM-HH:MM>    Also print the trips, miles and drivers on the road during the time window."
+				+ ls + "-percentiles             Also print the 50th, 95th and 99th percentile of each driver's speed and trip duration."
+				+ ls + "-top <drivers>           Also print approximate leaderboards of the drivers with the most miles and trips."
+				+ ls + "-threads <threads>       Read, parse and run the commands on several threads (a parser and an applier per thread)."
+				+ ls + "-serve <port>            After the report, keep serving /report, /drivers/<name> and /top?n=<drivers> over HTTP on localhost."
+				+ ls + "-workers <workers>       Run the commands on several worker processes, each with the drivers whose names hash to it."
+				+ ls + "-saveaggregates <file>   Also write the totals and percentile sketches of each driver to an aggregate file after the commands run. Every trip needs a date."
+				+ ls + "                         With -rollup, the directory the aggregate file of each period is written to."
+				+ ls + "-rollup <day|week|month> The input is a directory of aggregate files: merge them and report each day, week or month."
+				+ ls + "-fleets <threads>        The input is a directory with a <fleet>.txt input per fleet and optional <fleet>.properties settings:"
+				+ ls + "                         run the fleets at the same time on this many threads, each with its own drivers, and report each."
+				+ ls + "-anomalies <file>        Write each unusual trip to the file as it is added: speed or minutes far above the driver's recent trips,"
+				+ ls + "                         the same times as the driver's last trip, or a start before or long after its end. Counts on standard error."
+				+ ls + "-dedup <file>            Skip Trip commands that were already applied in this run or the runs before it, kept in the file."
+				+ ls + "-worker                  Run as a worker of -workers, with numbered commands on standard input (started by the coordinator)."
+				+ ls + "-progress <seconds>      Print a report of the drivers so far to the error stream every few seconds while the commands run."
+				+ ls + "-memory <drivers>        Keep at most this many drivers in memory, the least recently used are moved to disk."
+				+ ls + "-external <drivers>      Sort the report on disk in runs of at most this many drivers, for fleets too large to sort in memory."
+				+ ls + "-parallel                Build the report using all cores. Same report, faster for very large fleets."
+				+ ls + ls + "To run the unit tests, run the command:"
+				+ ls + "java -cp travel.jar io.pjseebald.travel.AllTests"
+				+ ls + ls + "Note: unit tests require both junit.jar and hamcrest-core-1.3.jar (v. 1.3) in the .\\lib folder"
+				;
+		return helpMessage;
+	}
+	
+	/**
+	 * Getter for the drivers, of the Fleet the current thread runs for if there is one.
+	 * @return Map<String, Driver>		Drivers by name.
+	 */
+	public static Map<String, Driver> getDrivers() {
+		Fleet fleet = Fleet.current();
+		return fleet != null ? fleet.getDrivers() : drivers;
+	}
+
+	/**
+	 * Replaces the map of drivers, e.g. with a DriverRegistry that keeps only some of them in memory.
+	 * @param driverMap		Drivers by name.
+	 */
+	static void setDrivers(Map<String, Driver> driverMap) {
+		Fleet fleet = Fleet.current();
+		if (fleet != null) {
+			fleet.setDrivers(driverMap);
+		} else {
+			drivers = driverMap;
+		}
+	}
+
+	/**
+	 * Creates a Driver, adds it to the drivers and notifies the driver listeners.
+	 * Trips added to the Driver are passed on to the listeners too.
+	 * A driver that already exists is kept with its trips, so a repeated Driver line changes nothing.
+	 * @param name			Name of the driver.
+	 * @return Driver		Driver that was added, or the driver that already had the name.
+	 */
+	public static Driver addDriver(String name) {
+		Map<String, Driver> drivers = getDrivers();
+		List<DriverListener> driverListeners = getDriverListeners();
+		Driver existing = drivers.get(name);
+		if (existing != null) {
+			return existing;
+		}
+		Driver driver = new Driver(name, driverListeners);
+		drivers.put(name, driver);
+		for (DriverListener listener : driverListeners) {
+			listener.driverAdded(driver);
+		}
+		return driver;
+	}
+
+	/**
+	 * Removes a Driver and its trips, and notifies the driver listeners.
+	 * @param name			Name of the driver.
+	 * @return Driver		Driver that was removed, or null if there is no driver with the name.
+	 */
+	public static Driver removeDriver(String name) {
+		Driver driver = getDrivers().remove(name);
+		if (driver != null) {
+			for (DriverListener listener : getDriverListeners()) {
+				listener.driverRemoved(driver);
+			}
+		}
+		return driver;
+	}
+
+	/**
+	 * Renames a Driver, keeping its trips, and notifies the driver listeners.
+	 * @param oldName		Current name of the driver.
+	 * @param newName		New name of the driver, which no other driver may have.
+	 * @return Driver		Driver that was renamed, or null if there is no driver with the old name or the new name is taken.
+	 */
+	public static Driver renameDriver(String oldName, String newName) {
+		Map<String, Driver> drivers = getDrivers();
+		if (!drivers.containsKey(oldName) || drivers.containsKey(newName)) {
+			return null;
+		}
+		Driver driver = drivers.remove(oldName);
+		driver.rename(newName);
+		drivers.put(newName, driver);
+		for (DriverListener listener : getDriverListeners()) {
+			listener.driverRenamed(driver, oldName);
+		}
+		return driver;
+	}
+	
+	/**
+	 * Getter for the listeners notified of added drivers and trips, of the Fleet the current thread runs for if there
+	 * is one. Listeners can be added to and removed from the list.
+	 * @return List<DriverListener>		Driver listeners.
+	 */
+	public static List<DriverListener> getDriverListeners() {
+		Fleet fleet = Fleet.current();
+		return fleet != null ? fleet.getListeners() : driverListeners;
+	}
+
+}
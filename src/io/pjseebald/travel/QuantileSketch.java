@@ -0,0 +1,250 @@
+package io.pjseebald.travel;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * <h1>QuantileSketch</h1>
+ * Approximate distribution of positive values (e.g. trip speeds) in a fixed amount of memory, however many values
+ * are added. Values are counted in buckets whose bounds grow by a constant factor (a log histogram), so any quantile
+ * is returned with a relative error of at most the error the sketch was created with. Values of zero are counted
+ * on their own. Only the buckets between the smallest and largest value seen are allocated.
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class QuantileSketch {
+
+	private final double minValue;
+	private final int maxIndex;
+	private final double gamma;
+	private final double logGamma;
+
+	// Counts of the buckets from offset to offset + counts.length - 1, grown when a value falls outside them.
+	private long[] counts = null;
+	private int offset = 0;
+	private long zeros = 0;
+	private long count = 0;
+	private double min = Double.NaN;
+	private double max = Double.NaN;
+
+	/**
+	 * Constructor for a sketch of values between minValue and maxValue. Smaller positive values are counted
+	 * as minValue and larger values as maxValue.
+	 * @param minValue			Smallest value kept to the relative error (greater than zero).
+	 * @param maxValue			Largest value kept to the relative error.
+	 * @param relativeError		Largest relative error of a quantile, e.g. 0.01 for 1% (between 0 and 1).
+	 */
+	public QuantileSketch(double minValue, double maxValue, double relativeError) {
+		if (!(minValue > 0) || !(maxValue > minValue)) {
+			throw new IllegalArgumentException("Sketch range must be positive with the maximum above the minimum: "
+					+ minValue + " to " + maxValue);
+		}
+		if (!(relativeError > 0) || !(relativeError < 1)) {
+			throw new IllegalArgumentException("Relative error must be between 0 and 1: " + relativeError);
+		}
+		this.minValue = minValue;
+		this.gamma = (1 + relativeError) / (1 - relativeError);
+		this.logGamma = Math.log(gamma);
+		this.maxIndex = getIndex(maxValue);
+	}
+
+	private QuantileSketch(double minValue, double gamma, int maxIndex) {
+		this.minValue = minValue;
+		this.gamma = gamma;
+		this.logGamma = Math.log(gamma);
+		this.maxIndex = maxIndex;
+	}
+
+	/**
+	 * Add a value to the sketch.
+	 * @param value		Value to add (zero or more).
+	 */
+	public void add(double value) {
+		if (value < 0 || Double.isNaN(value)) {
+			throw new IllegalArgumentException("Sketch values cannot be negative: " + value);
+		}
+		count++;
+		min = count == 1 ? value : Math.min(min, value);
+		max = count == 1 ? value : Math.max(max, value);
+		if (value == 0) {
+			zeros++;
+			return;
+		}
+
+		addToBucket(Math.min(getIndex(Math.max(value, minValue)), maxIndex), 1);
+	}
+
+	/**
+	 * Take a value that was added out of the sketch, e.g. the speed of a trip that was cancelled. The smallest and
+	 * largest values seen are not known after this, so quantiles are kept within the values seen before it.
+	 * @param value		Value that was added.
+	 */
+	public void remove(double value) {
+		if (value < 0 || Double.isNaN(value)) {
+			throw new IllegalArgumentException("Sketch values cannot be negative: " + value);
+		}
+		if (value == 0) {
+			if (zeros == 0) {
+				throw new IllegalArgumentException("Value was not added to the sketch: " + value);
+			}
+			zeros--;
+		} else {
+			int index = Math.min(getIndex(Math.max(value, minValue)), maxIndex);
+			if (counts == null || index < offset || index >= offset + counts.length || counts[index - offset] == 0) {
+				throw new IllegalArgumentException("Value was not added to the sketch: " + value);
+			}
+			counts[index - offset]--;
+		}
+		count--;
+		if (count == 0) {
+			min = Double.NaN;
+			max = Double.NaN;
+		}
+	}
+
+	/**
+	 * Approximate value at a quantile of the values added, e.g. 0.95 for the 95th percentile.
+	 * @param quantile		Quantile between 0 and 1.
+	 * @return double		Value at the quantile, or NaN if no values were added.
+	 */
+	public double getQuantile(double quantile) {
+		if (quantile < 0 || quantile > 1) {
+			throw new IllegalArgumentException("Quantile must be between 0 and 1: " + quantile);
+		}
+		if (count == 0) {
+			return Double.NaN;
+		}
+		// Rank of the value at the quantile, from 1 to count.
+		long rank = Math.max(1, (long) Math.ceil(quantile * count));
+		if (rank <= zeros) {
+			return 0;
+		}
+		long seen = zeros;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				// Value within the relative error of every value in the bucket, kept within the values actually seen.
+				double value = 2 * minValue * Math.pow(gamma, i + offset) / (gamma + 1);
+				return Math.max(min, Math.min(max, value));
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Add the values of another sketch with the same range and error to this one.
+	 * @param other		Sketch to merge into this one.
+	 */
+	public void merge(QuantileSketch other) {
+		if (other.gamma != gamma || other.minValue != minValue || other.maxIndex != maxIndex) {
+			throw new IllegalArgumentException("Only sketches with the same range and error can be merged.");
+		}
+		if (other.count == 0) {
+			return;
+		}
+		if (other.counts != null) {
+			for (int i = 0; i < other.counts.length; i++) {
+				if (other.counts[i] > 0) {
+					addToBucket(other.offset + i, other.counts[i]);
+				}
+			}
+		}
+		zeros += other.zeros;
+		min = count == 0 ? other.min : Math.min(min, other.min);
+		max = count == 0 ? other.max : Math.max(max, other.max);
+		count += other.count;
+	}
+
+	/**
+	 * Write the sketch so it can be read back with readFrom(), e.g. to merge it with sketches of other runs.
+	 * Bucket counts are written as varints, so the many small counts take a byte each.
+	 * @param output		Output to write to.
+	 * @throws IOException	If the output cannot be written.
+	 */
+	public void writeTo(DataOutput output) throws IOException {
+		output.writeDouble(minValue);
+		output.writeDouble(gamma);
+		output.writeInt(maxIndex);
+		output.writeLong(count);
+		output.writeLong(zeros);
+		output.writeDouble(min);
+		output.writeDouble(max);
+		output.writeInt(offset);
+		int buckets = getBuckets();
+		VarInts.Writer writer = new VarInts.Writer(buckets);
+		for (int i = 0; i < buckets; i++) {
+			writer.write(counts[i]);
+		}
+		output.writeInt(buckets);
+		output.writeInt(writer.length());
+		output.write(writer.getBuffer(), 0, writer.length());
+	}
+
+	/**
+	 * Read a sketch written with writeTo().
+	 * @param input				Input to read from.
+	 * @return QuantileSketch	Sketch with the same range, error and values.
+	 * @throws IOException		If the input cannot be read.
+	 */
+	public static QuantileSketch readFrom(DataInput input) throws IOException {
+		QuantileSketch sketch = new QuantileSketch(input.readDouble(), input.readDouble(), input.readInt());
+		sketch.count = input.readLong();
+		sketch.zeros = input.readLong();
+		sketch.min = input.readDouble();
+		sketch.max = input.readDouble();
+		sketch.offset = input.readInt();
+		int buckets = input.readInt();
+		byte[] bytes = new byte[input.readInt()];
+		input.readFully(bytes);
+		if (buckets > 0) {
+			sketch.counts = new long[buckets];
+			VarInts.Reader reader = new VarInts.Reader(bytes, 0);
+			for (int i = 0; i < buckets; i++) {
+				sketch.counts[i] = reader.read();
+			}
+		}
+		return sketch;
+	}
+
+	/**
+	 * Getter for the number of values added.
+	 * @return long		Number of values.
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	/**
+	 * Getter for the number of buckets allocated, which never goes past the buckets of the range.
+	 * @return int		Number of buckets.
+	 */
+	public int getBuckets() {
+		return counts == null ? 0 : counts.length;
+	}
+
+	// Bucket of a value, where bucket i holds values in (minValue * gamma^(i-1), minValue * gamma^i].
+	private int getIndex(double value) {
+		return (int) Math.ceil(Math.log(value / minValue) / logGamma);
+	}
+
+	// Adds to the count of a bucket, growing the allocated buckets to include it.
+	private void addToBucket(int index, long added) {
+		if (counts == null) {
+			counts = new long[1];
+			offset = index;
+		} else if (index < offset) {
+			long[] grown = new long[counts.length + offset - index];
+			System.arraycopy(counts, 0, grown, offset - index, counts.length);
+			counts = grown;
+			offset = index;
+		} else if (index >= offset + counts.length) {
+			long[] grown = new long[index - offset + 1];
+			System.arraycopy(counts, 0, grown, 0, counts.length);
+			counts = grown;
+		}
+		counts[index - offset] += added;
+	}
+}
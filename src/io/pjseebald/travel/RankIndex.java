@@ -0,0 +1,341 @@
+package io.pjseebald.travel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * <h1>RankIndex</h1>
+ * Live ranking of drivers by total distance, in the same order as the driver report
+ * (largest distance first, ties by name). Kept up to date as drivers and Trips are added.
+ * <p>
+ * Drivers are kept in an order-statistic tree: a treap where each node also stores the size of its subtree.
+ * Finding the rank of a driver, the driver at a rank, and updating a driver's distance are O(log n),
+ * and a page of k ranks is O(log n + k), without sorting all drivers like the full report does.
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class RankIndex implements DriverListener {
+
+	private Node root;
+	// Distance each driver is ranked by, to find its node when the distance changes.
+	private Map<String, Long> distances = new HashMap<>();
+	private Random random = new Random();
+
+	/**
+	 * Constructor for an index over the app's drivers (see MainApp.getDrivers()).
+	 */
+	public RankIndex() {
+		this(MainApp.getDrivers());
+	}
+
+	/**
+	 * Constructor for an index over a map of drivers. Drivers that already exist are ranked.
+	 * @param drivers		Drivers by name.
+	 */
+	public RankIndex(Map<String, Driver> drivers) {
+		for (Driver driver : drivers.values()) {
+			update(driver.getName(), driver.getAggregate().getScaledDistance());
+		}
+	}
+
+	/**
+	 * Ranks a new Driver by the distance it already has (usually none).
+	 */
+	@Override
+	public void driverAdded(Driver driver) {
+		update(driver.getName(), driver.getAggregate().getScaledDistance());
+	}
+
+	/**
+	 * Moves the Driver of a new Trip to its new rank.
+	 */
+	@Override
+	public void tripAdded(Driver driver, Trip trip) {
+		update(driver.getName(), driver.getAggregate().getScaledDistance());
+	}
+
+	/**
+	 * Moves the Driver of a removed Trip to its new rank.
+	 */
+	@Override
+	public void tripRemoved(Driver driver, Trip trip) {
+		update(driver.getName(), driver.getAggregate().getScaledDistance());
+	}
+
+	/**
+	 * Takes a removed Driver out of the ranking.
+	 */
+	@Override
+	public void driverRemoved(Driver driver) {
+		remove(driver.getName());
+	}
+
+	/**
+	 * Ranks a renamed Driver under its new name, which can change its place among drivers with the same distance.
+	 */
+	@Override
+	public void driverRenamed(Driver driver, String oldName) {
+		remove(oldName);
+		update(driver.getName(), driver.getAggregate().getScaledDistance());
+	}
+
+	/**
+	 * Set the total distance a driver is ranked by, adding the driver if it is not ranked yet.
+	 * @param name				Name of the driver.
+	 * @param scaledDistance	Total distance in fixed-point units (see FixedPoint).
+	 */
+	public void update(String name, long scaledDistance) {
+		Long old = distances.put(name, scaledDistance);
+		if (old != null) {
+			if (old == scaledDistance) {
+				return;
+			}
+			root = remove(root, old, name);
+		}
+		root = insert(root, new Node(scaledDistance, name, random.nextInt()));
+	}
+
+	/**
+	 * Removes a driver from the ranking.
+	 * @param name			Name of the driver.
+	 * @return boolean		true if the driver was ranked.
+	 */
+	public boolean remove(String name) {
+		Long old = distances.remove(name);
+		if (old == null) {
+			return false;
+		}
+		root = remove(root, old, name);
+		return true;
+	}
+
+	/**
+	 * Rank of a driver, where the driver with the largest distance is rank 1.
+	 * @param name		Name of the driver.
+	 * @return int		Rank of the driver, or -1 if the driver is not ranked.
+	 */
+	public int getRank(String name) {
+		Long distance = distances.get(name);
+		if (distance == null) {
+			return -1;
+		}
+		// Count the drivers ranked before this one on the way down.
+		int before = 0;
+		Node node = root;
+		while (node != null) {
+			int c = compare(distance, name, node);
+			if (c < 0) {
+				node = node.left;
+			} else {
+				before += size(node.left);
+				if (c == 0) {
+					break;
+				}
+				before++;
+				node = node.right;
+			}
+		}
+		return before + 1;
+	}
+
+	/**
+	 * Name of the driver at a rank.
+	 * @param rank			Rank from 1 (largest distance) to the number of drivers.
+	 * @return String		Name of the driver at the rank.
+	 */
+	public String getDriver(int rank) {
+		checkRank(rank);
+		Node node = root;
+		int index = rank - 1;
+		while (true) {
+			int leftSize = size(node.left);
+			if (index < leftSize) {
+				node = node.left;
+			} else if (index == leftSize) {
+				return node.name;
+			} else {
+				index -= leftSize + 1;
+				node = node.right;
+			}
+		}
+	}
+
+	/**
+	 * Names of the drivers at a range of ranks, in rank order.
+	 * @param fromRank			First rank of the page (inclusive, from 1).
+	 * @param count				Number of ranks in the page. The page is shorter if it goes past the last rank.
+	 * @return List<String>		Names of the drivers in the page.
+	 */
+	public List<String> getPage(int fromRank, int count) {
+		checkRank(fromRank);
+		if (count < 0) {
+			throw new IllegalArgumentException("Page size cannot be negative: " + count);
+		}
+		int from = fromRank - 1;
+		int to = (int) Math.min((long) from + count, size());
+		List<String> page = new ArrayList<>(to - from);
+		collect(root, 0, from, to, page);
+		return page;
+	}
+
+	/**
+	 * Names of the drivers with the largest distances, in rank order.
+	 * @param k					Number of drivers.
+	 * @return List<String>		Names of the top k drivers (all drivers if there are fewer than k).
+	 */
+	public List<String> getTop(int k) {
+		if (size() == 0) {
+			return new ArrayList<>();
+		}
+		return getPage(1, k);
+	}
+
+	/**
+	 * Getter for the total distance a driver is ranked by.
+	 * @param name		Name of the driver.
+	 * @return long		Total distance in fixed-point units, or 0 if the driver is not ranked.
+	 */
+	public long getScaledDistance(String name) {
+		Long distance = distances.get(name);
+		return distance == null ? 0 : distance;
+	}
+
+	/**
+	 * Getter for the number of ranked drivers.
+	 * @return int		Number of drivers.
+	 */
+	public int size() {
+		return size(root);
+	}
+
+	private void checkRank(int rank) {
+		if (rank < 1 || rank > size()) {
+			throw new IndexOutOfBoundsException("Rank " + rank + " is not between 1 and " + size() + ".");
+		}
+	}
+
+	/*
+	 * *******************************************
+	 * Treap
+	 */
+
+	private static class Node {
+		final long distance;
+		final String name;
+		final int priority;
+		int size = 1;
+		Node left;
+		Node right;
+
+		Node(long distance, String name, int priority) {
+			this.distance = distance;
+			this.name = name;
+			this.priority = priority;
+		}
+	}
+
+	private static int size(Node node) {
+		return node == null ? 0 : node.size;
+	}
+
+	private static void resize(Node node) {
+		node.size = 1 + size(node.left) + size(node.right);
+	}
+
+	// Report order: larger distance first, then by name.
+	private static int compare(long distance, String name, Node node) {
+		if (distance != node.distance) {
+			return distance > node.distance ? -1 : 1;
+		}
+		return name.compareTo(node.name);
+	}
+
+	private static Node insert(Node node, Node added) {
+		if (node == null) {
+			return added;
+		}
+		if (compare(added.distance, added.name, node) < 0) {
+			node.left = insert(node.left, added);
+			if (node.left.priority > node.priority) {
+				node = rotateRight(node);
+			}
+		} else {
+			node.right = insert(node.right, added);
+			if (node.right.priority > node.priority) {
+				node = rotateLeft(node);
+			}
+		}
+		resize(node);
+		return node;
+	}
+
+	private static Node remove(Node node, long distance, String name) {
+		if (node == null) {
+			return null;
+		}
+		int c = compare(distance, name, node);
+		if (c < 0) {
+			node.left = remove(node.left, distance, name);
+		} else if (c > 0) {
+			node.right = remove(node.right, distance, name);
+		} else {
+			return join(node.left, node.right);
+		}
+		resize(node);
+		return node;
+	}
+
+	// Joins two treaps where every node of the left one comes before every node of the right one.
+	private static Node join(Node left, Node right) {
+		if (left == null) {
+			return right;
+		}
+		if (right == null) {
+			return left;
+		}
+		if (left.priority > right.priority) {
+			left.right = join(left.right, right);
+			resize(left);
+			return left;
+		}
+		right.left = join(left, right.left);
+		resize(right);
+		return right;
+	}
+
+	private static Node rotateRight(Node node) {
+		Node left = node.left;
+		node.left = left.right;
+		left.right = node;
+		resize(node);
+		resize(left);
+		return left;
+	}
+
+	private static Node rotateLeft(Node node) {
+		Node right = node.right;
+		node.right = right.left;
+		right.left = node;
+		resize(node);
+		resize(right);
+		return right;
+	}
+
+	// Adds the names at indexes [from, to) of the subtree, where offset is the index of its first node.
+	private static void collect(Node node, int offset, int from, int to, List<String> names) {
+		if (node == null || offset >= to || offset + node.size <= from) {
+			return;
+		}
+		collect(node.left, offset, from, to, names);
+		int index = offset + size(node.left);
+		if (index >= from && index < to) {
+			names.add(node.name);
+		}
+		collect(node.right, index + 1, from, to, names);
+	}
+}
@@ -0,0 +1,35 @@
+package io.pjseebald.travel;
+
+/**
+ * <h1>RejectReason</h1>
+ * Reason codes for input lines that are rejected when commands are parsed in lenient mode.
+ * The codes are stored as bytes by IngestErrors, so this enum should stay well below 128 values.
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public enum RejectReason {
+	UNKNOWN_COMMAND, MISSING_PARAMETERS, INVALID_NAME, INVALID_TIME, INVALID_DISTANCE, UNKNOWN_DRIVER, IMPOSSIBLE_TRIP, 
+	OVERLAPPING_TRIP, UNKNOWN_TRIP, DUPLICATE_DRIVER, OUT_OF_RANGE_TRIP, DUPLICATE_TRIP;
+
+	// values() clones the array each call, so keep one copy for decoding stored codes.
+	private static final RejectReason[] reasons = values();
+
+	/**
+	 * Getter for the compact code stored for this reason.
+	 * @return byte		Code of this reason.
+	 */
+	public byte getCode() {
+		return (byte) this.ordinal();
+	}
+
+	/**
+	 * Decodes a code returned by getCode() back to its RejectReason.
+	 * @param code				Compact code of a reason.
+	 * @return RejectReason		Reason matching the code.
+	 */
+	public static RejectReason fromCode(byte code) {
+		return reasons[code];
+	}
+}
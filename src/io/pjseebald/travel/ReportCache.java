@@ -0,0 +1,158 @@
+package io.pjseebald.travel;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import io.pjseebald.travel.DriverReport.ReportInformation;
+
+/**
+ * <h1>ReportCache</h1>
+ * Keeps the driver report between calls, so a report after a few trips were added does not collect and
+ * sort the information of every driver again. Drivers are marked dirty when they are added or one of their
+ * Trips is added, and only the dirty drivers are refreshed when the report is asked for: their old entry is
+ * taken out of the ranking and the new one put in, so refreshing costs O(changed * log n).
+ * The report string is only rebuilt if something changed since the last report.
+ * <p>
+ * Changes to the drivers that don't go through the listeners (e.g. clearing the map of drivers) are not
+ * seen by the cache, and need a call to invalidate().
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class ReportCache implements DriverListener {
+
+	private final Map<String, Driver> drivers;
+	private final DriverReport driverReport = new DriverReport();
+
+	// Current information of each driver in the ranking, to find its entry when it changes.
+	private Map<String, ReportInformation> information = new HashMap<>();
+	// Drivers in report order, with their formatted report line.
+	private TreeMap<ReportInformation, String> ranking = new TreeMap<>();
+	private Set<String> dirty = new LinkedHashSet<>();
+	private String report;
+
+	/**
+	 * Constructor for a cache over the app's drivers (see MainApp.getDrivers()).
+	 * Drivers that already exist are in the first report.
+	 */
+	public ReportCache() {
+		this(MainApp.getDrivers());
+	}
+
+	/**
+	 * Constructor for a cache over a map of drivers. Drivers that already exist are in the first report.
+	 * @param drivers		Drivers by name.
+	 */
+	public ReportCache(Map<String, Driver> drivers) {
+		this.drivers = drivers;
+		invalidate();
+	}
+
+	/**
+	 * Marks a new Driver to be added to the report.
+	 */
+	@Override
+	public void driverAdded(Driver driver) {
+		markDirty(driver.getName());
+	}
+
+	/**
+	 * Marks the Driver of a new Trip to be refreshed in the report.
+	 */
+	@Override
+	public void tripAdded(Driver driver, Trip trip) {
+		markDirty(driver.getName());
+	}
+
+	/**
+	 * Marks the Driver of a removed Trip to be refreshed in the report.
+	 */
+	@Override
+	public void tripRemoved(Driver driver, Trip trip) {
+		markDirty(driver.getName());
+	}
+
+	/**
+	 * Marks a removed Driver to be taken out of the report.
+	 */
+	@Override
+	public void driverRemoved(Driver driver) {
+		markDirty(driver.getName());
+	}
+
+	/**
+	 * Marks the old name of a renamed Driver to be taken out of the report and the new name to be put in.
+	 */
+	@Override
+	public void driverRenamed(Driver driver, String oldName) {
+		markDirty(oldName);
+		markDirty(driver.getName());
+	}
+
+	/**
+	 * Marks a driver to be refreshed in the next report.
+	 * @param name		Name of the driver.
+	 */
+	public void markDirty(String name) {
+		if (dirty.add(name)) {
+			report = null;
+		}
+	}
+
+	/**
+	 * Marks every driver to be refreshed in the next report, including drivers that were removed.
+	 */
+	public void invalidate() {
+		dirty.addAll(information.keySet());
+		dirty.addAll(drivers.keySet());
+		report = null;
+	}
+
+	/**
+	 * Report with all drivers, the same as DriverReport.getReport(). Only the drivers that changed since
+	 * the last report are refreshed.
+	 * @return String report	Full report as a String.
+	 */
+	public String getReport() {
+		if (report != null) {
+			return report;
+		}
+		refresh();
+
+		StringBuilder builder = new StringBuilder();
+		for (String line : ranking.values()) {
+			builder.append(line).append(System.lineSeparator());
+		}
+		report = builder.toString();
+		return report;
+	}
+
+	/**
+	 * Getter for the number of drivers waiting to be refreshed.
+	 * @return int		Number of dirty drivers.
+	 */
+	public int getDirtyCount() {
+		return dirty.size();
+	}
+
+	// Takes the entries of the dirty drivers out of the ranking and puts their new information in.
+	private void refresh() {
+		for (String name : dirty) {
+			ReportInformation old = information.remove(name);
+			if (old != null) {
+				ranking.remove(old);
+			}
+			Driver driver = drivers.get(name);
+			if (driver != null) {
+				ReportInformation info = driverReport.getInformation(driver);
+				information.put(name, info);
+				ranking.put(info, info.toString());
+			}
+		}
+		dirty.clear();
+	}
+}
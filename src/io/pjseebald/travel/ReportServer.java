@@ -0,0 +1,349 @@
+package io.pjseebald.travel;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * <h1>ReportServer</h1>
+ * Small HTTP server on the local machine (the -serve option) that answers queries for the report, so a dashboard
+ * can poll it instead of reading the printed output. It uses the JDK's own com.sun.net.httpserver.
+ * <ul>
+ * <li>GET /report: the driver report.</li>
+ * <li>GET /drivers/&lt;name&gt;: the report line of one driver, or 404 if there is no such driver.</li>
+ * <li>GET /top?n=&lt;drivers&gt;: the report lines of the n drivers with the most miles (10 by default).</li>
+ * </ul>
+ * The server is a DriverListener, and every change to the drivers moves its version on. Each response has the
+ * version as its ETag and is cached until the version moves on, so a repeated poll is answered from the cache, and
+ * a poll with If-None-Match of the current version is answered with 304 Not Modified without looking at the drivers.
+ * The ETag starts with a random number of the server, since versions start at 0 in every run: an ETag of an
+ * earlier run, maybe of other input, never matches.
+ * <p>
+ * Requests are handled on virtual threads when the JDK has them (Java 21 and later), otherwise on a pool of threads.
+ * Changes to the drivers must be made by one thread at a time, as they are when commands run on one thread.
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class ReportServer implements DriverListener, Closeable {
+
+	private static final int maxCachedResponses = 1000;
+
+	private final Map<String, Driver> drivers;
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final DriverReport driverReport = new DriverReport();
+
+	// Guards the drivers, the report cache and the rank index while a response is built or they change.
+	private final ReentrantLock lock = new ReentrantLock();
+	private final ReportCache reportCache;
+	private final RankIndex rankIndex;
+
+	// Random number of this server, the first part of its ETags.
+	private final String epoch = Long.toString(new SecureRandom().nextLong() & Long.MAX_VALUE, 36);
+	private volatile long version = 0;
+	private final Map<String, CachedResponse> responses = new ConcurrentHashMap<>();
+	private final AtomicLong responsesBuilt = new AtomicLong();
+
+	/**
+	 * Constructor for a server of the app's drivers (see MainApp.getDrivers()). Call start() to take requests.
+	 * @param port				Port on the loopback address, or 0 for any free port.
+	 * @throws IOException		If the port cannot be bound.
+	 */
+	public ReportServer(int port) throws IOException {
+		this(MainApp.getDrivers(), port);
+	}
+
+	/**
+	 * Constructor for a server of a map of drivers. Call start() to take requests.
+	 * @param drivers			Drivers by name.
+	 * @param port				Port on the loopback address, or 0 for any free port.
+	 * @throws IOException		If the port cannot be bound.
+	 */
+	public ReportServer(Map<String, Driver> drivers, int port) throws IOException {
+		this.drivers = drivers;
+		this.reportCache = new ReportCache(drivers);
+		this.rankIndex = new RankIndex(drivers);
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		this.executor = newHandlerExecutor();
+		server.setExecutor(executor);
+		server.createContext("/", this::handle);
+	}
+
+	/**
+	 * Starts taking requests on a background thread.
+	 */
+	public void start() {
+		server.start();
+	}
+
+	/**
+	 * Stops taking requests and waits up to a second for the requests being handled.
+	 */
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdown();
+		try {
+			executor.awaitTermination(1, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Getter for the port the server is bound to, e.g. when it was created with port 0.
+	 * @return int		Port on the loopback address.
+	 */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Getter for the version of the drivers, which moves on with every change.
+	 * @return long		Version, also the end of the ETag of the responses.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Getter for the number of responses built from the drivers, i.e. not answered from the cache or with 304.
+	 * @return long		Number of responses built.
+	 */
+	public long getResponsesBuilt() {
+		return responsesBuilt.get();
+	}
+
+	@Override
+	public void driverAdded(Driver driver) {
+		change(() -> {
+			reportCache.driverAdded(driver);
+			rankIndex.driverAdded(driver);
+		});
+	}
+
+	@Override
+	public void tripAdded(Driver driver, Trip trip) {
+		change(() -> {
+			reportCache.tripAdded(driver, trip);
+			rankIndex.tripAdded(driver, trip);
+		});
+	}
+
+	@Override
+	public void tripRemoved(Driver driver, Trip trip) {
+		change(() -> {
+			reportCache.tripRemoved(driver, trip);
+			rankIndex.tripRemoved(driver, trip);
+		});
+	}
+
+	@Override
+	public void driverRemoved(Driver driver) {
+		change(() -> {
+			reportCache.driverRemoved(driver);
+			rankIndex.driverRemoved(driver);
+		});
+	}
+
+	@Override
+	public void driverRenamed(Driver driver, String oldName) {
+		change(() -> {
+			reportCache.driverRenamed(driver, oldName);
+			rankIndex.driverRenamed(driver, oldName);
+		});
+	}
+
+	// Applies a change to the indexes and moves the version on, so cached responses are no longer used.
+	private void change(Runnable update) {
+		lock.lock();
+		try {
+			update.run();
+			version++;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/*
+	 * *******************************************
+	 * Requests
+	 */
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			String method = exchange.getRequestMethod();
+			if (!method.equals("GET") && !method.equals("HEAD")) {
+				exchange.getResponseHeaders().set("Allow", "GET, HEAD");
+				send(exchange, 405, "Only GET and HEAD are supported.");
+				return;
+			}
+			long current = version;
+			String etag = getETag(current);
+			if (matches(exchange.getRequestHeaders().getFirst("If-None-Match"), etag)) {
+				exchange.getResponseHeaders().set("ETag", etag);
+				exchange.sendResponseHeaders(304, -1);
+				return;
+			}
+
+			String key = exchange.getRequestURI().toString();
+			CachedResponse response = responses.get(key);
+			if (response == null || response.version != current) {
+				response = build(exchange.getRequestURI().getPath(), exchange.getRequestURI().getQuery());
+				if (responses.size() >= maxCachedResponses) {
+					// Many different queries (e.g. of many drivers) are not kept forever.
+					responses.clear();
+				}
+				responses.put(key, response);
+			}
+			exchange.getResponseHeaders().set("ETag", getETag(response.version));
+			exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+			send(exchange, response.status, response.body, method.equals("HEAD"));
+		} finally {
+			exchange.close();
+		}
+	}
+
+	// Builds a response under the lock, so it is of a single version of the drivers.
+	private CachedResponse build(String path, String query) {
+		lock.lock();
+		try {
+			responsesBuilt.incrementAndGet();
+			long current = version;
+			if (path.equals("/report")) {
+				return new CachedResponse(current, 200, reportCache.getReport());
+			}
+			if (path.startsWith("/drivers/")) {
+				Driver driver = drivers.get(path.substring("/drivers/".length()));
+				if (driver == null) {
+					return new CachedResponse(current, 404, "No such driver.");
+				}
+				return new CachedResponse(current, 200, driverReport.getInformation(driver) + System.lineSeparator());
+			}
+			if (path.equals("/top")) {
+				int n = 10;
+				String value = getParameter(query, "n");
+				if (value != null) {
+					try {
+						n = Integer.parseInt(value);
+					} catch (NumberFormatException e) {
+						n = -1;
+					}
+					if (n < 0) {
+						return new CachedResponse(current, 400, "n needs a whole number of drivers: " + value);
+					}
+				}
+				List<String> top = rankIndex.getTop(n);
+				StringBuilder body = new StringBuilder();
+				for (String name : top) {
+					body.append(driverReport.getInformation(drivers.get(name))).append(System.lineSeparator());
+				}
+				return new CachedResponse(current, 200, body.toString());
+			}
+			return new CachedResponse(current, 404, "Unknown path. Try /report, /drivers/<name> or /top?n=<drivers>.");
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private String getETag(long version) {
+		return "\"" + epoch + "-" + version + "\"";
+	}
+
+	// Whether an If-None-Match header has the ETag: a list of ETags, maybe weak (W/), or *.
+	private static boolean matches(String ifNoneMatch, String etag) {
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		for (String candidate : ifNoneMatch.split(",")) {
+			candidate = candidate.trim();
+			if (candidate.startsWith("W/")) {
+				candidate = candidate.substring(2);
+			}
+			if (candidate.equals("*") || candidate.equals(etag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String getParameter(String query, String name) {
+		if (query == null) {
+			return null;
+		}
+		for (String pair : query.split("&")) {
+			int equals = pair.indexOf('=');
+			if (equals > 0 && pair.substring(0, equals).equals(name)) {
+				return pair.substring(equals + 1);
+			}
+		}
+		return null;
+	}
+
+	private static void send(HttpExchange exchange, int status, String message) throws IOException {
+		send(exchange, status, (message + System.lineSeparator()).getBytes(StandardCharsets.UTF_8), false);
+	}
+
+	private static void send(HttpExchange exchange, int status, byte[] body, boolean headOnly) throws IOException {
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+		if (headOnly) {
+			exchange.sendResponseHeaders(status, -1);
+			return;
+		}
+		exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(body);
+		}
+	}
+
+	/**
+	 * Executor of the request handlers: a virtual thread per request when the JDK has them, found by reflection so
+	 * the app still runs on older JDKs, otherwise a pool of daemon threads.
+	 * @return ExecutorService		Executor for the handlers.
+	 */
+	static ExecutorService newHandlerExecutor() {
+		try {
+			Method virtual = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) virtual.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool(runnable -> {
+				Thread thread = new Thread(runnable, "report-server");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+	}
+
+	/**
+	 * Response of one version of the drivers.
+	 */
+	private static class CachedResponse {
+		final long version;
+		final int status;
+		final byte[] body;
+
+		CachedResponse(long version, int status, String body) {
+			this.version = version;
+			this.status = status;
+			this.body = body.getBytes(StandardCharsets.UTF_8);
+		}
+	}
+}
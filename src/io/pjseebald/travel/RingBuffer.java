@@ -0,0 +1,124 @@
+package io.pjseebald.travel;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * <h1>RingBuffer</h1>
+ * Bounded queue between one producer thread and one consumer thread, e.g. two stages of an IngestPipeline.
+ * The slots are allocated once, and the two threads only share the read and write counters, so passing an
+ * item needs no locks. A producer that finds the buffer full waits for the consumer (backpressure), and a
+ * consumer that finds it empty waits for the producer. Waiting threads spin briefly and then park.
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class RingBuffer<T> {
+
+	// Spins before a waiting thread starts to park, and how long it parks for.
+	private static final int spins = 100;
+	private static final long parkNanos = 50_000;
+
+	private final Object[] slots;
+	private final int mask;
+	// Number of items read and written so far. The slot of item n is n & mask.
+	private final AtomicLong read = new AtomicLong();
+	private final AtomicLong written = new AtomicLong();
+
+	/**
+	 * Constructor for a buffer with a number of slots, rounded up to a power of two.
+	 * @param capacity		Most items in the buffer at once (at least 1).
+	 */
+	public RingBuffer(int capacity) {
+		if (capacity < 1 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Ring buffer capacity must be between 1 and 2^30: " + capacity);
+		}
+		int size = 1;
+		while (size < capacity) {
+			size <<= 1;
+		}
+		this.slots = new Object[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Adds an item if there is room. Only called by the producer thread.
+	 * @param item			Item to add (not null).
+	 * @return boolean		true if added, false if the buffer is full.
+	 */
+	public boolean offer(T item) {
+		long position = written.get();
+		if (position - read.get() == slots.length) {
+			return false;
+		}
+		slots[(int) position & mask] = item;
+		// Publishes the slot to the consumer.
+		written.lazySet(position + 1);
+		return true;
+	}
+
+	/**
+	 * Takes the oldest item if there is one. Only called by the consumer thread.
+	 * @return T		Oldest item, or null if the buffer is empty.
+	 */
+	@SuppressWarnings("unchecked")
+	public T poll() {
+		long position = read.get();
+		if (position == written.get()) {
+			return null;
+		}
+		int slot = (int) position & mask;
+		T item = (T) slots[slot];
+		slots[slot] = null;
+		// Frees the slot for the producer.
+		read.lazySet(position + 1);
+		return item;
+	}
+
+	/**
+	 * Adds an item, waiting for room if the buffer is full.
+	 * @param item		Item to add (not null).
+	 * @throws InterruptedException		If the thread is interrupted while waiting.
+	 */
+	public void put(T item) throws InterruptedException {
+		int idle = 0;
+		while (!offer(item)) {
+			idle = waitFor(idle);
+		}
+	}
+
+	/**
+	 * Takes the oldest item, waiting for one if the buffer is empty.
+	 * @return T		Oldest item.
+	 * @throws InterruptedException		If the thread is interrupted while waiting.
+	 */
+	public T take() throws InterruptedException {
+		int idle = 0;
+		T item;
+		while ((item = poll()) == null) {
+			idle = waitFor(idle);
+		}
+		return item;
+	}
+
+	/**
+	 * Getter for the number of slots.
+	 * @return int		Capacity of the buffer.
+	 */
+	public int getCapacity() {
+		return slots.length;
+	}
+
+	private static int waitFor(int idle) throws InterruptedException {
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+		if (idle < spins) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(parkNanos);
+		}
+		return idle + 1;
+	}
+}
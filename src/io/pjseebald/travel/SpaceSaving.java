@@ -0,0 +1,234 @@
+package io.pjseebald.travel;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <h1>SpaceSaving</h1>
+ * Approximate top-k of a stream of weighted keys (e.g. miles by driver name) in a fixed number of counters, however
+ * many different keys there are (the Space-Saving algorithm). A key that is not counted takes over the counter with the
+ * smallest count, and starts from that count, which is also kept as the key's error. So a counted key's count is never
+ * under its real total, and at most its error over it. Any key with a real total over the smallest count is counted.
+ * <p>
+ * Counters are kept in a min-heap by count, so adding to a key is O(log k) in the number of counters, which is fixed,
+ * and does not depend on the number of keys.
+ * <p>
+ * Weight can be taken back from a key (e.g. a cancelled trip). A counted key's count goes down by the weight, which
+ * keeps it over the real total. Keys that are not counted keep the bound they had when their counter was taken over.
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class SpaceSaving {
+
+	private final String[] keys;
+	private final long[] counts;
+	private final long[] errors;
+	// Min-heap of counters by count, and the place of each counter in the heap.
+	private final int[] heap;
+	private final int[] positions;
+	private final Map<String, Integer> counters;
+	private int size = 0;
+	private long total = 0;
+	// Largest count a counter had when it was taken over, which no key that is not counted can be over.
+	private long takenOver = 0;
+
+	/**
+	 * Constructor for a sketch with a fixed number of counters.
+	 * @param capacity		Number of counters (at least 1). The top-k is most accurate with a few times k counters.
+	 */
+	public SpaceSaving(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Space-Saving needs at least one counter: " + capacity);
+		}
+		keys = new String[capacity];
+		counts = new long[capacity];
+		errors = new long[capacity];
+		heap = new int[capacity];
+		positions = new int[capacity];
+		counters = new HashMap<>(capacity * 2);
+	}
+
+	/**
+	 * Add a weight to a key.
+	 * @param key			Key to add to.
+	 * @param weight		Weight to add (zero or more).
+	 */
+	public void add(String key, long weight) {
+		if (weight < 0) {
+			throw new IllegalArgumentException("Space-Saving weights cannot be negative: " + weight);
+		}
+		total += weight;
+		Integer counter = counters.get(key);
+		if (counter == null) {
+			if (size < keys.length) {
+				// Unused counter, added as a leaf of the heap.
+				counter = size;
+				keys[counter] = key;
+				counts[counter] = weight;
+				counters.put(key, counter);
+				heap[size] = counter;
+				positions[counter] = size;
+				size++;
+				siftUp(positions[counter]);
+				return;
+			}
+			// Take over the counter with the smallest count.
+			counter = heap[0];
+			counters.remove(keys[counter]);
+			errors[counter] = counts[counter];
+			takenOver = Math.max(takenOver, counts[counter]);
+			keys[counter] = key;
+			counters.put(key, counter);
+		}
+		counts[counter] += weight;
+		siftDown(positions[counter]);
+	}
+
+	/**
+	 * Take weight back from a key that was added before, e.g. the distance of a cancelled trip.
+	 * @param key			Key to take the weight from.
+	 * @param weight		Weight that was added (zero or more).
+	 */
+	public void subtract(String key, long weight) {
+		if (weight < 0) {
+			throw new IllegalArgumentException("Space-Saving weights cannot be negative: " + weight);
+		}
+		total -= weight;
+		Integer counter = counters.get(key);
+		if (counter == null) {
+			// Its real total only went down, so it is still under the bound it had.
+			return;
+		}
+		counts[counter] = Math.max(0, counts[counter] - weight);
+		errors[counter] = Math.min(errors[counter], counts[counter]);
+		siftUp(positions[counter]);
+	}
+
+	/**
+	 * Keys with the largest counts, largest first (ties by key).
+	 * @param k						Number of keys.
+	 * @return List<Estimate>		Estimates of the top k keys (fewer if fewer keys are counted).
+	 */
+	public List<Estimate> getTop(int k) {
+		List<Estimate> top = new ArrayList<>(size);
+		for (int counter = 0; counter < size; counter++) {
+			top.add(new Estimate(keys[counter], counts[counter], errors[counter]));
+		}
+		top.sort((a, b) -> a.count != b.count ? Long.compare(b.count, a.count) : a.key.compareTo(b.key));
+		return top.subList(0, Math.min(k, top.size()));
+	}
+
+	/**
+	 * Estimate of a key's total.
+	 * @param key				Key to look up.
+	 * @return Estimate			Estimate of the key, or null if the key is not counted (its total is then at most getMinCount()).
+	 */
+	public Estimate getEstimate(String key) {
+		Integer counter = counters.get(key);
+		return counter == null ? null : new Estimate(key, counts[counter], errors[counter]);
+	}
+
+	/**
+	 * Smallest count of the counters once they are all used. A key that is not counted has a total of at most this.
+	 * Once weight was taken back, this is the largest count a counter was taken over at if that is more.
+	 * @return long		Smallest count, or 0 while some counters are unused.
+	 */
+	public long getMinCount() {
+		return size < keys.length ? 0 : Math.max(takenOver, counts[heap[0]]);
+	}
+
+	/**
+	 * Getter for the total weight added over all keys.
+	 * @return long		Total weight.
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	// Moves a new counter, or one whose count went down, up the heap.
+	private void siftUp(int position) {
+		int counter = heap[position];
+		while (position > 0) {
+			int parent = (position - 1) / 2;
+			if (counts[heap[parent]] <= counts[counter]) {
+				break;
+			}
+			heap[position] = heap[parent];
+			positions[heap[position]] = position;
+			position = parent;
+		}
+		heap[position] = counter;
+		positions[counter] = position;
+	}
+
+	// Moves a counter down the heap after its count grew.
+	private void siftDown(int position) {
+		int counter = heap[position];
+		while (true) {
+			int child = 2 * position + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+				child++;
+			}
+			if (counts[heap[child]] >= counts[counter]) {
+				break;
+			}
+			heap[position] = heap[child];
+			positions[heap[position]] = position;
+			position = child;
+		}
+		heap[position] = counter;
+		positions[counter] = position;
+	}
+
+	/**
+	 * <h1>Estimate</h1>
+	 * Estimated total of a key. The real total is between count - error and count.
+	 *
+	 * @author PaulSEEBALD
+	 * @version 1.0
+	 * @since 2026-10-19
+	 */
+	public static class Estimate {
+
+		private final String key;
+		private final long count;
+		private final long error;
+
+		Estimate(String key, long count, long error) {
+			this.key = key;
+			this.count = count;
+			this.error = error;
+		}
+
+		/**
+		 * Getter for the key.
+		 * @return String		Key of the estimate.
+		 */
+		public String getKey() {
+			return key;
+		}
+
+		/**
+		 * Getter for the estimated total, which is never under the real total.
+		 * @return long		Estimated total.
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * Getter for the most the estimated total can be over the real total.
+		 * @return long		Largest error of the estimate.
+		 */
+		public long getError() {
+			return error;
+		}
+	}
+}
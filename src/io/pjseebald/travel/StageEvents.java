@@ -0,0 +1,183 @@
+package io.pjseebald.travel;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * <h1>StageEvents</h1>
+ * Java Flight Recorder events of the stages of a run, so a recording of a slow run shows whether the time goes to
+ * reading the input file, parsing and executing the commands, checking trips or building the report. Events are
+ * begun and committed by the stages themselves; when no recording is running, begin() and commit() do nothing and
+ * the fields of an event are only filled in when shouldCommit() is true, so the stages cost about the same as
+ * without them.
+ * <p>
+ * Record a run with e.g. java -XX:StartFlightRecording=filename=run.jfr -jar travel.jar input.txt and read the
+ * events with jfr print --events io.pjseebald.travel.CommandBatch run.jfr. TripCheck is an event per trip, so it
+ * is off unless it is enabled in the settings of the recording.
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class StageEvents {
+
+	// Number of lines in a CommandBatch event of CommandParser.parseCommands().
+	static final int batchLines = 4096;
+
+	private StageEvents() {
+	}
+
+	/**
+	 * <h1>FileRead</h1>
+	 * Reading and splitting all the lines of an input file (FileParser.parseInputFile()).
+	 *
+	 * @author PaulSEEBALD
+	 * @version 1.0
+	 * @since 2026-10-19
+	 */
+	@Name("io.pjseebald.travel.FileRead")
+	@Label("Read Input File")
+	@Category({"Travel", "Ingest"})
+	@Description("Reading and splitting the lines of an input file")
+	@StackTrace(false)
+	static class FileRead extends Event {
+
+		@Label("File")
+		String file;
+
+		@Label("Lines")
+		long lines;
+
+		@Label("Bytes")
+		@DataAmount
+		long bytes;
+	}
+
+	/**
+	 * <h1>CommandBatch</h1>
+	 * Parsing and executing a batch of lines of the input. CommandParser.parseCommands() has a batch every
+	 * batchLines lines. With -threads, each parser has one per batch of lines it parses and each applier one per
+	 * part of a batch it executes.
+	 *
+	 * @author PaulSEEBALD
+	 * @version 1.0
+	 * @since 2026-10-19
+	 */
+	@Name("io.pjseebald.travel.CommandBatch")
+	@Label("Command Batch")
+	@Category({"Travel", "Ingest"})
+	@Description("Parsing and executing a batch of lines of the input")
+	@StackTrace(false)
+	static class CommandBatch extends Event {
+
+		@Label("Stage")
+		@Description("run for parseCommands(), parse or apply for the stages of an IngestPipeline")
+		String stage;
+
+		@Label("First Line")
+		long firstLine;
+
+		@Label("Lines")
+		int lines;
+
+		@Label("Rejected Lines")
+		int rejected;
+
+		@Label("Drivers")
+		@Description("Drivers in memory at the end of the batch")
+		int drivers;
+
+		/**
+		 * Begins the event of a batch.
+		 * @param stage				Stage that runs the batch.
+		 * @param firstLine			Line number of the first line of the batch (first line is line 1).
+		 * @return CommandBatch		Begun event, to count the lines of the batch in.
+		 */
+		static CommandBatch start(String stage, long firstLine) {
+			CommandBatch event = new CommandBatch();
+			event.stage = stage;
+			event.firstLine = firstLine;
+			event.begin();
+			return event;
+		}
+
+		/**
+		 * Counts a line of the batch, and starts the next batch when this one is full.
+		 * @param rejected			true if the line was rejected.
+		 * @return CommandBatch		This event, or the event of the next batch.
+		 */
+		CommandBatch countLine(boolean rejected) {
+			lines++;
+			if (rejected) {
+				this.rejected++;
+			}
+			if (lines < batchLines) {
+				return this;
+			}
+			finish();
+			return start(stage, firstLine + lines);
+		}
+
+		/**
+		 * Ends the batch and commits it if it has lines and is being recorded.
+		 */
+		void finish() {
+			if (lines > 0 && shouldCommit()) {
+				drivers = MainApp.getDrivers().size();
+				commit();
+			}
+		}
+	}
+
+	/**
+	 * <h1>TripCheck</h1>
+	 * Checking a trip against the requirements (Trip.checkTrip()). Off by default since there is one per trip.
+	 *
+	 * @author PaulSEEBALD
+	 * @version 1.0
+	 * @since 2026-10-19
+	 */
+	@Name("io.pjseebald.travel.TripCheck")
+	@Label("Trip Check")
+	@Category({"Travel", "Ingest"})
+	@Description("Checking a trip against the time, distance and speed requirements")
+	@Enabled(false)
+	@StackTrace(false)
+	static class TripCheck extends Event {
+
+		@Label("Accepted")
+		boolean accepted;
+	}
+
+	/**
+	 * <h1>Report</h1>
+	 * Sorting and formatting a report (DriverReport).
+	 *
+	 * @author PaulSEEBALD
+	 * @version 1.0
+	 * @since 2026-10-19
+	 */
+	@Name("io.pjseebald.travel.Report")
+	@Label("Build Report")
+	@Category({"Travel", "Report"})
+	@Description("Sorting and formatting the report of the drivers")
+	@StackTrace(false)
+	static class Report extends Event {
+
+		@Label("Kind")
+		@Description("drivers, aggregates or parallel")
+		String kind;
+
+		@Label("Drivers")
+		int drivers;
+
+		@Label("Characters")
+		long characters;
+	}
+}
@@ -1,251 +1,430 @@
-package io.pjseebald.travel;
-
-import java.time.LocalTime;
-import java.util.concurrent.TimeUnit;
-
-
-/**
- * <h1>Trip</h1>
- * Contains relevant information for a trip being taken by a traveler or travelers.
- * Also contains static criteria that trips must meet to be deemed acceptable.
- * A trip contains a start and end time, distance traveled and the method of the travel.
- * 
- * @author PaulSEEBALD
- * @version 1.0
- * @since 2018-11-02
- */
-public class Trip {
-	
-	private LocalTime startTime;
-	private LocalTime endTime;
-	private double timeTraveled;	// Uses default time units, per UnitConversion class.
-	
-	// Using an Object (Integer) instead of primitive because I want an initialized value of null instead of a number.
-	// Need to know if it's been initialized or not.
-	private Double distanceTraveled = null;
-	
-	/*
-	 * Trip Requirements
-	 * Ranges of time, distance, speed for acceptable trips.
-	 * These are two-element arrays set up as [min, max]
-	 * Units are the default units defined in UnitConversion
-	 * Note: default distance unit is miles
-	 * Note: This checks if the trip meets the desired possible ranges. 
-	 * Physically possible trips (e.g. negative time, negative miles) are checked upon Trip creation because
-	 * these values may be changed to be non-zero minimum time or distance.
-	 */
-	private static Double[] timeRange = {0., 24.};
-	private static Double[] distanceRange = {0., null};
-	private static Double[] speedRange = {5., 100.};
-	
-	/**
-	 * Create a Trip based off of start, end times, distance traveled and the travel method.
-	 * @param startTime		Time when the trip started.
-	 * @param endTime		Time when the trip ended.
-	 * @param distance		Distance traveled during the trip.
-	 * @param method		Method of travel.
-	 */
-	Trip(LocalTime startTime, LocalTime endTime, double distance) {
-		this.startTime = startTime;
-		this.endTime = endTime;
-		this.setTimeTraveled();
-		
-		this.distanceTraveled = distance;
-		
-		this.checkForImpossibilities();
-	}
-	
-	/*
-	 * *******************************************
-	 * Error checking
-	 */
-	
-	/**
-	 * Check this Trip for physical impossibilities, like traveling negative distance
-	 * or starting a trip after its ending time. Will throw an IllegalStateException if 
-	 * a physical impossibility is found.
-	 * Note: Physically impossible trip is considered different than a trip that doesn't meet criteria.
-	 */
-	private void checkForImpossibilities() {
-		String exceptionMessage = "";
-		boolean exceptionOccurred = false;
-		if (!this.checkForImpossibleDistance()) {
-			exceptionOccurred = true;
-			exceptionMessage += "Invalid input: distance traveled is a negative value." + System.lineSeparator();
-		}
-		
-		if (!this.checkForImpossibleTimes()) {
-			exceptionOccurred = true;
-			exceptionMessage += "Invalid input: time traveled is s negative value. Start time cannot be later than end time." + System.lineSeparator();
-		}
-		
-		if (exceptionOccurred) {
-			throw new IllegalStateException(exceptionMessage);
-		}
-	}
-	
-	/**
-	 * Check if endTime is after startTime. This method needs adjusting if a driver can go past midnight.
-	 * @return boolean		true if times are possible, false if impossible.
-	 */
-	private boolean checkForImpossibleTimes() {
-		return endTime.isAfter(startTime);
-	}
-	
-	/**
-	 * Check if distance traveled is positive.
-	 * @return boolean		true if distance is positive or zero, false if negative. 
-	 */
-	private boolean checkForImpossibleDistance() {
-		if (distanceTraveled != null) {
-			if (distanceTraveled < 0) {
-				return false;
-			}
-		}
-		return true;
-	}
-	
-	/*
-	 * *******************************************
-	 * Setters for values that are not required in all constructors
-	 */
-	
-	/**
-	 * Setter for the timeTraveled variable based on start and end times. Called in constructor.
-	 * Converted from seconds to the default time unit (per UnitConversion.class).
-	 */
-	public void setTimeTraveled() {
-		this.timeTraveled = UnitConversion.convert(endTime.toSecondOfDay() - startTime.toSecondOfDay(), 
-				TimeUnit.SECONDS, UnitConversion.getDefaultTimeUnit());
-	}
-
-	/**
-	 * Setter for distance traveled.
-	 * @param distanceTraveled		Distance traveled during the trip.
-	 */
-	public void setDistanceTraveled(double distanceTraveled) {
-		this.distanceTraveled = distanceTraveled;
-	}
-	
-	/*
-	 * *******************************************
-	 * Getting statistics related to the trip
-	 */
-
-	/**
-	 * Getter for time traveled on the trip.
-	 * @return double		Time traveled in default time units during the trip.
-	 */
-	public double getTimeTraveled() {
-		return this.timeTraveled;
-	}
-	
-	/**
-	 * Getter for distance traveled on the trip.
-	 * @return double		Distance traveled in default distance units during the trip.
-	 */
-	public double getDistanceTraveled() {
-		if (distanceTraveled != null) {
-			return distanceTraveled.doubleValue();
-		} else {
-			// Calculate from origin, destination, travel method.
-			// Would need more details about route.
-		}
-		
-		return -1;
-	}
-	
-	/**
-	 * Checks if an input Trip meets acceptable requirements.
-	 * Note: this is different from physical impossibilities. A physically impossible trip
-	 * is an input error. An unacceptable trip is one that doesn't meet certain filtering criteria
-	 * or requirements. These criteria can be set by default or manually.
-	 * @param trip			Trip to check if it meets requirements.
-	 * @return boolean		true if trip meets criteria, false if not.
-	 */
-	public static boolean checkTrip(Trip trip) {
-		
-		// Check time range
-		double time = trip.getTimeTraveled();
-		if ((timeRange[0] != null && time < timeRange[0]) || (timeRange[1] != null && time > timeRange[1])) {
-			return false;
-		}
-		
-		// Check distance range
-		double distance = trip.getDistanceTraveled();
-		if ((distanceRange[0] != null && distance < distanceRange[0]) || (distanceRange[1] != null && distance > distanceRange[1])) {
-			return false;
-		}
-		
-		// Check speed range
-		double speed = distance/time;
-		if ((speedRange[0] != null && speed < speedRange[0]) || (speedRange[1] != null && speed > speedRange[1])) {
-			return false;
-		}
-		
-		return true;
-	}
-	
-	/**
-	 * Returns the time criteria that trips have to meet to be acceptable.
-	 * Set in default time units (per UnitConversion.class).
-	 * Defined as an array of two [min, max]
-	 * @return Double[]		Acceptable time range criteria [min, max]
-	 */
-	public static Double[] getTimeRange() {
-		return timeRange;
-	}
-
-	/**
-	 * Returns the distance criteria that trips have to meet to be acceptable.
-	 * Set in default distance units (per UnitConversion.class).
-	 * Defined as an array of two [min, max]
-	 * @return Double[]		Acceptable distance range criteria [min, max]
-	 */
-	public static Double[] getDistanceRange() {
-		return distanceRange;
-	}
-
-	/**
-	 * Returns the speed criteria that trips have to meet to be acceptable.
-	 * Set in default speed units (per UnitConversion.class).
-	 * Defined as an array of two [min, max]
-	 * @return Double[]		Acceptable speed range criteria [min, max]
-	 */
-	public static Double[] getSpeedRange() {
-		return speedRange;
-	}
-
-	/**
-	 * Set the min and max time values (default time units) for a trip to be acceptable.
-	 * @param min		minimum time an acceptable trip needs to have (default time units).
-	 * @param max		maximum time an acceptable trip can have (default time units).
-	 */
-	public static void setTimeRange(Double min, Double max) {
-		timeRange[0] = min;
-		timeRange[1] = max;
-	}
-	
-	/**
-	 * Set the min and max distance values (default distance units) for a trip to be acceptable.
-	 * @param min		minimum distance an acceptable trip needs to have (default distance units).
-	 * @param max		maximum distance an acceptable trip can have (default distance units).
-	 */
-	public static void setDistanceRange(Double min, Double max) {
-		distanceRange[0] = min;
-		distanceRange[1] = max;
-	}
-	
-	/**
-	 * Set the min and max speed values (default speed units) for a trip to be acceptable.
-	 * @param min		minimum speed an acceptable trip needs to have (default speed units).
-	 * @param max		maximum speed an acceptable trip can have (default speed units).
-	 */
-	public static void setSpeedRange(Double min, Double max) {
-		speedRange[0] = min;
-		speedRange[1] = max;
-	}
-	
-	
-
-}
+package io.pjseebald.travel;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * <h1>Trip</h1>
+ * Contains relevant information for a trip being taken by a traveler or travelers.
+ * Also contains static criteria that trips must meet to be deemed acceptable.
+ * A trip contains a start and end time, distance traveled and the method of the travel.
+ * A trip can also have start and end dates, in which case it can go past midnight. Trips without dates
+ * have to end on the same day they start.
+ * 
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2018-11-02
+ */
+public class Trip {
+	
+	private LocalTime startTime;
+	private LocalTime endTime;
+	// Null for trips without dates.
+	private LocalDate startDate = null;
+	private LocalDate endDate = null;
+	private double timeTraveled;	// Uses default time units, per UnitConversion class.
+	
+	// Stored as fixed-point units of the default distance unit (see FixedPoint) so that totals can be summed exactly.
+	private long scaledDistance;
+	
+	/*
+	 * Trip Requirements
+	 * Ranges of time, distance, speed for acceptable trips.
+	 * These are two-element arrays set up as [min, max]
+	 * Units are the default units defined in UnitConversion
+	 * Note: default distance unit is miles
+	 * Note: This checks if the trip meets the desired possible ranges. 
+	 * Physically possible trips (e.g. negative time, negative miles) are checked upon Trip creation because
+	 * these values may be changed to be non-zero minimum time or distance.
+	 */
+	private static Double[] timeRange = {0., 24.};
+	private static Double[] distanceRange = {0., null};
+	private static Double[] speedRange = {5., 100.};
+	
+	/**
+	 * Create a Trip based off of start, end times, distance traveled and the travel method.
+	 * @param startTime		Time when the trip started.
+	 * @param endTime		Time when the trip ended.
+	 * @param distance		Distance traveled during the trip.
+	 * @param method		Method of travel.
+	 */
+	Trip(LocalTime startTime, LocalTime endTime, double distance) {
+		this(FixedPoint.toScaled(distance), null, startTime, null, endTime);
+	}
+	
+	/**
+	 * Create a Trip with dates, which can go past midnight.
+	 * @param start			Date and time when the trip started.
+	 * @param end			Date and time when the trip ended.
+	 * @param distance		Distance traveled during the trip.
+	 */
+	Trip(LocalDateTime start, LocalDateTime end, double distance) {
+		this(FixedPoint.toScaled(distance), start.toLocalDate(), start.toLocalTime(), end.toLocalDate(), end.toLocalTime());
+	}
+	
+	// Parameter order differs from the other constructors so that an int or long distance can't pick the wrong one.
+	private Trip(long scaledDistance, LocalDate startDate, LocalTime startTime, LocalDate endDate, LocalTime endTime) {
+		this.startDate = startDate;
+		this.startTime = startTime;
+		this.endDate = endDate;
+		this.endTime = endTime;
+		this.setTimeTraveled();
+		
+		this.scaledDistance = scaledDistance;
+		
+		this.checkForImpossibilities();
+	}
+	
+	/**
+	 * Create a Trip with a distance that is already in fixed-point units, e.g. from FixedPoint.parse().
+	 * @param startTime			Time when the trip started.
+	 * @param endTime			Time when the trip ended.
+	 * @param scaledDistance	Distance traveled during the trip in fixed-point units.
+	 * @return Trip				New trip.
+	 */
+	static Trip fromScaled(LocalTime startTime, LocalTime endTime, long scaledDistance) {
+		return new Trip(scaledDistance, null, startTime, null, endTime);
+	}
+	
+	/**
+	 * Create a Trip with dates and a distance that is already in fixed-point units.
+	 * @param start				Date and time when the trip started.
+	 * @param end				Date and time when the trip ended.
+	 * @param scaledDistance	Distance traveled during the trip in fixed-point units.
+	 * @return Trip				New trip.
+	 */
+	static Trip fromScaled(LocalDateTime start, LocalDateTime end, long scaledDistance) {
+		return new Trip(scaledDistance, start.toLocalDate(), start.toLocalTime(), end.toLocalDate(), end.toLocalTime());
+	}
+	
+	/*
+	 * *******************************************
+	 * Error checking
+	 */
+	
+	/**
+	 * Check this Trip for physical impossibilities, like traveling negative distance
+	 * or starting a trip after its ending time. Will throw an IllegalStateException if 
+	 * a physical impossibility is found.
+	 * Note: Physically impossible trip is considered different than a trip that doesn't meet criteria.
+	 */
+	private void checkForImpossibilities() {
+		String exceptionMessage = "";
+		boolean exceptionOccurred = false;
+		if (!this.checkForImpossibleDistance()) {
+			exceptionOccurred = true;
+			exceptionMessage += "Invalid input: distance traveled is a negative value." + System.lineSeparator();
+		}
+		
+		if (!this.checkForImpossibleTimes()) {
+			exceptionOccurred = true;
+			exceptionMessage += "Invalid input: time traveled is s negative value. Start time cannot be later than end time." + System.lineSeparator();
+		}
+		
+		if (exceptionOccurred) {
+			throw new IllegalStateException(exceptionMessage);
+		}
+	}
+	
+	/**
+	 * Check trip values for physical impossibilities without creating a Trip, so that callers can
+	 * skip bad input without the cost of the exception thrown by the constructor.
+	 * @param startTime			Time when the trip started.
+	 * @param endTime			Time when the trip ended.
+	 * @param scaledDistance	Distance traveled during the trip in fixed-point units.
+	 * @return boolean			true if a Trip with these values can be created, false if impossible.
+	 */
+	public static boolean isPossible(LocalTime startTime, LocalTime endTime, long scaledDistance) {
+		return scaledDistance >= 0 && endTime.isAfter(startTime);
+	}
+	
+	/**
+	 * Check values of a Trip with dates for physical impossibilities without creating the Trip.
+	 * @param start				Date and time when the trip started.
+	 * @param end				Date and time when the trip ended.
+	 * @param scaledDistance	Distance traveled during the trip in fixed-point units.
+	 * @return boolean			true if a Trip with these values can be created, false if impossible.
+	 */
+	public static boolean isPossible(LocalDateTime start, LocalDateTime end, long scaledDistance) {
+		return scaledDistance >= 0 && end.isAfter(start);
+	}
+	
+	/**
+	 * Check if the end is after the start. Trips without dates cannot go past midnight.
+	 * @return boolean		true if times are possible, false if impossible.
+	 */
+	private boolean checkForImpossibleTimes() {
+		if ((startDate == null) != (endDate == null)) {
+			return false;
+		}
+		return getEndSecond() > getStartSecond();
+	}
+	
+	/**
+	 * Check if distance traveled is positive.
+	 * @return boolean		true if distance is positive or zero, false if negative. 
+	 */
+	private boolean checkForImpossibleDistance() {
+		return scaledDistance >= 0;
+	}
+	
+	/*
+	 * *******************************************
+	 * Setters for values that are not required in all constructors
+	 */
+	
+	/**
+	 * Setter for the timeTraveled variable based on start and end times. Called in constructor.
+	 * Converted from seconds to the default time unit (per UnitConversion.class).
+	 */
+	public void setTimeTraveled() {
+		this.timeTraveled = UnitConversion.convert(getSecondsTraveled(), 
+				TimeUnit.SECONDS, UnitConversion.getDefaultTimeUnit());
+	}
+
+	/**
+	 * Setter for distance traveled.
+	 * Note: a Driver keeps running totals of its Trips, so this should not be called after the Trip is added to a Driver.
+	 * @param distanceTraveled		Distance traveled during the trip.
+	 */
+	public void setDistanceTraveled(double distanceTraveled) {
+		this.scaledDistance = FixedPoint.toScaled(distanceTraveled);
+	}
+	
+	/*
+	 * *******************************************
+	 * Getting statistics related to the trip
+	 */
+
+	/**
+	 * Getter for the time the trip started.
+	 * @return LocalTime		Start time of the trip.
+	 */
+	public LocalTime getStartTime() {
+		return this.startTime;
+	}
+	
+	/**
+	 * Getter for the time the trip ended.
+	 * @return LocalTime		End time of the trip.
+	 */
+	public LocalTime getEndTime() {
+		return this.endTime;
+	}
+	
+	/**
+	 * Getter for the date the trip started.
+	 * @return LocalDate		Start date of the trip, or null if the trip has no dates.
+	 */
+	public LocalDate getStartDate() {
+		return this.startDate;
+	}
+	
+	/**
+	 * Getter for the date the trip ended.
+	 * @return LocalDate		End date of the trip, or null if the trip has no dates.
+	 */
+	public LocalDate getEndDate() {
+		return this.endDate;
+	}
+	
+	/**
+	 * Getter for the start of the trip in seconds, used to order and compare trips.
+	 * @return long		Seconds since 1970-01-01T00:00 for trips with dates, otherwise second of the day the trip started.
+	 */
+	public long getStartSecond() {
+		return toSecond(startDate, startTime);
+	}
+	
+	/**
+	 * Getter for the end of the trip in seconds, used to order and compare trips.
+	 * @return long		Seconds since 1970-01-01T00:00 for trips with dates, otherwise second of the day the trip ended.
+	 */
+	public long getEndSecond() {
+		return toSecond(endDate, endTime);
+	}
+	
+	private static long toSecond(LocalDate date, LocalTime time) {
+		if (date == null) {
+			return time.toSecondOfDay();
+		}
+		// Local date-times, so no time zone: UTC keeps every day 24 hours long.
+		return LocalDateTime.of(date, time).toEpochSecond(ZoneOffset.UTC);
+	}
+	
+	/**
+	 * Getter for time traveled on the trip.
+	 * @return double		Time traveled in default time units during the trip.
+	 */
+	public double getTimeTraveled() {
+		return this.timeTraveled;
+	}
+	
+	/**
+	 * Getter for distance traveled on the trip.
+	 * @return double		Distance traveled in default distance units during the trip.
+	 */
+	public double getDistanceTraveled() {
+		return FixedPoint.toDouble(scaledDistance);
+	}
+		
+	/**
+	 * Getter for distance traveled on the trip in fixed-point units.
+	 * @return long		Distance traveled in units of FixedPoint.getScale() of the default distance unit.
+	 */
+	public long getScaledDistance() {
+		return this.scaledDistance;
+	}
+	
+	/**
+	 * Getter for time traveled on the trip in whole seconds, for exact sums.
+	 * @return long		Seconds traveled during the trip.
+	 */
+	public long getSecondsTraveled() {
+		return getEndSecond() - getStartSecond();
+	}
+	
+	/**
+	 * Checks if another Trip has the same times and distance, e.g. the trip named by a Cancel or Correct command.
+	 * @param other			Trip to compare with.
+	 * @return boolean		true if both trips have dates or neither has, and they start, end and travel the same.
+	 */
+	public boolean isSameTrip(Trip other) {
+		return (startDate == null) == (other.startDate == null) && getStartSecond() == other.getStartSecond()
+				&& getEndSecond() == other.getEndSecond() && scaledDistance == other.scaledDistance;
+	}
+	
+	/**
+	 * Checks if an input Trip meets acceptable requirements.
+	 * Note: this is different from physical impossibilities. A physically impossible trip
+	 * is an input error. An unacceptable trip is one that doesn't meet certain filtering criteria
+	 * or requirements. These criteria can be set by default or manually.
+	 * @param trip			Trip to check if it meets requirements.
+	 * @return boolean		true if trip meets criteria, false if not.
+	 */
+	public static boolean checkTrip(Trip trip) {
+		StageEvents.TripCheck event = new StageEvents.TripCheck();
+		event.begin();
+		boolean accepted = meetsRequirements(trip);
+		if (event.shouldCommit()) {
+			event.accepted = accepted;
+			event.commit();
+		}
+		return accepted;
+	}
+	
+	// Body of checkTrip(), timed by its TripCheck event.
+	private static boolean meetsRequirements(Trip trip) {
+		
+		// Requirements of the fleet the thread runs for, if any
+		Fleet fleet = Fleet.current();
+		Double[] timeRange = fleet != null ? fleet.getTimeRange() : Trip.timeRange;
+		Double[] distanceRange = fleet != null ? fleet.getDistanceRange() : Trip.distanceRange;
+		Double[] speedRange = fleet != null ? fleet.getSpeedRange() : Trip.speedRange;
+		
+		// Check time range
+		double time = trip.getTimeTraveled();
+		if ((timeRange[0] != null && time < timeRange[0]) || (timeRange[1] != null && time > timeRange[1])) {
+			return false;
+		}
+		
+		// Check distance range
+		double distance = trip.getDistanceTraveled();
+		if ((distanceRange[0] != null && distance < distanceRange[0]) || (distanceRange[1] != null && distance > distanceRange[1])) {
+			return false;
+		}
+		
+		// Check speed range
+		double speed = distance/time;
+		if ((speedRange[0] != null && speed < speedRange[0]) || (speedRange[1] != null && speed > speedRange[1])) {
+			return false;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Returns the time criteria that trips have to meet to be acceptable.
+	 * Set in default time units (per UnitConversion.class).
+	 * Defined as an array of two [min, max]
+	 * @return Double[]		Acceptable time range criteria [min, max]
+	 */
+	public static Double[] getTimeRange() {
+		Fleet fleet = Fleet.current();
+		return fleet != null ? fleet.getTimeRange() : timeRange;
+	}
+
+	/**
+	 * Returns the distance criteria that trips have to meet to be acceptable.
+	 * Set in default distance units (per UnitConversion.class).
+	 * Defined as an array of two [min, max]
+	 * @return Double[]		Acceptable distance range criteria [min, max]
+	 */
+	public static Double[] getDistanceRange() {
+		Fleet fleet = Fleet.current();
+		return fleet != null ? fleet.getDistanceRange() : distanceRange;
+	}
+
+	/**
+	 * Returns the speed criteria that trips have to meet to be acceptable.
+	 * Set in default speed units (per UnitConversion.class).
+	 * Defined as an array of two [min, max]
+	 * @return Double[]		Acceptable speed range criteria [min, max]
+	 */
+	public static Double[] getSpeedRange() {
+		Fleet fleet = Fleet.current();
+		return fleet != null ? fleet.getSpeedRange() : speedRange;
+	}
+
+	/**
+	 * Set the min and max time values (default time units) for a trip to be acceptable.
+	 * @param min		minimum time an acceptable trip needs to have (default time units).
+	 * @param max		maximum time an acceptable trip can have (default time units).
+	 */
+	public static void setTimeRange(Double min, Double max) {
+		Fleet fleet = Fleet.current();
+		if (fleet != null) {
+			fleet.setTimeRange(min, max);
+			return;
+		}
+		timeRange[0] = min;
+		timeRange[1] = max;
+	}
+	
+	/**
+	 * Set the min and max distance values (default distance units) for a trip to be acceptable.
+	 * @param min		minimum distance an acceptable trip needs to have (default distance units).
+	 * @param max		maximum distance an acceptable trip can have (default distance units).
+	 */
+	public static void setDistanceRange(Double min, Double max) {
+		Fleet fleet = Fleet.current();
+		if (fleet != null) {
+			fleet.setDistanceRange(min, max);
+			return;
+		}
+		distanceRange[0] = min;
+		distanceRange[1] = max;
+	}
+	
+	/**
+	 * Set the min and max speed values (default speed units) for a trip to be acceptable.
+	 * @param min		minimum speed an acceptable trip needs to have (default speed units).
+	 * @param max		maximum speed an acceptable trip can have (default speed units).
+	 */
+	public static void setSpeedRange(Double min, Double max) {
+		Fleet fleet = Fleet.current();
+		if (fleet != null) {
+			fleet.setSpeedRange(min, max);
+			return;
+		}
+		speedRange[0] = min;
+		speedRange[1] = max;
+	}
+	
+	
+
+}
@@ -0,0 +1,343 @@
+package io.pjseebald.travel;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <h1>TripDeduplicator</h1>
+ * Skips Trip commands that were already applied, so input that is sent again (e.g. a log segment resent by a retry)
+ * does not add its trips twice (the -dedup option). Each trip that is added is fingerprinted by its driver's name,
+ * times and miles as a 64-bit hash and added to a scalable Bloom filter. A trip that the filter has not seen is new,
+ * which is the case for almost every trip; only a trip the filter might have seen is checked exactly, against the
+ * fingerprints of the trips of earlier runs, the trips taken back in this run and the driver's trips.
+ * <p>
+ * A trip that was applied once is skipped whenever it is sent again, in this run or a later one, even after it is
+ * cancelled, corrected or its driver is removed: a retry resends the original lines, and adding them again would
+ * count the trip twice. Trips that are taken back keep their fingerprint (a tombstone), and the tombstones are
+ * saved with the state. Cancels and corrections are rare, so the tombstones of a run are kept in a HashSet.
+ * <p>
+ * The filter is a list of BloomFilters: when one is full, a new one twice its size and with half its false positive
+ * rate is added, so the filter grows with the trips without knowing their number up front, and its false positive
+ * rate stays under twice the rate of the first filter. Halving the rate costs each filter about 1.44 more bits per
+ * trip than the one before it: about 9.6 bits a trip in the first filter at 1%, 11 in the second, 12.5 in the third.
+ * The last filter is made at its full size when it is added, so with the default first filter the filters take about
+ * 20 bits per trip for 10^5 trips, 29 for 10^6 (3.4 MB) and 31 for 10^7.
+ * <p>
+ * The state is saved after a run with the filters and the sorted fingerprints of the drivers' trips, and loaded at the
+ * start of the next run. The fingerprints are memory mapped when the state is loaded and only read by binary search on
+ * a hit of the filter, so the trips of earlier runs cost no memory. Fingerprints of earlier runs are exact up to
+ * collisions of 64-bit hashes (less than one in 10^7 for 10^6 trips).
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class TripDeduplicator {
+
+	private static final int magic = 0x54444450;
+	private static final int version = 1;
+	// Bytes of the header before the fingerprints: magic, version, precision and number of fingerprints.
+	private static final int headerLength = 4 + 4 + 4 + 8;
+
+	private final long initialCapacity;
+	private final double falsePositiveRate;
+	private final List<BloomFilter> filters = new ArrayList<>();
+	private final List<long[]> filterCounts = new ArrayList<>();
+
+	// Sorted fingerprints of the trips of earlier runs, mapped from the state file.
+	private LongBuffer savedFingerprints = null;
+	// Fingerprints of the trips taken back in this run.
+	private final Set<Long> removedFingerprints = new HashSet<>();
+	private long duplicates = 0;
+
+	/**
+	 * Constructor for a deduplicator whose first filter holds 65536 trips at a false positive rate of 1%.
+	 */
+	public TripDeduplicator() {
+		this(1 << 16, 0.01);
+	}
+
+	/**
+	 * Constructor for a deduplicator with no trips.
+	 * @param initialCapacity		Number of trips of the first filter.
+	 * @param falsePositiveRate		False positive rate of the first filter, between 0 and 1.
+	 */
+	public TripDeduplicator(long initialCapacity, double falsePositiveRate) {
+		if (initialCapacity < 1) {
+			throw new IllegalArgumentException("Deduplicator needs a capacity of at least one trip: " + initialCapacity);
+		}
+		this.initialCapacity = initialCapacity;
+		this.falsePositiveRate = falsePositiveRate;
+		addFilter();
+	}
+
+	/**
+	 * Checks if a Trip was already applied to a Driver, in this run or an earlier one, even if it was taken back since.
+	 * Counts the duplicates found. The fingerprints are looked up before the driver's trips are searched, since a
+	 * resent trip of an earlier run is only in the fingerprints.
+	 * @param driver		Driver of the trip.
+	 * @param trip			Trip to check.
+	 * @return boolean		true if the trip was already applied and should be skipped.
+	 */
+	public synchronized boolean isDuplicate(Driver driver, Trip trip) {
+		long fingerprint = fingerprint(driver.getName(), trip.getStartDate() != null, trip.getStartSecond(),
+				trip.getEndSecond(), trip.getScaledDistance());
+		if (!mightContain(fingerprint)) {
+			return false;
+		}
+		if (isSaved(fingerprint) || removedFingerprints.contains(fingerprint) || driver.hasTrip(trip)) {
+			duplicates++;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Add a Trip that was applied to a Driver, so it is skipped when it is sent again.
+	 * @param name		Name of the driver of the trip.
+	 * @param trip		Trip that was added.
+	 */
+	public synchronized void add(String name, Trip trip) {
+		long fingerprint = fingerprint(name, trip.getStartDate() != null, trip.getStartSecond(), trip.getEndSecond(),
+				trip.getScaledDistance());
+		long[] count = filterCounts.get(filterCounts.size() - 1);
+		if (count[0] >= count[1]) {
+			addFilter();
+			count = filterCounts.get(filterCounts.size() - 1);
+		}
+		filters.get(filters.size() - 1).add(fingerprint);
+		count[0]++;
+	}
+
+	/**
+	 * Keep the fingerprint of a Trip that was taken back (cancelled or corrected), so it is still skipped when it is
+	 * sent again. The trip was added with add() when it was applied.
+	 * @param name		Name of the driver of the trip.
+	 * @param trip		Trip that was taken back.
+	 */
+	public synchronized void addRemoved(String name, Trip trip) {
+		removedFingerprints.add(fingerprint(name, trip.getStartDate() != null, trip.getStartSecond(), trip.getEndSecond(),
+				trip.getScaledDistance()));
+	}
+
+	/**
+	 * Keep the fingerprints of the Trips of a removed Driver, so they are still skipped when they are sent again.
+	 * @param driver		Driver that was removed, with its trips.
+	 */
+	public synchronized void addRemoved(Driver driver) {
+		String name = driver.getName();
+		driver.scanTrips((dated, startSecond, endSecond, scaledDistance) ->
+				removedFingerprints.add(fingerprint(name, dated, startSecond, endSecond, scaledDistance)));
+	}
+
+	/**
+	 * Getter for the number of duplicate trips found.
+	 * @return long		Number of duplicates.
+	 */
+	public synchronized long getDuplicates() {
+		return duplicates;
+	}
+
+	/**
+	 * Getter for the number of Bloom filters, which grows by one each time the trips fill the last one.
+	 * @return int		Number of filters.
+	 */
+	public synchronized int getFilters() {
+		return filters.size();
+	}
+
+	/**
+	 * Write the state so a later run can read it back with read() and skip the trips of this one. The fingerprints
+	 * saved are those of the trips of earlier runs, the trips taken back in this run and the drivers' trips, so every
+	 * trip that was applied is skipped. The state is written to a new file that then replaces the old one, which may
+	 * still be mapped.
+	 * @param drivers			Drivers by name.
+	 * @param location			File to write.
+	 * @throws IOException		If the file cannot be written.
+	 */
+	public synchronized void write(Map<String, Driver> drivers, Path location) throws IOException {
+		long[] fingerprints = getFingerprints(drivers);
+		Path temporary = location.resolveSibling(location.getFileName() + ".tmp");
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+			output.writeInt(magic);
+			output.writeInt(version);
+			output.writeInt(FixedPoint.getPrecision());
+			output.writeLong(fingerprints.length);
+			for (long fingerprint : fingerprints) {
+				output.writeLong(fingerprint);
+			}
+			output.writeLong(initialCapacity);
+			output.writeDouble(falsePositiveRate);
+			output.writeInt(filters.size());
+			for (int i = 0; i < filters.size(); i++) {
+				output.writeLong(filterCounts.get(i)[0]);
+				output.writeLong(filterCounts.get(i)[1]);
+				filters.get(i).writeTo(output);
+			}
+		}
+		Files.move(temporary, location, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Read the state written by write().
+	 * @param location					File to read.
+	 * @return TripDeduplicator			Deduplicator with the filters and fingerprints of the earlier runs.
+	 * @throws IOException				If the file cannot be read or is not a state of the same precision.
+	 */
+	public static TripDeduplicator read(Path location) throws IOException {
+		long count;
+		TripDeduplicator deduplicator;
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(location)))) {
+			if (input.readInt() != magic || input.readInt() != version) {
+				throw new IOException("Not a deduplication file: " + location);
+			}
+			int precision = input.readInt();
+			if (precision != FixedPoint.getPrecision()) {
+				throw new IOException("Deduplication file was written with a precision of " + precision + " digits, not "
+						+ FixedPoint.getPrecision() + ": " + location);
+			}
+			count = input.readLong();
+			long skip = count * 8;
+			while (skip > 0) {
+				long skipped = input.skip(skip);
+				if (skipped <= 0) {
+					throw new IOException("Deduplication file is cut short: " + location);
+				}
+				skip -= skipped;
+			}
+			deduplicator = new TripDeduplicator(input.readLong(), input.readDouble());
+			deduplicator.filters.clear();
+			deduplicator.filterCounts.clear();
+			int filters = input.readInt();
+			for (int i = 0; i < filters; i++) {
+				deduplicator.filterCounts.add(new long[] {input.readLong(), input.readLong()});
+				deduplicator.filters.add(BloomFilter.readFrom(input));
+			}
+		}
+		if (count > 0) {
+			// The mapping stays valid after the channel is closed.
+			try (FileChannel channel = FileChannel.open(location, StandardOpenOption.READ)) {
+				deduplicator.savedFingerprints = channel.map(FileChannel.MapMode.READ_ONLY, headerLength, count * 8).asLongBuffer();
+			}
+		}
+		return deduplicator;
+	}
+
+	/**
+	 * Fingerprint of a trip of a driver: a 64-bit hash of the name, times and scaled miles.
+	 * @param name				Name of the driver.
+	 * @param dated				true if the trip has dates.
+	 * @param startSecond		Start of the trip (see Trip.getStartSecond()).
+	 * @param endSecond			End of the trip (see Trip.getEndSecond()).
+	 * @param scaledDistance	Miles in scaled units.
+	 * @return long				Fingerprint of the trip.
+	 */
+	static long fingerprint(String name, boolean dated, long startSecond, long endSecond, long scaledDistance) {
+		// FNV-1a over the characters, then each number folded in and mixed.
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < name.length(); i++) {
+			hash ^= name.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		hash = mix(hash ^ (dated ? 1 : 0));
+		hash = mix(hash ^ startSecond);
+		hash = mix(hash ^ endSecond);
+		return mix(hash ^ scaledDistance);
+	}
+
+	// Finalizer of MurmurHash3, so every bit of the input changes about half the bits of the hash.
+	private static long mix(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	private boolean mightContain(long fingerprint) {
+		for (BloomFilter filter : filters) {
+			if (filter.mightContain(fingerprint)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Binary search of the fingerprints of earlier runs.
+	private boolean isSaved(long fingerprint) {
+		if (savedFingerprints == null) {
+			return false;
+		}
+		int low = 0;
+		int high = savedFingerprints.limit() - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			long value = savedFingerprints.get(middle);
+			if (value < fingerprint) {
+				low = middle + 1;
+			} else if (value > fingerprint) {
+				high = middle - 1;
+			} else {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Sorted fingerprints of the earlier runs, the trips taken back and the drivers' trips, without repeats.
+	private long[] getFingerprints(Map<String, Driver> drivers) {
+		int saved = savedFingerprints == null ? 0 : savedFingerprints.limit();
+		long trips = removedFingerprints.size();
+		for (Driver driver : drivers.values()) {
+			trips += driver.getTripCount();
+		}
+		if (saved + trips > Integer.MAX_VALUE - 8) {
+			throw new IllegalStateException("Too many trips to save for deduplication: " + (saved + trips));
+		}
+		long[] fingerprints = new long[(int) (saved + trips)];
+		for (int i = 0; i < saved; i++) {
+			fingerprints[i] = savedFingerprints.get(i);
+		}
+		int[] next = {saved};
+		for (long fingerprint : removedFingerprints) {
+			fingerprints[next[0]++] = fingerprint;
+		}
+		for (Driver driver : drivers.values()) {
+			String name = driver.getName();
+			driver.scanTrips((dated, startSecond, endSecond, scaledDistance) ->
+					fingerprints[next[0]++] = fingerprint(name, dated, startSecond, endSecond, scaledDistance));
+		}
+		Arrays.sort(fingerprints);
+		int unique = 0;
+		for (int i = 0; i < fingerprints.length; i++) {
+			if (i == 0 || fingerprints[i] != fingerprints[i - 1]) {
+				fingerprints[unique++] = fingerprints[i];
+			}
+		}
+		return Arrays.copyOf(fingerprints, unique);
+	}
+
+	// Adds a filter twice the size of the last one with half its false positive rate.
+	private void addFilter() {
+		int stage = filters.size();
+		long capacity = initialCapacity << Math.min(stage, 20);
+		filters.add(new BloomFilter(capacity, falsePositiveRate / (1L << Math.min(stage, 30))));
+		filterCounts.add(new long[] {0, capacity});
+	}
+}
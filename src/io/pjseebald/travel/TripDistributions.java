@@ -0,0 +1,184 @@
+package io.pjseebald.travel;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <h1>TripDistributions</h1>
+ * Distribution of the speed and duration of each driver's trips, kept in a QuantileSketch per driver as Trips are
+ * added. The average speed of the driver report hides how often a driver speeds; the 95th and 99th percentiles do
+ * not. The sketches do not keep the Trips, and stay the same size however many trips a driver takes.
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class TripDistributions implements DriverListener {
+
+	// Range and relative error of the sketches. Speeds in default speed units, durations in default time units.
+	private static double[] speedRange = {0.01, 10000.};
+	private static double[] durationRange = {1. / 3600, 100000.};
+	private static double relativeError = 0.01;
+
+	private Map<String, QuantileSketch[]> sketches = new HashMap<>();
+
+	/**
+	 * Adds the speed and duration of a Trip as it is added to a Driver.
+	 */
+	@Override
+	public void tripAdded(Driver driver, Trip trip) {
+		add(driver.getName(), trip);
+	}
+
+	/**
+	 * Takes the speed and duration of a removed Trip out of its Driver's sketches.
+	 */
+	@Override
+	public void tripRemoved(Driver driver, Trip trip) {
+		remove(driver.getName(), trip);
+	}
+
+	/**
+	 * Drops the sketches of a removed Driver.
+	 */
+	@Override
+	public void driverRemoved(Driver driver) {
+		sketches.remove(driver.getName());
+	}
+
+	/**
+	 * Moves the sketches of a renamed Driver to its new name.
+	 */
+	@Override
+	public void driverRenamed(Driver driver, String oldName) {
+		QuantileSketch[] driverSketches = sketches.remove(oldName);
+		if (driverSketches != null) {
+			sketches.put(driver.getName(), driverSketches);
+		}
+	}
+
+	/**
+	 * Add the speed and duration of a driver's Trip to the driver's sketches.
+	 * @param name		Name of the driver who took the trip.
+	 * @param trip		Trip to add.
+	 */
+	public void add(String name, Trip trip) {
+		QuantileSketch[] driverSketches = sketches.get(name);
+		if (driverSketches == null) {
+			driverSketches = new QuantileSketch[] {
+					new QuantileSketch(speedRange[0], speedRange[1], relativeError),
+					new QuantileSketch(durationRange[0], durationRange[1], relativeError)};
+			sketches.put(name, driverSketches);
+		}
+		double hours = trip.getTimeTraveled();
+		driverSketches[0].add(hours > 0 ? trip.getDistanceTraveled() / hours : 0);
+		driverSketches[1].add(hours);
+	}
+
+	/**
+	 * Take the speed and duration of a driver's Trip out of the driver's sketches. The sketches are dropped
+	 * when the driver has no trips left.
+	 * @param name		Name of the driver who took the trip.
+	 * @param trip		Trip that was added.
+	 */
+	public void remove(String name, Trip trip) {
+		QuantileSketch[] driverSketches = sketches.get(name);
+		if (driverSketches == null) {
+			return;
+		}
+		double hours = trip.getTimeTraveled();
+		driverSketches[0].remove(hours > 0 ? trip.getDistanceTraveled() / hours : 0);
+		driverSketches[1].remove(hours);
+		if (driverSketches[0].getCount() == 0) {
+			sketches.remove(name);
+		}
+	}
+
+	/**
+	 * Add the values of another run's sketches of a driver to the driver's sketches, e.g. from an AggregateFile.
+	 * @param name			Name of the driver.
+	 * @param speed			Sketch of the speeds of the driver's trips.
+	 * @param duration		Sketch of the durations of the driver's trips.
+	 */
+	public void merge(String name, QuantileSketch speed, QuantileSketch duration) {
+		QuantileSketch[] driverSketches = sketches.get(name);
+		if (driverSketches == null) {
+			driverSketches = new QuantileSketch[] {
+					new QuantileSketch(speedRange[0], speedRange[1], relativeError),
+					new QuantileSketch(durationRange[0], durationRange[1], relativeError)};
+			sketches.put(name, driverSketches);
+		}
+		driverSketches[0].merge(speed);
+		driverSketches[1].merge(duration);
+	}
+
+	/**
+	 * Getter for the sketches of a driver.
+	 * @param name					Name of the driver.
+	 * @return QuantileSketch[]		Sketches of the speeds and the durations of the driver's trips, or null if the driver has no trips.
+	 */
+	public QuantileSketch[] getSketches(String name) {
+		return sketches.get(name);
+	}
+
+	/**
+	 * Speed of a driver's trips at a quantile, e.g. 0.95 for the speed 95% of the trips were at or under.
+	 * @param name			Name of the driver.
+	 * @param quantile		Quantile between 0 and 1.
+	 * @return double		Speed in default speed units, or NaN if the driver has no trips.
+	 */
+	public double getSpeed(String name, double quantile) {
+		QuantileSketch[] driverSketches = sketches.get(name);
+		return driverSketches == null ? Double.NaN : driverSketches[0].getQuantile(quantile);
+	}
+
+	/**
+	 * Duration of a driver's trips at a quantile.
+	 * @param name			Name of the driver.
+	 * @param quantile		Quantile between 0 and 1.
+	 * @return double		Duration in default time units, or NaN if the driver has no trips.
+	 */
+	public double getDuration(String name, double quantile) {
+		QuantileSketch[] driverSketches = sketches.get(name);
+		return driverSketches == null ? Double.NaN : driverSketches[1].getQuantile(quantile);
+	}
+
+	/**
+	 * Report line with the 50th, 95th and 99th percentiles of a driver's speed and trip duration,
+	 * e.g. "Dan: speed p50 47 / p95 65 / p99 65 mph, duration p50 26 / p95 30 / p99 30 min".
+	 * @param name			Name of the driver.
+	 * @return String		Report line, or just the name if the driver has no trips.
+	 */
+	public String getReport(String name) {
+		if (!sketches.containsKey(name)) {
+			return name + ":";
+		}
+		double minutesPerUnit = UnitConversion.convert(1, UnitConversion.getDefaultTimeUnit(), TimeUnit.MINUTES);
+		return String.format("%s: speed p50 %d / p95 %d / p99 %d %s, duration p50 %d / p95 %d / p99 %d min", name,
+				Math.round(getSpeed(name, 0.5)), Math.round(getSpeed(name, 0.95)), Math.round(getSpeed(name, 0.99)),
+				UnitConversion.getDefaultSpeedUnit().getAsString(),
+				Math.round(getDuration(name, 0.5) * minutesPerUnit), Math.round(getDuration(name, 0.95) * minutesPerUnit),
+				Math.round(getDuration(name, 0.99) * minutesPerUnit));
+	}
+
+	/**
+	 * Getter for the relative error of the percentiles.
+	 * @return double		Largest relative error, e.g. 0.01 for 1%.
+	 */
+	public static double getRelativeError() {
+		return relativeError;
+	}
+
+	/**
+	 * Set the relative error of the percentiles. Smaller errors need more buckets per driver.
+	 * Only sketches created after the change use it, so this needs to be set before any trips are added.
+	 * @param error		Largest relative error, between 0 and 1.
+	 */
+	public static void setRelativeError(double error) {
+		if (!(error > 0) || !(error < 1)) {
+			throw new IllegalArgumentException("Relative error must be between 0 and 1: " + error);
+		}
+		relativeError = error;
+	}
+}
@@ -0,0 +1,292 @@
+package io.pjseebald.travel;
+
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <h1>TripIntervalIndex</h1>
+ * Fleet-wide index of trips over the minutes of the day, for time-window queries such as
+ * "which drivers were on the road between 08:00 and 09:00" or "fleet miles between 08:00 and 09:00".
+ * A trip covers the minutes [start, end), and a window [from, to) matches trips that cover any of its minutes.
+ * Trips that go past midnight cover the minutes from their start to midnight and from midnight to their end.
+ * <p>
+ * Drivers are found with a segment tree over the minutes. A trip is stored at the O(log n) nodes that cover its
+ * minutes exactly ("full" nodes), and marked at every ancestor of those nodes ("partial" nodes). A window matches
+ * a trip if one of the window's own nodes is full or partial for the trip, or has a full ancestor for it.
+ * Distance and trip counts use Fenwick trees, so all queries are O(log n) in minutes plus the size of the answer,
+ * without looking at any Driver's list of trips.
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class TripIntervalIndex implements DriverListener {
+
+	private static final int minutesPerDay = 24 * 60;
+	// Number of leaves of the segment tree, the power of two that fits all minutes of a day.
+	private static final int leaves = Integer.highestOneBit(minutesPerDay - 1) << 1;
+
+	// Node of the segment tree, with its counts of full and partial trips per driver.
+	private static final class Node {
+		final Map<String, int[]> full = new HashMap<>();
+		final Map<String, int[]> partial = new HashMap<>();
+	}
+
+	// Segment tree nodes, root at 1 and children of n at 2n and 2n+1, created when first needed.
+	private final Node[] nodes = new Node[2 * leaves];
+
+	// Fenwick trees (1-based) for range-add, range-sum of distance per minute, in default distance units.
+	private double[] distanceSlopes = new double[minutesPerDay + 1];
+	private double[] distanceOffsets = new double[minutesPerDay + 1];
+
+	// Fenwick trees of trips by start minute and by end minute.
+	private long[] startCounts = new long[minutesPerDay + 1];
+	private long[] endCounts = new long[minutesPerDay + 1];
+
+	/**
+	 * Adds a Trip as it is added to a Driver.
+	 */
+	@Override
+	public void tripAdded(Driver driver, Trip trip) {
+		add(driver.getName(), trip);
+	}
+
+	/**
+	 * Takes a removed Trip out of the index.
+	 */
+	@Override
+	public void tripRemoved(Driver driver, Trip trip) {
+		remove(driver.getName(), trip);
+	}
+
+	/**
+	 * Takes the Trips of a removed Driver out of the index.
+	 */
+	@Override
+	public void driverRemoved(Driver driver) {
+		for (Trip trip : driver.getTrips()) {
+			remove(driver.getName(), trip);
+		}
+	}
+
+	/**
+	 * Moves the Trips of a renamed Driver to its new name. The index is by name, so this is O(trips * log n).
+	 */
+	@Override
+	public void driverRenamed(Driver driver, String oldName) {
+		for (Trip trip : driver.getTrips()) {
+			remove(oldName, trip);
+			add(driver.getName(), trip);
+		}
+	}
+
+	/**
+	 * Add a driver's Trip to the index.
+	 * @param name		Name of the driver who took the trip.
+	 * @param trip		Trip to index.
+	 */
+	public void add(String name, Trip trip) {
+		change(name, trip, 1);
+	}
+
+	/**
+	 * Take a driver's Trip out of the index, the exact opposite of add().
+	 * @param name		Name of the driver who took the trip.
+	 * @param trip		Trip that was indexed.
+	 */
+	public void remove(String name, Trip trip) {
+		change(name, trip, -1);
+	}
+
+	// Adds (count 1) or removes (count -1) a trip.
+	private void change(String name, Trip trip, int count) {
+		int start = getMinute(trip.getStartTime());
+		long minutes = (trip.getEndSecond() - trip.getStartSecond()) / 60;
+		if (minutes <= 0) {
+			return;
+		}
+
+		// Distance is spread evenly over the minutes of the trip.
+		double perMinute = count * trip.getDistanceTraveled() / minutes;
+
+		// Trips with dates can go past midnight. Whole days cover every minute, and the rest of the
+		// trip is split in two at midnight if it goes past it.
+		long days = minutes / minutesPerDay;
+		if (days > 0) {
+			addSegment(name, 0, minutesPerDay, perMinute * days, count);
+		}
+		int end = start + (int) (minutes % minutesPerDay);
+		if (end > minutesPerDay) {
+			addSegment(name, start, minutesPerDay, perMinute, count);
+			addSegment(name, 0, end - minutesPerDay, perMinute, count);
+		} else if (end > start) {
+			addSegment(name, start, end, perMinute, count);
+		}
+	}
+
+	// Adds or removes part of a trip over the minutes [start, end) of the day.
+	private void addSegment(String name, int start, int end, double perMinute, int count) {
+		markDrivers(name, start, end, count);
+		addDistance(start, end, perMinute);
+		addCount(startCounts, start, count);
+		addCount(endCounts, end, count);
+	}
+
+	/**
+	 * Finds the drivers who were on the road during a window of the day.
+	 * @param from				Start of the window (inclusive).
+	 * @param to				End of the window (exclusive).
+	 * @return Set<String>		Names of drivers with at least one trip during the window.
+	 */
+	public Set<String> getDrivers(LocalTime from, LocalTime to) {
+		Set<String> names = new HashSet<>();
+		int lo = getMinute(from) + leaves;
+		int hi = getMinute(to) + leaves;
+		while (lo < hi) {
+			if ((lo & 1) == 1) {
+				collectDrivers(lo++, names);
+			}
+			if ((hi & 1) == 1) {
+				collectDrivers(--hi, names);
+			}
+			lo >>= 1;
+			hi >>= 1;
+		}
+		return names;
+	}
+
+	/**
+	 * Distance traveled by all drivers during a window of the day. Trips that are partly in the window
+	 * count the part of their distance that is in the window, assuming a constant speed over the trip.
+	 * @param from			Start of the window (inclusive).
+	 * @param to			End of the window (exclusive).
+	 * @return double		Distance traveled in the window, in default distance units.
+	 */
+	public double getDistanceTraveled(LocalTime from, LocalTime to) {
+		return distancePrefix(getMinute(to)) - distancePrefix(getMinute(from));
+	}
+
+	/**
+	 * Number of trips that were on the road during a window of the day.
+	 * A trip that goes past midnight is counted for each side of midnight that is in the window.
+	 * @param from			Start of the window (inclusive).
+	 * @param to			End of the window (exclusive).
+	 * @return long			Number of trips with at least one minute in the window.
+	 */
+	public long getTripCount(LocalTime from, LocalTime to) {
+		int start = getMinute(from);
+		int end = getMinute(to);
+		if (end <= start) {
+			return 0;
+		}
+		// Trips that start before the window ends, less those that ended before it started.
+		return countPrefix(startCounts, end) - countPrefix(endCounts, start + 1);
+	}
+
+	private static int getMinute(LocalTime time) {
+		return time.getHour() * 60 + time.getMinute();
+	}
+
+	/*
+	 * *******************************************
+	 * Segment tree of drivers
+	 */
+
+	private void markDrivers(String name, int start, int end, int count) {
+		int lo = start + leaves;
+		int hi = end + leaves;
+		while (lo < hi) {
+			if ((lo & 1) == 1) {
+				markCovered(lo++, name, count);
+			}
+			if ((hi & 1) == 1) {
+				markCovered(--hi, name, count);
+			}
+			lo >>= 1;
+			hi >>= 1;
+		}
+	}
+
+	private void markCovered(int node, String name, int count) {
+		increment(getNode(node).full, name, count);
+		for (int parent = node >> 1; parent > 0; parent >>= 1) {
+			increment(getNode(parent).partial, name, count);
+		}
+	}
+
+	private void collectDrivers(int node, Set<String> names) {
+		if (nodes[node] != null) {
+			names.addAll(nodes[node].full.keySet());
+			names.addAll(nodes[node].partial.keySet());
+		}
+		for (int parent = node >> 1; parent > 0; parent >>= 1) {
+			if (nodes[parent] != null) {
+				names.addAll(nodes[parent].full.keySet());
+			}
+		}
+	}
+
+	private Node getNode(int node) {
+		if (nodes[node] == null) {
+			nodes[node] = new Node();
+		}
+		return nodes[node];
+	}
+
+	// Changes a driver's count of trips at a node, dropping the driver from the node when it has none left.
+	private static void increment(Map<String, int[]> counts, String name, int change) {
+		int[] count = counts.get(name);
+		if (count == null) {
+			counts.put(name, new int[] {change});
+		} else if ((count[0] += change) == 0) {
+			counts.remove(name);
+		}
+	}
+
+	/*
+	 * *******************************************
+	 * Fenwick trees
+	 */
+
+	// Adds perMinute to each minute in [start, end).
+	private void addDistance(int start, int end, double perMinute) {
+		addDistancePoint(start, perMinute);
+		addDistancePoint(end, -perMinute);
+	}
+
+	private void addDistancePoint(int minute, double perMinute) {
+		for (int i = minute + 1; i <= minutesPerDay; i += i & -i) {
+			distanceSlopes[i] += perMinute;
+			distanceOffsets[i] += perMinute * minute;
+		}
+	}
+
+	// Sum of distance over the minutes [0, minute).
+	private double distancePrefix(int minute) {
+		double slope = 0;
+		double offset = 0;
+		for (int i = minute; i > 0; i -= i & -i) {
+			slope += distanceSlopes[i];
+			offset += distanceOffsets[i];
+		}
+		return slope * minute - offset;
+	}
+
+	private static void addCount(long[] counts, int minute, long value) {
+		for (int i = minute + 1; i <= minutesPerDay; i += i & -i) {
+			counts[i] += value;
+		}
+	}
+
+	// Count of entries at minutes [0, minute).
+	private static long countPrefix(long[] counts, int minute) {
+		long count = 0;
+		for (int i = Math.min(minute, minutesPerDay); i > 0; i -= i & -i) {
+			count += counts[i];
+		}
+		return count;
+	}
+}
@@ -0,0 +1,555 @@
+package io.pjseebald.travel;
+
+import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * <h1>TripSegment</h1>
+ * Immutable file of accepted trips in columns, so archived trips can be scanned and reported on without parsing
+ * the text input again. Each trip is a row of driver id, start minute, duration in minutes and miles (fixed-point),
+ * sorted by driver and start. Rows are stored in blocks, and each column of a block is stored on its own as varints
+ * (see VarInts): driver ids and start minutes as deltas from the row before, so most values take a byte or two.
+ * <p>
+ * Each block has a zone map (the smallest and largest driver id and start of its rows), so a scan for a driver or
+ * a range of start minutes skips every block that cannot match without reading it. A Bloom filter of the driver
+ * names answers whether the segment has a driver at all without reading the dictionary of names.
+ * <p>
+ * Blocks are written to the file as they are filled, so a segment is never held in memory. The file starts with
+ * its magic number and version, then has the blocks and the dictionary, then the header with the zone maps, and
+ * ends with the offset of the header and the magic number again.
+ * <p>
+ * Minutes are those of Trip.getStartSecond(): minutes since 1970-01-01T00:00 for trips with dates, and minutes of
+ * the day for trips without dates (as if they were on 1970-01-01).
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class TripSegment implements Closeable {
+
+	private static final int magic = 0x54534547;
+	private static final int version = 2;
+	// Bytes of the magic number and version at the start, and of the header offset and magic number at the end.
+	private static final int prefixLength = 4 + 4;
+	private static final int trailerLength = 8 + 4;
+
+	private final RandomAccessFile file;
+	private final long dataStart;
+	private final BloomFilter names;
+	private final Block[] blocks;
+	private final long dictionaryOffset;
+	// Bytes of the dictionary, which ends where the header starts.
+	private final int dictionaryLength;
+	private final int driverCount;
+	private String[] dictionary = null;
+	private Map<String, Integer> ids = null;
+	private long blocksRead = 0;
+
+	private TripSegment(RandomAccessFile file, long dataStart, BloomFilter names, Block[] blocks, long dictionaryOffset,
+			int dictionaryLength, int driverCount) {
+		this.file = file;
+		this.dataStart = dataStart;
+		this.names = names;
+		this.blocks = blocks;
+		this.dictionaryOffset = dictionaryOffset;
+		this.dictionaryLength = dictionaryLength;
+		this.driverCount = driverCount;
+	}
+
+	/*
+	 * *******************************************
+	 * Writing
+	 */
+
+	/**
+	 * Write the trips of drivers to a segment file, in blocks of 4096 trips.
+	 * @param drivers			Drivers by name.
+	 * @param location			File to write.
+	 * @throws IOException		If the file cannot be written.
+	 */
+	public static void write(Map<String, Driver> drivers, Path location) throws IOException {
+		write(drivers, location, 4096);
+	}
+
+	/**
+	 * Write the trips of drivers to a segment file.
+	 * @param drivers			Drivers by name.
+	 * @param location			File to write.
+	 * @param blockRows			Most trips in a block. Smaller blocks skip more precisely but have more zone maps.
+	 * @throws IOException		If the file cannot be written.
+	 */
+	public static void write(Map<String, Driver> drivers, Path location, int blockRows) throws IOException {
+		if (blockRows < 1) {
+			throw new IllegalArgumentException("Blocks need at least one trip: " + blockRows);
+		}
+		// Driver ids in order of name, so a segment is the same however the map is ordered.
+		List<String> sortedNames = new ArrayList<>(drivers.keySet());
+		Collections.sort(sortedNames);
+		BloomFilter filter = new BloomFilter(sortedNames.size(), 0.01);
+
+		List<Block> blocks = new ArrayList<>();
+		try (CountingOutputStream output = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(location), 1 << 16))) {
+			DataOutputStream out = new DataOutputStream(output);
+			out.writeInt(magic);
+			out.writeInt(version);
+			BlockWriter writer = new BlockWriter(blockRows);
+			for (int id = 0; id < sortedNames.size(); id++) {
+				String name = sortedNames.get(id);
+				filter.add(name);
+				for (Trip trip : drivers.get(name).getTripsByStartTime()) {
+					writer.add(id, trip);
+					if (writer.rows == blockRows) {
+						blocks.add(writer.writeTo(output, output.getCount() - prefixLength));
+					}
+				}
+			}
+			if (writer.rows > 0) {
+				blocks.add(writer.writeTo(output, output.getCount() - prefixLength));
+			}
+			long dictionaryOffset = output.getCount() - prefixLength;
+			for (String name : sortedNames) {
+				out.writeUTF(name);
+			}
+
+			long headerOffset = output.getCount();
+			out.writeInt(FixedPoint.getPrecision());
+			filter.writeTo(out);
+			out.writeInt(sortedNames.size());
+			out.writeLong(dictionaryOffset);
+			out.writeInt(blocks.size());
+			for (Block block : blocks) {
+				block.writeTo(out);
+			}
+			out.writeLong(headerOffset);
+			out.writeInt(magic);
+			out.flush();
+		}
+	}
+
+	/*
+	 * *******************************************
+	 * Reading
+	 */
+
+	/**
+	 * Open a segment file. Only the header (zone maps and name filter) is read until trips are scanned.
+	 * @param location			Segment file.
+	 * @return TripSegment		Open segment, to be closed after use.
+	 * @throws IOException		If the file cannot be read or is not a segment.
+	 */
+	public static TripSegment open(Path location) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(location.toFile(), "r");
+		try {
+			long length = file.length();
+			if (length < prefixLength + trailerLength || file.readInt() != magic) {
+				throw new IOException("Not a trip segment: " + location);
+			}
+			int fileVersion = file.readInt();
+			if (fileVersion != version) {
+				throw new IOException("Trip segment is of version " + fileVersion + ", not " + version
+						+ ". Write it again with -savesegment: " + location);
+			}
+			file.seek(length - trailerLength);
+			long headerOffset = file.readLong();
+			if (file.readInt() != magic || headerOffset < prefixLength || headerOffset > length - trailerLength) {
+				throw new IOException("Trip segment is cut short: " + location);
+			}
+			byte[] headerBytes = new byte[(int) (length - trailerLength - headerOffset)];
+			file.seek(headerOffset);
+			file.readFully(headerBytes);
+			DataInputStream header = new DataInputStream(new ByteArrayInputStream(headerBytes));
+			int precision = header.readInt();
+			if (precision != FixedPoint.getPrecision()) {
+				throw new IOException("Trip segment was written with a precision of " + precision + " digits, not "
+						+ FixedPoint.getPrecision() + ": " + location);
+			}
+			BloomFilter names = BloomFilter.readFrom(header);
+			int driverCount = header.readInt();
+			long dictionaryOffset = header.readLong();
+			long dictionaryLength = headerOffset - prefixLength - dictionaryOffset;
+			if (dictionaryOffset < 0 || dictionaryLength < 0 || dictionaryLength > Integer.MAX_VALUE) {
+				throw new IOException("Trip segment has a bad header: " + location);
+			}
+			Block[] blocks = new Block[header.readInt()];
+			for (int i = 0; i < blocks.length; i++) {
+				blocks[i] = Block.readFrom(header);
+			}
+			return new TripSegment(file, prefixLength, names, blocks, dictionaryOffset, (int) dictionaryLength, driverCount);
+		} catch (IOException | RuntimeException e) {
+			file.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Checks if the segment might have trips of a driver, without reading the names of the drivers.
+	 * @param name			Name of the driver.
+	 * @return boolean		false if the driver is surely not in the segment.
+	 */
+	public boolean mightContain(String name) {
+		return names.mightContain(name);
+	}
+
+	/**
+	 * Passes the trips that match a driver and a range of start minutes to a consumer, in order of driver and start.
+	 * Blocks whose zone map is outside the driver or the range are not read.
+	 * @param name				Name of the driver, or null for all drivers.
+	 * @param fromMinute		First start minute (inclusive), see getMinute().
+	 * @param toMinute			Last start minute (exclusive).
+	 * @param consumer			Called with the driver name and trip of each match.
+	 */
+	public void scan(String name, long fromMinute, long toMinute, BiConsumer<String, Trip> consumer) {
+		scan(name, fromMinute, toMinute, (id, start, duration, miles, dated) ->
+				consumer.accept(dictionary[id], toTrip(start, duration, miles, dated)));
+	}
+
+	/**
+	 * Totals of each driver's trips that match a driver and a range of start minutes. Only the zone maps of
+	 * skipped blocks are read, and no Trip objects are made.
+	 * @param name								Name of the driver, or null for all drivers.
+	 * @param fromMinute						First start minute (inclusive), see getMinute().
+	 * @param toMinute							Last start minute (exclusive).
+	 * @return Map<String, DriverAggregate>		Totals by driver name, for drivers with matching trips.
+	 */
+	public Map<String, DriverAggregate> getAggregates(String name, long fromMinute, long toMinute) {
+		long[][] totals = new long[driverCount][];
+		scan(name, fromMinute, toMinute, (id, start, duration, miles, dated) -> {
+			long[] total = totals[id];
+			if (total == null) {
+				total = new long[3];
+				totals[id] = total;
+			}
+			total[0] += miles;
+			total[1] += duration * 60;
+			total[2]++;
+		});
+		Map<String, DriverAggregate> aggregates = new HashMap<>();
+		for (int id = 0; id < driverCount; id++) {
+			if (totals[id] != null) {
+				aggregates.put(dictionary[id], new DriverAggregate(totals[id][0], totals[id][1], totals[id][2]));
+			}
+		}
+		return aggregates;
+	}
+
+	/**
+	 * Names of all drivers in the segment, including drivers without trips.
+	 * @return List<String>		Driver names in order of id (sorted by name).
+	 */
+	public List<String> getDrivers() {
+		loadDictionary();
+		return Collections.unmodifiableList(Arrays.asList(dictionary));
+	}
+
+	/**
+	 * Getter for the number of trips in the segment.
+	 * @return long		Number of trips.
+	 */
+	public long getTripCount() {
+		long trips = 0;
+		for (Block block : blocks) {
+			trips += block.rows;
+		}
+		return trips;
+	}
+
+	/**
+	 * Getter for the number of blocks in the segment.
+	 * @return int		Number of blocks.
+	 */
+	public int getBlockCount() {
+		return blocks.length;
+	}
+
+	/**
+	 * Getter for the number of blocks read from the file by scans so far, to see how many were skipped.
+	 * @return long		Number of blocks read.
+	 */
+	public long getBlocksRead() {
+		return blocksRead;
+	}
+
+	/**
+	 * Start minute of a date and time, for the ranges of scan() and getAggregates().
+	 * @param time		Date and time.
+	 * @return long		Minutes since 1970-01-01T00:00.
+	 */
+	public static long getMinute(LocalDateTime time) {
+		return time.toEpochSecond(ZoneOffset.UTC) / 60;
+	}
+
+	@Override
+	public void close() {
+		try {
+			file.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Error closing trip segment", e);
+		}
+	}
+
+	// Scan over the rows that match, with the columns of each row as primitives.
+	private void scan(String name, long fromMinute, long toMinute, RowConsumer consumer) {
+		int driverId = -1;
+		if (name != null) {
+			if (!names.mightContain(name)) {
+				return;
+			}
+			loadDictionary();
+			Integer id = ids.get(name);
+			if (id == null) {
+				return;
+			}
+			driverId = id;
+		} else {
+			loadDictionary();
+		}
+
+		for (Block block : blocks) {
+			if (driverId >= 0 && (driverId < block.minDriver || driverId > block.maxDriver)) {
+				continue;
+			}
+			if (block.maxStart < fromMinute || block.minStart >= toMinute) {
+				continue;
+			}
+			byte[] bytes = read(block);
+			VarInts.Reader drivers = new VarInts.Reader(bytes, 0);
+			VarInts.Reader starts = new VarInts.Reader(bytes, block.driverBytes);
+			VarInts.Reader durations = new VarInts.Reader(bytes, block.driverBytes + block.startBytes);
+			VarInts.Reader miles = new VarInts.Reader(bytes, block.driverBytes + block.startBytes + block.durationBytes);
+			int flags = block.driverBytes + block.startBytes + block.durationBytes + block.milesBytes;
+
+			int id = block.minDriver;
+			long start = block.minStart;
+			for (int row = 0; row < block.rows; row++) {
+				id += (int) drivers.read();
+				start += starts.readSigned();
+				long duration = durations.read();
+				long scaledMiles = miles.readSigned();
+				if ((driverId < 0 || id == driverId) && start >= fromMinute && start < toMinute) {
+					boolean dated = (bytes[flags + (row >>> 3)] & (1 << (row & 7))) != 0;
+					consumer.accept(id, start, duration, scaledMiles, dated);
+				}
+			}
+		}
+	}
+
+	private byte[] read(Block block) {
+		try {
+			byte[] bytes = new byte[block.driverBytes + block.startBytes + block.durationBytes + block.milesBytes + block.flagBytes];
+			file.seek(dataStart + block.offset);
+			file.readFully(bytes);
+			blocksRead++;
+			return bytes;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Error reading trip segment block", e);
+		}
+	}
+
+	private void loadDictionary() {
+		if (dictionary != null) {
+			return;
+		}
+		try {
+			// Read in one go like the blocks, since readUTF() on the file reads a name a few bytes at a time.
+			byte[] bytes = new byte[dictionaryLength];
+			file.seek(dataStart + dictionaryOffset);
+			file.readFully(bytes);
+			DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes));
+			String[] names = new String[driverCount];
+			Map<String, Integer> byName = new HashMap<>(driverCount * 2);
+			for (int id = 0; id < driverCount; id++) {
+				names[id] = input.readUTF();
+				byName.put(names[id], id);
+			}
+			dictionary = names;
+			ids = byName;
+		} catch (IOException e) {
+			throw new UncheckedIOException("Error reading trip segment drivers", e);
+		}
+	}
+
+	private static Trip toTrip(long start, long duration, long scaledMiles, boolean dated) {
+		if (dated) {
+			return Trip.fromScaled(LocalDateTime.ofEpochSecond(start * 60, 0, ZoneOffset.UTC),
+					LocalDateTime.ofEpochSecond((start + duration) * 60, 0, ZoneOffset.UTC), scaledMiles);
+		}
+		return Trip.fromScaled(LocalTime.ofSecondOfDay(start * 60), LocalTime.ofSecondOfDay((start + duration) * 60), scaledMiles);
+	}
+
+	/**
+	 * Columns of a row, without making objects.
+	 */
+	private interface RowConsumer {
+		void accept(int driverId, long startMinute, long durationMinutes, long scaledMiles, boolean dated);
+	}
+
+	/**
+	 * Place, size of each column and zone map of a block.
+	 */
+	private static class Block {
+		long offset;
+		int rows;
+		int driverBytes;
+		int startBytes;
+		int durationBytes;
+		int milesBytes;
+		int flagBytes;
+		int minDriver;
+		int maxDriver;
+		long minStart;
+		long maxStart;
+
+		void writeTo(DataOutputStream output) throws IOException {
+			output.writeLong(offset);
+			output.writeInt(rows);
+			output.writeInt(driverBytes);
+			output.writeInt(startBytes);
+			output.writeInt(durationBytes);
+			output.writeInt(milesBytes);
+			output.writeInt(flagBytes);
+			output.writeInt(minDriver);
+			output.writeInt(maxDriver);
+			output.writeLong(minStart);
+			output.writeLong(maxStart);
+		}
+
+		static Block readFrom(DataInputStream input) throws IOException {
+			Block block = new Block();
+			block.offset = input.readLong();
+			block.rows = input.readInt();
+			block.driverBytes = input.readInt();
+			block.startBytes = input.readInt();
+			block.durationBytes = input.readInt();
+			block.milesBytes = input.readInt();
+			block.flagBytes = input.readInt();
+			block.minDriver = input.readInt();
+			block.maxDriver = input.readInt();
+			block.minStart = input.readLong();
+			block.maxStart = input.readLong();
+			return block;
+		}
+	}
+
+	/**
+	 * Counts the bytes written, as a long so segments can be over 2 GB.
+	 */
+	private static class CountingOutputStream extends FilterOutputStream {
+		private long count = 0;
+
+		CountingOutputStream(OutputStream output) {
+			super(output);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			out.write(bytes, offset, length);
+			count += length;
+		}
+
+		long getCount() {
+			return count;
+		}
+	}
+
+	/**
+	 * Rows of the block being written, kept as primitive columns until the block is full.
+	 */
+	private static class BlockWriter {
+		final int[] drivers;
+		final long[] starts;
+		final long[] durations;
+		final long[] miles;
+		final boolean[] dated;
+		int rows = 0;
+
+		BlockWriter(int capacity) {
+			drivers = new int[capacity];
+			starts = new long[capacity];
+			durations = new long[capacity];
+			miles = new long[capacity];
+			dated = new boolean[capacity];
+		}
+
+		void add(int driverId, Trip trip) {
+			drivers[rows] = driverId;
+			starts[rows] = Math.floorDiv(trip.getStartSecond(), 60);
+			durations[rows] = Math.floorDiv(trip.getEndSecond(), 60) - starts[rows];
+			miles[rows] = trip.getScaledDistance();
+			dated[rows] = trip.getStartDate() != null;
+			rows++;
+		}
+
+		// Encodes the rows as a block at an offset of the data, and starts a new block.
+		Block writeTo(OutputStream data, long offset) throws IOException {
+			Block block = new Block();
+			block.offset = offset;
+			block.rows = rows;
+			block.minDriver = drivers[0];
+			block.maxDriver = drivers[rows - 1];
+			block.minStart = Long.MAX_VALUE;
+			block.maxStart = Long.MIN_VALUE;
+			for (int row = 0; row < rows; row++) {
+				block.minStart = Math.min(block.minStart, starts[row]);
+				block.maxStart = Math.max(block.maxStart, starts[row]);
+			}
+
+			VarInts.Writer driverColumn = new VarInts.Writer(rows);
+			VarInts.Writer startColumn = new VarInts.Writer(rows * 2);
+			VarInts.Writer durationColumn = new VarInts.Writer(rows);
+			VarInts.Writer milesColumn = new VarInts.Writer(rows * 3);
+			byte[] flags = new byte[(rows + 7) >>> 3];
+			int previousDriver = block.minDriver;
+			long previousStart = block.minStart;
+			for (int row = 0; row < rows; row++) {
+				driverColumn.write(drivers[row] - previousDriver);
+				startColumn.writeSigned(starts[row] - previousStart);
+				durationColumn.write(durations[row]);
+				milesColumn.writeSigned(miles[row]);
+				if (dated[row]) {
+					flags[row >>> 3] |= 1 << (row & 7);
+				}
+				previousDriver = drivers[row];
+				previousStart = starts[row];
+			}
+			block.driverBytes = driverColumn.length();
+			block.startBytes = startColumn.length();
+			block.durationBytes = durationColumn.length();
+			block.milesBytes = milesColumn.length();
+			block.flagBytes = flags.length;
+			data.write(driverColumn.getBuffer(), 0, driverColumn.length());
+			data.write(startColumn.getBuffer(), 0, startColumn.length());
+			data.write(durationColumn.getBuffer(), 0, durationColumn.length());
+			data.write(milesColumn.getBuffer(), 0, milesColumn.length());
+			data.write(flags, 0, flags.length);
+
+			rows = 0;
+			return block;
+		}
+	}
+}
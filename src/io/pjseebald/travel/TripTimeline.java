@@ -0,0 +1,112 @@
+package io.pjseebald.travel;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * <h1>TripTimeline</h1>
+ * A driver's trips ordered by start time, with no two trips overlapping.
+ * A trip overlaps the timeline if it shares any time with a trip already in it (trips that only touch,
+ * where one ends when the next starts, do not overlap). Since trips in the timeline never overlap each other,
+ * only the trip starting at or just before a new trip and the one starting just after it need to be checked,
+ * so checking and adding a trip is O(log n).
+ * <p>
+ * Only the start and end second of each trip are kept, not the Trip, so the driver's trips stay encoded in
+ * CompressedTrips when overlapping trips are rejected.
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public class TripTimeline {
+
+	// End seconds of the trips by start second. Start times are unique since trips take time and don't overlap.
+	private TreeMap<Long, Long> trips = new TreeMap<>();
+
+	/**
+	 * Checks if a Trip shares any time with a trip in the timeline.
+	 * @param trip			Trip to check.
+	 * @return boolean		true if the trip overlaps the timeline.
+	 */
+	public boolean overlaps(Trip trip) {
+		return overlaps(trip.getStartSecond(), trip.getEndSecond());
+	}
+
+	/**
+	 * Checks if the times of a trip share any time with a trip in the timeline.
+	 * @param start			Start of the trip (see Trip.getStartSecond()).
+	 * @param end			End of the trip (see Trip.getEndSecond()).
+	 * @return boolean		true if the trip overlaps the timeline.
+	 */
+	public boolean overlaps(long start, long end) {
+		Map.Entry<Long, Long> before = trips.floorEntry(start);
+		if (before != null && before.getValue() > start) {
+			return true;
+		}
+		Long after = trips.higherKey(start);
+		return after != null && after < end;
+	}
+
+	/**
+	 * Adds a Trip to the timeline if it does not overlap any trip in it.
+	 * @param trip			Trip to add.
+	 * @return boolean		true if the trip was added, false if it overlaps.
+	 */
+	public boolean add(Trip trip) {
+		if (overlaps(trip)) {
+			return false;
+		}
+		trips.put(trip.getStartSecond(), trip.getEndSecond());
+		return true;
+	}
+
+	/**
+	 * Adds trips that are already sorted by start time and don't overlap each other or the timeline.
+	 * Each trip is only checked against the one before it, instead of against the timeline.
+	 * @param sortedTrips		Trips sorted by start time.
+	 * @throws IllegalArgumentException		If the trips are not sorted, overlap, or start before the end of the timeline.
+	 * 										None are added in that case.
+	 */
+	public void addAllSorted(List<Trip> sortedTrips) {
+		if (sortedTrips.isEmpty()) {
+			return;
+		}
+
+		// The first trip has to start after the last trip of the timeline ends.
+		long previousEnd = trips.isEmpty() ? Long.MIN_VALUE : trips.lastEntry().getValue();
+		for (Trip trip : sortedTrips) {
+			if (trip.getStartSecond() < previousEnd) {
+				throw new IllegalArgumentException("Trips are not sorted by start time or overlap: trip starting at "
+						+ trip.getStartTime() + " starts before the previous trip ends.");
+			}
+			previousEnd = trip.getEndSecond();
+		}
+
+		for (Trip trip : sortedTrips) {
+			trips.put(trip.getStartSecond(), trip.getEndSecond());
+		}
+	}
+
+	/**
+	 * Removes a Trip from the timeline. Trips in the timeline don't overlap, so a trip is found by its times.
+	 * @param trip			Trip with the same times as the trip to remove.
+	 * @return boolean		true if the trip was in the timeline.
+	 */
+	public boolean remove(Trip trip) {
+		Long end = trips.get(trip.getStartSecond());
+		if (end == null || end != trip.getEndSecond()) {
+			return false;
+		}
+		trips.remove(trip.getStartSecond());
+		return true;
+	}
+
+	/**
+	 * Getter for the number of trips in the timeline.
+	 * @return int		Number of trips.
+	 */
+	public int size() {
+		return trips.size();
+	}
+}
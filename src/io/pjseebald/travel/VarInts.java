@@ -0,0 +1,179 @@
+package io.pjseebald.travel;
+
+import java.util.Arrays;
+
+/**
+ * <h1>VarInts</h1>
+ * Variable-length encoding of longs: 7 bits per byte, low bits first, with the top bit of a byte set when more
+ * bytes follow. Small values take one byte instead of eight, so columns of small numbers (deltas, durations,
+ * miles) compress well. Signed values are zig-zag encoded first, so small negative values are small too.
+ *
+ * @author PaulSEEBALD
+ * @version 1.0
+ * @since 2026-10-19
+ */
+public final class VarInts {
+
+	private VarInts() {
+	}
+
+	/**
+	 * Maps a signed value to an unsigned one with small magnitudes first: 0, -1, 1, -2, 2, ... become 0, 1, 2, 3, 4, ...
+	 * @param value		Signed value.
+	 * @return long		Zig-zag encoded value.
+	 */
+	public static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	/**
+	 * Opposite of zigZag().
+	 * @param value		Zig-zag encoded value.
+	 * @return long		Signed value.
+	 */
+	public static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Number of bytes a value takes.
+	 * @param value		Value, taken as unsigned.
+	 * @return int		Bytes from 1 to 10.
+	 */
+	public static int size(long value) {
+		int bytes = 1;
+		while ((value & ~0x7FL) != 0) {
+			value >>>= 7;
+			bytes++;
+		}
+		return bytes;
+	}
+
+	/**
+	 * <h1>Writer</h1>
+	 * Growable buffer of encoded values.
+	 *
+	 * @author PaulSEEBALD
+	 * @version 1.0
+	 * @since 2026-10-19
+	 */
+	public static class Writer {
+
+		private byte[] bytes;
+		private int length = 0;
+
+		/**
+		 * Constructor for an empty buffer.
+		 * @param capacity		Bytes to start with.
+		 */
+		public Writer(int capacity) {
+			bytes = new byte[Math.max(capacity, 16)];
+		}
+
+		/**
+		 * Append a value, taken as unsigned.
+		 * @param value		Value to append.
+		 */
+		public void write(long value) {
+			if (length + 10 > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + 10));
+			}
+			while ((value & ~0x7FL) != 0) {
+				bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			bytes[length++] = (byte) value;
+		}
+
+		/**
+		 * Append a signed value, zig-zag encoded.
+		 * @param value		Value to append.
+		 */
+		public void writeSigned(long value) {
+			write(zigZag(value));
+		}
+
+		/**
+		 * Getter for the number of bytes written.
+		 * @return int		Length of the encoded values.
+		 */
+		public int length() {
+			return length;
+		}
+
+		/**
+		 * Copy of the encoded values.
+		 * @return byte[]		Exactly the bytes written.
+		 */
+		public byte[] toByteArray() {
+			return Arrays.copyOf(bytes, length);
+		}
+
+		/**
+		 * The buffer itself, only valid up to length(), for writing it out without a copy.
+		 * @return byte[]		Buffer of the encoded values.
+		 */
+		byte[] getBuffer() {
+			return bytes;
+		}
+	}
+
+	/**
+	 * <h1>Reader</h1>
+	 * Reads encoded values one after another from a byte array.
+	 *
+	 * @author PaulSEEBALD
+	 * @version 1.0
+	 * @since 2026-10-19
+	 */
+	public static class Reader {
+
+		private final byte[] bytes;
+		private int position;
+
+		/**
+		 * Constructor for a reader from a position of a byte array.
+		 * @param bytes			Encoded values.
+		 * @param position		Index of the first byte to read.
+		 */
+		public Reader(byte[] bytes, int position) {
+			this.bytes = bytes;
+			this.position = position;
+		}
+
+		/**
+		 * Read the next value, as unsigned.
+		 * @return long		Decoded value.
+		 */
+		public long read() {
+			byte b = bytes[position++];
+			if (b >= 0) {
+				// One byte, by far the most common.
+				return b;
+			}
+			long value = b & 0x7F;
+			int shift = 7;
+			while ((b = bytes[position++]) < 0) {
+				value |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			}
+			return value | (long) b << shift;
+		}
+
+		/**
+		 * Read the next value, zig-zag decoded.
+		 * @return long		Decoded signed value.
+		 */
+		public long readSigned() {
+			return unZigZag(read());
+		}
+
+		/**
+		 * Getter for the position of the next byte to read.
+		 * @return int		Index in the byte array.
+		 */
+		public int getPosition() {
+			return position;
+		}
+	}
+}
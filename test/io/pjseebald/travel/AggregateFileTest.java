@@ -0,0 +1,158 @@
+package io.pjseebald.travel;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AggregateFileTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	TripDistributions distributions;
+
+	@Before
+	public void setUpBeforeTest() throws Exception {
+		MainApp.setDrivers(new HashMap<>());
+
+		// Set trip requirements to standard
+		Trip.setTimeRange(0., 24.);
+		Trip.setDistanceRange(0., null);
+		Trip.setSpeedRange(5., 100.);
+
+		distributions = new TripDistributions();
+		MainApp.getDriverListeners().add(distributions);
+	}
+
+	@After
+	public void tearDownAfterTest() throws Exception {
+		MainApp.getDriverListeners().remove(distributions);
+		MainApp.setDrivers(new HashMap<>());
+	}
+
+	@Test
+	public void testDailyFilesRollUpToOneRun() throws Exception {
+		// Two weeks from Monday 2018-11-05, one run per day
+		Random random = new Random(46);
+		List<List<String[]> > days = new ArrayList<>();
+		for (int day = 0; day < 14; day++) {
+			days.add(randomDay(random, LocalDate.of(2018, 11, 5).plusDays(day)));
+		}
+		List<AggregateFile> dailyFiles = new ArrayList<>();
+		for (List<String[]> commands : days) {
+			runFresh(commands);
+			Path file = folder.newFile().toPath();
+			AggregateFile.of(MainApp.getDrivers(), distributions).write(file);
+			dailyFiles.add(AggregateFile.read(file));
+		}
+
+		// One run over all the days
+		List<String[]> all = new ArrayList<>();
+		for (List<String[]> commands : days) {
+			all.addAll(commands);
+		}
+		runFresh(all);
+		String expected = new DriverReport().getReport();
+
+		List<AggregateFile> months = AggregateFile.rollup(dailyFiles, AggregateFile.Period.MONTH);
+		assertEquals("Days of one month should roll up into one month.", 1, months.size());
+		AggregateFile month = months.get(0);
+		assertEquals("Period should start on the first day.", LocalDate.of(2018, 11, 5), month.getFrom());
+		assertEquals("Period should end on the last day.", LocalDate.of(2018, 11, 18), month.getTo());
+		assertEquals("Rolled up report is not the report of one run.", expected, new DriverReport().getReport(month.getAggregates()));
+		for (String name : MainApp.getDrivers().keySet()) {
+			assertEquals("Rolled up percentile is not the percentile of one run.", distributions.getSpeed(name, 0.95),
+					month.getDistributions().getSpeed(name, 0.95), 0);
+			assertEquals("Rolled up percentile is not the percentile of one run.", distributions.getDuration(name, 0.5),
+					month.getDistributions().getDuration(name, 0.5), 0);
+		}
+
+		// Days into weeks, written and read back, then weeks into the month
+		List<AggregateFile> weeks = AggregateFile.rollup(dailyFiles, AggregateFile.Period.WEEK);
+		assertEquals("Two weeks of days should roll up into two weeks.", 2, weeks.size());
+		assertEquals("Week is named incorrectly.", "2018-W45", AggregateFile.Period.WEEK.getName(weeks.get(0).getFrom()));
+		List<AggregateFile> weeklyFiles = new ArrayList<>();
+		for (AggregateFile week : weeks) {
+			Path file = folder.newFile().toPath();
+			week.write(file);
+			weeklyFiles.add(AggregateFile.read(file));
+		}
+		AggregateFile monthOfWeeks = AggregateFile.rollup(weeklyFiles, AggregateFile.Period.MONTH).get(0);
+		assertEquals("Month of weeks is not the month of days.", expected, new DriverReport().getReport(monthOfWeeks.getAggregates()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testFileAcrossPeriodsIsRejected() throws Exception {
+		// A week from Monday 2018-10-29 is in two months
+		List<String[]> commands = new ArrayList<>();
+		Random random = new Random(47);
+		for (int day = 0; day < 7; day++) {
+			commands.addAll(randomDay(random, LocalDate.of(2018, 10, 29).plusDays(day)));
+		}
+		runFresh(commands);
+		List<AggregateFile> files = new ArrayList<>();
+		files.add(AggregateFile.of(MainApp.getDrivers(), distributions));
+		assertEquals("Week should roll up into one week.", 1, AggregateFile.rollup(files, AggregateFile.Period.WEEK).size());
+		AggregateFile.rollup(files, AggregateFile.Period.MONTH);
+	}
+
+	@Test
+	public void testTripsWithoutDatesAreRejected() throws Exception {
+		List<String[]> commands = randomDay(new Random(53), LocalDate.of(2018, 10, 1));
+		commands.add(new String[] {"Trip", "Dan", "07:15", "07:45", "17.3"});
+		runFresh(commands);
+		try {
+			AggregateFile.of(MainApp.getDrivers(), distributions);
+			fail("Trip without a date should not be saved in a file of days.");
+		} catch (IllegalArgumentException e) {
+			assertTrue("Error should name the driver: " + e.getMessage(), e.getMessage().contains("Dan"));
+		}
+
+		// Only trips without dates, so not even a period to put them in
+		runFresh(Arrays.asList(new String[] {"Driver", "Dan"}, new String[] {"Trip", "Dan", "07:15", "07:45", "17.3"}));
+		try {
+			AggregateFile.of(MainApp.getDrivers(), distributions);
+			fail("File without dated trips should not be saved.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	private void runFresh(List<String[]> commands) {
+		MainApp.getDriverListeners().remove(distributions);
+		MainApp.setDrivers(new HashMap<>());
+		distributions = new TripDistributions();
+		MainApp.getDriverListeners().add(distributions);
+		CommandParser.parseCommands(commands);
+	}
+
+	private static List<String[]> randomDay(Random random, LocalDate date) {
+		List<String[]> commands = new ArrayList<>();
+		String[] names = {"Dan", "Lauren", "Kumi", "Alex"};
+		for (String name : names) {
+			commands.add(new String[] {"Driver", name});
+		}
+		LocalDateTime time = date.atTime(6, 0);
+		for (int i = 0; i < 8; i++) {
+			String name = names[random.nextInt(names.length)];
+			LocalDateTime end = time.plusMinutes(20 + random.nextInt(40));
+			commands.add(new String[] {"Trip", name, time.toString().substring(0, 16), end.toLocalTime().toString(),
+					(10 + random.nextInt(23)) + "." + random.nextInt(10)});
+			time = end.plusMinutes(random.nextInt(60));
+		}
+		return commands;
+	}
+}
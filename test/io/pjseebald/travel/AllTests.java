@@ -1,19 +1,33 @@
-package io.pjseebald.travel;
-
-import org.junit.runner.JUnitCore;
-import org.junit.runner.RunWith;
-import org.junit.runners.Suite;
-import org.junit.runners.Suite.SuiteClasses;
-
-@RunWith(Suite.class)
-@SuiteClasses({UnitConversionTest.class, TripTest.class, DriverTest.class, DriverReportTest.class, CommandParserTest.class, FileParserTest.class })
-
-public class AllTests {
-
-	public static void main(String[] args) throws Exception {
-		System.out.println("Running all unit tests...");
-		JUnitCore.main("io.pjseebald.travel.AllTests");
-	}
-
-
-}
+package io.pjseebald.travel;
+
+import org.junit.runner.JUnitCore;
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({UnitConversionTest.class, TripTest.class, DriverTest.class, DriverReportTest.class, CommandParserTest.class, FileParserTest.class, 
+	FixedPointTest.class, TripIntervalIndexTest.class, 
+	DayPartitionsTest.class, ReportCacheTest.class, RankIndexTest.class, 
+	ExternalReportTest.class, DriverRegistryTest.class, TripDistributionsTest.class, 
+	HeavyHittersTest.class, IngestPipelineTest.class, DriverSnapshotsTest.class, 
+	DriverHistoryTest.class, 
+	TripSegmentTest.class, 
+	CompressedTripsTest.class, 
+	ReportServerTest.class, 
+	IngestCoordinatorTest.class, 
+	AggregateFileTest.class, 
+	StageEventsTest.class, 
+	TripDeduplicatorTest.class, 
+	FleetTest.class, 
+	AnomalyDetectorTest.class })
+
+public class AllTests {
+
+	public static void main(String[] args) throws Exception {
+		System.out.println("Running all unit tests...");
+		JUnitCore.main("io.pjseebald.travel.AllTests");
+	}
+
+
+}
@@ -0,0 +1,108 @@
+package io.pjseebald.travel;
+
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+import java.util.HashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AnomalyDetectorTest {
+
+	private StringWriter output;
+	private AnomalyDetector detector;
+
+	@Before
+	public void setUpBeforeTest() throws Exception {
+		MainApp.setDrivers(new HashMap<>());
+
+		// Set trip requirements to standard
+		Trip.setTimeRange(0., 24.);
+		Trip.setDistanceRange(0., null);
+		Trip.setSpeedRange(5., 100.);
+
+		output = new StringWriter();
+		detector = new AnomalyDetector(output);
+		MainApp.getDriverListeners().add(detector);
+		CommandParser.parseCommand(new String[] {"Driver", "Dan"});
+	}
+
+	@After
+	public void tearDownAfterTest() throws Exception {
+		MainApp.getDriverListeners().remove(detector);
+		MainApp.setDrivers(new HashMap<>());
+	}
+
+	@Test
+	public void testSteadyTripsAreNotAnomalies() {
+		// A day apart, 34 minutes and 15 to 18 miles each
+		for (int day = 1; day <= 20; day++) {
+			addTrip(String.format("2018-03-%02dT07:%02d", day, day % 5), "07:" + (34 + day % 5), 15 + (day % 4) + ".0");
+		}
+		assertEquals("Steady trips should have no anomalies.", "Anomalies: 0", detector.getSummary());
+		assertEquals("Nothing should be written.", "", output.toString());
+	}
+
+	@Test
+	public void testSpikes() {
+		for (int day = 1; day <= 10; day++) {
+			addTrip(String.format("2018-03-%02dT07:00", day), "07:30", "15.0");
+		}
+		// 90 mph, within the static limits
+		addTrip("2018-03-11T07:00", "07:30", "45.0");
+		assertEquals("Trip three times the usual speed should be a spike.", 1, detector.count(AnomalyDetector.Kind.SPEED_SPIKE));
+		assertTrue("Spike should be written as it is added: " + output, output.toString().startsWith("SPEED_SPIKE\tDan\t2018-03-11T07:00\t2018-03-11T07:30\t45.0\t"));
+
+		// Four times the usual minutes, at the usual speed
+		addTrip("2018-03-12T07:00", "09:00", "60.0");
+		assertEquals("Trip four times the usual minutes should be a spike.", 1, detector.count(AnomalyDetector.Kind.DURATION_SPIKE));
+		assertEquals("Speed spike should not be counted again.", 1, detector.count(AnomalyDetector.Kind.SPEED_SPIKE));
+	}
+
+	@Test
+	public void testSpikesNeedWarmup() {
+		addTrip("2018-03-01T07:00", "07:30", "15.0");
+		addTrip("2018-03-02T07:00", "07:30", "45.0");
+		assertEquals("Spikes should not be checked before the averages have settled.", 0, detector.count(AnomalyDetector.Kind.SPEED_SPIKE));
+	}
+
+	@Test
+	public void testTimesOfTrips() {
+		addTrip("2018-03-01T07:00", "07:30", "15.0");
+		addTrip("2018-03-01T07:00", "07:30", "16.0");
+		assertEquals("Same window as the last trip should be found.", 1, detector.count(AnomalyDetector.Kind.DUPLICATE_WINDOW));
+		addTrip("2018-03-01T07:20", "07:50", "15.0");
+		assertEquals("Trip starting before the last one ended should be found.", 1, detector.count(AnomalyDetector.Kind.OUT_OF_ORDER));
+		addTrip("2018-05-01T07:20", "07:50", "15.0");
+		assertEquals("Trip two months after the last one should be found.", 1, detector.count(AnomalyDetector.Kind.LONG_GAP));
+		assertEquals("Each anomaly should be written.", 3, output.toString().split(System.lineSeparator()).length);
+
+		// Trips without dates can come in any order
+		CommandParser.parseCommand(new String[] {"Driver", "Jane"});
+		CommandParser.parseCommand(new String[] {"Trip", "Jane", "12:00", "12:30", "15.0"});
+		CommandParser.parseCommand(new String[] {"Trip", "Jane", "07:00", "07:30", "15.0"});
+		assertEquals("Trips without dates should not be out of order.", 1, detector.count(AnomalyDetector.Kind.OUT_OF_ORDER));
+	}
+
+	@Test
+	public void testTripPastMidnightEndsOnItsDate() {
+		addTrip("2018-03-01T23:50", "00:20", "15.0");
+		addTrip("2018-03-01T23:50", "00:20", "15.0");
+		assertTrue("End of a trip past midnight should have the next day: " + output,
+				output.toString().startsWith("DUPLICATE_WINDOW\tDan\t2018-03-01T23:50\t2018-03-02T00:20\t15.0\t"));
+	}
+
+	@Test
+	public void testRenamedDriverKeepsItsTrips() {
+		addTrip("2018-03-01T07:00", "07:30", "15.0");
+		CommandParser.parseCommand(new String[] {"Rename", "Dan", "->", "Daniel"});
+		CommandParser.parseCommand(new String[] {"Trip", "Daniel", "2018-03-01T07:00", "07:30", "15.0"});
+		assertEquals("Renamed driver should keep the window of its last trip.", 1, detector.count(AnomalyDetector.Kind.DUPLICATE_WINDOW));
+	}
+
+	private static void addTrip(String start, String end, String miles) {
+		CommandParser.parseCommand(new String[] {"Trip", "Dan", start, end, miles});
+	}
+}
@@ -1,170 +1,404 @@
-package io.pjseebald.travel;
-
-import static org.junit.Assert.*;
-
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
-
-import org.junit.Before;
-import org.junit.Test;
-
-public class CommandParserTest {
-
-	@Before
-	public void setUpBeforeTest() throws Exception {
-		Map<String, Driver> drivers = MainApp.getDrivers();
-		if (drivers != null) {
-			drivers.clear();
-		}
-		
-		// Set trip requirements to standard
-		Trip.setTimeRange(0., 60.*3600.);
-		Trip.setDistanceRange(0., null);
-		Trip.setSpeedRange(5., 100.);
-	}
-
-	@Test
-	public void testParseCommandDriver() {
-		
-		String[] driverNames = {"Dan", "Jane", "Tim"};
-		
-		this.addDrivers(driverNames);
-
-		Map<String, Driver> drivers = MainApp.getDrivers();
-		assertEquals("Size of drivers map is incorrect. Expected: " 
-				+ driverNames.length + "; returned: " + drivers.size(), driverNames.length, drivers.size());
-	}
-	
-	@Test
-	public void testParseCommandTrip() {
-		String[] driverNames = {"Dan", "Jane", "Tim"};
-		
-		this.addDrivers(driverNames);
-		
-		String[][] trips = {{"trip", "Dan", "11:15", "11:45", "32.3"}, {"trip", "Dan", "18:04", "19:38", "115.6"}, {"trip", "Jane", "01:55", "03:20", "55.4"}};
-		// Get number of trips for each driver
-		int[] tripNums = new int[driverNames.length];
-		for (int i = 0; i < trips.length; i++) {
-			String name = trips[i][1];
-			
-			// Inefficient but acceptable for a small unit test
-			int j = Arrays.asList(driverNames).indexOf(name);
-			tripNums[j]++;
-		}
-		
-		this.addTrips(trips);
-		
-		Map<String, Driver> drivers = MainApp.getDrivers();
-		
-		for (int i = 0; i < driverNames.length; i++) {
-			String name = driverNames[i];
-			Driver driver = drivers.get(name);
-			assertEquals("MainApp driver " + name + " trips number is incorrect. Expected: " + tripNums[i] + "; returned: " + driver.getTrips().size(), 
-					tripNums[i], driver.getTrips().size());
-		}
-		
-		
-	}
-	
-	@Test
-	public void testParseCommandsCorrectOrder() {
-		String[] driverNames = {"Dan", "Jane"};
-		String[][] trips = {{"trip", "Dan", "11:15", "11:45", "32.3"}, {"trip", "Jane", "01:55", "03:20", "55.4"}};
-		
-		this.addDrivers(new String[] {driverNames[0]});
-		this.addTrips(new String[][] {trips[0]});
-		this.addDrivers(new String[] {driverNames[1]});
-		this.addTrips(new String[][] {trips[1]});
-		
-		Map<String, Driver> drivers = MainApp.getDrivers();
-		assertTrue("MainApp drivers were not added in order. Expected 2 drivers; returned: " + drivers.keySet().size(), 
-				drivers.keySet().size() == 2);
-		
-		// Get number of trips for each driver
-		Map<String, Integer> tripNums = new HashMap<>();
-		for (int i = 0; i < trips.length; i++) {
-			String name = trips[i][1];
-			int baseValue = 0;
-			if (tripNums.containsKey(name)) {
-				baseValue = tripNums.get(name);
-			}
-			
-			tripNums.put(name, baseValue+1);
-		}
-		
-		for (String name : drivers.keySet()) {
-			Driver driver = drivers.get(name);
-			assertTrue("Number of trips for driver " + name + " did not match. Expected: " 
-					+ tripNums.get(name) + "; returned: " + driver.getTrips().size(), 
-					driver.getTrips().size() == tripNums.get(name));
-		}
-	}
-	
-	@Test(expected=NullPointerException.class)
-	public void testParseCommandsIncorrectOrder() {
-		String[] driverNames = {"Dan", "Jane"};
-		String[][] trips = {{"Trip", "Dan", "11:15", "11:45", "32.3"}, {"trip", "Jane", "01:55", "03:20", "155.4"}};
-
-		this.addDrivers(new String[] {driverNames[0]});
-		this.addTrips(new String[][] {trips[1]});
-		
-		fail("MainApp expected to throw null pointer exception due to adding trip to driver that doesn't exist.");
-	}
-	
-	@Test(expected=ArrayIndexOutOfBoundsException.class)
-	public void testIncorrentNumberOfTripParameters() {
-		String[] driverNames = {"Dan", "Jane"};
-		String[][] trips = {{"Trip", "Dan", "11:15", "11:45", "32.3"}, {"trip", "Jane", "01:55", "03:20"}};
-		
-		this.addDrivers(driverNames);
-		this.addTrips(trips);
-		
-		fail("App expected to throw index out of bounds exception when trying to reference parameter that doesn't exist.");
-	}
-	
-	@Test
-	public void testParseCommandDriverNameWithSpaces() {
-	
-		String name = "Dan the Mighty";
-		String[] driverName = name.split(" ");
-		String[] fullDriverCommand = new String[driverName.length+1];
-		fullDriverCommand[0] = "driver";
-		for (int i=0; i < driverName.length; i++) {
-			fullDriverCommand[i+1] = driverName[i];
-		}
-		CommandParser.parseCommand(fullDriverCommand);
-		
-		Map<String, Driver> drivers = MainApp.getDrivers();
-		
-		String[] trip = {"Trip", "Dan", "the", "Mighty", "11:15", "11:45", "32.3"};
-		CommandParser.parseCommand(trip);
-		
-		//Map<String, Driver> drivers = MainApp.getDrivers();
-		Driver d1 = drivers.get(name);
-		
-		assertNotNull("MainApp error adding driver with spaces in name: map returned null driver from name.", d1);
-		
-		assertTrue("MainApp error adding trip to driver with spaces in name. Expected 1; returned: " + d1.getTrips().size(), 
-				d1.getTrips().size() == 1);
-		
-	}
-	
-	@Test(expected=IllegalStateException.class)
-	public void testAddIncorrectNamesAsDrivers() {
-		String[] driverNames = {"Dan", "Jane", "J1"};
-		this.addDrivers(driverNames);
-	}
-	
-	private void addDrivers(String[] driverNames) {
-		for (String name : driverNames) {
-			CommandParser.parseCommand(new String[] {"driver", name});
-		}
-	}
-	
-	private void addTrips(String[][] trips) {
-		for (String[] trip : trips) {
-			CommandParser.parseCommand(trip);
-		}
-	}
-}
+package io.pjseebald.travel;
+
+import static org.junit.Assert.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CommandParserTest {
+
+	@Before
+	public void setUpBeforeTest() throws Exception {
+		Map<String, Driver> drivers = MainApp.getDrivers();
+		if (drivers != null) {
+			drivers.clear();
+		}
+		
+		// Set trip requirements to standard
+		Trip.setTimeRange(0., 60.*3600.);
+		Trip.setDistanceRange(0., null);
+		Trip.setSpeedRange(5., 100.);
+	}
+
+	@Test
+	public void testParseCommandDriver() {
+		
+		String[] driverNames = {"Dan", "Jane", "Tim"};
+		
+		this.addDrivers(driverNames);
+
+		Map<String, Driver> drivers = MainApp.getDrivers();
+		assertEquals("Size of drivers map is incorrect. Expected: " 
+				+ driverNames.length + "; returned: " + drivers.size(), driverNames.length, drivers.size());
+	}
+	
+	@Test
+	public void testParseCommandTrip() {
+		String[] driverNames = {"Dan", "Jane", "Tim"};
+		
+		this.addDrivers(driverNames);
+		
+		String[][] trips = {{"trip", "Dan", "11:15", "11:45", "32.3"}, {"trip", "Dan", "18:04", "19:38", "115.6"}, {"trip", "Jane", "01:55", "03:20", "55.4"}};
+		// Get number of trips for each driver
+		int[] tripNums = new int[driverNames.length];
+		for (int i = 0; i < trips.length; i++) {
+			String name = trips[i][1];
+			
+			// Inefficient but acceptable for a small unit test
+			int j = Arrays.asList(driverNames).indexOf(name);
+			tripNums[j]++;
+		}
+		
+		this.addTrips(trips);
+		
+		Map<String, Driver> drivers = MainApp.getDrivers();
+		
+		for (int i = 0; i < driverNames.length; i++) {
+			String name = driverNames[i];
+			Driver driver = drivers.get(name);
+			assertEquals("MainApp driver " + name + " trips number is incorrect. Expected: " + tripNums[i] + "; returned: " + driver.getTrips().size(), 
+					tripNums[i], driver.getTrips().size());
+		}
+		
+		
+	}
+	
+	@Test
+	public void testParseCommandsCorrectOrder() {
+		String[] driverNames = {"Dan", "Jane"};
+		String[][] trips = {{"trip", "Dan", "11:15", "11:45", "32.3"}, {"trip", "Jane", "01:55", "03:20", "55.4"}};
+		
+		this.addDrivers(new String[] {driverNames[0]});
+		this.addTrips(new String[][] {trips[0]});
+		this.addDrivers(new String[] {driverNames[1]});
+		this.addTrips(new String[][] {trips[1]});
+		
+		Map<String, Driver> drivers = MainApp.getDrivers();
+		assertTrue("MainApp drivers were not added in order. Expected 2 drivers; returned: " + drivers.keySet().size(), 
+				drivers.keySet().size() == 2);
+		
+		// Get number of trips for each driver
+		Map<String, Integer> tripNums = new HashMap<>();
+		for (int i = 0; i < trips.length; i++) {
+			String name = trips[i][1];
+			int baseValue = 0;
+			if (tripNums.containsKey(name)) {
+				baseValue = tripNums.get(name);
+			}
+			
+			tripNums.put(name, baseValue+1);
+		}
+		
+		for (String name : drivers.keySet()) {
+			Driver driver = drivers.get(name);
+			assertTrue("Number of trips for driver " + name + " did not match. Expected: " 
+					+ tripNums.get(name) + "; returned: " + driver.getTrips().size(), 
+					driver.getTrips().size() == tripNums.get(name));
+		}
+	}
+	
+	@Test(expected=NullPointerException.class)
+	public void testParseCommandsIncorrectOrder() {
+		String[] driverNames = {"Dan", "Jane"};
+		String[][] trips = {{"Trip", "Dan", "11:15", "11:45", "32.3"}, {"trip", "Jane", "01:55", "03:20", "155.4"}};
+
+		this.addDrivers(new String[] {driverNames[0]});
+		this.addTrips(new String[][] {trips[1]});
+		
+		fail("MainApp expected to throw null pointer exception due to adding trip to driver that doesn't exist.");
+	}
+	
+	@Test(expected=ArrayIndexOutOfBoundsException.class)
+	public void testIncorrentNumberOfTripParameters() {
+		String[] driverNames = {"Dan", "Jane"};
+		String[][] trips = {{"Trip", "Dan", "11:15", "11:45", "32.3"}, {"trip", "Jane", "01:55", "03:20"}};
+		
+		this.addDrivers(driverNames);
+		this.addTrips(trips);
+		
+		fail("App expected to throw index out of bounds exception when trying to reference parameter that doesn't exist.");
+	}
+	
+	@Test
+	public void testParseCommandDriverNameWithSpaces() {
+	
+		String name = "Dan the Mighty";
+		String[] driverName = name.split(" ");
+		String[] fullDriverCommand = new String[driverName.length+1];
+		fullDriverCommand[0] = "driver";
+		for (int i=0; i < driverName.length; i++) {
+			fullDriverCommand[i+1] = driverName[i];
+		}
+		CommandParser.parseCommand(fullDriverCommand);
+		
+		Map<String, Driver> drivers = MainApp.getDrivers();
+		
+		String[] trip = {"Trip", "Dan", "the", "Mighty", "11:15", "11:45", "32.3"};
+		CommandParser.parseCommand(trip);
+		
+		//Map<String, Driver> drivers = MainApp.getDrivers();
+		Driver d1 = drivers.get(name);
+		
+		assertNotNull("MainApp error adding driver with spaces in name: map returned null driver from name.", d1);
+		
+		assertTrue("MainApp error adding trip to driver with spaces in name. Expected 1; returned: " + d1.getTrips().size(), 
+				d1.getTrips().size() == 1);
+		
+	}
+	
+	@Test(expected=IllegalStateException.class)
+	public void testAddIncorrectNamesAsDrivers() {
+		String[] driverNames = {"Dan", "Jane", "J1"};
+		this.addDrivers(driverNames);
+	}
+	
+	@Test
+	public void testLenientParseCommandsRecordsRejects() {
+		List<String[]> commands = new ArrayList<>();
+		commands.add(new String[] {"Driver", "Dan"});
+		commands.add(new String[] {"Driver", "J1"});									// 2: invalid name
+		commands.add(new String[] {"Walk", "Dan"});										// 3: unknown command
+		commands.add(new String[] {"Trip", "Dan", "11:15", "11:45"});					// 4: missing miles
+		commands.add(new String[] {"Trip", "Dan", "11:15", "25:45", "32.3"});			// 5: invalid time
+		commands.add(new String[] {"Trip", "Dan", "11:15", "11:45", "3x.3"});			// 6: invalid distance
+		commands.add(new String[] {"Trip", "Dan", "11:45", "11:15", "32.3"});			// 7: impossible trip
+		commands.add(new String[] {"Trip", "Jane", "01:55", "03:20", "55.4"});			// 8: unknown driver
+		commands.add(new String[] {""});												// blank line, skipped
+		commands.add(new String[] {"Trip", "Dan", "11:15", "11:45", "32.3"});
+		
+		IngestErrors errors = new IngestErrors();
+		CommandParser.parseCommands(commands, errors);
+		
+		int[] expectedLines = {2, 3, 4, 5, 6, 7, 8};
+		RejectReason[] expectedReasons = {RejectReason.INVALID_NAME, RejectReason.UNKNOWN_COMMAND, RejectReason.MISSING_PARAMETERS, 
+				RejectReason.INVALID_TIME, RejectReason.INVALID_DISTANCE, RejectReason.IMPOSSIBLE_TRIP, RejectReason.UNKNOWN_DRIVER};
+		
+		assertEquals("Number of rejected lines is incorrect. Expected: " + expectedLines.length + "; returned: " + errors.size(), 
+				expectedLines.length, errors.size());
+		for (int i = 0; i < expectedLines.length; i++) {
+			assertEquals("Rejected line number is incorrect.", expectedLines[i], errors.getLineNumber(i));
+			assertEquals("Reject reason for line " + expectedLines[i] + " is incorrect.", expectedReasons[i], errors.getReason(i));
+		}
+		
+		// Good lines after the bad ones are still executed
+		Driver dan = MainApp.getDrivers().get("Dan");
+		assertEquals("Trip after rejected lines was not added. Expected: 1; returned: " + dan.getTrips().size(), 
+				1, dan.getTrips().size());
+	}
+	
+	@Test
+	public void testLenientParseCommandNameWithSpaces() {
+		assertNull("Lenient driver command with spaces in name was rejected.", 
+				CommandParser.parseCommandLenient(new String[] {"driver", "Dan", "the", "Mighty"}));
+		assertNull("Lenient trip command with spaces in name was rejected.", 
+				CommandParser.parseCommandLenient(new String[] {"Trip", "Dan", "the", "Mighty", "11:15", "11:45", "32.3"}));
+		
+		Driver driver = MainApp.getDrivers().get("Dan the Mighty");
+		assertNotNull("Lenient driver command with spaces in name was not added.", driver);
+		assertEquals("Lenient trip was not added to driver with spaces in name.", 1, driver.getTrips().size());
+	}
+	
+	@Test
+	public void testRetractCommands() {
+		this.addDrivers(new String[] {"Dan", "Alex"});
+		this.addTrips(new String[][] {
+			{"Trip", "Dan", "07:15", "07:45", "17.3"},
+			{"Trip", "Dan", "06:12", "06:32", "21.8"},
+			{"Trip", "Alex", "12:01", "13:16", "42.0"}});
+		
+		// A repeated Driver line keeps the driver and its trips
+		CommandParser.parseCommand(new String[] {"Driver", "Dan"});
+		assertEquals("Repeated driver line dropped the driver's trips.", 2, MainApp.getDrivers().get("Dan").getTrips().size());
+		
+		assertNull("Cancel of an existing trip was rejected.", 
+				CommandParser.parseCommandLenient(new String[] {"Cancel", "Dan", "06:12", "06:32", "21.8"}));
+		assertEquals("Cancelled trip is still in the totals.", 17.3, MainApp.getDrivers().get("Dan").getDistanceTraveled(), 0.0001);
+		assertEquals("Cancel of a trip that was already cancelled was not rejected.", RejectReason.UNKNOWN_TRIP, 
+				CommandParser.parseCommandLenient(new String[] {"Cancel", "Dan", "06:12", "06:32", "21.8"}));
+		
+		assertNull("Correction of an existing trip was rejected.", CommandParser.parseCommandLenient(
+				new String[] {"Correct", "Dan", "07:15", "07:45", "17.3", "07:15", "07:55", "20.3"}));
+		Driver dan = MainApp.getDrivers().get("Dan");
+		assertEquals("Corrected trip should replace the trip.", 1, dan.getTrips().size());
+		assertEquals("Corrected miles are incorrect.", 20.3, dan.getDistanceTraveled(), 0.0001);
+		assertEquals("Corrected hours are incorrect.", 40. / 60, dan.getTimeTraveled(), 0.0001);
+		
+		assertNull("Rename to a new name was rejected.", 
+				CommandParser.parseCommandLenient(new String[] {"Rename", "Dan", "->", "Dan", "the", "Mighty"}));
+		assertFalse("Old name of a renamed driver is still a driver.", MainApp.getDrivers().containsKey("Dan"));
+		assertSame("Renamed driver is not under its new name.", dan, MainApp.getDrivers().get("Dan the Mighty"));
+		assertEquals("Renamed driver's name is incorrect.", "Dan the Mighty", dan.getName());
+		assertEquals("Rename to a taken name was not rejected.", RejectReason.DUPLICATE_DRIVER, 
+				CommandParser.parseCommandLenient(new String[] {"Rename", "Alex", "->", "Dan", "the", "Mighty"}));
+		assertEquals("Rename without a new name was not rejected.", RejectReason.MISSING_PARAMETERS, 
+				CommandParser.parseCommandLenient(new String[] {"Rename", "Alex", "->"}));
+		
+		assertNull("Removing a driver was rejected.", CommandParser.parseCommandLenient(new String[] {"Remove", "Alex"}));
+		assertEquals("Removing an unknown driver was not rejected.", RejectReason.UNKNOWN_DRIVER, 
+				CommandParser.parseCommandLenient(new String[] {"Remove", "Alex"}));
+		assertEquals("Report after the corrections is incorrect.", "Dan the Mighty: 20 miles @ 30 mph" + System.lineSeparator(), 
+				new DriverReport().getReport());
+	}
+	
+	@Test
+	public void testCorrectionOutOfRangeKeepsTheTrip() {
+		this.addDrivers(new String[] {"Dan"});
+		this.addTrips(new String[][] {
+			{"Trip", "Dan", "07:15", "07:45", "17.3"},
+			{"Trip", "Dan", "09:00", "09:30", "10.0"}});
+		Driver dan = MainApp.getDrivers().get("Dan");
+		List<Trip> before = new ArrayList<>(dan.getTrips());
+		
+		// 140 mph is over the speed range
+		assertEquals("Correction too fast for the requirements was not rejected.", RejectReason.OUT_OF_RANGE_TRIP, 
+				CommandParser.parseCommandLenient(new String[] {"Correct", "Dan", "07:15", "07:45", "17.3", "07:15", "07:45", "70.0"}));
+		assertEquals("Trip of a rejected correction was lost.", 2, dan.getTrips().size());
+		assertTrue("Trip of a rejected correction was moved.", before.get(0).isSameTrip(dan.getTrips().get(0)));
+		assertEquals("Totals changed after a rejected correction.", 27.3, dan.getDistanceTraveled(), 0.0001);
+		try {
+			CommandParser.parseCommand(new String[] {"Correct", "Dan", "07:15", "07:45", "17.3", "07:15", "07:45", "70.0"});
+			fail("Rejected correction should stop the app outside lenient mode.");
+		} catch (IllegalStateException e) {
+			assertEquals("Trip of a rejected correction was lost.", 2, dan.getTrips().size());
+		}
+	}
+	
+	@Test
+	public void testOverlappingCorrectionKeepsTheTrip() {
+		List<DriverListener> listeners = MainApp.getDriverListeners();
+		int[] changes = new int[1];
+		DriverListener counter = new DriverListener() {
+			@Override
+			public void tripAdded(Driver driver, Trip trip) {
+				changes[0]++;
+			}
+
+			@Override
+			public void tripRemoved(Driver driver, Trip trip) {
+				changes[0]++;
+			}
+		};
+		Driver.setRejectOverlaps(true);
+		try {
+			this.addDrivers(new String[] {"Dan"});
+			this.addTrips(new String[][] {
+				{"Trip", "Dan", "07:15", "07:45", "17.3"},
+				{"Trip", "Dan", "09:00", "09:30", "10.0"},
+				{"Trip", "Dan", "11:00", "11:30", "12.0"}});
+			Driver dan = MainApp.getDrivers().get("Dan");
+			List<Trip> before = new ArrayList<>(dan.getTrips());
+			listeners.add(counter);
+			
+			assertEquals("Correction overlapping another trip was not rejected.", RejectReason.OVERLAPPING_TRIP, 
+					CommandParser.parseCommandLenient(new String[] {"Correct", "Dan", "07:15", "07:45", "17.3", "08:45", "09:15", "17.3"}));
+			assertEquals("Listeners were told of a rejected correction.", 0, changes[0]);
+			assertEquals("Trip of a rejected correction was lost.", 3, dan.getTrips().size());
+			for (int i = 0; i < before.size(); i++) {
+				assertTrue("Trips are not in the order they were added.", before.get(i).isSameTrip(dan.getTrips().get(i)));
+			}
+			assertEquals("Totals changed after a rejected correction.", 39.3, dan.getDistanceTraveled(), 0.0001);
+			
+			// The trip is back in the timeline, and a correction only overlapping the trip it corrects is accepted
+			assertEquals("Trip of a rejected correction is not in the timeline.", RejectReason.OVERLAPPING_TRIP, 
+					CommandParser.parseCommandLenient(new String[] {"Trip", "Dan", "07:30", "08:00", "10.0"}));
+			assertNull("Correction overlapping only its own trip was rejected.", 
+					CommandParser.parseCommandLenient(new String[] {"Correct", "Dan", "07:15", "07:45", "17.3", "07:30", "08:00", "17.3"}));
+			assertEquals("Listeners were not told of the correction.", 2, changes[0]);
+			assertEquals("Correction did not replace the trip.", 3, dan.getTrips().size());
+		} finally {
+			listeners.remove(counter);
+			Driver.setRejectOverlaps(false);
+		}
+	}
+	
+	@Test
+	public void testRetractedIndexesMatchRebuiltIndexes() {
+		// Indexes kept up to date by the deltas of each command, against indexes built from the drivers that are left
+		List<DriverListener> listeners = MainApp.getDriverListeners();
+		TripIntervalIndex tripIndex = new TripIntervalIndex();
+		DayPartitions dayPartitions = new DayPartitions();
+		RankIndex rankIndex = new RankIndex();
+		ReportCache reportCache = new ReportCache();
+		listeners.addAll(Arrays.asList(tripIndex, dayPartitions, rankIndex, reportCache));
+		try {
+			Random random = new Random(40);
+			List<String[]> added = new ArrayList<>();
+			for (int i = 0; i < 3000; i++) {
+				String name = "Driver" + (char) ('A' + random.nextInt(8));
+				int pick = random.nextInt(20);
+				if (pick < 2) {
+					CommandParser.parseCommandLenient(new String[] {"Driver", name});
+				} else if (pick == 2) {
+					CommandParser.parseCommandLenient(new String[] {"Remove", name});
+				} else if (pick == 3) {
+					String newName = "Driver" + (char) ('A' + random.nextInt(8));
+					CommandParser.parseCommandLenient(new String[] {"Rename", name, "->", newName});
+				} else if (pick < 8 && !added.isEmpty()) {
+					// Cancel or correct a trip that was added before, which may have been removed since
+					String[] trip = added.get(random.nextInt(added.size()));
+					String[] command = pick < 6 ? new String[] {"Cancel", trip[1], trip[2], trip[3], trip[4]}
+							: new String[] {"Correct", trip[1], trip[2], trip[3], trip[4], trip[2], trip[3], "" + random.nextInt(20)};
+					CommandParser.parseCommandLenient(command);
+				} else {
+					int start = random.nextInt(22 * 60);
+					int end = start + 10 + random.nextInt(90);
+					String[] trip = {"Trip", name, String.format("2018-11-%02dT%02d:%02d", 1 + random.nextInt(5), start / 60, start % 60),
+							String.format("%02d:%02d", (end / 60) % 24, end % 60), "" + (1 + random.nextInt(30))};
+					if (CommandParser.parseCommandLenient(trip) == null) {
+						added.add(trip);
+					}
+				}
+			}
+			
+			TripIntervalIndex rebuiltTrips = new TripIntervalIndex();
+			DayPartitions rebuiltDays = new DayPartitions();
+			for (Driver driver : MainApp.getDrivers().values()) {
+				for (Trip trip : driver.getTrips()) {
+					rebuiltTrips.add(driver.getName(), trip);
+					rebuiltDays.add(driver.getName(), trip);
+				}
+			}
+			RankIndex rebuiltRanks = new RankIndex(MainApp.getDrivers());
+			
+			for (int hour = 0; hour < 24; hour += 3) {
+				LocalTime from = LocalTime.of(hour, 0);
+				LocalTime to = LocalTime.of(hour + 2, 30);
+				assertEquals("Drivers in window are different after retractions.", rebuiltTrips.getDrivers(from, to), tripIndex.getDrivers(from, to));
+				assertEquals("Trips in window are different after retractions.", rebuiltTrips.getTripCount(from, to), tripIndex.getTripCount(from, to));
+				assertEquals("Miles in window are different after retractions.", 
+						rebuiltTrips.getDistanceTraveled(from, to), tripIndex.getDistanceTraveled(from, to), 0.001);
+			}
+			assertEquals("Days are different after retractions.", rebuiltDays.getDays().keySet(), dayPartitions.getDays().keySet());
+			DriverReport driverReport = new DriverReport();
+			LocalDate first = LocalDate.of(2018, 11, 1);
+			LocalDate last = LocalDate.of(2018, 11, 6);
+			assertEquals("Day totals are different after retractions.", driverReport.getReport(rebuiltDays.getAggregates(first, last)), 
+					driverReport.getReport(dayPartitions.getAggregates(first, last)));
+			assertEquals("Ranking is different after retractions.", rebuiltRanks.getPage(1, rebuiltRanks.size()), rankIndex.getPage(1, rankIndex.size()));
+			assertEquals("Cached report is different after retractions.", driverReport.getReport(), reportCache.getReport());
+		} finally {
+			listeners.removeAll(Arrays.asList(tripIndex, dayPartitions, rankIndex, reportCache));
+		}
+	}
+	
+	private void addDrivers(String[] driverNames) {
+		for (String name : driverNames) {
+			CommandParser.parseCommand(new String[] {"driver", name});
+		}
+	}
+	
+	private void addTrips(String[][] trips) {
+		for (String[] trip : trips) {
+			CommandParser.parseCommand(trip);
+		}
+	}
+}
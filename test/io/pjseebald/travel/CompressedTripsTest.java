@@ -0,0 +1,136 @@
+package io.pjseebald.travel;
+
+import static org.junit.Assert.*;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompressedTripsTest {
+
+	@Before
+	public void setUpBeforeTest() throws Exception {
+		// Set trip requirements to standard
+		Trip.setTimeRange(0., 24.);
+		Trip.setDistanceRange(0., null);
+		Trip.setSpeedRange(5., 100.);
+	}
+
+	@Test
+	public void testTripsReadBack() {
+		Random random = new Random(43);
+		List<Trip> expected = randomTrips(random, 1000);
+		// Trips that don't start on a minute are kept in seconds.
+		expected.add(Trip.fromScaled(LocalTime.of(7, 15, 30), LocalTime.of(7, 45, 10), FixedPoint.parse("17.3")));
+		expected.add(Trip.fromScaled(LocalDateTime.of(1969, 12, 31, 23, 50, 1), LocalDateTime.of(1970, 1, 1, 0, 20), FixedPoint.parse("8")));
+
+		CompressedTrips trips = new CompressedTrips();
+		trips.addAll(expected);
+		assertEquals("Number of trips is incorrect.", expected.size(), trips.size());
+		Iterator<Trip> iterator = trips.iterator();
+		for (int i = 0; i < expected.size(); i++) {
+			assertTrue("Trip " + i + " was read back differently.", expected.get(i).isSameTrip(iterator.next()));
+		}
+		for (int check = 0; check < 100; check++) {
+			int i = random.nextInt(expected.size());
+			assertTrue("Trip " + i + " was read back differently by index.", expected.get(i).isSameTrip(trips.get(i)));
+		}
+		assertTrue("Trips should take less than 8 bytes each: " + trips.getEncodedLength(), trips.getEncodedLength() < 8 * expected.size());
+	}
+
+	@Test
+	public void testRemove() {
+		Random random = new Random(44);
+		List<Trip> expected = randomTrips(random, 300);
+		CompressedTrips trips = new CompressedTrips();
+		trips.addAll(expected);
+
+		for (int removal = 0; removal < 100; removal++) {
+			int i = random.nextInt(expected.size());
+			assertTrue("Removed trip is incorrect.", expected.remove(i).isSameTrip(trips.remove(i)));
+			if (removal % 10 == 0) {
+				Trip trip = randomTrips(random, 1).get(0);
+				expected.add(trip);
+				trips.add(trip);
+			}
+		}
+		assertEquals("Number of trips after removals is incorrect.", expected.size(), trips.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertTrue("Trip " + i + " is incorrect after removals.", expected.get(i).isSameTrip(trips.get(i)));
+		}
+		Trip last = expected.get(expected.size() - 1);
+		assertEquals("Last index of a trip is incorrect.", expected.size() - 1, trips.lastIndexOfSame(last));
+	}
+
+	@Test
+	public void testRemoveMostTrips() {
+		Random random = new Random(46);
+		List<Trip> expected = randomTrips(random, 1000);
+		CompressedTrips trips = new CompressedTrips();
+		trips.addAll(expected);
+		int fullLength = trips.getEncodedLength();
+
+		// Recent trips first, like corrections, then from anywhere
+		for (int removal = 0; removal < 900; removal++) {
+			int i = removal < 100 ? expected.size() - 1 - random.nextInt(10) : random.nextInt(expected.size());
+			Trip trip = expected.get(i);
+			assertEquals("Index of a trip to remove is incorrect.", expected.lastIndexOf(trip), trips.lastIndexOfSame(trip));
+			assertTrue("Removed trip is incorrect.", expected.remove(i).isSameTrip(trips.remove(i)));
+		}
+		assertEquals("Number of trips after removals is incorrect.", expected.size(), trips.size());
+		int i = 0;
+		for (Trip trip : trips) {
+			assertTrue("Trip " + i + " is incorrect after removals.", expected.get(i++).isSameTrip(trip));
+		}
+		assertTrue("Removed trips should be compacted: " + trips.getEncodedLength(), trips.getEncodedLength() < fullLength / 2);
+	}
+
+	@Test
+	public void testDriverAggregateOverRange() {
+		Random random = new Random(45);
+		Driver driver = new Driver("Dan");
+		List<Trip> added = randomTrips(random, 500);
+		for (Trip trip : added) {
+			driver.addTrip(trip);
+		}
+		LocalDateTime from = LocalDateTime.of(2018, 11, 20, 0, 0);
+		LocalDateTime to = LocalDateTime.of(2018, 12, 10, 0, 0);
+
+		DriverAggregate expected = new DriverAggregate();
+		for (Trip trip : added) {
+			if (trip.getStartDate() != null && !trip.getStartDate().atTime(trip.getStartTime()).isBefore(from)
+					&& trip.getStartDate().atTime(trip.getStartTime()).isBefore(to)) {
+				expected.add(trip);
+			}
+		}
+		DriverAggregate actual = driver.getAggregate(from, to);
+		assertEquals("Miles over the range are incorrect.", expected.getScaledDistance(), actual.getScaledDistance());
+		assertEquals("Time over the range is incorrect.", expected.getSecondsTraveled(), actual.getSecondsTraveled());
+		assertEquals("Trips over the range are incorrect.", expected.getTrips(), actual.getTrips());
+		assertTrue("Some trips should be out of the range.", actual.getTrips() < driver.getTrips().size());
+	}
+
+	// Trips in time order with dates, and some without, as from an input file.
+	private static List<Trip> randomTrips(Random random, int count) {
+		List<Trip> trips = new ArrayList<>();
+		LocalDateTime time = LocalDateTime.of(2018, 11, 1, 0, 0).plusMinutes(random.nextInt(10000));
+		for (int i = 0; i < count; i++) {
+			time = time.plusMinutes(random.nextInt(900));
+			LocalDateTime end = time.plusMinutes(20 + random.nextInt(40));
+			long scaledDistance = FixedPoint.parse((10 + random.nextInt(23)) + "." + random.nextInt(10));
+			if (random.nextInt(10) == 0 && end.toLocalDate().equals(time.toLocalDate())) {
+				trips.add(Trip.fromScaled(time.toLocalTime(), end.toLocalTime(), scaledDistance));
+			} else {
+				trips.add(Trip.fromScaled(time, end, scaledDistance));
+			}
+			time = end;
+		}
+		return trips;
+	}
+}
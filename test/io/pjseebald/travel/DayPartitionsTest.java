@@ -0,0 +1,87 @@
+package io.pjseebald.travel;
+
+import static org.junit.Assert.*;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DayPartitionsTest {
+	
+	DayPartitions dayPartitions;
+
+	@Before
+	public void setUpBeforeTest() throws Exception {
+		Map<String, Driver> drivers = MainApp.getDrivers();
+		if (drivers != null) {
+			drivers.clear();
+		}
+		
+		// Set trip requirements to standard
+		Trip.setTimeRange(0., 24.);
+		Trip.setDistanceRange(0., null);
+		Trip.setSpeedRange(5., 100.);
+		
+		dayPartitions = new DayPartitions();
+		MainApp.getDriverListeners().add(dayPartitions);
+	}
+	
+	@After
+	public void tearDownAfterTest() throws Exception {
+		MainApp.getDriverListeners().remove(dayPartitions);
+	}
+
+	@Test
+	public void testNightShiftPastMidnight() {
+		CommandParser.parseCommand(new String[] {"Driver", "Night", "Owl"});
+		CommandParser.parseCommand(new String[] {"Trip", "Night", "Owl", "2018-11-02T22:30", "2018-11-03T01:30", "150.0"});
+		// End time without a date, on the next day since it is before the start
+		CommandParser.parseCommand(new String[] {"Trip", "Night", "Owl", "2018-11-03T23:00", "00:30", "60.0"});
+		
+		Driver driver = MainApp.getDrivers().get("Night Owl");
+		assertEquals("Trips past midnight were not added.", 2, driver.getTrips().size());
+		assertEquals("Hours traveled past midnight are incorrect.", 4.5, driver.getTimeTraveled(), 0.001);
+		assertEquals("Miles traveled past midnight are incorrect.", 210., driver.getDistanceTraveled(), 0.001);
+	}
+	
+	@Test
+	public void testDateRangeReport() {
+		CommandParser.parseCommand(new String[] {"Driver", "Dan"});
+		CommandParser.parseCommand(new String[] {"Driver", "Jane"});
+		CommandParser.parseCommand(new String[] {"Trip", "Dan", "2018-11-01T11:15", "2018-11-01T11:45", "32.3"});
+		CommandParser.parseCommand(new String[] {"Trip", "Dan", "2018-11-02T18:04", "2018-11-02T19:38", "115.6"});
+		CommandParser.parseCommand(new String[] {"Trip", "Jane", "2018-11-02T23:55", "2018-11-03T01:20", "55.4"});
+		CommandParser.parseCommand(new String[] {"Trip", "Jane", "2018-11-05T08:00", "2018-11-05T09:00", "50.0"});
+		// Trips without dates are not in any partition
+		CommandParser.parseCommand(new String[] {"Trip", "Jane", "08:00", "09:00", "50.0"});
+		
+		assertEquals("Number of day partitions is incorrect.", 3, dayPartitions.getDays().size());
+		
+		Map<String, DriverAggregate> aggregates = dayPartitions.getAggregates(LocalDate.of(2018, 11, 2), LocalDate.of(2018, 11, 3));
+		assertEquals("Dan's trips on 2018-11-02 are incorrect.", 1, aggregates.get("Dan").getTrips());
+		assertEquals("Jane's trip past midnight should count on the day it started.", 1, aggregates.get("Jane").getTrips());
+		
+		String report = new DriverReport().getReport(aggregates);
+		String expectedReport = "Dan: 116 miles @ 74 mph" + System.lineSeparator() 
+			+ "Jane: 55 miles @ 39 mph" + System.lineSeparator();
+		assertEquals("Date range report did not match expected report.", expectedReport, report);
+		
+		assertTrue("No drivers expected in a range without trips.", 
+				dayPartitions.getAggregates(LocalDate.of(2018, 11, 4), LocalDate.of(2018, 11, 4)).isEmpty());
+	}
+	
+	@Test
+	public void testLenientDates() {
+		assertNull(CommandParser.parseCommandLenient(new String[] {"Driver", "Dan"}));
+		assertNull("Valid trip with dates was rejected.", 
+				CommandParser.parseCommandLenient(new String[] {"Trip", "Dan", "2018-11-02T22:30", "2018-11-03T01:30", "150.0"}));
+		assertEquals("Invalid date was not rejected.", RejectReason.INVALID_TIME, 
+				CommandParser.parseCommandLenient(new String[] {"Trip", "Dan", "2018-02-30T22:30", "2018-03-01T01:30", "150.0"}));
+		assertEquals("Trip ending before its start date was not rejected.", RejectReason.IMPOSSIBLE_TRIP, 
+				CommandParser.parseCommandLenient(new String[] {"Trip", "Dan", "2018-11-03T22:30", "2018-11-02T23:30", "50.0"}));
+	}
+
+}
@@ -0,0 +1,90 @@
+package io.pjseebald.travel;
+
+import static org.junit.Assert.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DriverHistoryTest {
+
+	DriverHistory history;
+
+	@Before
+	public void setUpBeforeTest() throws Exception {
+		MainApp.setDrivers(new HashMap<>());
+
+		// Set trip requirements to standard
+		Trip.setTimeRange(0., 24.);
+		Trip.setDistanceRange(0., null);
+		Trip.setSpeedRange(5., 100.);
+
+		history = new DriverHistory();
+		MainApp.getDriverListeners().add(history);
+	}
+
+	@After
+	public void tearDownAfterTest() throws Exception {
+		MainApp.getDriverListeners().remove(history);
+		MainApp.setDrivers(new HashMap<>());
+	}
+
+	@Test
+	public void testReportAsOfLineMatchesRunUpToLine() {
+		// Random drivers, trips and corrections, in order of time
+		Random random = new Random(41);
+		List<String[]> commands = new ArrayList<>();
+		LocalDateTime time = LocalDateTime.of(2018, 11, 1, 0, 0);
+		for (int i = 0; i < 2000; i++) {
+			String name = "Driver" + (char) ('A' + random.nextInt(10));
+			int pick = random.nextInt(20);
+			if (pick < 3) {
+				commands.add(new String[] {"Driver", name});
+			} else if (pick == 3) {
+				commands.add(new String[] {"Remove", name});
+			} else if (pick == 4) {
+				commands.add(new String[] {"Rename", name, "->", "Driver" + (char) ('A' + random.nextInt(10))});
+			} else {
+				time = time.plusMinutes(random.nextInt(30));
+				commands.add(new String[] {"Trip", name, time.toString().substring(0, 16),
+						time.plusMinutes(10 + random.nextInt(50)).toLocalTime().toString(), "" + (1 + random.nextInt(30))});
+			}
+		}
+		CommandParser.parseCommands(commands, new IngestErrors(), history);
+		DriverReport driverReport = new DriverReport();
+
+		MainApp.getDriverListeners().remove(history);
+		for (int check = 0; check < 20; check++) {
+			int line = random.nextInt(commands.size() + 1);
+			MainApp.setDrivers(new HashMap<>());
+			CommandParser.parseCommands(commands.subList(0, line), new IngestErrors());
+			assertEquals("Report as of line " + line + " is not the report of the lines up to it.",
+					driverReport.getReport(), driverReport.getReport(history.getAggregatesAsOf(line)));
+		}
+		assertTrue("History should have no more than a version per change.", history.getVersionCount() <= commands.size() * 2);
+	}
+
+	@Test
+	public void testLineAsOfTime() {
+		List<String[]> commands = new ArrayList<>();
+		commands.add(new String[] {"Driver", "Dan"});
+		commands.add(new String[] {"Trip", "Dan", "2018-11-02T07:15", "07:45", "17.3"});
+		commands.add(new String[] {"Trip", "Dan", "2018-11-02T12:01", "13:16", "42.0"});
+		commands.add(new String[] {"Trip", "Dan", "2018-11-02T06:12", "06:32", "21.8"});		// late, earlier than the latest end
+		commands.add(new String[] {"Trip", "Dan", "2018-11-03T06:12", "06:32", "21.8"});
+		CommandParser.parseCommands(commands, null, history);
+
+		assertEquals("Before any trip ended, only the lines before the first trip count.", 1,
+				history.getLineAsOf(LocalDateTime.of(2018, 11, 2, 7, 0)));
+		assertEquals("Late trips count with the lines around them.", 4, history.getLineAsOf(LocalDateTime.of(2018, 11, 2, 20, 0)));
+		assertEquals("After the last trip, all lines count.", 5, history.getLineAsOf(LocalDateTime.of(2018, 12, 1, 0, 0)));
+		assertEquals("Report as of a time is incorrect.", "Dan: 17 miles @ 35 mph" + System.lineSeparator(),
+				new DriverReport().getReport(history.getAggregatesAsOf(LocalDateTime.of(2018, 11, 2, 12, 0))));
+	}
+}
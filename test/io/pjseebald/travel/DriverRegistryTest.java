@@ -0,0 +1,113 @@
+package io.pjseebald.travel;
+
+import static org.junit.Assert.*;
+
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class DriverRegistryTest {
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	DriverRegistry registry;
+
+	@Before
+	public void setUpBeforeTest() throws Exception {
+		MainApp.getDrivers().clear();
+		
+		// Set trip requirements to standard
+		Trip.setTimeRange(0., 24.);
+		Trip.setDistanceRange(0., null);
+		Trip.setSpeedRange(5., 100.);
+		
+		registry = new DriverRegistry(2, Collections.<DriverListener>emptyList(), folder.getRoot());
+	}
+	
+	@After
+	public void tearDownAfterTest() throws Exception {
+		registry.close();
+	}
+
+	@Test
+	public void testEvictedDriverIsReadBack() {
+		Driver dan = new Driver("Dan");
+		dan.addTrip(new Trip(LocalTime.of(7, 15), LocalTime.of(7, 45), 17.3));
+		registry.put("Dan", dan);
+		registry.put("Alex", new Driver("Alex"));
+		registry.put("Bob", new Driver("Bob"));
+		
+		assertEquals("Only the budget of drivers should be in memory.", 2, registry.getResidentCount());
+		assertEquals("Evicted drivers should still be in the registry.", 3, registry.size());
+		assertTrue("Evicted driver should still be in the registry.", registry.containsKey("Dan"));
+		
+		Driver readBack = registry.get("Dan");
+		assertEquals("Evicted driver's trips were not read back.", 1, readBack.getTrips().size());
+		assertEquals("Evicted driver's miles were not read back.", 17.3, readBack.getDistanceTraveled(), 0.0001);
+		assertEquals("Evicted driver's hours were not read back.", 0.5, readBack.getTimeTraveled(), 0.0001);
+		assertEquals("Reading a driver back should evict another.", 2, registry.getResidentCount());
+	}
+	
+	@Test
+	public void testDatedTripsReadBack() {
+		Driver owl = new Driver("Owl");
+		owl.addTrip(new Trip(LocalDateTime.of(2018, 11, 2, 22, 30), LocalDateTime.of(2018, 11, 3, 1, 30), 150.));
+		registry.put("Owl", owl);
+		registry.put("Alex", new Driver("Alex"));
+		registry.put("Bob", new Driver("Bob"));
+		
+		Trip trip = registry.get("Owl").getTrips().get(0);
+		assertEquals("Start date was not read back.", LocalDate.of(2018, 11, 2), trip.getStartDate());
+		assertEquals("End date was not read back.", LocalDate.of(2018, 11, 3), trip.getEndDate());
+		assertEquals("End time was not read back.", LocalTime.of(1, 30), trip.getEndTime());
+	}
+	
+	@Test
+	public void testCommandsAndReportOverEvictedDrivers() {
+		List<String[]> commands = new ArrayList<>();
+		String[] names = {"Dan", "Alex", "Bob", "Jane", "Tim"};
+		for (String name : names) {
+			commands.add(new String[] {"Driver", name});
+		}
+		for (int i = 0; i < 20; i++) {
+			commands.add(new String[] {"Trip", names[i % names.length], String.format("%02d:00", i), String.format("%02d:30", i), 
+					Integer.toString(10 + i)});
+		}
+		
+		CommandParser.parseCommands(commands);
+		String expected = new DriverReport().getReport();
+		
+		MainApp.getDrivers().clear();
+		DriverRegistry mainRegistry = new DriverRegistry(2, MainApp.getDriverListeners(), folder.getRoot());
+		try {
+			MainApp.setDrivers(mainRegistry);
+			CommandParser.parseCommands(commands);
+			
+			assertTrue("Drivers should have been evicted.", mainRegistry.getEvictions() > 0);
+			assertEquals("Report over evicted drivers is incorrect.", expected, new DriverReport().getReport());
+			StringWriter out = new StringWriter();
+			new ExternalReport(2).writeReport(mainRegistry, out);
+			assertEquals("External report over evicted drivers is incorrect.", expected, out.toString());
+		} finally {
+			MainApp.setDrivers(new HashMap<String, Driver>());
+			mainRegistry.close();
+		}
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testBudgetTooSmall() {
+		new DriverRegistry(0, Collections.<DriverListener>emptyList(), folder.getRoot());
+	}
+}
@@ -1,56 +1,93 @@
-package io.pjseebald.travel;
-
-import static org.junit.Assert.*;
-
-import java.util.Map;
-
-import org.junit.Before;
-import org.junit.Test;
-
-public class DriverReportTest {
-
-	@Before
-	public void setUpBeforeTest() throws Exception {
-		// MainApp and drivers are static, so they will persist across tests.
-		// Need to clear them for fresh start for each test.
-		Map<String, Driver> drivers = MainApp.getDrivers();
-		if (drivers != null) {
-			drivers.clear();
-		}
-	}
-
-	@Test
-	public void testGetInformation() {
-		String[] driverNames = {"Jane", "Dan", "Tim"};
-		
-		this.addDrivers(driverNames);
-		
-		String[][] trips = {{"Trip", "Jane", "01:55", "03:20", "55.4"}, {"Trip", "Dan", "11:15", "11:45", "32.3"}, {"Trip", "Dan", "18:04", "19:38", "115.6"}};
-		
-		this.addTrips(trips);
-		
-		String report = new DriverReport().getReport();
-		
-		String expectedReport = "Dan: 148 miles @ 72 mph" + System.lineSeparator() 
-			+ "Jane: 55 miles @ 39 mph" + System.lineSeparator() 
-			+ "Tim: 0 miles" + System.lineSeparator();
-		
-		assertEquals("MainApp reported information did not match expected report. Expected: " + System.lineSeparator() 
-				+ expectedReport + System.lineSeparator() + System.lineSeparator() + "Returned: " + System.lineSeparator() + report, 
-				expectedReport, report);
-		
-	}
-	
-	private void addDrivers(String[] driverNames) {
-		for (String name : driverNames) {
-			CommandParser.parseCommand(new String[] {"driver", name});
-		}
-	}
-	
-	private void addTrips(String[][] trips) {
-		for (String[] trip : trips) {
-			CommandParser.parseCommand(trip);
-		}
-	}
-
-}
+package io.pjseebald.travel;
+
+import static org.junit.Assert.*;
+
+import java.time.LocalTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class DriverReportTest {
+
+	@Before
+	public void setUpBeforeTest() throws Exception {
+		// MainApp and drivers are static, so they will persist across tests.
+		// Need to clear them for fresh start for each test.
+		Map<String, Driver> drivers = MainApp.getDrivers();
+		if (drivers != null) {
+			drivers.clear();
+		}
+	}
+
+	@Test
+	public void testGetInformation() {
+		String[] driverNames = {"Jane", "Dan", "Tim"};
+		
+		this.addDrivers(driverNames);
+		
+		String[][] trips = {{"Trip", "Jane", "01:55", "03:20", "55.4"}, {"Trip", "Dan", "11:15", "11:45", "32.3"}, {"Trip", "Dan", "18:04", "19:38", "115.6"}};
+		
+		this.addTrips(trips);
+		
+		String report = new DriverReport().getReport();
+		
+		String expectedReport = "Dan: 148 miles @ 72 mph" + System.lineSeparator() 
+			+ "Jane: 55 miles @ 39 mph" + System.lineSeparator() 
+			+ "Tim: 0 miles" + System.lineSeparator();
+		
+		assertEquals("MainApp reported information did not match expected report. Expected: " + System.lineSeparator() 
+				+ expectedReport + System.lineSeparator() + System.lineSeparator() + "Returned: " + System.lineSeparator() + report, 
+				expectedReport, report);
+		
+	}
+	
+	@Test
+	public void testParallelReportSameAsReport() {
+		Random random = new Random(33);
+		for (int i = 0; i < 20000; i++) {
+			Driver driver = MainApp.addDriver("Driver" + i);
+			// Few distinct distances, so many drivers are tied
+			int trips = random.nextInt(3);
+			for (int t = 0; t < trips; t++) {
+				driver.addTrip(new Trip(LocalTime.of(8, 0), LocalTime.of(9, 0), 10 + random.nextInt(20)));
+			}
+		}
+		
+		assertEquals("Parallel report is different from the report.", new DriverReport().getReport(), new DriverReport().getParallelReport());
+	}
+	
+	@Test
+	public void testParallelReportDistancesTooFarApartToPack() {
+		Map<String, Driver> drivers = new HashMap<>();
+		String[] names = {"Jane", "Dan", "Tim", "Amy"};
+		long[] distances = {Long.MAX_VALUE / 2, 0, -Long.MAX_VALUE / 2, 0};
+		DriverReport.ReportInformation[] information = new DriverReport.ReportInformation[names.length];
+		for (int i = 0; i < names.length; i++) {
+			drivers.put(names[i], new Driver(names[i]));
+			information[i] = new DriverReport.ReportInformation(names[i], distances[i], 0, 0, 0);
+		}
+		
+		int[] order = DriverReport.getSortedOrder(information);
+		assertArrayEquals("Order of distances too far apart to pack is incorrect.", new int[] {0, 3, 1, 2}, order);
+		assertEquals("Parallel report of drivers without trips is incorrect.", 
+				"Amy: 0 miles" + System.lineSeparator() + "Dan: 0 miles" + System.lineSeparator() 
+				+ "Jane: 0 miles" + System.lineSeparator() + "Tim: 0 miles" + System.lineSeparator(), 
+				new DriverReport().getParallelReport(drivers));
+	}
+	
+	private void addDrivers(String[] driverNames) {
+		for (String name : driverNames) {
+			CommandParser.parseCommand(new String[] {"driver", name});
+		}
+	}
+	
+	private void addTrips(String[][] trips) {
+		for (String[] trip : trips) {
+			CommandParser.parseCommand(trip);
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+package io.pjseebald.travel;
+
+import static org.junit.Assert.*;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class DriverSnapshotsTest {
+
+	@Test
+	public void testSnapshotsAreConsistentWhileWriting() throws InterruptedException {
+		DriverSnapshots snapshots = new DriverSnapshots();
+		int writers = 3;
+		int changes = 20000;
+
+		// Each writer changes its first driver, then its second, so the second is never ahead of the first
+		List<Thread> threads = new ArrayList<>();
+		for (int w = 0; w < writers; w++) {
+			final String first = "First" + w;
+			final String second = "Second" + w;
+			threads.add(new Thread(() -> {
+				for (int i = 1; i <= changes; i++) {
+					snapshots.publish(first, new DriverAggregate(i, i, i));
+					snapshots.publish(second, new DriverAggregate(i, i, i));
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+
+		int taken = 0;
+		boolean writing = true;
+		while (writing) {
+			writing = false;
+			for (Thread thread : threads) {
+				writing |= thread.isAlive();
+			}
+			Map<String, DriverAggregate> snapshot = snapshots.getSnapshot();
+			taken++;
+			for (int w = 0; w < writers; w++) {
+				long first = snapshot.containsKey("First" + w) ? snapshot.get("First" + w).getTrips() : 0;
+				long second = snapshot.containsKey("Second" + w) ? snapshot.get("Second" + w).getTrips() : 0;
+				assertTrue("Snapshot has a change without the change made before it. First: " + first + "; second: " + second,
+						second == first || second == first - 1);
+			}
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		Map<String, DriverAggregate> last = snapshots.getSnapshot();
+		for (int w = 0; w < writers; w++) {
+			assertEquals("Last snapshot is missing changes.", changes, last.get("First" + w).getTrips());
+			assertEquals("Last snapshot is missing changes.", changes, last.get("Second" + w).getTrips());
+		}
+		assertEquals("Every snapshot should move the epoch on.", taken + 1, snapshots.getEpoch());
+	}
+
+	@Test
+	public void testSnapshotDoesNotChange() {
+		DriverSnapshots snapshots = new DriverSnapshots();
+		Driver dan = new Driver("Dan", Collections.<DriverListener>singletonList(snapshots));
+		snapshots.driverAdded(dan);
+		dan.addTrip(new Trip(LocalTime.of(7, 15), LocalTime.of(7, 45), 17.3));
+
+		Map<String, DriverAggregate> before = snapshots.getSnapshot();
+		dan.addTrip(new Trip(LocalTime.of(8, 15), LocalTime.of(8, 45), 20.));
+
+		assertEquals("Snapshot changed after it was taken.", 1, before.get("Dan").getTrips());
+		assertEquals("New snapshot is missing the new trip.", 2, snapshots.getSnapshot().get("Dan").getTrips());
+		assertEquals("Report over the snapshot is incorrect.", "Dan: 17 miles @ 35 mph" + System.lineSeparator(),
+				new DriverReport().getReport(before));
+	}
+
+	@Test
+	public void testRemovedDriversAreForgotten() {
+		DriverSnapshots snapshots = new DriverSnapshots();
+		for (int i = 0; i < 100; i++) {
+			snapshots.publish("Driver" + i, new DriverAggregate(i, i, i));
+			snapshots.publish("Driver" + i, null);
+		}
+		snapshots.publish("Kept", new DriverAggregate(1, 1, 1));
+		assertEquals("Removed drivers are kept until a snapshot.", 101, snapshots.getVersionCount());
+
+		Map<String, DriverAggregate> snapshot = snapshots.getSnapshot();
+		assertEquals("Snapshot should only have the driver that was not removed.", 1, snapshot.size());
+		assertEquals("Removed drivers should be forgotten by the snapshot.", 1, snapshots.getVersionCount());
+
+		// Driver added again under a removed name
+		snapshots.publish("Driver0", new DriverAggregate(2, 2, 2));
+		assertEquals("Driver added again should be in the next snapshot.", 2, snapshots.getSnapshot().size());
+	}
+}
@@ -0,0 +1,76 @@
+package io.pjseebald.travel;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.time.LocalTime;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ExternalReportTest {
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Before
+	public void setUpBeforeTest() throws Exception {
+		Map<String, Driver> drivers = MainApp.getDrivers();
+		if (drivers != null) {
+			drivers.clear();
+		}
+		
+		// Set trip requirements to standard
+		Trip.setTimeRange(0., 24.);
+		Trip.setDistanceRange(0., null);
+		Trip.setSpeedRange(5., 100.);
+	}
+
+	@Test
+	public void testSameAsReport() {
+		addRandomDrivers(1000);
+		
+		// 1000 drivers in runs of 7 is 143 runs, merged 4 at a time over several passes
+		ExternalReport externalReport = new ExternalReport(7, 4, folder.getRoot().toPath());
+		StringWriter out = new StringWriter();
+		externalReport.writeReport(MainApp.getDrivers(), out);
+		
+		assertEquals("External report is different from the report.", new DriverReport().getReport(), out.toString());
+		assertTrue("Report should have been merged over several passes.", externalReport.getRunsWritten() > 143);
+		File[] files = folder.getRoot().listFiles();
+		assertEquals("Temporary runs were not deleted.", 0, files.length);
+	}
+	
+	@Test
+	public void testFitsInOneRun() {
+		addRandomDrivers(50);
+		
+		ExternalReport externalReport = new ExternalReport(100, 4, folder.getRoot().toPath());
+		StringWriter out = new StringWriter();
+		externalReport.writeReport(MainApp.getDrivers(), out);
+		
+		assertEquals("External report is different from the report.", new DriverReport().getReport(), out.toString());
+		assertEquals("Drivers that fit in memory should not be written to runs.", 0, externalReport.getRunsWritten());
+	}
+	
+	@Test(expected = IllegalArgumentException.class)
+	public void testRunSizeTooSmall() {
+		new ExternalReport(0);
+	}
+	
+	private void addRandomDrivers(int count) {
+		Random random = new Random(34);
+		for (int i = 0; i < count; i++) {
+			Driver driver = MainApp.addDriver("Driver" + i);
+			int trips = random.nextInt(3);
+			for (int t = 0; t < trips; t++) {
+				driver.addTrip(new Trip(LocalTime.of(8, 0), LocalTime.of(9, 0), 10 + random.nextInt(20)));
+			}
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package io.pjseebald.travel;
+
+import static org.junit.Assert.*;
+
+import java.time.LocalTime;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class FixedPointTest {
+	
+	@After
+	public void tearDownAfterTest() throws Exception {
+		// Precision is static, so put back the default for other tests.
+		FixedPoint.setPrecision(3);
+	}
+
+	@Test
+	public void testParse() {
+		FixedPoint.setPrecision(3);
+		
+		String[] inputs = {"85.6", "0", "12", "0.001", "100.12345", "-4.5", "+7.25", ".5", "3."};
+		long[] expected = {85600, 0, 12000, 1, 100123, -4500, 7250, 500, 3000};
+		
+		for (int i = 0; i < inputs.length; i++) {
+			long returned = FixedPoint.parse(inputs[i]);
+			assertEquals("Fixed-point parse of " + inputs[i] + " is incorrect. Expected: " + expected[i] + "; returned: " + returned, 
+					expected[i], returned);
+		}
+	}
+	
+	@Test
+	public void testParseRounding() {
+		FixedPoint.setPrecision(1);
+		
+		assertEquals("Digit past the precision should round up.", 857, FixedPoint.parse("85.65"));
+		assertEquals("Digit past the precision should round down.", 856, FixedPoint.parse("85.649"));
+		assertEquals("Negative value should round away from zero.", -857, FixedPoint.parse("-85.65"));
+	}
+	
+	@Test
+	public void testParseMatchesDouble() {
+		FixedPoint.setPrecision(4);
+		
+		String[] inputs = {"48.4", "100.7", "17.3", "21.8", "0.0001", "60.3"};
+		for (String input : inputs) {
+			assertEquals("Fixed-point parse of " + input + " does not match the rounded double.", 
+					FixedPoint.toScaled(Double.parseDouble(input)), FixedPoint.parse(input));
+		}
+	}
+	
+	@Test(expected=NumberFormatException.class)
+	public void testParseInvalid() {
+		FixedPoint.parse("4.5.6");
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void testSetInvalidPrecision() {
+		FixedPoint.setPrecision(10);
+	}
+	
+	@Test
+	public void testExactTotals() {
+		// 0.1 cannot be represented exactly as a double, so a double sum drifts. The fixed-point total does not.
+		int trips = 1000;
+		Driver driver = new Driver("Dan");
+		double doubleTotal = 0;
+		for (int i = 0; i < trips; i++) {
+			Trip trip = Trip.fromScaled(LocalTime.of(1, 0), LocalTime.of(1, 1), FixedPoint.parse("0.1"));
+			doubleTotal += trip.getDistanceTraveled();
+			driver.getAggregate().add(trip);
+		}
+		
+		assertNotEquals("Double sum was expected to drift for this test to be meaningful.", 100., doubleTotal, 0.);
+		assertEquals("Fixed-point total is not exact.", 100 * FixedPoint.getScale(), driver.getAggregate().getScaledDistance());
+		assertEquals("Fixed-point total converted to a double is not exact.", 100., driver.getDistanceTraveled(), 0.);
+	}
+
+}
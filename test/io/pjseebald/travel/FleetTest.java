@@ -0,0 +1,157 @@
+package io.pjseebald.travel;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FleetTest {
+
+	@Before
+	public void setUpBeforeTest() throws Exception {
+		MainApp.setDrivers(new HashMap<>());
+
+		// Set trip requirements to standard
+		Trip.setTimeRange(0., 24.);
+		Trip.setDistanceRange(0., null);
+		Trip.setSpeedRange(5., 100.);
+	}
+
+	@After
+	public void tearDownAfterTest() throws Exception {
+		MainApp.setDrivers(new HashMap<>());
+	}
+
+	@Test
+	public void testFleetsAreIsolated() throws Exception {
+		Properties slow = new Properties();
+		slow.setProperty("maxSpeed", "30");
+		Fleet north = Fleet.fromProperties("north", slow);
+		Properties metric = new Properties();
+		metric.setProperty("units", "kilometers");
+		metric.setProperty("rejectOverlaps", "true");
+		Fleet south = Fleet.fromProperties("south", metric);
+
+		// Same driver name in both fleets, with a 34.6 mph trip and an overlapping 20 mph one
+		String input = "Driver Dan\nTrip Dan 07:15 07:45 17.3\nTrip Dan 07:30 08:00 10.0\n";
+		ExecutorService pool = Executors.newFixedThreadPool(2);
+		Future<IngestErrors> northErrors = pool.submit(() -> north.ingest(new BufferedReader(new StringReader(input))));
+		Future<IngestErrors> southErrors = pool.submit(() -> south.ingest(new BufferedReader(new StringReader(input))));
+		pool.shutdown();
+
+		assertEquals("Trip that is too fast for the north fleet is skipped, not rejected.", 0, northErrors.get().size());
+		assertEquals("South fleet should reject the overlapping trip.", 1, southErrors.get().size());
+		assertEquals("Overlapping trip should be the rejected line.", 3, southErrors.get().getLineNumber(0));
+		assertTrue("Static drivers should not get the fleets' drivers.", MainApp.getDrivers().isEmpty());
+		assertEquals("Static requirements should not change.", 100., Trip.getSpeedRange()[1], 0.);
+
+		String[] reports = new String[2];
+		north.run(() -> reports[0] = new DriverReport().getReport());
+		south.run(() -> reports[1] = new DriverReport().getReport());
+		assertEquals("North report should only have the slow trip.", "Dan: 10 miles @ 20 mph" + System.lineSeparator(), reports[0]);
+		assertEquals("South report should be in kilometers.", "Dan: 28 kilometers @ 56 kmh" + System.lineSeparator(), reports[1]);
+		assertEquals("North fleet should have its own driver.", 1, north.getDrivers().get("Dan").getTrips().size());
+		assertEquals("South fleet should have its own driver.", 1, south.getDrivers().get("Dan").getTrips().size());
+	}
+
+	@Test
+	public void testMemoryQuota() throws Exception {
+		Properties properties = new Properties();
+		properties.setProperty("memory", "2");
+		try (Fleet fleet = Fleet.fromProperties("small", properties)) {
+			StringBuilder input = new StringBuilder();
+			for (char name = 'A'; name <= 'J'; name++) {
+				input.append("Driver ").append(name).append("\nTrip ").append(name).append(" 07:15 07:45 17.3\n");
+			}
+			assertEquals("All lines should be accepted.", 0, fleet.ingest(new BufferedReader(new StringReader(input.toString()))).size());
+			DriverRegistry registry = (DriverRegistry) fleet.getDrivers();
+			assertEquals("Fleet should have all its drivers.", 10, registry.size());
+			assertTrue("Fleet should keep at most 2 drivers in memory.", registry.getResidentCount() <= 2);
+			assertTrue("Drivers over the quota should be moved to disk.", registry.getEvictions() > 0);
+		}
+	}
+
+	@Test
+	public void testThroughputQuota() throws Exception {
+		Fleet fleet = new Fleet("throttled");
+		fleet.setThroughputQuota(1000);
+		StringBuilder input = new StringBuilder("Driver Dan\n");
+		for (int i = 0; i < 1500; i++) {
+			input.append("Trip Dan 07:15 07:45 17.3\n");
+		}
+		long start = System.nanoTime();
+		fleet.ingest(new BufferedReader(new StringReader(input.toString())));
+		long elapsed = System.nanoTime() - start;
+
+		// The first second of the quota is free, the rest of the lines wait
+		assertTrue("Fleet should wait for its quota.", fleet.getThrottledNanos() > 0);
+		assertTrue("Lines over a second of quota should take their time: " + elapsed, elapsed >= 400_000_000L);
+		assertEquals("Every trip should be added.", 1500, fleet.getDrivers().get("Dan").getTrips().size());
+	}
+
+	@Test
+	public void testThrottledFleetLeavesItsThread() throws Exception {
+		Fleet throttled = new Fleet("throttled");
+		throttled.setThroughputQuota(1000);
+		Fleet other = new Fleet("other");
+		StringBuilder input = new StringBuilder("Driver Dan\n");
+		for (int i = 0; i < 1500; i++) {
+			input.append("Trip Dan 07:15 07:45 17.3\n");
+		}
+
+		// One thread: the other fleet only runs if the throttled one gives its thread back while it waits
+		ScheduledExecutorService pool = Executors.newScheduledThreadPool(1);
+		try {
+			CompletableFuture<IngestErrors> throttledErrors = throttled.ingest(new BufferedReader(new StringReader(input.toString())), pool);
+			CompletableFuture<IngestErrors> otherErrors = other.ingest(new BufferedReader(new StringReader(input.toString())), pool);
+			assertEquals("Other fleet should run while the throttled one waits.", 0, otherErrors.get(400, TimeUnit.MILLISECONDS).size());
+			assertFalse("Throttled fleet should still be waiting for its quota.", throttledErrors.isDone());
+			assertEquals("Throttled fleet should finish.", 0, throttledErrors.get(5, TimeUnit.SECONDS).size());
+			assertEquals("Every trip of the throttled fleet should be added.", 1500, throttled.getDrivers().get("Dan").getTrips().size());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testFleetsTakeTurns() throws Exception {
+		Fleet large = new Fleet("large");
+		Fleet small = new Fleet("small");
+		StringBuilder input = new StringBuilder("Driver Dan\n");
+		for (int i = 0; i < 20000; i++) {
+			input.append("Trip Dan 07:15 07:45 17.3\n");
+		}
+
+		// One thread and no quotas: the small fleet only runs before the end if the large one gives the thread back
+		ScheduledExecutorService pool = Executors.newScheduledThreadPool(1);
+		try {
+			CompletableFuture<IngestErrors> largeErrors = large.ingest(new BufferedReader(new StringReader(input.toString())), pool);
+			CompletableFuture<IngestErrors> smallErrors = small.ingest(new BufferedReader(new StringReader("Driver Dan\nTrip Dan 07:15 07:45 17.3\n")), pool);
+			assertEquals("Small fleet should finish.", 0, smallErrors.get(5, TimeUnit.SECONDS).size());
+			assertFalse("Small fleet should not wait for the whole input of the large one.", largeErrors.isDone());
+			assertEquals("Large fleet should finish.", 0, largeErrors.get(30, TimeUnit.SECONDS).size());
+			assertEquals("Every trip of the large fleet should be added.", 20000, large.getDrivers().get("Dan").getTripCount());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testBadSetting() {
+		Properties properties = new Properties();
+		properties.setProperty("maxSpeed", "fast");
+		Fleet.fromProperties("bad", properties);
+	}
+}
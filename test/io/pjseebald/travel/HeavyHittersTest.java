@@ -0,0 +1,104 @@
+package io.pjseebald.travel;
+
+import static org.junit.Assert.*;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HeavyHittersTest {
+	
+	HeavyHitters heavyHitters;
+
+	@Before
+	public void setUpBeforeTest() throws Exception {
+		Map<String, Driver> drivers = MainApp.getDrivers();
+		if (drivers != null) {
+			drivers.clear();
+		}
+		
+		// Set trip requirements to standard
+		Trip.setTimeRange(0., 24.);
+		Trip.setDistanceRange(0., null);
+		Trip.setSpeedRange(5., 100.);
+		
+		heavyHitters = new HeavyHitters(10);
+		MainApp.getDriverListeners().add(heavyHitters);
+	}
+	
+	@After
+	public void tearDownAfterTest() throws Exception {
+		MainApp.getDriverListeners().remove(heavyHitters);
+	}
+
+	@Test
+	public void testErrorBoundsOnSkewedStream() {
+		Random random = new Random(37);
+		SpaceSaving sketch = new SpaceSaving(50);
+		Map<String, Long> totals = new HashMap<>();
+		for (int i = 0; i < 100000; i++) {
+			// Few keys get most of the weight, many keys get a little
+			int key = (int) Math.floor(Math.pow(random.nextDouble(), 4) * 5000);
+			long weight = 1 + random.nextInt(100);
+			sketch.add("Driver" + key, weight);
+			totals.merge("Driver" + key, weight, Long::sum);
+		}
+		
+		for (Map.Entry<String, Long> entry : totals.entrySet()) {
+			SpaceSaving.Estimate estimate = sketch.getEstimate(entry.getKey());
+			if (estimate == null) {
+				assertTrue("Key that is not counted has more than the smallest count.", entry.getValue() <= sketch.getMinCount());
+			} else {
+				assertTrue("Estimate is under the real total.", estimate.getCount() >= entry.getValue());
+				assertTrue("Estimate is over the real total by more than its error.", 
+						estimate.getCount() - estimate.getError() <= entry.getValue());
+			}
+		}
+		
+		List<String> exactTop = new ArrayList<>(totals.keySet());
+		exactTop.sort((a, b) -> Long.compare(totals.get(b), totals.get(a)));
+		// Every key with more than total / counters is guaranteed to be counted
+		for (String key : exactTop) {
+			if (totals.get(key) > sketch.getTotal() / 50) {
+				assertNotNull("Heavy hitter was not counted.", sketch.getEstimate(key));
+			}
+		}
+		assertEquals("Top key is incorrect.", exactTop.get(0), sketch.getTop(1).get(0).getKey());
+		assertEquals("Total weight is incorrect.", totals.values().stream().mapToLong(Long::longValue).sum(), sketch.getTotal());
+	}
+	
+	@Test
+	public void testLeaderboardReport() {
+		CommandParser.parseCommand(new String[] {"Driver", "Dan"});
+		CommandParser.parseCommand(new String[] {"Driver", "Alex"});
+		CommandParser.parseCommand(new String[] {"Trip", "Dan", "07:15", "07:45", "17.3"});
+		CommandParser.parseCommand(new String[] {"Trip", "Dan", "06:12", "06:32", "21.8"});
+		CommandParser.parseCommand(new String[] {"Trip", "Alex", "12:01", "13:16", "42.0"});
+		
+		String ls = System.lineSeparator();
+		String expected = "Top 2 by miles (drivers not shown have at most 0 miles):" + ls
+				+ "Alex: 42 miles" + ls
+				+ "Dan: 39 miles" + ls
+				+ "Top 2 by trips (drivers not shown have at most 0 trips):" + ls
+				+ "Dan: 2 trips" + ls
+				+ "Alex: 1 trips" + ls;
+		assertEquals("Leaderboard report is incorrect.", expected, heavyHitters.getReport(2));
+	}
+	
+	@Test
+	public void testEstimateRangeInReport() {
+		HeavyHitters small = new HeavyHitters(1);
+		small.add("Dan", new Trip(LocalTime.of(8, 0), LocalTime.of(9, 0), 10.));
+		small.add("Alex", new Trip(LocalTime.of(8, 0), LocalTime.of(9, 0), 20.));
+		
+		// Alex took over Dan's counter, so Alex has 20 to 30 miles
+		assertTrue("Estimate range is missing from the report.", small.getReport(1).contains("Alex: 20-30 miles"));
+	}
+}
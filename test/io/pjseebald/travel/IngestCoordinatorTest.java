@@ -0,0 +1,78 @@
+package io.pjseebald.travel;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IngestCoordinatorTest {
+
+	@Before
+	public void setUpBeforeTest() throws Exception {
+		MainApp.setDrivers(new HashMap<>());
+
+		// Set trip requirements to standard
+		Trip.setTimeRange(0., 24.);
+		Trip.setDistanceRange(0., null);
+		Trip.setSpeedRange(5., 100.);
+	}
+
+	@After
+	public void tearDownAfterTest() throws Exception {
+		MainApp.setDrivers(new HashMap<>());
+	}
+
+	@Test
+	public void testWorkersMatchSequentialCommands() {
+		// Random drivers and trips, with bad lines, trips before their driver, repeated drivers, renames and removals
+		Random random = new Random(45);
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 3000; i++) {
+			String name = "Driver" + (char) ('A' + random.nextInt(26)) + (char) ('a' + random.nextInt(26));
+			int pick = random.nextInt(20);
+			if (pick < 3) {
+				input.append("Driver ").append(name);
+			} else if (pick == 3) {
+				input.append("Walk ").append(name);
+			} else if (pick == 4) {
+				input.append("");
+			} else if (pick == 5) {
+				// Renames to names that hash to other workers
+				input.append("Rename ").append(name).append(" -> Driver").append((char) ('A' + random.nextInt(26))).append("x");
+			} else if (pick == 6 && i % 4 == 0) {
+				input.append("Remove ").append(name);
+			} else if (pick == 7) {
+				input.append("Driver ").append(name).append(" 2");
+			} else {
+				int start = random.nextInt(22 * 60);
+				int end = start + 1 + random.nextInt(90);
+				input.append(String.format("Trip %s %02d:%02d %02d:%02d %d.%d", name, start / 60, start % 60,
+						end / 60, end % 60, random.nextInt(120), random.nextInt(10)));
+			}
+			input.append("\n");
+		}
+
+		List<String[]> allInputs = FileParser.parseInput(new BufferedReader(new StringReader(input.toString())));
+		IngestErrors expectedErrors = new IngestErrors();
+		CommandParser.parseCommands(allInputs, expectedErrors);
+		String expectedReport = new DriverReport().getReport();
+
+		IngestCoordinator coordinator = new IngestCoordinator(3);
+		IngestErrors errors = coordinator.run(new BufferedReader(new StringReader(input.toString())));
+
+		assertEquals("Report of the workers is not the same as the sequential report.", expectedReport,
+				new DriverReport().getReport(coordinator.getAggregates()));
+		assertEquals("Number of rejected lines is incorrect.", expectedErrors.size(), errors.size());
+		for (int i = 0; i < errors.size(); i++) {
+			assertEquals("Rejected line number is incorrect.", expectedErrors.getLineNumber(i), errors.getLineNumber(i));
+			assertEquals("Reject reason is incorrect.", expectedErrors.getReason(i), errors.getReason(i));
+		}
+	}
+}
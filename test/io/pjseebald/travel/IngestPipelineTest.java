@@ -0,0 +1,181 @@
+package io.pjseebald.travel;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class IngestPipelineTest {
+
+	@Before
+	public void setUpBeforeTest() throws Exception {
+		MainApp.setDrivers(new HashMap<>());
+
+		// Set trip requirements to standard
+		Trip.setTimeRange(0., 24.);
+		Trip.setDistanceRange(0., null);
+		Trip.setSpeedRange(5., 100.);
+	}
+
+	@After
+	public void tearDownAfterTest() throws Exception {
+		MainApp.setDrivers(new HashMap<>());
+	}
+
+	@Test
+	public void testPipelineMatchesSequentialCommands() {
+		// Random drivers and trips, with bad lines, trips before their driver, repeated drivers, renames and removals
+		Random random = new Random(38);
+		StringBuilder input = new StringBuilder();
+		for (int i = 0; i < 5000; i++) {
+			String name = "Driver" + (char) ('A' + random.nextInt(26)) + (char) ('a' + random.nextInt(26));
+			int pick = random.nextInt(20);
+			if (pick < 3) {
+				input.append("Driver ").append(name);
+			} else if (pick == 3) {
+				input.append("Walk ").append(name);
+			} else if (pick == 4) {
+				input.append("");
+			} else if (pick == 5) {
+				// Renames move drivers between appliers
+				input.append("Rename ").append(name).append(" -> Driver").append((char) ('A' + random.nextInt(26))).append("x");
+			} else if (pick == 6 && i % 4 == 0) {
+				input.append("Remove ").append(name);
+			} else {
+				int start = random.nextInt(22 * 60);
+				int end = start + 1 + random.nextInt(90);
+				input.append(String.format("Trip %s %02d:%02d %02d:%02d %d.%d", name, start / 60, start % 60,
+						end / 60, end % 60, random.nextInt(120), random.nextInt(10)));
+			}
+			input.append("\n");
+		}
+
+		List<String[]> allInputs = FileParser.parseInput(new BufferedReader(new StringReader(input.toString())));
+		IngestErrors expectedErrors = new IngestErrors();
+		CommandParser.parseCommands(allInputs, expectedErrors);
+		String expectedReport = new DriverReport().getReport();
+
+		int[][] layouts = {{1, 1}, {2, 3}, {3, 2}, {4, 4}};
+		for (int[] layout : layouts) {
+			MainApp.setDrivers(new HashMap<>());
+			IngestErrors errors = new IngestPipeline(layout[0], layout[1], 7, 2).run(new BufferedReader(new StringReader(input.toString())));
+
+			String message = " with " + layout[0] + " parsers and " + layout[1] + " appliers.";
+			assertEquals("Pipeline report is not the same as the sequential report" + message, expectedReport, new DriverReport().getReport());
+			assertEquals("Number of rejected lines is incorrect" + message, expectedErrors.size(), errors.size());
+			for (int i = 0; i < errors.size(); i++) {
+				assertEquals("Rejected line number is incorrect" + message, expectedErrors.getLineNumber(i), errors.getLineNumber(i));
+				assertEquals("Reject reason is incorrect" + message, expectedErrors.getReason(i), errors.getReason(i));
+			}
+		}
+	}
+
+	@Test
+	public void testPipelineKeepsTripOrderOfEachDriver() {
+		// Overlap check depends on the trips of a driver being added in order
+		Driver.setRejectOverlaps(true);
+		try {
+			StringBuilder input = new StringBuilder("Driver Dan\nDriver Alex\n");
+			for (int i = 0; i < 200; i++) {
+				input.append(String.format("Trip Dan %02d:%02d %02d:%02d 5\n", i / 10, (i % 10) * 6, i / 10, (i % 10) * 6 + 5));
+				input.append(String.format("Trip Alex %02d:%02d %02d:%02d 5\n", i / 10, (i % 10) * 6, i / 10, (i % 10) * 6 + 5));
+			}
+			input.append("Trip Dan 00:00 00:05 5\n");
+
+			IngestErrors errors = new IngestPipeline(3, 2, 3, 1).run(new BufferedReader(new StringReader(input.toString())));
+			assertEquals("Only the last trip should overlap.", 1, errors.size());
+			assertEquals("Rejected line number is incorrect.", 403, errors.getLineNumber(0));
+			assertEquals("Reject reason is incorrect.", RejectReason.OVERLAPPING_TRIP, errors.getReason(0));
+			assertEquals("Dan's trips were not all added.", 200, MainApp.getDrivers().get("Dan").getTrips().size());
+		} finally {
+			Driver.setRejectOverlaps(false);
+		}
+	}
+
+	@Test
+	public void testStrictPipelineMatchesSequentialCommands() {
+		Driver.setRejectOverlaps(true);
+		try {
+			StringBuilder input = new StringBuilder("Driver Dan\nDriver Alex\n");
+			for (int i = 0; i < 100; i++) {
+				input.append(String.format("Trip Dan %02d:%02d %02d:%02d 5\n", i / 10, (i % 10) * 6, i / 10, (i % 10) * 6 + 5));
+				input.append(String.format("Trip Alex %02d:%02d %02d:%02d 5\n", i / 10, (i % 10) * 6, i / 10, (i % 10) * 6 + 5));
+			}
+			// Overlapping trip, dropped silently on one thread, then a trip of an unknown driver that stops the run
+			input.append("Trip Dan 00:00 00:05 5\n");
+			input.append("Trip Jane 00:00 00:05 5\n");
+			for (int i = 0; i < 500; i++) {
+				input.append("Driver Late\nWalk Dan\n");
+			}
+
+			List<String[]> allInputs = FileParser.parseInput(new BufferedReader(new StringReader(input.toString())));
+			int stopped = 0;
+			for (String[] command : allInputs) {
+				try {
+					CommandParser.parseCommand(command);
+				} catch (RuntimeException e) {
+					break;
+				}
+				stopped++;
+			}
+			assertEquals("Sequential run should stop at the unknown driver.", 204, stopped + 1);
+
+			int[][] layouts = {{1, 1}, {2, 3}, {3, 2}};
+			for (int[] layout : layouts) {
+				MainApp.setDrivers(new HashMap<>());
+				IngestPipeline pipeline = new IngestPipeline(layout[0], layout[1], 7, 2);
+				pipeline.setLenient(false);
+				IngestErrors errors = pipeline.run(new BufferedReader(new StringReader(input.toString())));
+
+				String message = " with " + layout[0] + " parsers and " + layout[1] + " appliers.";
+				assertEquals("Pipeline should stop at the same line" + message, stopped + 1, errors.getLineNumber(0));
+				assertEquals("Reject reason is incorrect" + message, RejectReason.UNKNOWN_DRIVER, errors.getReason(0));
+				assertEquals("Overlapping trip should be dropped" + message, 100, MainApp.getDrivers().get("Dan").getTripCount());
+				assertTrue("Lines well after the rejected one should not run" + message, errors.size() < 100);
+			}
+		} finally {
+			Driver.setRejectOverlaps(false);
+		}
+	}
+
+	@Test
+	public void testRingBuffer() throws InterruptedException {
+		RingBuffer<Integer> ring = new RingBuffer<>(3);
+		assertEquals("Capacity should be rounded up to a power of two.", 4, ring.getCapacity());
+		for (int i = 0; i < 4; i++) {
+			assertTrue("Ring with room refused an item.", ring.offer(i));
+		}
+		assertFalse("Full ring accepted an item.", ring.offer(4));
+		assertEquals("Ring is not first in, first out.", Integer.valueOf(0), ring.poll());
+
+		// A consumer on another thread sees every item in order
+		RingBuffer<Integer> handOff = new RingBuffer<>(2);
+		List<Integer> taken = new ArrayList<>();
+		Thread consumer = new Thread(() -> {
+			try {
+				for (int i = 0; i < 1000; i++) {
+					taken.add(handOff.take());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		consumer.start();
+		for (int i = 0; i < 1000; i++) {
+			handOff.put(i);
+		}
+		consumer.join();
+		for (int i = 0; i < 1000; i++) {
+			assertEquals("Item taken out of order.", Integer.valueOf(i), taken.get(i));
+		}
+		assertNull("Empty ring returned an item.", handOff.poll());
+	}
+}
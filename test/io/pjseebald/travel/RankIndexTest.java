@@ -0,0 +1,104 @@
+package io.pjseebald.travel;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RankIndexTest {
+	
+	RankIndex rankIndex;
+
+	@Before
+	public void setUpBeforeTest() throws Exception {
+		Map<String, Driver> drivers = MainApp.getDrivers();
+		if (drivers != null) {
+			drivers.clear();
+		}
+		
+		// Set trip requirements to standard
+		Trip.setTimeRange(0., 24.);
+		Trip.setDistanceRange(0., null);
+		Trip.setSpeedRange(5., 100.);
+		
+		rankIndex = new RankIndex();
+		MainApp.getDriverListeners().add(rankIndex);
+	}
+	
+	@After
+	public void tearDownAfterTest() throws Exception {
+		MainApp.getDriverListeners().remove(rankIndex);
+	}
+
+	@Test
+	public void testRanksFollowTrips() {
+		CommandParser.parseCommand(new String[] {"Driver", "Dan"});
+		CommandParser.parseCommand(new String[] {"Driver", "Alex"});
+		CommandParser.parseCommand(new String[] {"Driver", "Bob"});
+		CommandParser.parseCommand(new String[] {"Trip", "Dan", "07:15", "07:45", "17.3"});
+		CommandParser.parseCommand(new String[] {"Trip", "Dan", "06:12", "06:32", "21.8"});
+		CommandParser.parseCommand(new String[] {"Trip", "Alex", "12:01", "13:16", "42.0"});
+		
+		assertEquals("Rank of driver with the most miles is incorrect.", 1, rankIndex.getRank("Alex"));
+		assertEquals("Rank of second driver is incorrect.", 2, rankIndex.getRank("Dan"));
+		assertEquals("Rank of driver without trips is incorrect.", 3, rankIndex.getRank("Bob"));
+		assertEquals("Unknown driver should not have a rank.", -1, rankIndex.getRank("Nobody"));
+		
+		// Bob passes everyone
+		CommandParser.parseCommand(new String[] {"Trip", "Bob", "08:00", "09:00", "50.0"});
+		assertEquals("Top drivers are incorrect.", Arrays.asList("Bob", "Alex"), rankIndex.getTop(2));
+		assertEquals("Driver at rank is incorrect.", "Dan", rankIndex.getDriver(3));
+	}
+	
+	@Test
+	public void testTiesRankedByName() {
+		rankIndex.update("Zoe", 1000);
+		rankIndex.update("Amy", 1000);
+		rankIndex.update("Max", 2000);
+		assertEquals("Ties should be ranked by name.", Arrays.asList("Max", "Amy", "Zoe"), rankIndex.getTop(10));
+	}
+	
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testRankOutOfRange() {
+		rankIndex.update("Dan", 1000);
+		rankIndex.getDriver(2);
+	}
+	
+	@Test
+	public void testRandomUpdatesAgainstSort() {
+		Random random = new Random(31);
+		Map<String, Long> distances = new HashMap<>();
+		for (int i = 0; i < 5000; i++) {
+			String name = "Driver" + random.nextInt(500);
+			long distance = random.nextInt(200) * 1000L;
+			if (random.nextInt(10) == 0) {
+				distances.remove(name);
+				rankIndex.remove(name);
+			} else {
+				distances.put(name, distance);
+				rankIndex.update(name, distance);
+			}
+		}
+		
+		List<String> expected = new ArrayList<>(distances.keySet());
+		Collections.sort(expected, Comparator.comparing((String name) -> -distances.get(name)).thenComparing(name -> name));
+		
+		assertEquals("Number of ranked drivers is incorrect.", expected.size(), rankIndex.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals("Rank of driver is incorrect.", i + 1, rankIndex.getRank(expected.get(i)));
+		}
+		assertEquals("Page of ranks is incorrect.", expected.subList(100, 150), rankIndex.getPage(101, 50));
+		assertEquals("Page past the last rank is incorrect.", 
+				expected.subList(expected.size() - 5, expected.size()), rankIndex.getPage(expected.size() - 4, 50));
+	}
+}
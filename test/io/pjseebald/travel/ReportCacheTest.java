@@ -0,0 +1,87 @@
+package io.pjseebald.travel;
+
+import static org.junit.Assert.*;
+
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReportCacheTest {
+	
+	ReportCache reportCache;
+
+	@Before
+	public void setUpBeforeTest() throws Exception {
+		Map<String, Driver> drivers = MainApp.getDrivers();
+		if (drivers != null) {
+			drivers.clear();
+		}
+		
+		// Set trip requirements to standard
+		Trip.setTimeRange(0., 24.);
+		Trip.setDistanceRange(0., null);
+		Trip.setSpeedRange(5., 100.);
+		
+		reportCache = new ReportCache();
+		MainApp.getDriverListeners().add(reportCache);
+	}
+	
+	@After
+	public void tearDownAfterTest() throws Exception {
+		MainApp.getDriverListeners().remove(reportCache);
+	}
+
+	@Test
+	public void testSameAsFullReport() {
+		CommandParser.parseCommand(new String[] {"Driver", "Dan"});
+		CommandParser.parseCommand(new String[] {"Driver", "Alex"});
+		CommandParser.parseCommand(new String[] {"Driver", "Bob"});
+		CommandParser.parseCommand(new String[] {"Trip", "Dan", "07:15", "07:45", "17.3"});
+		CommandParser.parseCommand(new String[] {"Trip", "Dan", "06:12", "06:32", "21.8"});
+		CommandParser.parseCommand(new String[] {"Trip", "Alex", "12:01", "13:16", "42.0"});
+		
+		String expected = "Alex: 42 miles @ 34 mph" + System.lineSeparator() 
+				+ "Dan: 39 miles @ 47 mph" + System.lineSeparator() 
+				+ "Bob: 0 miles" + System.lineSeparator();
+		assertEquals("Cached report is incorrect.", expected, reportCache.getReport());
+		assertEquals("Cached report is different from the full report.", new DriverReport().getReport(), reportCache.getReport());
+		
+		// Bob passes Alex
+		CommandParser.parseCommand(new String[] {"Trip", "Bob", "08:00", "09:00", "50.0"});
+		assertEquals("Only the driver with a new trip should be dirty.", 1, reportCache.getDirtyCount());
+		assertEquals("Cached report was not refreshed.", new DriverReport().getReport(), reportCache.getReport());
+		assertEquals("Dirty drivers were not refreshed.", 0, reportCache.getDirtyCount());
+	}
+	
+	@Test
+	public void testUnchangedReportIsReused() {
+		CommandParser.parseCommand(new String[] {"Driver", "Dan"});
+		CommandParser.parseCommand(new String[] {"Trip", "Dan", "07:15", "07:45", "17.3"});
+		
+		String report = reportCache.getReport();
+		assertSame("Report should be reused when nothing changed.", report, reportCache.getReport());
+	}
+	
+	@Test
+	public void testInvalidate() {
+		CommandParser.parseCommand(new String[] {"Driver", "Dan"});
+		CommandParser.parseCommand(new String[] {"Driver", "Alex"});
+		reportCache.getReport();
+		
+		// Removing a driver does not go through the listeners
+		MainApp.getDrivers().remove("Alex");
+		reportCache.invalidate();
+		assertEquals("Removed driver is still in the report.", "Dan: 0 miles" + System.lineSeparator(), reportCache.getReport());
+	}
+	
+	@Test
+	public void testExistingDriversInFirstReport() {
+		CommandParser.parseCommand(new String[] {"Driver", "Dan"});
+		CommandParser.parseCommand(new String[] {"Trip", "Dan", "07:15", "07:45", "17.3"});
+		
+		ReportCache lateCache = new ReportCache();
+		assertEquals("Drivers added before the cache are missing.", new DriverReport().getReport(), lateCache.getReport());
+	}
+}
@@ -0,0 +1,127 @@
+package io.pjseebald.travel;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ReportServerTest {
+
+	ReportServer server;
+
+	@Before
+	public void setUpBeforeTest() throws Exception {
+		MainApp.setDrivers(new HashMap<>());
+
+		// Set trip requirements to standard
+		Trip.setTimeRange(0., 24.);
+		Trip.setDistanceRange(0., null);
+		Trip.setSpeedRange(5., 100.);
+
+		List<String[]> commands = new ArrayList<>();
+		commands.add(new String[] {"Driver", "Dan"});
+		commands.add(new String[] {"Driver", "Lauren"});
+		commands.add(new String[] {"Driver", "Kumi"});
+		commands.add(new String[] {"Trip", "Dan", "07:15", "07:45", "17.3"});
+		commands.add(new String[] {"Trip", "Dan", "06:12", "06:32", "21.8"});
+		commands.add(new String[] {"Trip", "Lauren", "12:01", "13:16", "42.0"});
+		CommandParser.parseCommands(commands);
+
+		server = new ReportServer(0);
+		MainApp.getDriverListeners().add(server);
+		server.start();
+	}
+
+	@After
+	public void tearDownAfterTest() throws Exception {
+		MainApp.getDriverListeners().remove(server);
+		server.close();
+		MainApp.setDrivers(new HashMap<>());
+	}
+
+	@Test
+	public void testQueries() throws Exception {
+		String ls = System.lineSeparator();
+		assertEquals("Report is incorrect.", new DriverReport().getReport(), get("/report", null).body);
+		assertEquals("Driver lookup is incorrect.", "Dan: 39 miles @ 47 mph" + ls, get("/drivers/Dan", null).body);
+		assertEquals("Top drivers are incorrect.", "Lauren: 42 miles @ 34 mph" + ls, get("/top?n=1", null).body);
+		assertEquals("Unknown driver should not be found.", 404, get("/drivers/Nobody", null).status);
+		assertEquals("Bad number of drivers should be rejected.", 400, get("/top?n=many", null).status);
+	}
+
+	@Test
+	public void testUnchangedReportIsNotBuiltAgain() throws Exception {
+		Response first = get("/report", null);
+		assertEquals("Report should be found.", 200, first.status);
+		long built = server.getResponsesBuilt();
+
+		Response again = get("/report", null);
+		assertEquals("Unchanged report should be the same.", first.body, again.body);
+		assertEquals("Unchanged report should have the same ETag.", first.etag, again.etag);
+		Response notModified = get("/report", first.etag);
+		assertEquals("Poll with the current ETag should not be modified.", 304, notModified.status);
+		assertEquals("Unchanged report should not be built again.", built, server.getResponsesBuilt());
+
+		List<String[]> commands = new ArrayList<>();
+		commands.add(new String[] {"Trip", "Kumi", "08:00", "09:00", "50.0"});
+		CommandParser.parseCommands(commands);
+		Response changed = get("/report", first.etag);
+		assertEquals("Poll after a change should get the new report.", 200, changed.status);
+		assertNotEquals("Changed report should have a new ETag.", first.etag, changed.etag);
+		assertEquals("Changed report is incorrect.", new DriverReport().getReport(), changed.body);
+		assertEquals("Changed report should be built once.", built + 1, server.getResponsesBuilt());
+	}
+
+	@Test
+	public void testETagOfAnotherServerDoesNotMatch() throws Exception {
+		Response first = get("/report", null);
+		try (ReportServer other = new ReportServer(0)) {
+			other.start();
+			assertEquals("Servers should start at the same version.", server.getVersion(), other.getVersion());
+			HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + other.getPort() + "/report").openConnection();
+			connection.setRequestProperty("If-None-Match", first.etag);
+			assertEquals("ETag of another server should not match.", 200, connection.getResponseCode());
+			assertNotEquals("Servers should have different ETags.", first.etag, connection.getHeaderField("ETag"));
+			connection.getInputStream().close();
+		}
+	}
+
+	private Response get(String path, String ifNoneMatch) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + path).openConnection();
+		if (ifNoneMatch != null) {
+			connection.setRequestProperty("If-None-Match", ifNoneMatch);
+		}
+		Response response = new Response();
+		response.status = connection.getResponseCode();
+		response.etag = connection.getHeaderField("ETag");
+		InputStream input = response.status < 400 ? connection.getInputStream() : connection.getErrorStream();
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		if (input != null) {
+			byte[] buffer = new byte[4096];
+			for (int read; (read = input.read(buffer)) > 0; ) {
+				body.write(buffer, 0, read);
+			}
+			input.close();
+		}
+		response.body = new String(body.toByteArray(), StandardCharsets.UTF_8);
+		connection.disconnect();
+		return response;
+	}
+
+	private static class Response {
+		int status;
+		String etag;
+		String body;
+	}
+}
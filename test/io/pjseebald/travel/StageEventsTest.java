@@ -0,0 +1,138 @@
+package io.pjseebald.travel;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class StageEventsTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Before
+	public void setUpBeforeTest() throws Exception {
+		MainApp.setDrivers(new HashMap<>());
+
+		// Set trip requirements to standard
+		Trip.setTimeRange(0., 24.);
+		Trip.setDistanceRange(0., null);
+		Trip.setSpeedRange(5., 100.);
+	}
+
+	@After
+	public void tearDownAfterTest() throws Exception {
+		MainApp.setDrivers(new HashMap<>());
+	}
+
+	@Test
+	public void testStagesAreRecorded() throws Exception {
+		// 3 drivers, and trips with every 10th too slow (checked, not rejected) and every 7th a bad line, for more than 2 batches
+		File input = folder.newFile("input.txt");
+		int lines = 3 + 2 * StageEvents.batchLines + 100;
+		int trips = 0;
+		int tooSlow = 0;
+		int bad = 0;
+		try (Writer writer = new FileWriter(input)) {
+			writer.write("Driver Dan\nDriver Lauren\nDriver Kumi\n");
+			for (int i = 3; i < lines; i++) {
+				if (i % 7 == 0) {
+					writer.write("Walk Dan\n");
+					bad++;
+				} else {
+					trips++;
+					tooSlow += i % 10 == 0 ? 1 : 0;
+					writer.write("Trip " + (i % 2 == 0 ? "Dan" : "Kumi") + " 07:15 07:45 " + (i % 10 == 0 ? "1" : "17.3") + "\n");
+				}
+			}
+		}
+
+		Path recordingFile = folder.newFile("run.jfr").toPath();
+		try (Recording recording = new Recording()) {
+			recording.enable(StageEvents.FileRead.class);
+			recording.enable(StageEvents.CommandBatch.class);
+			recording.enable(StageEvents.TripCheck.class);
+			recording.enable(StageEvents.Report.class);
+			recording.start();
+			List<String[]> allInputs = FileParser.parseInputFile(input.getPath());
+			CommandParser.parseCommands(allInputs, new IngestErrors());
+			new DriverReport().getReport();
+			recording.stop();
+			recording.dump(recordingFile);
+		}
+
+		int batches = 0;
+		long batchLines = 0;
+		long rejected = 0;
+		int checked = 0;
+		int accepted = 0;
+		int reports = 0;
+		int files = 0;
+		for (RecordedEvent event : RecordingFile.readAllEvents(recordingFile)) {
+			switch (event.getEventType().getName()) {
+				case "io.pjseebald.travel.FileRead":
+					files++;
+					assertEquals("Lines of the file are incorrect.", lines, event.getLong("lines"));
+					assertEquals("Bytes of the file are incorrect.", input.length(), event.getLong("bytes"));
+					break;
+				case "io.pjseebald.travel.CommandBatch":
+					// Events are not read back in the order they were committed.
+					assertEquals("Batch starts at the wrong line.", 1, event.getLong("firstLine") % StageEvents.batchLines);
+					batches++;
+					batchLines += event.getInt("lines");
+					rejected += event.getInt("rejected");
+					assertEquals("Drivers after the batch are incorrect.", 3, event.getInt("drivers"));
+					break;
+				case "io.pjseebald.travel.TripCheck":
+					checked++;
+					accepted += event.getBoolean("accepted") ? 1 : 0;
+					break;
+				case "io.pjseebald.travel.Report":
+					reports++;
+					assertEquals("Kind of report is incorrect.", "drivers", event.getString("kind"));
+					assertEquals("Drivers of the report are incorrect.", 3, event.getInt("drivers"));
+					break;
+				default:
+					break;
+			}
+		}
+		assertEquals("There should be one file read.", 1, files);
+		assertEquals("Lines should be in batches of " + StageEvents.batchLines + ".", 3, batches);
+		assertEquals("Every line should be in a batch.", lines, batchLines);
+		assertEquals("Rejected lines are incorrect.", bad, rejected);
+		assertEquals("Every trip should be checked.", trips, checked);
+		assertEquals("Accepted trips are incorrect.", trips - tooSlow, accepted);
+		assertEquals("There should be one report.", 1, reports);
+	}
+
+	@Test
+	public void testTripCheckIsOffByDefault() throws Exception {
+		Path recordingFile = folder.newFile("run.jfr").toPath();
+		try (Recording recording = new Recording()) {
+			recording.start();
+			CommandParser.parseCommand(new String[] {"Driver", "Dan"});
+			CommandParser.parseCommand(new String[] {"Trip", "Dan", "07:15", "07:45", "17.3"});
+			recording.stop();
+			recording.dump(recordingFile);
+		}
+		for (RecordedEvent event : RecordingFile.readAllEvents(recordingFile)) {
+			assertNotEquals("Trip checks should not be recorded unless enabled.", "io.pjseebald.travel.TripCheck",
+					event.getEventType().getName());
+		}
+		assertEquals("Trip should still be added.", 1, MainApp.getDrivers().get("Dan").getTrips().size());
+	}
+}
@@ -0,0 +1,199 @@
+package io.pjseebald.travel;
+
+import static org.junit.Assert.*;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TripDeduplicatorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Before
+	public void setUpBeforeTest() throws Exception {
+		MainApp.setDrivers(new HashMap<>());
+
+		// Set trip requirements to standard
+		Trip.setTimeRange(0., 24.);
+		Trip.setDistanceRange(0., null);
+		Trip.setSpeedRange(5., 100.);
+	}
+
+	@After
+	public void tearDownAfterTest() throws Exception {
+		CommandParser.setDeduplicator(null);
+		MainApp.setDrivers(new HashMap<>());
+	}
+
+	@Test
+	public void testResentCommandsAreSkipped() {
+		List<String[]> commands = randomCommands(new Random(48), 2000);
+		CommandParser.parseCommands(commands);
+		String expected = new DriverReport().getReport();
+		int trips = getTrips();
+
+		// Small first filter, so it grows and has false positives that are checked
+		MainApp.setDrivers(new HashMap<>());
+		TripDeduplicator deduplicator = new TripDeduplicator(100, 0.01);
+		CommandParser.setDeduplicator(deduplicator);
+		CommandParser.parseCommands(commands);
+		assertEquals("New trips should not be skipped.", expected, new DriverReport().getReport());
+		assertEquals("No trip should be a duplicate.", 0, deduplicator.getDuplicates());
+		assertTrue("Filter should grow with the trips.", deduplicator.getFilters() > 1);
+
+		// The same commands again, the lenient way
+		CommandParser.parseCommands(commands, new IngestErrors());
+		assertEquals("Resent trips should be skipped.", expected, new DriverReport().getReport());
+		assertEquals("Every resent trip should be a duplicate.", trips, deduplicator.getDuplicates());
+	}
+
+	@Test
+	public void testStateIsKeptBetweenRuns() throws Exception {
+		Random random = new Random(49);
+		List<String[]> first = randomCommands(random, 1000);
+		List<String[]> second = randomCommands(random, 1000);
+
+		// Drivers of the first run, with the trips of the second run only
+		for (String[] command : first) {
+			if (command[0].equals("Driver")) {
+				CommandParser.parseCommand(command);
+			}
+		}
+		CommandParser.parseCommands(second);
+		String expected = new DriverReport().getReport();
+
+		MainApp.setDrivers(new HashMap<>());
+		TripDeduplicator deduplicator = new TripDeduplicator(100, 0.01);
+		CommandParser.setDeduplicator(deduplicator);
+		CommandParser.parseCommands(first);
+		int trips = getTrips();
+		Path state = folder.newFile().toPath();
+		deduplicator.write(MainApp.getDrivers(), state);
+
+		// Next run: the first run's commands are resent with the second run's
+		MainApp.setDrivers(new HashMap<>());
+		deduplicator = TripDeduplicator.read(state);
+		CommandParser.setDeduplicator(deduplicator);
+		List<String[]> resent = new ArrayList<>(first);
+		resent.addAll(second);
+		CommandParser.parseCommands(resent, new IngestErrors());
+		assertEquals("Trips of the first run should be skipped.", trips, deduplicator.getDuplicates());
+		assertEquals("Only the second run's trips should be added.", expected, new DriverReport().getReport());
+
+		// State of the second run has the trips of both
+		deduplicator.write(MainApp.getDrivers(), state);
+		MainApp.setDrivers(new HashMap<>());
+		deduplicator = TripDeduplicator.read(state);
+		CommandParser.setDeduplicator(deduplicator);
+		CommandParser.parseCommands(resent, new IngestErrors());
+		assertEquals("Trips of both runs should be skipped.", 0, getTrips());
+	}
+
+	@Test
+	public void testCancelledTripIsSkipped() throws Exception {
+		TripDeduplicator deduplicator = new TripDeduplicator();
+		CommandParser.setDeduplicator(deduplicator);
+		CommandParser.parseCommand(new String[] {"Driver", "Dan"});
+		CommandParser.parseCommand(new String[] {"Trip", "Dan", "07:15", "07:45", "17.3"});
+		CommandParser.parseCommand(new String[] {"Trip", "Dan", "07:15", "07:45", "17.3"});
+		assertEquals("Repeated trip should be skipped.", 1, MainApp.getDrivers().get("Dan").getTripCount());
+		assertNull("Cancel of an existing trip was rejected.",
+				CommandParser.parseCommandLenient(new String[] {"Cancel", "Dan", "07:15", "07:45", "17.3"}));
+		CommandParser.parseCommand(new String[] {"Trip", "Dan", "07:15", "07:45", "17.3"});
+		assertEquals("Trip sent again after it was cancelled should be skipped.", 0, MainApp.getDrivers().get("Dan").getTripCount());
+		assertNull("Cancel sent again should be skipped.",
+				CommandParser.parseCommandLenient(new String[] {"Cancel", "Dan", "07:15", "07:45", "17.3"}));
+		assertEquals("Cancel of a trip that was never added should be rejected.", RejectReason.UNKNOWN_TRIP,
+				CommandParser.parseCommandLenient(new String[] {"Cancel", "Dan", "09:15", "09:45", "17.3"}));
+
+		// The next runs skip it too, whether the trip was cancelled in the run that added it or in a later one
+		CommandParser.parseCommand(new String[] {"Trip", "Dan", "10:15", "10:45", "17.3"});
+		Path state = folder.newFile().toPath();
+		deduplicator.write(MainApp.getDrivers(), state);
+		MainApp.setDrivers(new HashMap<>());
+		deduplicator = TripDeduplicator.read(state);
+		CommandParser.setDeduplicator(deduplicator);
+		CommandParser.parseCommand(new String[] {"Driver", "Dan"});
+		CommandParser.parseCommand(new String[] {"Trip", "Dan", "07:15", "07:45", "17.3"});
+		CommandParser.parseCommand(new String[] {"Trip", "Dan", "12:15", "12:45", "17.3"});
+		assertNull("Cancel of a trip of an earlier run was rejected.",
+				CommandParser.parseCommandLenient(new String[] {"Cancel", "Dan", "12:15", "12:45", "17.3"}));
+		deduplicator.write(MainApp.getDrivers(), state);
+		MainApp.setDrivers(new HashMap<>());
+		CommandParser.setDeduplicator(TripDeduplicator.read(state));
+		CommandParser.parseCommand(new String[] {"Driver", "Dan"});
+		CommandParser.parseCommand(new String[] {"Trip", "Dan", "07:15", "07:45", "17.3"});
+		CommandParser.parseCommand(new String[] {"Trip", "Dan", "10:15", "10:45", "17.3"});
+		CommandParser.parseCommand(new String[] {"Trip", "Dan", "12:15", "12:45", "17.3"});
+		assertEquals("Trips of earlier runs should be skipped, cancelled or not.", 0, MainApp.getDrivers().get("Dan").getTripCount());
+	}
+
+	@Test
+	public void testCorrectedTripIsSkipped() {
+		TripDeduplicator deduplicator = new TripDeduplicator();
+		CommandParser.setDeduplicator(deduplicator);
+		List<String[]> commands = new ArrayList<>();
+		commands.add(new String[] {"Driver", "Dan"});
+		commands.add(new String[] {"Trip", "Dan", "07:15", "07:45", "17.3"});
+		commands.add(new String[] {"Correct", "Dan", "07:15", "07:45", "17.3", "07:15", "07:55", "20.3"});
+		CommandParser.parseCommands(commands);
+		CommandParser.parseCommand(new String[] {"Trip", "Dan", "07:15", "07:55", "20.3"});
+		assertEquals("Trip of the correction sent again should be skipped.", 1, MainApp.getDrivers().get("Dan").getTripCount());
+
+		// A retry sends every line again, the original trip and the correction included
+		CommandParser.parseCommands(commands);
+		Driver dan = MainApp.getDrivers().get("Dan");
+		assertEquals("Resent lines of a correction should change nothing.", 1, dan.getTripCount());
+		assertEquals("Totals should only have the correction.", 20.3, dan.getDistanceTraveled(), 0.0001);
+		assertEquals("Resent trip, original trip and correction are duplicates.", 3, deduplicator.getDuplicates());
+	}
+
+	@Test
+	public void testTripsOfRemovedDriverAreSkipped() {
+		CommandParser.setDeduplicator(new TripDeduplicator());
+		CommandParser.parseCommand(new String[] {"Driver", "Dan"});
+		CommandParser.parseCommand(new String[] {"Trip", "Dan", "07:15", "07:45", "17.3"});
+		CommandParser.parseCommand(new String[] {"Remove", "Dan"});
+		CommandParser.parseCommand(new String[] {"Driver", "Dan"});
+		CommandParser.parseCommand(new String[] {"Trip", "Dan", "07:15", "07:45", "17.3"});
+		assertEquals("Trip of a removed driver sent again should be skipped.", 0, MainApp.getDrivers().get("Dan").getTripCount());
+	}
+
+	private static int getTrips() {
+		int trips = 0;
+		for (Driver driver : MainApp.getDrivers().values()) {
+			trips += driver.getTrips().size();
+		}
+		return trips;
+	}
+
+	// Drivers with different trips of dates and times each, all fast enough to be added.
+	private static List<String[]> randomCommands(Random random, int trips) {
+		List<String[]> commands = new ArrayList<>();
+		List<String> names = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			String name = "Driver" + (char) ('A' + random.nextInt(26)) + (char) ('a' + random.nextInt(26)) + (char) ('a' + random.nextInt(26));
+			names.add(name);
+			commands.add(new String[] {"Driver", name});
+		}
+		for (int i = 0; i < trips; i++) {
+			String name = names.get(random.nextInt(names.size()));
+			int start = random.nextInt(22 * 60);
+			int end = start + 20 + random.nextInt(40);
+			String date = String.format("2018-%02d-%02dT", 1 + random.nextInt(12), 1 + random.nextInt(28));
+			commands.add(new String[] {"Trip", name, String.format("%s%02d:%02d", date, start / 60, start % 60),
+					String.format("%02d:%02d", end / 60, end % 60), (10 + random.nextInt(20)) + "." + random.nextInt(1000)});
+		}
+		return commands;
+	}
+}
@@ -0,0 +1,100 @@
+package io.pjseebald.travel;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TripDistributionsTest {
+	
+	TripDistributions distributions;
+
+	@Before
+	public void setUpBeforeTest() throws Exception {
+		Map<String, Driver> drivers = MainApp.getDrivers();
+		if (drivers != null) {
+			drivers.clear();
+		}
+		
+		// Set trip requirements to standard
+		Trip.setTimeRange(0., 24.);
+		Trip.setDistanceRange(0., null);
+		Trip.setSpeedRange(5., 100.);
+		
+		distributions = new TripDistributions();
+		MainApp.getDriverListeners().add(distributions);
+	}
+	
+	@After
+	public void tearDownAfterTest() throws Exception {
+		MainApp.getDriverListeners().remove(distributions);
+	}
+
+	@Test
+	public void testSketchWithinRelativeError() {
+		Random random = new Random(36);
+		QuantileSketch sketch = new QuantileSketch(0.01, 10000., 0.01);
+		double[] values = new double[100000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = Math.exp(random.nextGaussian() * 1.5 + 2);
+			sketch.add(values[i]);
+		}
+		Arrays.sort(values);
+		
+		for (double quantile : new double[] {0.01, 0.25, 0.5, 0.95, 0.99, 1.}) {
+			double exact = values[(int) Math.ceil(quantile * values.length) - 1];
+			assertEquals("Quantile " + quantile + " is not within the relative error.", exact, sketch.getQuantile(quantile), exact * 0.01);
+		}
+		assertTrue("Sketch allocated more buckets than its range has.", sketch.getBuckets() <= 691);
+	}
+	
+	@Test
+	public void testSketchMemoryStaysConstant() {
+		QuantileSketch sketch = new QuantileSketch(0.01, 10000., 0.01);
+		Random random = new Random(36);
+		for (int i = 0; i < 1000; i++) {
+			sketch.add(20 + random.nextDouble() * 60);
+		}
+		int buckets = sketch.getBuckets();
+		for (int i = 0; i < 100000; i++) {
+			sketch.add(20 + random.nextDouble() * 60);
+		}
+		assertEquals("Sketch grew with the number of values.", buckets, sketch.getBuckets());
+	}
+	
+	@Test
+	public void testSketchMerge() {
+		QuantileSketch first = new QuantileSketch(0.01, 10000., 0.01);
+		QuantileSketch second = new QuantileSketch(0.01, 10000., 0.01);
+		QuantileSketch both = new QuantileSketch(0.01, 10000., 0.01);
+		for (int i = 1; i <= 1000; i++) {
+			(i % 2 == 0 ? first : second).add(i);
+			both.add(i);
+		}
+		first.merge(second);
+		assertEquals("Merged count is incorrect.", 1000, first.getCount());
+		assertEquals("Merged quantile is incorrect.", both.getQuantile(0.95), first.getQuantile(0.95), 0.);
+	}
+
+	@Test
+	public void testDriverPercentiles() {
+		CommandParser.parseCommand(new String[] {"Driver", "Dan"});
+		// Nine trips at 30 mph and one at 90 mph
+		for (int i = 0; i < 9; i++) {
+			CommandParser.parseCommand(new String[] {"Trip", "Dan", String.format("%02d:00", i), String.format("%02d:30", i), "15.0"});
+		}
+		CommandParser.parseCommand(new String[] {"Trip", "Dan", "10:00", "11:00", "90.0"});
+		
+		assertEquals("Median speed is incorrect.", 30., distributions.getSpeed("Dan", 0.5), 0.3);
+		assertEquals("99th percentile speed is incorrect.", 90., distributions.getSpeed("Dan", 0.99), 0.9);
+		assertEquals("Median duration is incorrect.", 0.5, distributions.getDuration("Dan", 0.5), 0.005);
+		assertEquals("Percentile report is incorrect.", "Dan: speed p50 30 / p95 90 / p99 90 mph, duration p50 30 / p95 60 / p99 60 min", 
+				distributions.getReport("Dan"));
+		assertTrue("Driver without trips should have no percentiles.", Double.isNaN(distributions.getSpeed("Nobody", 0.5)));
+	}
+}
@@ -0,0 +1,114 @@
+package io.pjseebald.travel;
+
+import static org.junit.Assert.*;
+
+import java.time.LocalTime;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TripIntervalIndexTest {
+	
+	TripIntervalIndex index;
+
+	@Before
+	public void setUpBeforeTest() throws Exception {
+		Map<String, Driver> drivers = MainApp.getDrivers();
+		if (drivers != null) {
+			drivers.clear();
+		}
+		
+		// Set trip requirements to standard
+		Trip.setTimeRange(0., 24.);
+		Trip.setDistanceRange(0., null);
+		Trip.setSpeedRange(5., 100.);
+		
+		index = new TripIntervalIndex();
+		MainApp.getDriverListeners().add(index);
+	}
+	
+	@After
+	public void tearDownAfterTest() throws Exception {
+		MainApp.getDriverListeners().remove(index);
+	}
+
+	@Test
+	public void testDriversInWindow() {
+		CommandParser.parseCommand(new String[] {"Driver", "Dan"});
+		CommandParser.parseCommand(new String[] {"Driver", "Jane"});
+		CommandParser.parseCommand(new String[] {"Driver", "Tim"});
+		CommandParser.parseCommand(new String[] {"Trip", "Dan", "07:15", "08:15", "30.0"});
+		CommandParser.parseCommand(new String[] {"Trip", "Jane", "08:40", "09:40", "50.0"});
+		CommandParser.parseCommand(new String[] {"Trip", "Tim", "09:00", "10:00", "40.0"});
+		
+		Set<String> expected = new HashSet<>();
+		expected.add("Dan");
+		expected.add("Jane");
+		assertEquals("Drivers on the road between 08:00 and 09:00 are incorrect.", 
+				expected, index.getDrivers(LocalTime.of(8, 0), LocalTime.of(9, 0)));
+		assertEquals("Trips on the road between 08:00 and 09:00 are incorrect.", 
+				2, index.getTripCount(LocalTime.of(8, 0), LocalTime.of(9, 0)));
+		
+		// 15 minutes of Dan's trip at 0.5 mi/min plus 20 minutes of Jane's at 5/6 mi/min
+		double expectedMiles = 15 * 0.5 + 20 * 50. / 60.;
+		assertEquals("Miles between 08:00 and 09:00 are incorrect.", 
+				expectedMiles, index.getDistanceTraveled(LocalTime.of(8, 0), LocalTime.of(9, 0)), 0.001);
+		
+		assertTrue("No drivers expected on the road at night.", 
+				index.getDrivers(LocalTime.of(0, 0), LocalTime.of(7, 15)).isEmpty());
+	}
+	
+	@Test
+	public void testMatchesFullScan() {
+		Random random = new Random(42);
+		String[] names = {"Ann", "Bob", "Cal", "Deb", "Eve", "Fay"};
+		for (String name : names) {
+			CommandParser.parseCommand(new String[] {"Driver", name});
+		}
+		
+		for (int i = 0; i < 200; i++) {
+			int start = random.nextInt(1400);
+			int end = start + 1 + random.nextInt(Math.min(180, 1439 - start));
+			double miles = (end - start) * (0.2 + random.nextDouble());
+			MainApp.getDrivers().get(names[random.nextInt(names.length)])
+				.addTrip(new Trip(LocalTime.of(start / 60, start % 60), LocalTime.of(end / 60, end % 60), miles));
+		}
+		
+		for (int q = 0; q < 200; q++) {
+			int from = random.nextInt(1400);
+			int to = from + 1 + random.nextInt(1439 - from);
+			LocalTime fromTime = LocalTime.of(from / 60, from % 60);
+			LocalTime toTime = LocalTime.of(to / 60, to % 60);
+			
+			// Brute force over every trip
+			Set<String> expectedDrivers = new HashSet<>();
+			long expectedTrips = 0;
+			double expectedMiles = 0;
+			for (Driver driver : MainApp.getDrivers().values()) {
+				for (Trip trip : driver.getTrips()) {
+					int start = trip.getStartTime().toSecondOfDay() / 60;
+					int end = trip.getEndTime().toSecondOfDay() / 60;
+					int overlap = Math.min(end, to) - Math.max(start, from);
+					if (overlap > 0) {
+						expectedDrivers.add(driver.getName());
+						expectedTrips++;
+						expectedMiles += trip.getDistanceTraveled() * overlap / (end - start);
+					}
+				}
+			}
+			
+			assertEquals("Drivers in window " + fromTime + "-" + toTime + " do not match a full scan.", 
+					expectedDrivers, index.getDrivers(fromTime, toTime));
+			assertEquals("Trips in window " + fromTime + "-" + toTime + " do not match a full scan.", 
+					expectedTrips, index.getTripCount(fromTime, toTime));
+			assertEquals("Miles in window " + fromTime + "-" + toTime + " do not match a full scan.", 
+					expectedMiles, index.getDistanceTraveled(fromTime, toTime), 0.001);
+		}
+	}
+
+}
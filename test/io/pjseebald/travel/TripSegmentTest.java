@@ -0,0 +1,174 @@
+package io.pjseebald.travel;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TripSegmentTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Before
+	public void setUpBeforeTest() throws Exception {
+		MainApp.setDrivers(new HashMap<>());
+
+		// Set trip requirements to standard
+		Trip.setTimeRange(0., 24.);
+		Trip.setDistanceRange(0., null);
+		Trip.setSpeedRange(5., 100.);
+	}
+
+	@Test
+	public void testTripsReadBack() throws Exception {
+		addRandomDrivers(50, 40);
+		List<String[]> commands = new ArrayList<>();
+		commands.add(new String[] {"Driver", "Undated"});
+		commands.add(new String[] {"Trip", "Undated", "07:15", "07:45", "17.3"});
+		commands.add(new String[] {"Driver", "Idle"});
+		CommandParser.parseCommands(commands);
+		Path file = folder.newFile().toPath();
+		TripSegment.write(MainApp.getDrivers(), file, 64);
+
+		Map<String, List<Trip>> read = new HashMap<>();
+		try (TripSegment segment = TripSegment.open(file)) {
+			assertEquals("Segment should have every driver, with trips or not.", 52, segment.getDrivers().size());
+			segment.scan(null, Long.MIN_VALUE, Long.MAX_VALUE, (name, trip) -> read.computeIfAbsent(name, n -> new ArrayList<>()).add(trip));
+			assertEquals("Every block should be read by a scan of all trips.", segment.getBlockCount(), segment.getBlocksRead());
+		}
+		for (Driver driver : MainApp.getDrivers().values()) {
+			List<Trip> expected = driver.getTripsByStartTime();
+			List<Trip> actual = read.getOrDefault(driver.getName(), new ArrayList<>());
+			assertEquals("Trips of " + driver.getName() + " were not all read back.", expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertTrue("Trip of " + driver.getName() + " was read back differently.", expected.get(i).isSameTrip(actual.get(i)));
+			}
+		}
+	}
+
+	@Test
+	public void testCutShortSegmentIsRejected() throws Exception {
+		addRandomDrivers(10, 40);
+		Path file = folder.newFile().toPath();
+		TripSegment.write(MainApp.getDrivers(), file, 64);
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 100));
+		try {
+			TripSegment.open(file).close();
+			fail("Segment without its header should not open.");
+		} catch (IOException e) {
+			assertTrue("Error should say the segment is cut short: " + e.getMessage(), e.getMessage().contains("cut short"));
+		}
+	}
+
+	@Test
+	public void testFilteredAggregatesSkipBlocks() throws Exception {
+		addRandomDrivers(200, 50);
+		Path file = folder.newFile().toPath();
+		TripSegment.write(MainApp.getDrivers(), file, 128);
+		long from = TripSegment.getMinute(LocalDateTime.of(2018, 11, 10, 0, 0));
+		long to = TripSegment.getMinute(LocalDateTime.of(2018, 11, 12, 0, 0));
+
+		try (TripSegment segment = TripSegment.open(file)) {
+			// Brute force over the drivers in memory
+			Map<String, DriverAggregate> expected = new HashMap<>();
+			for (Driver driver : MainApp.getDrivers().values()) {
+				for (Trip trip : driver.getTrips()) {
+					long start = trip.getStartSecond() / 60;
+					if (start >= from && start < to) {
+						expected.computeIfAbsent(driver.getName(), n -> new DriverAggregate()).add(trip);
+					}
+				}
+			}
+			assertEquals("Aggregates over a range of time are incorrect.", new DriverReport().getReport(expected),
+					new DriverReport().getReport(segment.getAggregates(null, from, to)));
+
+			Driver driver = MainApp.getDrivers().get(getName(42));
+			long before = segment.getBlocksRead();
+			assertEquals("Aggregate of one driver is incorrect.", new DriverReport().getReport(singleton(driver)),
+					new DriverReport().getReport(segment.getAggregates(getName(42), Long.MIN_VALUE, Long.MAX_VALUE)));
+			assertTrue("Blocks of other drivers should be skipped.", segment.getBlocksRead() - before <= 2);
+		}
+	}
+
+	@Test
+	public void testUnknownDriverReadsNothing() throws Exception {
+		addRandomDrivers(100, 10);
+		Path file = folder.newFile().toPath();
+		TripSegment.write(MainApp.getDrivers(), file, 32);
+
+		try (TripSegment segment = TripSegment.open(file)) {
+			int found = 0;
+			for (int i = 0; i < 1000; i++) {
+				if (segment.mightContain("Nobody" + getName(i))) {
+					found++;
+				}
+			}
+			assertTrue("Filter has too many false positives: " + found, found < 50);
+			assertTrue("Filter must find every driver.", segment.mightContain(getName(7)));
+			assertTrue("Unknown driver has no trips.", segment.getAggregates("Nobody", Long.MIN_VALUE, Long.MAX_VALUE).isEmpty());
+			assertEquals("No block should be read for an unknown driver.", 0, segment.getBlocksRead());
+		}
+		assertTrue("Segment should be smaller than its trips as text.", Files.size(file) < 1000 * 20);
+	}
+
+	@Test
+	public void testVarInts() {
+		long[] values = {0, 1, -1, 63, -64, 64, 127, 128, 300, -300, Long.MAX_VALUE, Long.MIN_VALUE};
+		VarInts.Writer writer = new VarInts.Writer(1);
+		for (long value : values) {
+			writer.writeSigned(value);
+			writer.write(value);
+		}
+		VarInts.Reader reader = new VarInts.Reader(writer.toByteArray(), 0);
+		for (long value : values) {
+			assertEquals("Signed value was not read back.", value, reader.readSigned());
+			assertEquals("Unsigned value was not read back.", value, reader.read());
+		}
+		assertEquals("Reader should end at the end of the values.", writer.length(), reader.getPosition());
+		assertEquals("Small values should take one byte.", 1, VarInts.size(VarInts.zigZag(-64)));
+	}
+
+	private static Map<String, DriverAggregate> singleton(Driver driver) {
+		Map<String, DriverAggregate> aggregates = new HashMap<>();
+		aggregates.put(driver.getName(), driver.getAggregate());
+		return aggregates;
+	}
+
+	// Names are letters only.
+	private static String getName(int i) {
+		return "Driver" + (char) ('A' + i / 26) + (char) ('A' + i % 26);
+	}
+
+	private static void addRandomDrivers(int count, int tripsEach) {
+		Random random = new Random(42);
+		List<String[]> commands = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			String name = getName(i);
+			commands.add(new String[] {"Driver", name});
+			LocalDateTime time = LocalDateTime.of(2018, 11, 1, 0, 0);
+			for (int j = 0; j < tripsEach; j++) {
+				time = time.plusMinutes(random.nextInt(900));
+				LocalDateTime end = time.plusMinutes(20 + random.nextInt(40));
+				commands.add(new String[] {"Trip", name, time.toString().substring(0, 16),
+						end.toLocalTime().toString(), "" + (10 + random.nextInt(23)) + "." + random.nextInt(10)});
+				time = end;
+			}
+		}
+		CommandParser.parseCommands(commands);
+	}
+}